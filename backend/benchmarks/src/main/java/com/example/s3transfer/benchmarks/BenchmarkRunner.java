@@ -0,0 +1,29 @@
+package com.example.s3transfer.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point for {@code benchmarks.jar}. Same arguments as the stock JMH main,
+ * but results are written as JSON under {@code target/} unless {@code -rf} or
+ * {@code -rff} is given.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf") && !arguments.contains("-rff")) {
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            arguments.addAll(List.of("-rf", "json", "-rff", "target/jmh-result-" + stamp + ".json"));
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.s3transfer.benchmarks;
+
+import com.example.s3transfer.service.Checksums;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checksum of one upload part in each supported algorithm, i.e. the CPU every
+ * checksummed part costs its upload thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChecksumBenchmark {
+
+    /** Part size in bytes. */
+    @Param({"8388608"})
+    private int size;
+
+    @Param({"CRC32C", "SHA256"})
+    private String algorithm;
+
+    private ChecksumAlgorithm checksum;
+    private byte[] part;
+
+    @Setup
+    public void setup() {
+        checksum = Checksums.parse(algorithm);
+        part = Fixtures.payload(size);
+    }
+
+    @Benchmark
+    public String checksumPart() {
+        return Checksums.of(checksum, part, 0, part.length);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.s3transfer.benchmarks;
+
+import com.example.s3transfer.service.CompressionService;
+import com.example.s3transfer.service.ContentCoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming compression of log-like text with each coding at its default
+ * level, i.e. the CPU a compressed upload or transfer spends per object.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    /** Payload size in bytes. */
+    @Param({"16777216"})
+    private int size;
+
+    @Param({"GZIP", "ZSTD"})
+    private ContentCoding coding;
+
+    private CompressionService compression;
+    private byte[] plain;
+
+    @Setup
+    public void setup() throws IOException {
+        compression = Fixtures.compressionService();
+        plain = Fixtures.text(size);
+    }
+
+    @Benchmark
+    public long compress() throws IOException {
+        try (InputStream in = compression.compress(new ByteArrayInputStream(plain), coding)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
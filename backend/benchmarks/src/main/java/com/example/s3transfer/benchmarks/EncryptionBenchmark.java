@@ -0,0 +1,54 @@
+package com.example.s3transfer.benchmarks;
+
+import com.example.s3transfer.service.EncryptionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Credential encryption, which runs on every S3 client lookup that misses the registry cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncryptionBenchmark {
+
+    /** Plaintext length in characters; 40 is the size of an AWS secret key. */
+    @Param({"40", "1024", "65536"})
+    private int size;
+
+    private EncryptionService encryptionService;
+    private String plaintext;
+    private String ciphertext;
+
+    @Setup
+    public void setup() {
+        encryptionService = new EncryptionService("0123456789abcdef");
+        plaintext = Base64.getEncoder().encodeToString(Fixtures.payload(size)).substring(0, size);
+        ciphertext = encryptionService.encrypt(plaintext);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return encryptionService.encrypt(plaintext);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return encryptionService.decrypt(ciphertext);
+    }
+}
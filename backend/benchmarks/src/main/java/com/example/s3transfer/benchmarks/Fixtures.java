@@ -0,0 +1,137 @@
+package com.example.s3transfer.benchmarks;
+
+import com.example.s3transfer.service.ChecksumSettings;
+import com.example.s3transfer.service.CompressionService;
+import com.example.s3transfer.service.MockS3Service;
+import com.example.s3transfer.service.MockUrlSigner;
+import com.example.s3transfer.service.MultipartSettings;
+import com.example.s3transfer.service.PayloadEncryptionService;
+import com.example.s3transfer.service.S3CacheSettings;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Builds the backend services outside Spring, passing the defaults from
+ * application.properties where Spring would inject them.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static MultipartSettings multipartSettings() {
+        return new MultipartSettings(DataSize.ofMegabytes(128), DataSize.ofMegabytes(64), 8);
+    }
+
+    static ExecutorService partExecutor() {
+        return Executors.newFixedThreadPool(8);
+    }
+
+    static MockS3Service mockS3Service(Path root, boolean dedup, ExecutorService partExecutor) {
+        return new MockS3Service(multipartSettings(), partExecutor, new MockUrlSigner("", "http://localhost:8081"),
+                root.toString(), dedup);
+    }
+
+    /** Without a meter registry, so {@code record} only builds its summary. */
+    static CompressionService compressionService() {
+        return new CompressionService(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 6, 3);
+    }
+
+    /** Master key derived from a fixed credential key, as when none is configured. */
+    static PayloadEncryptionService payloadEncryptionService(DataSize chunkSize) {
+        PayloadEncryptionService encryption = new PayloadEncryptionService("", "0123456789abcdef", chunkSize);
+        encryption.init();
+        return encryption;
+    }
+
+    /** @param algorithm CRC32C, SHA256 or NONE */
+    static ChecksumSettings checksumSettings(String algorithm) {
+        return new ChecksumSettings(algorithm);
+    }
+
+    static S3CacheSettings s3CacheSettings() {
+        return new S3CacheSettings(true, 60_000L, 5_000L, 1_000L, 100_000L);
+    }
+
+    static Path tempRoot(String name) {
+        try {
+            return Files.createTempDirectory("s3-bench-" + name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void deleteRecursively(Path root) {
+        if (root == null || !Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] payload(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    /** CSV-like log lines, compressible the way the objects we move usually are. */
+    static byte[] text(int size) {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(size + 128);
+        while (text.length() < size) {
+            text.append("2024-05-").append(10 + random.nextInt(20)).append("T12:")
+                    .append(10 + random.nextInt(50)).append(':').append(10 + random.nextInt(50))
+                    .append(",INFO,transfer-").append(random.nextInt(64)).append(",copied part ")
+                    .append(random.nextInt(10_000)).append(" of ").append(random.nextInt(1 << 20))
+                    .append(" bytes\n");
+        }
+        return text.substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Transaction manager for components that wrap in-memory repositories in
+     * a {@code TransactionTemplate}.
+     */
+    static PlatformTransactionManager noopTransactionManager() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.s3transfer.benchmarks;
+
+import com.example.s3transfer.entity.TransferJob;
+import com.example.s3transfer.repository.TransferJobRepository;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Map-backed stand-in for the JPA repository so transfer benchmarks measure the
+ * transfer path rather than the database. Only the methods TransferService and
+ * TransferQueue call are implemented; claims skip the lease-expiry cases.
+ */
+final class InMemoryTransferJobRepository implements InvocationHandler {
+
+    private final Map<UUID, TransferJob> jobs = new ConcurrentHashMap<>();
+
+    static InMemoryTransferJobRepository create() {
+        return new InMemoryTransferJobRepository();
+    }
+
+    TransferJobRepository proxy() {
+        return (TransferJobRepository) Proxy.newProxyInstance(TransferJobRepository.class.getClassLoader(),
+                new Class<?>[]{TransferJobRepository.class}, this);
+    }
+
+    Map<UUID, TransferJob> jobs() {
+        return jobs;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "save":
+                TransferJob job = (TransferJob) args[0];
+                if (job.getId() == null) {
+                    job.setId(UUID.randomUUID());
+                }
+                jobs.put(job.getId(), job);
+                return job;
+            case "findById":
+                return Optional.ofNullable(jobs.get((UUID) args[0]));
+            case "delete":
+                jobs.remove(((TransferJob) args[0]).getId());
+                return null;
+            case "count":
+                return (long) jobs.size();
+            case "countWaiting":
+                return jobs.values().stream().filter(j -> j.getLeaseOwner() == null && "QUEUED".equals(j.getStatus())).count();
+            case "failAbandoned":
+                return 0;
+            case "findClaimable":
+                return findClaimable((LocalDateTime) args[0], ((Pageable) args[2]).getPageSize());
+            case "claim":
+                return claim((Collection<?>) args[0], (String) args[1], (LocalDateTime) args[2], (LocalDateTime) args[3]);
+            case "findClaimed":
+                return ((Collection<?>) args[0]).stream().map(jobs::get)
+                        .filter(j -> j != null && args[1].equals(j.getLeaseOwner()) && args[2].equals(j.getLeaseExpiresAt()))
+                        .collect(Collectors.toList());
+            case "toString":
+                return "InMemoryTransferJobRepository";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    private List<TransferJob> findClaimable(LocalDateTime now, int limit) {
+        return jobs.values().stream()
+                .filter(j -> claimable(j, now))
+                .sorted(Comparator.comparing(TransferJob::getCreatedAt))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private synchronized int claim(Collection<?> ids, String owner, LocalDateTime expires, LocalDateTime now) {
+        int claimed = 0;
+        for (Object id : ids) {
+            TransferJob job = jobs.get((UUID) id);
+            if (job != null && claimable(job, now)) {
+                job.setLeaseOwner(owner);
+                job.setLeaseExpiresAt(expires);
+                job.setAttempts(job.getAttempts() + 1);
+                claimed++;
+            }
+        }
+        return claimed;
+    }
+
+    private static boolean claimable(TransferJob job, LocalDateTime now) {
+        return job.getLeaseOwner() == null && "QUEUED".equals(job.getStatus())
+                && (job.getNextAttemptAt() == null || !job.getNextAttemptAt().isAfter(now));
+    }
+}
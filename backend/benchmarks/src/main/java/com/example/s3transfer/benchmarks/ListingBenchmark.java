@@ -0,0 +1,103 @@
+package com.example.s3transfer.benchmarks;
+
+import com.example.s3transfer.dto.ObjectListing;
+import com.example.s3transfer.dto.S3ObjectSummary;
+import com.example.s3transfer.service.CachingS3Service;
+import com.example.s3transfer.service.IS3Service;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing over a bucket with many small keys spread across 100 "directories",
+ * straight from the mock store or through the metadata cache. Full scans
+ * bypass the cache, so only the page benchmarks differ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListingBenchmark {
+
+    private static final String BUCKET = "bench-listing";
+
+    @Param({"10000", "50000"})
+    private int keys;
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    private Path root;
+    private ExecutorService partExecutor;
+    private IS3Service s3Service;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        root = Fixtures.tempRoot("listing");
+        partExecutor = Fixtures.partExecutor();
+        s3Service = Fixtures.mockS3Service(root, true, partExecutor);
+        if (cached) {
+            s3Service = new CachingS3Service(s3Service, Fixtures.s3CacheSettings(), new SimpleMeterRegistry());
+        }
+        s3Service.createBucket(BUCKET);
+        byte[] body = new byte[16];
+        for (int i = 0; i < keys; i++) {
+            String key = String.format("dir-%02d/object-%06d.bin", i % 100, i);
+            s3Service.uploadFile(BUCKET, key, new ByteArrayInputStream(body), body.length);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        partExecutor.shutdownNow();
+        Fixtures.deleteRecursively(root);
+    }
+
+    /** First page of a flat listing, as the file browser requests it. */
+    @Benchmark
+    public ObjectListing firstPage() {
+        return s3Service.listObjects(BUCKET, null, null, null, 1000);
+    }
+
+    /** A page from the middle of the bucket, reached through a continuation token. */
+    @Benchmark
+    public ObjectListing middlePage() {
+        ObjectListing first = s3Service.listObjects(BUCKET, "dir-50/", null, null, 1);
+        return s3Service.listObjects(BUCKET, null, null, first.getNextContinuationToken(), 1000);
+    }
+
+    /** Top-level "directory" view, which has to roll every key up into a common prefix. */
+    @Benchmark
+    public ObjectListing delimiter() {
+        return s3Service.listObjects(BUCKET, null, "/", null, 1000);
+    }
+
+    /** Every key in the bucket, page by page, as prefix jobs do. */
+    @Benchmark
+    public void fullScan(Blackhole blackhole) {
+        Iterator<S3ObjectSummary> it = s3Service.iterateObjects(BUCKET, null);
+        while (it.hasNext()) {
+            blackhole.consume(it.next());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.s3transfer.benchmarks;
+
+import com.example.s3transfer.service.MockS3Service;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload, download and copy through {@link MockS3Service} against a temporary
+ * directory, with and without blob dedup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MockStoreBenchmark {
+
+    private static final String SOURCE = "bench-source";
+    private static final String DESTINATION = "bench-destination";
+    private static final String KEY = "payload.bin";
+
+    @Param({"1024", "1048576", "67108864"})
+    private int size;
+
+    @Param({"true", "false"})
+    private boolean dedup;
+
+    private Path root;
+    private ExecutorService partExecutor;
+    private MockS3Service s3Service;
+    private byte[] payload;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        root = Fixtures.tempRoot("store");
+        partExecutor = Fixtures.partExecutor();
+        s3Service = Fixtures.mockS3Service(root, dedup, partExecutor);
+        s3Service.createBucket(SOURCE);
+        s3Service.createBucket(DESTINATION);
+        payload = Fixtures.payload(size);
+        buffer = new byte[64 * 1024];
+        s3Service.uploadFile(SOURCE, KEY, new ByteArrayInputStream(payload), payload.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        partExecutor.shutdownNow();
+        Fixtures.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public void upload() {
+        s3Service.uploadFile(DESTINATION, KEY, new ByteArrayInputStream(payload), payload.length);
+    }
+
+    @Benchmark
+    public long download() throws IOException {
+        try (ResponseInputStream<GetObjectResponse> in = s3Service.downloadFile(SOURCE, KEY)) {
+            long total = 0;
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                total += n;
+            }
+            return total;
+        }
+    }
+
+    @Benchmark
+    public long downloadTransferTo() throws IOException {
+        try (ResponseInputStream<GetObjectResponse> in = s3Service.downloadFile(SOURCE, KEY)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public long copy() {
+        return s3Service.copyFile(SOURCE, DESTINATION, KEY);
+    }
+}
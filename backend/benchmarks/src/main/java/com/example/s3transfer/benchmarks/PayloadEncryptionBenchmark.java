@@ -0,0 +1,82 @@
+package com.example.s3transfer.benchmarks;
+
+import com.example.s3transfer.service.DecryptingInputStream;
+import com.example.s3transfer.service.PayloadEncryptionService;
+import com.example.s3transfer.service.PayloadEnvelope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming payload encryption against a plain stream copy of the same bytes,
+ * i.e. what sealing adds to an upload or download on top of moving the data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadEncryptionBenchmark {
+
+    /** Payload size in bytes. */
+    @Param({"16777216"})
+    private int size;
+
+    @Param({"64KB"})
+    private String chunkSize;
+
+    private PayloadEncryptionService encryption;
+    private PayloadEnvelope envelope;
+    private byte[] plaintext;
+    private byte[] sealed;
+
+    @Setup
+    public void setup() throws IOException {
+        encryption = Fixtures.payloadEncryptionService(DataSize.parse(chunkSize));
+        envelope = encryption.newEnvelope();
+        plaintext = Fixtures.payload(size);
+        sealed = encryption.encrypt(new ByteArrayInputStream(plaintext), envelope).readAllBytes();
+    }
+
+    /** Baseline: the same bytes read through a buffer, as a stream copy would. */
+    @Benchmark
+    public long copy() throws IOException {
+        InputStream in = new ByteArrayInputStream(plaintext);
+        byte[] buffer = new byte[65536];
+        long total = 0;
+        for (int n; (n = in.read(buffer)) > 0; ) {
+            total += n;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long encrypt() throws IOException {
+        try (InputStream in = encryption.encrypt(new ByteArrayInputStream(plaintext), envelope)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public long decrypt() throws IOException {
+        try (InputStream in = new DecryptingInputStream(new ByteArrayInputStream(sealed), envelope, size)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
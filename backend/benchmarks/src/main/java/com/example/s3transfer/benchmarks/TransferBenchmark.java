@@ -0,0 +1,167 @@
+package com.example.s3transfer.benchmarks;
+
+import com.example.s3transfer.dto.TransferRequest;
+import com.example.s3transfer.entity.TransferJob;
+import com.example.s3transfer.service.BufferPool;
+import com.example.s3transfer.service.IAsyncS3Service;
+import com.example.s3transfer.service.MockS3Service;
+import com.example.s3transfer.service.StreamingUploadService;
+import com.example.s3transfer.service.TransferCheckpoints;
+import com.example.s3transfer.service.TransferCopier;
+import com.example.s3transfer.service.TransferExecutor;
+import com.example.s3transfer.service.TransferJobStore;
+import com.example.s3transfer.service.TransferProgressHub;
+import com.example.s3transfer.service.TransferQueue;
+import com.example.s3transfer.service.TransferService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end {@link TransferService#startTransfer} throughput on the mock backend:
+ * each invocation queues a batch of jobs and waits for all of them to finish.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+
+    private static final int BATCH = 200;
+    private static final String SOURCE = "bench-source";
+    private static final String DESTINATION = "bench-destination";
+
+    @Param({"1024", "1048576"})
+    private int size;
+
+    @Param({"true", "false"})
+    private boolean dedup;
+
+    private Path root;
+    private ExecutorService partExecutor;
+    private TransferExecutor transferExecutor;
+    private TransferProgressHub progressHub;
+    private InMemoryTransferJobRepository repository;
+    private TransferJobStore jobStore;
+    private TransferQueue transferQueue;
+    private TransferService transferService;
+    private List<TransferRequest> requests;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        root = Fixtures.tempRoot("transfer");
+        partExecutor = Fixtures.partExecutor();
+        MockS3Service s3Service = Fixtures.mockS3Service(root, dedup, partExecutor);
+        s3Service.createBucket(SOURCE);
+        s3Service.createBucket(DESTINATION);
+
+        byte[] payload = Fixtures.payload(size);
+        requests = new ArrayList<>();
+        for (int i = 0; i < BATCH; i++) {
+            String key = String.format("batch/object-%04d.bin", i);
+            s3Service.uploadFile(SOURCE, key, new ByteArrayInputStream(payload), payload.length);
+            TransferRequest request = new TransferRequest();
+            request.setSourceBucket(SOURCE);
+            request.setDestinationBucket(DESTINATION);
+            request.setFileKey(key);
+            requests.add(request);
+        }
+
+        transferExecutor = new TransferExecutor(4, 16, 500, 8, 5, 30, 1000);
+        transferExecutor.init();
+
+        repository = InMemoryTransferJobRepository.create();
+        jobStore = new TransferJobStore(repository.proxy(), null, null, 500, 300_000) {
+            @Override
+            protected void insert(TransferJob job) {
+                repository.jobs().put(job.getId(), job);
+            }
+
+            @Override
+            protected boolean[] write(List<TransferJob> updates, List<String> owners) {
+                updates.forEach(job -> repository.jobs().put(job.getId(), job));
+                boolean[] applied = new boolean[updates.size()];
+                Arrays.fill(applied, true);
+                return applied;
+            }
+        };
+        jobStore.init();
+        progressHub = new TransferProgressHub(jobStore, 1000, 1_800_000);
+        progressHub.init();
+        // jobs beyond the idle workers wait in the repository; poll every 1 ms so the wait isn't measured
+        transferQueue = new TransferQueue(repository.proxy(), jobStore, transferExecutor,
+                new TransactionTemplate(Fixtures.noopTransactionManager()), "bench", 60, 1, 5, 5000, 300_000,
+                10_000, 5);
+        // payloads stay below the multipart threshold, so checkpoints are never written
+        TransferCopier copier = new TransferCopier(s3Service, partExecutor, Fixtures.multipartSettings(),
+                new BufferPool((int) DataSize.ofMegabytes(16).toBytes(), 16), 4, 4, true,
+                Fixtures.payloadEncryptionService(DataSize.ofKilobytes(64)), Fixtures.compressionService(),
+                new StreamingUploadService(s3Service, partExecutor, DataSize.ofMegabytes(8), 16, 4),
+                new StaticListableBeanFactory().getBeanProvider(IAsyncS3Service.class));
+        transferService = new TransferService(jobStore, copier, transferExecutor, progressHub, transferQueue,
+                new TransferCheckpoints(null, jobStore), Fixtures.checksumSettings("CRC32C"));
+        transferService.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        transferQueue.shutdown();
+        transferExecutor.shutdown();
+        progressHub.shutdown();
+        jobStore.shutdown();
+        partExecutor.shutdownNow();
+        Fixtures.deleteRecursively(root);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearJobs() {
+        repository.jobs().clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void startTransfer() {
+        List<UUID> ids = new ArrayList<>(BATCH);
+        for (TransferRequest request : requests) {
+            ids.add(transferService.startTransfer(request));
+        }
+        for (UUID id : ids) {
+            while (!finished(jobStore.find(id).orElseThrow())) {
+                LockSupport.parkNanos(50_000);
+            }
+        }
+    }
+
+    private static boolean finished(TransferJob job) {
+        if ("FAILED".equals(job.getStatus())) {
+            throw new IllegalStateException("Transfer failed: " + job.getErrorMessage());
+        }
+        return "COMPLETED".equals(job.getStatus());
+    }
+}
@@ -1,9 +1,60 @@
 package com.example.s3transfer.config;
 
+import com.example.s3transfer.service.BufferPool;
+import com.example.s3transfer.service.MultipartSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableAsync
 public class AsyncConfig {
+
+    /**
+     * Shared pool for individual multipart part operations. Kept separate from
+     * the transfer workers, which block while waiting on their parts.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService s3PartExecutor(@Value("${app.s3.multipart.executor-threads:32}") int threads) {
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("s3-part-"));
+    }
+
+    /**
+     * One thread per running batch; each enumerates its keys and hands them to
+     * {@code batchWorkerExecutor}. Bounded so excess batches are rejected.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService batchCoordinatorExecutor(
+            @Value("${app.transfer.batch.max-running:4}") int maxRunning,
+            @Value("${app.transfer.batch.queue-capacity:20}") int queueCapacity) {
+        return new ThreadPoolExecutor(maxRunning, maxRunning, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("batch-coordinator-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Buffers shared by every relayed (cross-account) copy on this node, so
+     * their memory is bounded together.
+     */
+    @Bean
+    public BufferPool relayBufferPool(@Value("${app.transfer.relay.part-size:16MB}") DataSize partSize,
+                                      @Value("${app.transfer.relay.buffer-count:16}") int bufferCount) {
+        return new BufferPool((int) Math.max(partSize.toBytes(), MultipartSettings.MIN_PART_SIZE),
+                Math.max(1, bufferCount));
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService batchWorkerExecutor(@Value("${app.transfer.batch.worker-threads:64}") int threads) {
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("batch-worker-"));
+    }
 }
\ No newline at end of file
@@ -17,6 +17,8 @@ public class CorsConfig implements WebMvcConfigurer {
                 .allowedOrigins("http://localhost:5173", "http://localhost:3000", "http://localhost:3001")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                // browsers uploading parts to presigned URLs read each part's ETag
+                .exposedHeaders("ETag")
                 .allowCredentials(true);
     }
 }
\ No newline at end of file
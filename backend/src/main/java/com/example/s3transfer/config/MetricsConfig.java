@@ -0,0 +1,105 @@
+package com.example.s3transfer.config;
+
+import com.example.s3transfer.service.BufferPool;
+import com.example.s3transfer.service.CachingS3Service;
+import com.example.s3transfer.service.DiskCachingS3Service;
+import com.example.s3transfer.service.IS3Service;
+import com.example.s3transfer.service.InstrumentedS3Service;
+import com.example.s3transfer.service.ObjectDiskCache;
+import com.example.s3transfer.service.S3CacheSettings;
+import com.example.s3transfer.service.S3ClientRegistry;
+import com.example.s3transfer.service.TransferExecutor;
+import com.example.s3transfer.service.TransferQueue;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Wraps whichever {@link IS3Service} the active profile provides, so every
+     * injection point gets the instrumented one, behind the metadata cache when
+     * it is enabled (so {@code s3.operation} counts only the calls that reach S3).
+     * The object disk cache, when enabled, sits between the two.
+     */
+    @Bean
+    public static BeanPostProcessor s3ServiceInstrumentation(ObjectProvider<MeterRegistry> meterRegistry,
+                                                             ObjectProvider<S3CacheSettings> cacheSettings,
+                                                             ObjectProvider<ObjectDiskCache> objectCache) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof IS3Service && !(bean instanceof InstrumentedS3Service)
+                        && !(bean instanceof CachingS3Service) && !(bean instanceof DiskCachingS3Service)) {
+                    MeterRegistry registry = meterRegistry.getObject();
+                    IS3Service instrumented = new InstrumentedS3Service((IS3Service) bean, registry);
+                    ObjectDiskCache objects = objectCache.getObject();
+                    if (objects.isEnabled()) {
+                        instrumented = new DiskCachingS3Service(instrumented, objects);
+                    }
+                    S3CacheSettings cache = cacheSettings.getObject();
+                    return cache.isEnabled() ? new CachingS3Service(instrumented, cache, registry) : instrumented;
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder transferExecutorMetrics(TransferExecutor executor) {
+        return registry -> {
+            Gauge.builder("transfer.queue.depth", executor, TransferExecutor::getQueueDepth)
+                    .description("Transfer jobs waiting for a worker")
+                    .register(registry);
+            Gauge.builder("transfer.jobs.active", executor, TransferExecutor::getActiveWorkers)
+                    .description("Transfer jobs currently running")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder transferQueueMetrics(TransferQueue queue) {
+        return registry -> {
+            Gauge.builder("transfer.queue.backlog", queue, TransferQueue::getBacklog)
+                    .description("Jobs waiting in the shared queue for any node")
+                    .register(registry);
+            Gauge.builder("transfer.queue.leases", queue, TransferQueue::getHeldLeases)
+                    .description("Transfer jobs leased to this node")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder transferRelayMetrics(@Qualifier("relayBufferPool") BufferPool relayBuffers) {
+        return registry -> Gauge.builder("transfer.relay.buffers.in_use", relayBuffers, BufferPool::getInUse)
+                .description("Relay buffers held by parts being read or written")
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder s3ClientMetrics(S3ClientRegistry clients) {
+        return registry -> {
+            Gauge.builder("s3.clients", clients, S3ClientRegistry::size)
+                    .description("Cached S3 clients")
+                    .register(registry);
+            Gauge.builder("s3.client.requests.active", clients, S3ClientRegistry::activeRequests)
+                    .description("SDK calls in flight across all S3 clients")
+                    .register(registry);
+            Gauge.builder("s3.client.connections.leased", clients, S3ClientRegistry::leasedConnections)
+                    .description("Pooled HTTP connections in use across all S3 clients")
+                    .register(registry);
+            Gauge.builder("s3.client.connections.pending", clients, S3ClientRegistry::pendingConnectionAcquires)
+                    .description("Requests waiting for a pooled HTTP connection")
+                    .register(registry);
+            Gauge.builder("s3.client.connections.max", clients, S3ClientRegistry::maxConnectionsPerClient)
+                    .description("Connection pool size of each S3 client")
+                    .register(registry);
+        };
+    }
+}
@@ -4,6 +4,9 @@ import com.example.s3transfer.dto.AwsCredentialDTO;
 import com.example.s3transfer.entity.AwsCredential;
 import com.example.s3transfer.repository.AwsCredentialRepository;
 import com.example.s3transfer.service.EncryptionService;
+import com.example.s3transfer.service.ObjectDiskCache;
+import com.example.s3transfer.service.S3ClientRegistry;
+import com.example.s3transfer.service.S3Throttle;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,6 +15,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -21,20 +25,29 @@ public class AdminController {
 
     private final AwsCredentialRepository repo;
     private final EncryptionService enc;
+    private final S3ClientRegistry clientRegistry;
+    private final S3Throttle throttle;
+    private final ObjectDiskCache objectCache;
 
     @PostMapping("/aws")
-    @Operation(summary = "Save AWS Credentials", description = "Store encrypted AWS credentials for S3 operations")
+    @Operation(summary = "Save AWS Credentials", description = "Store encrypted AWS credentials for S3 operations; saving an existing account name replaces its keys")
     @ApiResponse(responseCode = "200", description = "Credentials saved successfully")
     @ApiResponse(responseCode = "400", description = "Failed to save credentials")
     public ResponseEntity<String> saveCredentials(@RequestBody AwsCredentialDTO dto) {
         try {
-            AwsCredential c = new AwsCredential();
+            // saving an account again replaces its keys, so clients built with the old ones are dropped;
+            // a new account has no clients yet and leaves the default as it is
+            AwsCredential existing = repo.findFirstByAccountName(dto.getAccountName()).orElse(null);
+            AwsCredential c = existing != null ? existing : new AwsCredential();
             c.setAccountName(dto.getAccountName());
             c.setRegion(dto.getRegion());
             c.setAccessKeyEncrypted(enc.encrypt(dto.getAccessKey()));
             c.setSecretKeyEncrypted(enc.encrypt(dto.getSecretKey()));
-            repo.save(c);
-            
+            c = repo.save(c);
+            if (existing != null) {
+                clientRegistry.invalidate(c.getId());
+            }
+
             return ResponseEntity.ok("AWS credentials saved successfully");
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Failed to save credentials: " + e.getMessage());
@@ -52,4 +65,25 @@ public class AdminController {
             return ResponseEntity.badRequest().build();
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/s3-clients")
+    @Operation(summary = "Get S3 Client Pool Stats", description = "Cached S3 client count, hits, misses and evictions")
+    @ApiResponse(responseCode = "200", description = "Stats retrieved successfully")
+    public ResponseEntity<Map<String, Object>> getClientStats() {
+        return ResponseEntity.ok(clientRegistry.stats());
+    }
+
+    @GetMapping("/s3-throttle")
+    @Operation(summary = "Get S3 Throttle Stats", description = "Adaptive concurrency limit and in-flight calls per bucket/prefix, and the remaining retry budget")
+    @ApiResponse(responseCode = "200", description = "Stats retrieved successfully")
+    public ResponseEntity<Map<String, Object>> getThrottleStats() {
+        return ResponseEntity.ok(throttle.stats());
+    }
+
+    @GetMapping("/object-cache")
+    @Operation(summary = "Get Object Disk Cache Stats", description = "Cached objects and bytes, hits, misses, hit rate, ETag revalidations and bytes served from disk instead of S3")
+    @ApiResponse(responseCode = "200", description = "Stats retrieved successfully")
+    public ResponseEntity<Map<String, Object>> getObjectCacheStats() {
+        return ResponseEntity.ok(objectCache.stats());
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.s3transfer.controller;
+
+import com.example.s3transfer.service.CompressionService;
+import com.example.s3transfer.service.ContentCoding;
+import com.example.s3transfer.service.IAsyncS3Service;
+import com.example.s3transfer.service.InvalidRangeException;
+import com.example.s3transfer.service.ObjectNotModifiedException;
+import com.example.s3transfer.service.PayloadEncryptionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.Parameter;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variants of the busiest {@link S3Controller} endpoints, on the
+ * {@link IAsyncS3Service}. No servlet thread waits on S3: listings complete
+ * when S3 answers, and downloads stream each buffer to the client as soon as
+ * the socket can take it, so a slow reader holds a connection but no thread.
+ *
+ * <p>Downloads that need this node to decrypt or decompress them, or that ask
+ * for several ranges, are handed to the blocking endpoint unchanged.
+ */
+@RestController
+@RequestMapping("/api/async/s3")
+@Profile("async & !mock")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "S3 Operations (non-blocking)", description = "S3 reads that don't hold a server thread while S3 responds")
+public class AsyncS3Controller {
+
+    private final IAsyncS3Service s3Service;
+    private final PayloadEncryptionService payloadEncryption;
+    private final CompressionService compression;
+
+    @Value("${app.web.async.timeout-ms:3600000}")
+    private long asyncTimeoutMs;
+
+    @GetMapping("/{bucket}/objects")
+    @Operation(summary = "List Objects", description = "List one page of objects with size, ETag and last-modified")
+    @ApiResponse(responseCode = "200", description = "Objects listed successfully")
+    @ApiResponse(responseCode = "400", description = "Listing failed")
+    public CompletableFuture<ResponseEntity<?>> listObjects(
+            @Parameter(description = "S3 bucket name", example = "my-bucket")
+            @PathVariable String bucket,
+            @Parameter(description = "Only list keys starting with this prefix", example = "documents/")
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @Parameter(description = "Roll up keys sharing a prefix up to this delimiter", example = "/")
+            @RequestParam(value = "delimiter", required = false) String delimiter,
+            @Parameter(description = "Token returned by the previous page")
+            @RequestParam(value = "continuationToken", required = false) String continuationToken,
+            @Parameter(description = "Page size (1-1000)", example = "1000")
+            @RequestParam(value = "maxKeys", defaultValue = "1000") int maxKeys) {
+        if (maxKeys < 1 || maxKeys > 1000) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("maxKeys must be between 1 and 1000"));
+        }
+        return s3Service.listObjects(bucket, prefix, delimiter, continuationToken, maxKeys)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(failure -> {
+                    String message = String.valueOf(IAsyncS3Service.unwrap(failure).getMessage());
+                    if (message.contains("No AWS credentials")) {
+                        return ResponseEntity.badRequest().body("No AWS credentials configured. Please configure credentials in Admin Panel first.");
+                    }
+                    return ResponseEntity.badRequest().body("Failed to list objects: " + message);
+                });
+    }
+
+    @GetMapping("/{bucket}/download/{key}")
+    @Operation(summary = "Download File", description = "Download a file from S3 bucket without holding a server thread. Encrypted files, compressed files the client can't take as they are, and multiple ranges are served by the blocking download endpoint. Supports Range, If-None-Match and If-Modified-Since")
+    @ApiResponse(responseCode = "200", description = "File downloaded successfully")
+    @ApiResponse(responseCode = "206", description = "Requested range returned")
+    @ApiResponse(responseCode = "304", description = "Client copy is current")
+    @ApiResponse(responseCode = "400", description = "Download failed")
+    @ApiResponse(responseCode = "416", description = "Range not satisfiable")
+    public void downloadFile(
+            @Parameter(description = "S3 bucket name", example = "my-bucket")
+            @PathVariable String bucket,
+            @Parameter(description = "File key/path", example = "documents/report.pdf")
+            @PathVariable String key,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request, HttpServletResponse response) {
+        List<HttpRange> ranges = S3Controller.parseRanges(range);
+        AsyncContext async = request.startAsync();
+        async.setTimeout(asyncTimeoutMs);
+        String blockingPath = blockingPath(request);
+        if (ranges.size() > 1) {
+            async.dispatch(blockingPath);
+            return;
+        }
+        boolean ranged = !ranges.isEmpty();
+        s3Service.downloadFile(bucket, key, ranged ? range : null, ifNoneMatch,
+                S3Controller.parseHttpDate(ifModifiedSince))
+                .whenComplete((object, failure) -> {
+                    if (failure != null) {
+                        Throwable e = IAsyncS3Service.unwrap(failure);
+                        response.setStatus(e instanceof ObjectNotModifiedException ? HttpStatus.NOT_MODIFIED.value()
+                                : e instanceof InvalidRangeException ? HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()
+                                : HttpStatus.BAD_REQUEST.value());
+                        async.complete();
+                        return;
+                    }
+                    GetObjectResponse meta = object.response();
+                    ContentCoding coding = compression.codingOf(meta.metadata());
+                    boolean encoded = coding != null && !ranged && coding.acceptedBy(acceptEncoding);
+                    if (payloadEncryption.isEncrypted(meta.metadata()) || (coding != null && !encoded)) {
+                        object.subscribe(new Discard());
+                        async.dispatch(blockingPath);
+                        return;
+                    }
+                    stream(object, meta, key, coding, encoded, async, response);
+                });
+    }
+
+    private void stream(ResponsePublisher<GetObjectResponse> object, GetObjectResponse meta, String key,
+                        ContentCoding coding, boolean encoded, AsyncContext async, HttpServletResponse response) {
+        ResponseEntity.BodyBuilder builder = meta.contentRange() != null
+                ? ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).header(HttpHeaders.CONTENT_RANGE, meta.contentRange())
+                : ResponseEntity.ok();
+        if (meta.contentLength() != null) {
+            builder.contentLength(meta.contentLength());
+        }
+        if (coding != null) {
+            builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (encoded) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, coding.getToken());
+        }
+        ResponseEntity<Void> head = S3Controller.withObjectHeaders(builder, key, meta.eTag(), meta.lastModified())
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .build();
+        response.setStatus(head.getStatusCodeValue());
+        head.getHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        try {
+            object.subscribe(new BodyWriter(async, response.getOutputStream()));
+        } catch (IOException e) {
+            object.subscribe(new Discard());
+            async.complete();
+        }
+    }
+
+    /** The same request on the blocking {@link S3Controller}, still URL-encoded. */
+    private static String blockingPath(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return "/api/s3" + path.substring("/api/async/s3".length());
+    }
+
+    /** Releases a response body nobody will read. */
+    private static class Discard implements Subscriber<ByteBuffer> {
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.cancel();
+        }
+
+        @Override
+        public void onNext(ByteBuffer buffer) {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * Copies a body publisher to the servlet's non-blocking output. One buffer
+     * is requested at a time, and only once the last has been written without
+     * blocking, so a slow client slows the S3 read instead of filling memory.
+     * Every callback runs under this object's lock: S3 delivers on its event
+     * loop, the container on its own threads.
+     */
+    private static class BodyWriter implements Subscriber<ByteBuffer>, WriteListener, AsyncListener {
+        private final AsyncContext async;
+        private final ServletOutputStream out;
+        private Subscription subscription;
+        private ByteBuffer pending;
+        private boolean requested;
+        private boolean complete;
+        private boolean closed;
+
+        BodyWriter(AsyncContext async, ServletOutputStream out) {
+            this.async = async;
+            this.out = out;
+            async.addListener(this);
+        }
+
+        @Override
+        public synchronized void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            out.setWriteListener(this);
+        }
+
+        @Override
+        public synchronized void onNext(ByteBuffer buffer) {
+            pending = buffer;
+            requested = false;
+            pump();
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            complete = true;
+            pump();
+        }
+
+        /**
+         * The S3 read or the write to the client failed. The status is already
+         * sent, so a short body is all that tells the client.
+         */
+        @Override
+        public synchronized void onError(Throwable t) {
+            if (!closed) {
+                log.warn("Download failed mid-stream: {}", t.toString());
+            }
+            abort();
+        }
+
+        @Override
+        public synchronized void onWritePossible() {
+            pump();
+        }
+
+        @Override
+        public synchronized void onError(AsyncEvent event) {
+            abort();
+        }
+
+        @Override
+        public synchronized void onTimeout(AsyncEvent event) {
+            log.warn("Download timed out");
+            abort();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        /**
+         * Writes whatever is pending while the output can take it without
+         * blocking; once it can't, the container calls back when it can.
+         */
+        private void pump() {
+            try {
+                while (!closed && out.isReady()) {
+                    if (pending != null) {
+                        ByteBuffer buffer = pending;
+                        pending = null;
+                        if (buffer.hasArray()) {
+                            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                        } else {
+                            byte[] bytes = new byte[buffer.remaining()];
+                            buffer.get(bytes);
+                            out.write(bytes);
+                        }
+                    } else if (complete) {
+                        close();
+                    } else {
+                        if (!requested && subscription != null) {
+                            requested = true;
+                            subscription.request(1);
+                        }
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                abort();
+            }
+        }
+
+        private void abort() {
+            if (subscription != null) {
+                subscription.cancel();
+            }
+            close();
+        }
+
+        private void close() {
+            if (!closed) {
+                closed = true;
+                async.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.s3transfer.controller;
+
+import com.example.s3transfer.dto.BatchSyncRequest;
+import com.example.s3transfer.dto.BatchTransferRequest;
+import com.example.s3transfer.dto.BatchTransferStatus;
+import com.example.s3transfer.service.BatchTransferService;
+import com.example.s3transfer.service.TransferRejectedException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.Parameter;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/transfer/batch")
+@RequiredArgsConstructor
+@Tag(name = "Batch Transfer", description = "Bulk prefix, manifest and sync transfers")
+public class BatchTransferController {
+
+    private final BatchTransferService service;
+
+    @PostMapping
+    @Operation(summary = "Start Prefix Batch", description = "Copy every object under a prefix between S3 buckets")
+    @ApiResponse(responseCode = "200", description = "Batch job created successfully")
+    @ApiResponse(responseCode = "400", description = "Batch failed to start")
+    @ApiResponse(responseCode = "429", description = "Too many batches queued, retry after the given delay")
+    public ResponseEntity<?> startPrefixBatch(@RequestBody BatchTransferRequest req) {
+        try {
+            return ResponseEntity.ok(service.startPrefixBatch(req));
+        } catch (TransferRejectedException e) {
+            return tooManyRequests(e);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Batch transfer failed: " + e.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/manifest", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Start Manifest Batch", description = "Copy every key listed (one per line) in an uploaded manifest")
+    @ApiResponse(responseCode = "200", description = "Batch job created successfully")
+    @ApiResponse(responseCode = "400", description = "Batch failed to start")
+    @ApiResponse(responseCode = "429", description = "Too many batches queued, retry after the given delay")
+    public ResponseEntity<?> startManifestBatch(
+            @Parameter(description = "Source S3 bucket name", example = "my-source-bucket")
+            @RequestParam("sourceBucket") String sourceBucket,
+            @Parameter(description = "Destination S3 bucket name", example = "my-destination-bucket")
+            @RequestParam("destinationBucket") String destinationBucket,
+            @Parameter(description = "Newline-separated list of keys")
+            @RequestParam("manifest") MultipartFile manifest,
+            @Parameter(description = "Parallel copy workers", example = "16")
+            @RequestParam(value = "workers", required = false) Integer workers) {
+        try {
+            return ResponseEntity.ok(service.startManifestBatch(sourceBucket, destinationBucket,
+                    manifest.getInputStream(), workers));
+        } catch (TransferRejectedException e) {
+            return tooManyRequests(e);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Batch transfer failed: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/sync")
+    @Operation(summary = "Start Sync", description = "Copy only the objects under a prefix that are new or changed since the destination's copy, optionally deleting destination objects the source doesn't have. A dry run only records the plan.")
+    @ApiResponse(responseCode = "200", description = "Sync job created successfully")
+    @ApiResponse(responseCode = "400", description = "Sync failed to start")
+    @ApiResponse(responseCode = "429", description = "Too many batches queued, retry after the given delay")
+    public ResponseEntity<?> startSync(@RequestBody BatchSyncRequest req) {
+        try {
+            return ResponseEntity.ok(service.startSync(req));
+        } catch (TransferRejectedException e) {
+            return tooManyRequests(e);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Sync failed: " + e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/{batchId}/plan", produces = MediaType.TEXT_PLAIN_VALUE)
+    @Operation(summary = "Get Sync Plan", description = "Copies and deletes a sync planned, one tab-separated change (NEW, CHANGED or EXTRA), size and key per line")
+    @ApiResponse(responseCode = "200", description = "Plan streamed successfully")
+    public ResponseEntity<StreamingResponseBody> getPlan(
+            @Parameter(description = "Batch job ID", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+            @PathVariable UUID batchId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(out -> service.writePlan(batchId, out));
+    }
+
+    @PostMapping("/{batchId}/execute")
+    @Operation(summary = "Execute Sync Plan", description = "Start a sync that carries out a finished dry run's plan as recorded")
+    @ApiResponse(responseCode = "200", description = "Sync job created successfully")
+    @ApiResponse(responseCode = "400", description = "Batch is not a finished dry run")
+    @ApiResponse(responseCode = "429", description = "Too many batches queued, retry after the given delay")
+    public ResponseEntity<?> executePlan(
+            @Parameter(description = "Dry-run batch job ID", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+            @PathVariable UUID batchId) {
+        try {
+            return ResponseEntity.ok(service.executePlan(batchId));
+        } catch (TransferRejectedException e) {
+            return tooManyRequests(e);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Sync failed: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/{batchId}")
+    @Operation(summary = "Get Batch Status", description = "Aggregate object and byte counts for a batch transfer")
+    @ApiResponse(responseCode = "200", description = "Status retrieved successfully")
+    @ApiResponse(responseCode = "404", description = "Batch job not found")
+    public ResponseEntity<BatchTransferStatus> getStatus(
+            @Parameter(description = "Batch job ID", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+            @PathVariable UUID batchId) {
+        try {
+            return ResponseEntity.ok(service.getStatus(batchId));
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping(value = "/{batchId}/failed-keys", produces = MediaType.TEXT_PLAIN_VALUE)
+    @Operation(summary = "Get Failed Keys", description = "Keys that failed in a finished batch, one per line")
+    @ApiResponse(responseCode = "200", description = "Failed keys streamed successfully")
+    public ResponseEntity<StreamingResponseBody> getFailedKeys(
+            @Parameter(description = "Batch job ID", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+            @PathVariable UUID batchId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(out -> service.writeFailedKeys(batchId, out));
+    }
+
+    @PostMapping("/{batchId}/retry")
+    @Operation(summary = "Retry Failed Keys", description = "Start a new batch over the keys that failed in a finished batch")
+    @ApiResponse(responseCode = "200", description = "Retry batch created successfully")
+    @ApiResponse(responseCode = "400", description = "Batch has nothing to retry")
+    @ApiResponse(responseCode = "429", description = "Too many batches queued, retry after the given delay")
+    public ResponseEntity<?> retryFailed(
+            @Parameter(description = "Batch job ID", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+            @PathVariable UUID batchId) {
+        try {
+            return ResponseEntity.ok(service.retryFailed(batchId));
+        } catch (TransferRejectedException e) {
+            return tooManyRequests(e);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Retry failed: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<String> tooManyRequests(TransferRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.s3transfer.controller;
+
+import com.example.s3transfer.dto.DirectUploadCompletion;
+import com.example.s3transfer.service.DirectTransferService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.Parameter;
+
+/**
+ * Presigned URLs for moving objects straight between clients and S3. Only the
+ * signing and the completion go through this server; the bytes never do.
+ */
+@RestController
+@RequestMapping("/api/s3")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Direct Transfers", description = "Presigned URLs for uploads and downloads that bypass the server")
+public class DirectTransferController {
+
+    private final DirectTransferService directTransfers;
+
+    @PostMapping("/{bucket}/direct/download")
+    @Operation(summary = "Presign Download", description = "Signed GET the client sends to S3 itself. Files stored encrypted or compressed must use the download endpoint, which decodes them")
+    @ApiResponse(responseCode = "200", description = "URL signed")
+    @ApiResponse(responseCode = "400", description = "Signing failed or file not found")
+    @ApiResponse(responseCode = "409", description = "File is stored encrypted or compressed")
+    public ResponseEntity<?> presignDownload(
+            @Parameter(description = "S3 bucket name", example = "my-bucket")
+            @PathVariable String bucket,
+            @Parameter(description = "File key/path", example = "documents/report.pdf")
+            @RequestParam("key") String key,
+            @Parameter(description = "Seconds the URL stays valid; app.s3.presign.default-expiry if omitted, capped at app.s3.presign.max-expiry", example = "900")
+            @RequestParam(value = "expiresInSeconds", required = false) Long expiresInSeconds) {
+        try {
+            return ResponseEntity.ok(directTransfers.presignDownload(bucket, key,
+                    directTransfers.expiry(expiresInSeconds)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return failed("Presign failed: ", e);
+        }
+    }
+
+    @PostMapping("/{bucket}/direct/upload")
+    @Operation(summary = "Presign Upload", description = "Signed single PUT the client sends to S3 itself, then reports through the complete endpoint. Stored as sent: no encryption, compression or checksum is applied")
+    @ApiResponse(responseCode = "200", description = "URL signed")
+    @ApiResponse(responseCode = "400", description = "Signing failed")
+    public ResponseEntity<?> presignUpload(
+            @Parameter(description = "S3 bucket name", example = "my-bucket")
+            @PathVariable String bucket,
+            @Parameter(description = "File key/path", example = "documents/report.pdf")
+            @RequestParam("key") String key,
+            @Parameter(description = "Content type to sign; the PUT must send exactly this Content-Type", example = "application/pdf")
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @Parameter(description = "Seconds the URL stays valid; app.s3.presign.default-expiry if omitted, capped at app.s3.presign.max-expiry", example = "900")
+            @RequestParam(value = "expiresInSeconds", required = false) Long expiresInSeconds) {
+        try {
+            return ResponseEntity.ok(directTransfers.presignUpload(bucket, key, contentType,
+                    directTransfers.expiry(expiresInSeconds)));
+        } catch (RuntimeException e) {
+            return failed("Presign failed: ", e);
+        }
+    }
+
+    @PostMapping("/{bucket}/direct/multipart")
+    @Operation(summary = "Start Direct Multipart Upload", description = "Start a multipart upload and sign a PUT for each part. Send each part's ETag response header to the complete endpoint")
+    @ApiResponse(responseCode = "200", description = "Upload started")
+    @ApiResponse(responseCode = "400", description = "Upload could not be started")
+    public ResponseEntity<?> startMultipartUpload(
+            @Parameter(description = "S3 bucket name", example = "my-bucket")
+            @PathVariable String bucket,
+            @Parameter(description = "File key/path", example = "backups/db.dump")
+            @RequestParam("key") String key,
+            @Parameter(description = "Total size in bytes, which sets the part size and count", example = "1073741824")
+            @RequestParam("size") long size,
+            @Parameter(description = "Content type to store the file with", example = "application/octet-stream")
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @Parameter(description = "Seconds the part URLs stay valid; app.s3.presign.default-expiry if omitted, capped at app.s3.presign.max-expiry", example = "3600")
+            @RequestParam(value = "expiresInSeconds", required = false) Long expiresInSeconds) {
+        try {
+            return ResponseEntity.ok(directTransfers.startMultipartUpload(bucket, key, size, contentType,
+                    directTransfers.expiry(expiresInSeconds)));
+        } catch (RuntimeException e) {
+            return failed("Upload failed: ", e);
+        }
+    }
+
+    @PostMapping("/{bucket}/direct/multipart/part")
+    @Operation(summary = "Presign Part", description = "Sign one part of a direct multipart upload again, e.g. after its URL expired")
+    @ApiResponse(responseCode = "200", description = "URL signed")
+    @ApiResponse(responseCode = "400", description = "Signing failed")
+    public ResponseEntity<?> presignUploadPart(
+            @Parameter(description = "S3 bucket name", example = "my-bucket")
+            @PathVariable String bucket,
+            @Parameter(description = "File key/path", example = "backups/db.dump")
+            @RequestParam("key") String key,
+            @Parameter(description = "Multipart upload ID")
+            @RequestParam("uploadId") String uploadId,
+            @Parameter(description = "Part number (1-10000)", example = "3")
+            @RequestParam("partNumber") int partNumber,
+            @Parameter(description = "Seconds the URL stays valid; app.s3.presign.default-expiry if omitted, capped at app.s3.presign.max-expiry", example = "900")
+            @RequestParam(value = "expiresInSeconds", required = false) Long expiresInSeconds) {
+        try {
+            return ResponseEntity.ok(directTransfers.presignUploadPart(bucket, key, uploadId, partNumber,
+                    directTransfers.expiry(expiresInSeconds)));
+        } catch (RuntimeException e) {
+            return failed("Presign failed: ", e);
+        }
+    }
+
+    @DeleteMapping("/{bucket}/direct/multipart")
+    @Operation(summary = "Abort Direct Multipart Upload", description = "Abort a direct multipart upload and discard its parts")
+    @ApiResponse(responseCode = "200", description = "Upload aborted")
+    @ApiResponse(responseCode = "400", description = "Abort failed")
+    public ResponseEntity<String> abortMultipartUpload(
+            @Parameter(description = "S3 bucket name", example = "my-bucket")
+            @PathVariable String bucket,
+            @Parameter(description = "File key/path", example = "backups/db.dump")
+            @RequestParam("key") String key,
+            @Parameter(description = "Multipart upload ID")
+            @RequestParam("uploadId") String uploadId) {
+        try {
+            directTransfers.abortMultipartUpload(bucket, key, uploadId);
+            return ResponseEntity.ok("Upload aborted: " + key);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("Abort failed: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/{bucket}/direct/complete")
+    @Operation(summary = "Complete Direct Upload", description = "Record a direct upload once its bytes are in S3, completing the multipart upload if there is one; returns the stored file")
+    @ApiResponse(responseCode = "200", description = "Upload recorded")
+    @ApiResponse(responseCode = "400", description = "Completion failed")
+    @ApiResponse(responseCode = "409", description = "Nothing was uploaded under the key")
+    public ResponseEntity<?> complete(
+            @Parameter(description = "S3 bucket name", example = "my-bucket")
+            @PathVariable String bucket,
+            @RequestBody DirectUploadCompletion completion) {
+        try {
+            if (completion.getKey() == null) {
+                return ResponseEntity.badRequest().body("key is required");
+            }
+            return ResponseEntity.ok(directTransfers.complete(bucket, completion));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return failed("Completion failed: ", e);
+        }
+    }
+
+    private static ResponseEntity<String> failed(String prefix, RuntimeException e) {
+        if (String.valueOf(e.getMessage()).contains("No AWS credentials")) {
+            return ResponseEntity.badRequest().body("No AWS credentials configured. Please configure credentials in Admin Panel first.");
+        }
+        return ResponseEntity.badRequest().body(prefix + e.getMessage());
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.s3transfer.controller;
+
+import com.example.s3transfer.dto.ObjectAttributes;
+import com.example.s3transfer.service.IS3Service;
+import com.example.s3transfer.service.InvalidRangeException;
+import com.example.s3transfer.service.MockUrlSigner;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import io.swagger.v3.oas.annotations.Hidden;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Serves the mock's presigned URLs the way S3 serves real ones: the signature
+ * and expiry are checked, and then the GET or PUT goes to the mock store with
+ * no other authentication. Only exists under the {@code mock} profile.
+ */
+@RestController
+@RequestMapping(MockUrlSigner.PATH)
+@Profile("mock")
+@RequiredArgsConstructor
+@Slf4j
+@Hidden
+public class MockPresignedController {
+
+    private final IS3Service s3Service;
+    private final MockUrlSigner urlSigner;
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> get(
+            @RequestParam String bucket,
+            @RequestParam String key,
+            @RequestParam long expires,
+            @RequestParam(required = false) String signature,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) {
+        String rejected = rejection("GET", bucket, key, null, null, null, expires, signature);
+        if (rejected != null) {
+            return text(HttpStatus.FORBIDDEN, rejected);
+        }
+        try {
+            ResponseInputStream<GetObjectResponse> object = s3Service.downloadFile(bucket, key, range, null, null);
+            GetObjectResponse meta = object.response();
+            ResponseEntity.BodyBuilder response = meta.contentRange() != null
+                    ? ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).header(HttpHeaders.CONTENT_RANGE, meta.contentRange())
+                    : ResponseEntity.ok();
+            StreamingResponseBody body = out -> {
+                try (object) {
+                    object.transferTo(out);
+                }
+            };
+            return response.contentLength(meta.contentLength())
+                    .contentType(meta.contentType() != null ? MediaType.parseMediaType(meta.contentType())
+                            : MediaType.APPLICATION_OCTET_STREAM)
+                    .eTag(meta.eTag())
+                    .lastModified(meta.lastModified())
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .body(body);
+        } catch (InvalidRangeException e) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).build();
+        } catch (RuntimeException e) {
+            return text(HttpStatus.NOT_FOUND, "No such key: " + key);
+        }
+    }
+
+    /**
+     * Stores an object, or one part of a multipart upload, and returns its ETag
+     * header for the completion request. Like S3, it needs the body's length up front.
+     */
+    @PutMapping(consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<String> put(
+            @RequestParam String bucket,
+            @RequestParam String key,
+            @RequestParam(required = false) String uploadId,
+            @RequestParam(required = false) Integer partNumber,
+            @RequestParam(required = false) String contentType,
+            @RequestParam long expires,
+            @RequestParam(required = false) String signature,
+            HttpServletRequest request) {
+        String rejected = rejection("PUT", bucket, key, uploadId, partNumber, contentType, expires, signature);
+        if (rejected == null && contentType != null && !contentType.equals(request.getContentType())) {
+            rejected = "Content-Type does not match the signed one";
+        }
+        if (rejected != null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(rejected);
+        }
+        long length = request.getContentLengthLong();
+        if (length < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).body("Content-Length is required");
+        }
+        try {
+            String eTag;
+            if (uploadId != null) {
+                CompletedPart part = s3Service.uploadPart(bucket, key, uploadId, partNumber, request.getInputStream(),
+                        length);
+                eTag = part.eTag();
+            } else {
+                ObjectAttributes attributes = ObjectAttributes.empty();
+                attributes.setContentType(contentType != null ? contentType : request.getContentType());
+                s3Service.uploadFile(bucket, key, request.getInputStream(), length, attributes);
+                eTag = s3Service.headObject(bucket, key).eTag();
+            }
+            return ResponseEntity.ok().eTag(eTag).build();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Mock: presigned PUT of {}/{} failed: {}", bucket, key, e.getMessage());
+            return ResponseEntity.badRequest().body("Upload failed: " + e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<StreamingResponseBody> text(HttpStatus status, String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(status).contentType(MediaType.TEXT_PLAIN).body(out -> out.write(bytes));
+    }
+
+    /** Why the request must be refused, or null if it carries a valid, unexpired signature. */
+    private String rejection(String method, String bucket, String key, String uploadId, Integer partNumber,
+                             String contentType, long expires, String signature) {
+        if (!urlSigner.verify(method, bucket, key, uploadId, partNumber, contentType, expires, signature)) {
+            return "Signature does not match";
+        }
+        if (Instant.now().getEpochSecond() > expires) {
+            return "Request has expired";
+        }
+        return null;
+    }
+}
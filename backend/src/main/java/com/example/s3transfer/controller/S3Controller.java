@@ -1,29 +1,75 @@
 package com.example.s3transfer.controller;
 
+import com.example.s3transfer.dto.ObjectAttributes;
+import com.example.s3transfer.dto.ObjectListing;
+import com.example.s3transfer.dto.S3ObjectSummary;
+import com.example.s3transfer.service.ChecksumSettings;
+import com.example.s3transfer.service.CompressingInputStream;
+import com.example.s3transfer.service.CompressionService;
+import com.example.s3transfer.service.ContentCoding;
 import com.example.s3transfer.service.IS3Service;
+import com.example.s3transfer.service.InvalidRangeException;
+import com.example.s3transfer.service.ObjectDiskCache;
+import com.example.s3transfer.service.ObjectNotModifiedException;
+import com.example.s3transfer.service.PayloadEncryptionService;
+import com.example.s3transfer.service.PayloadEnvelope;
+import com.example.s3transfer.service.StreamingUploadService;
+import com.example.s3transfer.service.TransferProgressListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.InputStreamResource;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.Parameter;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/s3")
 @RequiredArgsConstructor
+@Slf4j
 @Tag(name = "S3 Operations", description = "S3 bucket file operations")
 public class S3Controller {
 
     private final IS3Service s3Service;
+    private final StreamingUploadService streamingUploadService;
+    private final PayloadEncryptionService payloadEncryption;
+    private final CompressionService compression;
+    private final ChecksumSettings checksumSettings;
+    private final ObjectMapper objectMapper;
+    private final ObjectDiskCache objectCache;
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
     @GetMapping("/{bucket}/files")
     @Operation(summary = "List Files", description = "List all files in an S3 bucket")
@@ -45,8 +91,80 @@ public class S3Controller {
         }
     }
 
+    @GetMapping(value = "/{bucket}/files", produces = NDJSON)
+    @Operation(summary = "Stream Files", description = "Stream every object in a bucket as newline-delimited JSON, fetching pages lazily")
+    @ApiResponse(responseCode = "200", description = "Objects streamed successfully")
+    @ApiResponse(responseCode = "400", description = "Bucket does not exist")
+    public ResponseEntity<StreamingResponseBody> streamFiles(
+            @Parameter(description = "S3 bucket name", example = "my-bucket")
+            @PathVariable String bucket,
+            @Parameter(description = "Only list keys starting with this prefix", example = "documents/")
+            @RequestParam(value = "prefix", required = false) String prefix) {
+        String error = null;
+        try {
+            if (!s3Service.bucketExists(bucket)) {
+                error = "Bucket does not exist: " + bucket;
+            }
+        } catch (RuntimeException e) {
+            error = "Failed to list files: " + e.getMessage();
+        }
+        if (error != null) {
+            byte[] message = error.getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(message));
+        }
+        StreamingResponseBody body = out -> writeNdjson(out, s3Service.iterateObjects(bucket, prefix));
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    private void writeNdjson(OutputStream out, Iterator<S3ObjectSummary> objects) {
+        try {
+            int written = 0;
+            while (objects.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(objects.next()));
+                out.write('\n');
+                // Flush once per listing page so the first results reach the client early
+                if (++written % 1000 == 1) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (Exception e) {
+            log.error("Failed to stream object listing", e);
+            throw new RuntimeException("Failed to stream files: " + e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/{bucket}/objects")
+    @Operation(summary = "List Objects", description = "List one page of objects with size, ETag and last-modified")
+    @ApiResponse(responseCode = "200", description = "Objects listed successfully")
+    @ApiResponse(responseCode = "400", description = "Listing failed")
+    public ResponseEntity<?> listObjects(
+            @Parameter(description = "S3 bucket name", example = "my-bucket")
+            @PathVariable String bucket,
+            @Parameter(description = "Only list keys starting with this prefix", example = "documents/")
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @Parameter(description = "Roll up keys sharing a prefix up to this delimiter", example = "/")
+            @RequestParam(value = "delimiter", required = false) String delimiter,
+            @Parameter(description = "Token returned by the previous page")
+            @RequestParam(value = "continuationToken", required = false) String continuationToken,
+            @Parameter(description = "Page size (1-1000)", example = "1000")
+            @RequestParam(value = "maxKeys", defaultValue = "1000") int maxKeys) {
+        try {
+            if (maxKeys < 1 || maxKeys > 1000) {
+                return ResponseEntity.badRequest().body("maxKeys must be between 1 and 1000");
+            }
+            ObjectListing listing = s3Service.listObjects(bucket, prefix, delimiter, continuationToken, maxKeys);
+            return ResponseEntity.ok(listing);
+        } catch (RuntimeException e) {
+            if (e.getMessage().contains("No AWS credentials")) {
+                return ResponseEntity.badRequest().body("No AWS credentials configured. Please configure credentials in Admin Panel first.");
+            }
+            return ResponseEntity.badRequest().body("Failed to list objects: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/{bucket}/upload")
-    @Operation(summary = "Upload File", description = "Upload a file to S3 bucket")
+    @Operation(summary = "Upload File", description = "Upload a file to S3 bucket, stored with a checksum that is verified once it is stored")
     @ApiResponse(responseCode = "200", description = "File uploaded successfully")
     @ApiResponse(responseCode = "400", description = "Upload failed")
     public ResponseEntity<String> uploadFile(
@@ -55,13 +173,53 @@ public class S3Controller {
             @Parameter(description = "File to upload")
             @RequestParam("file") MultipartFile file,
             @Parameter(description = "Custom file key/name", example = "documents/report.pdf")
-            @RequestParam(value = "key", required = false) String key) {
+            @RequestParam(value = "key", required = false) String key,
+            @Parameter(description = "Store the file with envelope encryption; downloads decrypt it", example = "false")
+            @RequestParam(value = "encrypt", defaultValue = "false") boolean encrypt,
+            @Parameter(description = "Compress the file as it is stored: gzip or zstd; downloads decode it for clients that don't accept the coding", example = "gzip")
+            @RequestParam(value = "compress", required = false) String compress,
+            @Parameter(description = "Checksum to store and verify the file with: CRC32C, SHA256 or NONE; app.checksum.algorithm if omitted", example = "CRC32C")
+            @RequestParam(value = "checksum", required = false) String checksum) {
         try {
+            ContentCoding coding = ContentCoding.of(compress);
+            ChecksumAlgorithm algorithm = checksumSettings.resolve(checksum);
             if (!s3Service.bucketExists(bucket)) {
                 s3Service.createBucket(bucket);
             }
             String fileKey = key != null ? key : file.getOriginalFilename();
-            s3Service.uploadFile(bucket, fileKey, file.getInputStream(), file.getSize());
+            if (coding != null) {
+                ObjectAttributes attributes = ObjectAttributes.empty();
+                attributes.setContentType(file.getContentType());
+                VerifiedChecksum verified = new VerifiedChecksum();
+                String summary = uploadCompressed(bucket, fileKey, file.getInputStream(), attributes, coding,
+                        encrypt, file.getSize(), algorithm, verified);
+                return ResponseEntity.ok("File uploaded successfully: " + fileKey + " (" + summary + verified + ")");
+            }
+            if (algorithm != null) {
+                // parts are checksummed as they are cut, so checksummed uploads always stream
+                ObjectAttributes attributes = ObjectAttributes.empty();
+                attributes.setContentType(file.getContentType());
+                InputStream body = file.getInputStream();
+                if (encrypt) {
+                    PayloadEnvelope envelope = payloadEncryption.newEnvelope();
+                    body = payloadEncryption.encrypt(body, envelope);
+                    attributes = payloadEncryption.seal(attributes, envelope);
+                }
+                attributes.setChecksumAlgorithm(algorithm);
+                VerifiedChecksum verified = new VerifiedChecksum();
+                streamingUploadService.upload(s3Service, bucket, fileKey, body, attributes, verified);
+                return ResponseEntity.ok("File uploaded successfully: " + fileKey + " (" + file.getSize() + " bytes"
+                        + verified + ")");
+            }
+            if (encrypt) {
+                PayloadEnvelope envelope = payloadEncryption.newEnvelope();
+                ObjectAttributes attributes = ObjectAttributes.empty();
+                attributes.setContentType(file.getContentType());
+                s3Service.uploadFile(bucket, fileKey, payloadEncryption.encrypt(file.getInputStream(), envelope),
+                        envelope.sealedLength(file.getSize()), payloadEncryption.seal(attributes, envelope));
+            } else {
+                s3Service.uploadFile(bucket, fileKey, file.getInputStream(), file.getSize());
+            }
             return ResponseEntity.ok("File uploaded successfully: " + fileKey);
         } catch (RuntimeException e) {
             if (e.getMessage().contains("No AWS credentials")) {
@@ -73,23 +231,334 @@ public class S3Controller {
         }
     }
 
+    @PutMapping(value = "/{bucket}/stream", consumes = MediaType.ALL_VALUE)
+    @Operation(summary = "Stream Upload", description = "Upload the raw request body to S3 as it arrives, using a multipart upload for large bodies; parts are checksummed as they are sent and the stored checksum is verified")
+    @ApiResponse(responseCode = "200", description = "File uploaded successfully")
+    @ApiResponse(responseCode = "400", description = "Upload failed")
+    public ResponseEntity<String> streamUpload(
+            @Parameter(description = "S3 bucket name", example = "my-bucket")
+            @PathVariable String bucket,
+            @Parameter(description = "File key/path", example = "backups/db.dump")
+            @RequestParam("key") String key,
+            @Parameter(description = "Store the file with envelope encryption; downloads decrypt it", example = "false")
+            @RequestParam(value = "encrypt", defaultValue = "false") boolean encrypt,
+            @Parameter(description = "Compress the body as it is stored: gzip or zstd", example = "zstd")
+            @RequestParam(value = "compress", required = false) String compress,
+            @Parameter(description = "Checksum to store and verify the body with: CRC32C, SHA256 or NONE; app.checksum.algorithm if omitted", example = "CRC32C")
+            @RequestParam(value = "checksum", required = false) String checksum,
+            HttpServletRequest request) {
+        try {
+            ContentCoding coding = ContentCoding.of(compress);
+            ChecksumAlgorithm algorithm = checksumSettings.resolve(checksum);
+            if (!s3Service.bucketExists(bucket)) {
+                s3Service.createBucket(bucket);
+            }
+            ObjectAttributes attributes = ObjectAttributes.empty();
+            attributes.setContentType(request.getContentType());
+            InputStream body = request.getInputStream();
+            VerifiedChecksum verified = new VerifiedChecksum();
+            if (coding != null) {
+                String summary = uploadCompressed(bucket, key, body, attributes, coding, encrypt, null, algorithm,
+                        verified);
+                return ResponseEntity.ok("File uploaded successfully: " + key + " (" + summary + verified + ")");
+            }
+            PayloadEnvelope envelope = encrypt ? payloadEncryption.newEnvelope() : null;
+            if (envelope != null) {
+                body = payloadEncryption.encrypt(body, envelope);
+                attributes = payloadEncryption.seal(attributes, envelope);
+            }
+            attributes.setChecksumAlgorithm(algorithm);
+            long size = streamingUploadService.upload(s3Service, bucket, key, body, attributes, verified);
+            if (envelope != null) {
+                size = envelope.plaintextLength(size);
+            }
+            return ResponseEntity.ok("File uploaded successfully: " + key + " (" + size + " bytes" + verified + ")");
+        } catch (RuntimeException e) {
+            if (e.getMessage().contains("No AWS credentials")) {
+                return ResponseEntity.badRequest().body("No AWS credentials configured. Please configure credentials in Admin Panel first.");
+            }
+            return ResponseEntity.badRequest().body("Upload failed: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Upload failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams {@code in} through the compressor, and encryption if asked for,
+     * into a streaming upload; returns the compression summary.
+     *
+     * @param uncompressedLength null if not known up front
+     * @param algorithm checksum to store the upload with; null for none
+     */
+    private String uploadCompressed(String bucket, String key, InputStream in, ObjectAttributes attributes,
+                                    ContentCoding coding, boolean encrypt, Long uncompressedLength,
+                                    ChecksumAlgorithm algorithm, TransferProgressListener progress)
+            throws IOException {
+        PayloadEnvelope envelope = encrypt ? payloadEncryption.newEnvelope() : null;
+        attributes = compression.mark(attributes, coding, uncompressedLength, envelope == null);
+        try (CompressingInputStream compressed = compression.compress(in, coding)) {
+            InputStream body = compressed;
+            if (envelope != null) {
+                body = payloadEncryption.encrypt(compressed, envelope);
+                attributes = payloadEncryption.seal(attributes, envelope);
+            }
+            attributes.setChecksumAlgorithm(algorithm);
+            streamingUploadService.upload(s3Service, bucket, key, body, attributes, progress);
+            return compression.record(compressed);
+        }
+    }
+
     @GetMapping("/{bucket}/download/{key}")
-    @Operation(summary = "Download File", description = "Download a file from S3 bucket")
+    @Operation(summary = "Download File", description = "Download a file from S3 bucket, decrypting encrypted files and decompressing compressed ones unless Accept-Encoding allows their coding. Supports Range (including multiple ranges; ignored for compressed files), If-None-Match and If-Modified-Since")
     @ApiResponse(responseCode = "200", description = "File downloaded successfully")
+    @ApiResponse(responseCode = "206", description = "Requested range(s) returned")
+    @ApiResponse(responseCode = "304", description = "Client copy is current")
     @ApiResponse(responseCode = "400", description = "Download failed")
-    public ResponseEntity<InputStreamResource> downloadFile(
+    @ApiResponse(responseCode = "416", description = "Range not satisfiable")
+    public ResponseEntity<StreamingResponseBody> downloadFile(
             @Parameter(description = "S3 bucket name", example = "my-bucket")
             @PathVariable String bucket,
             @Parameter(description = "File key/path", example = "documents/report.pdf")
-            @PathVariable String key) {
+            @PathVariable String key,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request) {
         try {
-            ResponseInputStream<GetObjectResponse> s3Object = s3Service.downloadFile(bucket, key);
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + key + "\"")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(new InputStreamResource(s3Object));
+            List<HttpRange> ranges = parseRanges(range);
+            Instant since = parseHttpDate(ifModifiedSince);
+            if (ranges.size() > 1) {
+                HeadObjectResponse head = s3Service.headObject(bucket, key);
+                if (compression.codingOf(head.metadata()) == null) {
+                    return downloadRanges(bucket, key, head, ranges, ifNoneMatch, since);
+                }
+                ranges = List.of();
+            }
+
+            ResponseInputStream<GetObjectResponse> s3Object = payloadEncryption.download(s3Service, bucket, key,
+                    ranges.isEmpty() ? null : range, ifNoneMatch, since);
+            ContentCoding coding = compression.codingOf(s3Object.response().metadata());
+            boolean encoded = false;
+            if (coding != null) {
+                // offsets into the decompressed bytes can't be mapped onto the stored ones, so the
+                // whole object is sent; a server may ignore Range
+                if (!ranges.isEmpty()) {
+                    s3Object.abort();
+                    s3Object = payloadEncryption.download(s3Service, bucket, key, null, ifNoneMatch, since);
+                }
+                encoded = coding.acceptedBy(acceptEncoding);
+                if (!encoded) {
+                    s3Object = compression.decode(s3Object, coding);
+                }
+            }
+            ResponseInputStream<GetObjectResponse> object = s3Object;
+            GetObjectResponse meta = object.response();
+            ResponseEntity.BodyBuilder response = meta.contentRange() != null
+                    ? ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).header(HttpHeaders.CONTENT_RANGE, meta.contentRange())
+                    : ResponseEntity.ok();
+            if (meta.contentLength() != null) {
+                response.contentLength(meta.contentLength());
+            }
+            if (coding != null) {
+                response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            if (encoded) {
+                response.header(HttpHeaders.CONTENT_ENCODING, coding.getToken());
+            }
+            withObjectHeaders(response, key, meta.eTag(), meta.lastModified())
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM);
+            if ((coding == null || encoded) && sendCachedFile(request, bucket, key, meta)) {
+                object.close();
+                return response.build();
+            }
+            return response
+                    .body(out -> {
+                        try (object) {
+                            object.transferTo(out);
+                        }
+                    });
+        } catch (ObjectNotModifiedException e) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        } catch (InvalidRangeException e) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Hands the object's bytes to Tomcat to send straight from the disk cache's
+     * file (sendfile) if the stored bytes are exactly what the response carries
+     * and that version is cached; the response is then sent without a body.
+     */
+    private boolean sendCachedFile(HttpServletRequest request, String bucket, String key, GetObjectResponse meta)
+            throws IOException {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))
+                || payloadEncryption.isEncrypted(meta.metadata())) {
+            return false;
+        }
+        Path file = objectCache.file(null, bucket, key, meta.eTag());
+        if (file == null) {
+            return false;
+        }
+        long start = 0;
+        if (meta.contentRange() != null) {
+            String range = meta.contentRange();
+            start = Long.parseLong(range.substring(range.indexOf(' ') + 1, range.indexOf('-')));
+        }
+        request.setAttribute(SENDFILE_FILENAME, file.toFile().getCanonicalPath());
+        request.setAttribute(SENDFILE_START, start);
+        request.setAttribute(SENDFILE_END, start + meta.contentLength());
+        return true;
+    }
+
+    @RequestMapping(value = "/{bucket}/download/{key}", method = RequestMethod.HEAD)
+    @Operation(summary = "File Metadata", description = "Size, ETag and last-modified of a file without downloading it")
+    @ApiResponse(responseCode = "200", description = "File exists")
+    @ApiResponse(responseCode = "304", description = "Client copy is current")
+    @ApiResponse(responseCode = "404", description = "File not found")
+    public ResponseEntity<Void> headFile(
+            @Parameter(description = "S3 bucket name", example = "my-bucket")
+            @PathVariable String bucket,
+            @Parameter(description = "File key/path", example = "documents/report.pdf")
+            @PathVariable String key,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        try {
+            HeadObjectResponse head = s3Service.headObject(bucket, key);
+            if (notModified(head, ifNoneMatch, parseHttpDate(ifModifiedSince))) {
+                return withObjectHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED), key, head.eTag(), head.lastModified())
+                        .build();
+            }
+            ResponseEntity.BodyBuilder response = withObjectHeaders(ResponseEntity.ok(), key, head.eTag(), head.lastModified());
+            Long length = payloadEncryption.contentLength(head);
+            ContentCoding coding = compression.codingOf(head.metadata());
+            if (coding != null) {
+                response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                if (coding.acceptedBy(acceptEncoding)) {
+                    response.header(HttpHeaders.CONTENT_ENCODING, coding.getToken());
+                } else {
+                    length = compression.uncompressedLength(head.metadata());
+                }
+            }
+            if (length != null) {
+                response.contentLength(length);
+            }
+            return response.contentType(MediaType.APPLICATION_OCTET_STREAM).build();
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Serves several ranges as multipart/byteranges, one ranged GET per part.
+     */
+    private ResponseEntity<StreamingResponseBody> downloadRanges(String bucket, String key, HeadObjectResponse head,
+                                                                 List<HttpRange> ranges, String ifNoneMatch,
+                                                                 Instant since) {
+        if (notModified(head, ifNoneMatch, since)) {
+            throw new ObjectNotModifiedException("Not modified: " + bucket + "/" + key);
+        }
+        long length = payloadEncryption.contentLength(head);
+        List<long[]> bounds = new ArrayList<>();
+        for (HttpRange r : ranges) {
+            long start = r.getRangeStart(length);
+            if (start >= length) {
+                throw new InvalidRangeException("Range not satisfiable: " + r);
+            }
+            bounds.add(new long[]{start, r.getRangeEnd(length)});
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        StreamingResponseBody body = out -> {
+            for (long[] b : bounds) {
+                String partHeader = "\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_OCTET_STREAM_VALUE + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": bytes " + b[0] + "-" + b[1] + "/" + length + "\r\n\r\n";
+                out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+                try (ResponseInputStream<GetObjectResponse> part =
+                             payloadEncryption.download(s3Service, bucket, key, head, b[0], b[1])) {
+                    part.transferTo(out);
+                }
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        };
+        return withObjectHeaders(ResponseEntity.status(HttpStatus.PARTIAL_CONTENT), key, head.eTag(), head.lastModified())
+                .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+                .body(body);
+    }
+
+    static ResponseEntity.BodyBuilder withObjectHeaders(ResponseEntity.BodyBuilder builder, String key,
+                                                        String eTag, Instant lastModified) {
+        builder.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + key + "\"")
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (eTag != null) {
+            builder.eTag(eTag);
+        }
+        if (lastModified != null) {
+            builder.lastModified(lastModified);
+        }
+        return builder;
+    }
+
+    private static boolean notModified(HeadObjectResponse head, String ifNoneMatch, Instant since) {
+        if (ifNoneMatch != null) {
+            String eTag = head.eTag();
+            for (String candidate : ifNoneMatch.split(",")) {
+                String c = candidate.trim();
+                if (c.startsWith("W/")) {
+                    c = c.substring(2);
+                }
+                if (c.equals("*") || c.equals(eTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return since != null && head.lastModified() != null
+                && head.lastModified().getEpochSecond() <= since.getEpochSecond();
+    }
+
+    static Instant parseHttpDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return no ranges for a missing or malformed header, which RFC 7233 says to ignore
+     */
+    static List<HttpRange> parseRanges(String value) {
+        if (value == null) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(value);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /** Catches the checksum an upload was verified with, for the response message. */
+    private static class VerifiedChecksum implements TransferProgressListener {
+        private volatile String checksum;
+
+        @Override
+        public void verified(ChecksumAlgorithm algorithm, String checksum) {
+            this.checksum = algorithm + " " + checksum;
+        }
+
+        /** {@code ", <algorithm> <checksum>"}, or nothing if none was verified. */
+        @Override
+        public String toString() {
+            return checksum != null ? ", " + checksum : "";
+        }
+    }
+}
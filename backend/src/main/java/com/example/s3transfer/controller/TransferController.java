@@ -1,15 +1,25 @@
 package com.example.s3transfer.controller;
 
+import com.example.s3transfer.dto.TransferProgress;
 import com.example.s3transfer.dto.TransferRequest;
+import com.example.s3transfer.service.TransferExecutor;
+import com.example.s3transfer.service.TransferQueue;
+import com.example.s3transfer.service.TransferRejectedException;
 import com.example.s3transfer.service.TransferService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.Parameter;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -19,15 +29,22 @@ import java.util.UUID;
 public class TransferController {
 
     private final TransferService service;
+    private final TransferExecutor executor;
+    private final TransferQueue queue;
 
     @PostMapping
     @Operation(summary = "Start File Transfer", description = "Initiate an asynchronous file transfer between S3 buckets")
     @ApiResponse(responseCode = "200", description = "Transfer job created successfully")
     @ApiResponse(responseCode = "400", description = "Transfer failed")
+    @ApiResponse(responseCode = "429", description = "Transfer queue is full, retry after the given delay")
     public ResponseEntity<?> transfer(@RequestBody TransferRequest req) {
         try {
             UUID jobId = service.startTransfer(req);
             return ResponseEntity.ok(jobId);
+        } catch (TransferRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Transfer failed: " + e.getMessage());
         }
@@ -47,4 +64,65 @@ public class TransferController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    @PostMapping("/{jobId}/resume")
+    @Operation(summary = "Resume Transfer", description = "Queue a failed transfer again; a multipart copy continues from its last checkpointed part")
+    @ApiResponse(responseCode = "200", description = "Transfer queued again")
+    @ApiResponse(responseCode = "404", description = "Transfer job not found")
+    @ApiResponse(responseCode = "409", description = "Transfer job has not failed")
+    public ResponseEntity<String> resume(
+            @Parameter(description = "Transfer job ID", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+            @PathVariable UUID jobId) {
+        try {
+            return ResponseEntity.ok(service.resumeTransfer(jobId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{jobId}/progress")
+    @Operation(summary = "Get Transfer Progress", description = "Bytes copied, throughput and ETA of a file transfer job")
+    @ApiResponse(responseCode = "200", description = "Progress retrieved successfully")
+    @ApiResponse(responseCode = "404", description = "Transfer job not found")
+    public ResponseEntity<TransferProgress> getProgress(
+            @Parameter(description = "Transfer job ID", example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+            @PathVariable UUID jobId) {
+        try {
+            return ResponseEntity.ok(service.getTransferProgress(jobId));
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping(value = "/progress/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream Transfer Progress",
+            description = "Server-Sent Events with a 'progress' event per job per interval while it changes; "
+                    + "the stream closes once every job has finished")
+    @ApiResponse(responseCode = "200", description = "Event stream opened")
+    @ApiResponse(responseCode = "400", description = "No job IDs given")
+    public ResponseEntity<SseEmitter> streamProgress(
+            @Parameter(description = "Transfer job IDs to watch (repeat or comma-separate)")
+            @RequestParam("jobId") List<UUID> jobIds) {
+        try {
+            return ResponseEntity.ok(service.watchTransfers(jobIds));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/executor")
+    @Operation(summary = "Get Transfer Executor Stats", description = "Queue depth, active workers and per-bucket load of the transfer executor")
+    @ApiResponse(responseCode = "200", description = "Stats retrieved successfully")
+    public ResponseEntity<Map<String, Object>> getExecutorStats() {
+        return ResponseEntity.ok(executor.stats());
+    }
+
+    @GetMapping("/queue")
+    @Operation(summary = "Get Transfer Queue Stats", description = "Node id, held leases and shared backlog of the durable transfer queue")
+    @ApiResponse(responseCode = "200", description = "Stats retrieved successfully")
+    public ResponseEntity<Map<String, Object>> getQueueStats() {
+        return ResponseEntity.ok(queue.stats());
+    }
 }
\ No newline at end of file
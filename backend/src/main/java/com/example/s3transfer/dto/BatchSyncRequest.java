@@ -0,0 +1,26 @@
+package com.example.s3transfer.dto;
+
+import lombok.Data;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Data
+@Schema(description = "Mirror a prefix of one bucket into another, copying only new and changed objects")
+public class BatchSyncRequest {
+    @Schema(description = "Source S3 bucket name", example = "my-source-bucket", required = true)
+    private String sourceBucket;
+
+    @Schema(description = "Destination S3 bucket name", example = "my-destination-bucket", required = true)
+    private String destinationBucket;
+
+    @Schema(description = "Sync only keys starting with this prefix, in both buckets (empty for the whole bucket)", example = "logs/2024/")
+    private String prefix;
+
+    @Schema(description = "Delete destination objects under the prefix that the source doesn't have", example = "false")
+    private boolean deleteExtra;
+
+    @Schema(description = "Only work out the plan; execute it later with /{batchId}/execute", example = "true")
+    private boolean dryRun;
+
+    @Schema(description = "Parallel copy workers for this batch (defaults to app.transfer.batch.workers)", example = "16")
+    private Integer workers;
+}
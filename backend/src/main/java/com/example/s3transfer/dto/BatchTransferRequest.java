@@ -0,0 +1,20 @@
+package com.example.s3transfer.dto;
+
+import lombok.Data;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Data
+@Schema(description = "Bulk transfer of every object under a prefix")
+public class BatchTransferRequest {
+    @Schema(description = "Source S3 bucket name", example = "my-source-bucket", required = true)
+    private String sourceBucket;
+
+    @Schema(description = "Destination S3 bucket name", example = "my-destination-bucket", required = true)
+    private String destinationBucket;
+
+    @Schema(description = "Copy every key starting with this prefix (empty for the whole bucket)", example = "logs/2024/")
+    private String sourcePrefix;
+
+    @Schema(description = "Parallel copy workers for this batch (defaults to app.transfer.batch.workers)", example = "16")
+    private Integer workers;
+}
@@ -0,0 +1,54 @@
+package com.example.s3transfer.dto;
+
+import lombok.Data;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Schema(description = "Aggregate progress of a bulk transfer")
+public class BatchTransferStatus {
+    private UUID id;
+    private String status;
+    private String sourceBucket;
+    private String destinationBucket;
+    private String sourceType;
+    private String sourcePrefix;
+    private int workers;
+    private boolean dryRun;
+    private boolean deleteExtra;
+
+    @Schema(description = "For a sync carrying out a dry run's plan, the dry run's ID")
+    private UUID planId;
+
+    @Schema(description = "Objects found so far by the enumeration")
+    private long objectsDiscovered;
+    private long objectsDone;
+    private long objectsFailed;
+
+    @Schema(description = "Objects discovered but not yet finished; final once enumerationComplete is true")
+    private long objectsRemaining;
+    private long bytesDone;
+    private long bytesFailed;
+    private boolean enumerationComplete;
+
+    @Schema(description = "Sync: source objects the destination doesn't have")
+    private long objectsNew;
+
+    @Schema(description = "Sync: objects whose destination copy is out of date")
+    private long objectsChanged;
+
+    @Schema(description = "Sync: objects already current in the destination")
+    private long objectsUnchanged;
+
+    @Schema(description = "Sync: destination objects the source doesn't have; deleted only with deleteExtra")
+    private long objectsExtra;
+
+    @Schema(description = "Sync: bytes of the new and changed objects")
+    private long bytesPlanned;
+
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+}
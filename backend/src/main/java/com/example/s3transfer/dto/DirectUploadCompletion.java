@@ -0,0 +1,38 @@
+package com.example.s3transfer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sent once a direct upload's bytes are in the store.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Completion of a direct upload")
+public class DirectUploadCompletion {
+    @Schema(description = "Object key", example = "backups/db.dump")
+    private String key;
+
+    @Schema(description = "Multipart upload ID; omit for a single PUT")
+    private String uploadId;
+
+    @Schema(description = "Uploaded parts with the ETag the store returned for each; multipart only")
+    private List<Part> parts = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Part {
+        @Schema(description = "Part number", example = "1")
+        private int partNumber;
+
+        @Schema(description = "ETag header of the part's PUT response", example = "\"9b2cf535f27731c974343645a3985328\"")
+        private String etag;
+    }
+}
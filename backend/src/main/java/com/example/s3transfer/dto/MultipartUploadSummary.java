@@ -0,0 +1,19 @@
+package com.example.s3transfer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * An in-progress multipart upload, as returned by {@code ListMultipartUploads}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultipartUploadSummary {
+    private String key;
+    private String uploadId;
+    private Instant initiated;
+}
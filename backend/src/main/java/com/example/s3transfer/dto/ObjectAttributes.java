@@ -0,0 +1,38 @@
+package com.example.s3transfer.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Object-level headers and user metadata carried onto a new object.
+ */
+@Data
+@NoArgsConstructor
+public class ObjectAttributes {
+    private String contentType;
+    private Map<String, String> metadata = new HashMap<>();
+    /** {@code Content-Encoding} of the stored bytes; null for none. */
+    private String contentEncoding;
+    /** Checksum the object is stored with; null for none. */
+    private ChecksumAlgorithm checksumAlgorithm;
+    /** Expected checksum of a single-request body; the store rejects a body that doesn't match. */
+    private String checksum;
+
+    public ObjectAttributes(String contentType, Map<String, String> metadata) {
+        this.contentType = contentType;
+        this.metadata = metadata;
+    }
+
+    public ObjectAttributes(String contentType, Map<String, String> metadata, String contentEncoding) {
+        this(contentType, metadata);
+        this.contentEncoding = contentEncoding;
+    }
+
+    public static ObjectAttributes empty() {
+        return new ObjectAttributes();
+    }
+}
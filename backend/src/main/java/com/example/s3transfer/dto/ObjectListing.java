@@ -0,0 +1,23 @@
+package com.example.s3transfer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Schema(description = "One page of an S3 object listing")
+public class ObjectListing {
+    @Schema(description = "Objects on this page")
+    private List<S3ObjectSummary> objects = new ArrayList<>();
+
+    @Schema(description = "Common prefixes rolled up by the delimiter", example = "[\"documents/\"]")
+    private List<String> commonPrefixes = new ArrayList<>();
+
+    @Schema(description = "Token for the next page, absent on the last page")
+    private String nextContinuationToken;
+
+    @Schema(description = "Whether more results are available")
+    private boolean truncated;
+}
@@ -0,0 +1,31 @@
+package com.example.s3transfer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A multipart upload started on the client's behalf, with a signed URL for
+ * each part. Each part's ETag, as the store returns it, goes into the
+ * completion request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Multipart upload with signed part URLs")
+public class PresignedMultipartUpload {
+    @Schema(description = "Object key", example = "backups/db.dump")
+    private String key;
+
+    @Schema(description = "Multipart upload ID")
+    private String uploadId;
+
+    @Schema(description = "Bytes in every part but the last", example = "67108864")
+    private long partSize;
+
+    @Schema(description = "One signed PUT per part, in part order")
+    private List<PresignedUrl> parts;
+}
@@ -0,0 +1,34 @@
+package com.example.s3transfer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A request the client sends straight to the store, without passing through
+ * this server, until {@code expiresAt}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Short-lived signed request for a direct transfer")
+public class PresignedUrl {
+    @Schema(description = "HTTP method to send", example = "PUT")
+    private String method;
+
+    @Schema(description = "Signed URL")
+    private String url;
+
+    @Schema(description = "Headers that were signed and must be sent exactly as given")
+    private Map<String, String> headers;
+
+    @Schema(description = "When the signature stops being accepted")
+    private Instant expiresAt;
+
+    @Schema(description = "Part number, for a multipart upload part", example = "1")
+    private Integer partNumber;
+}
@@ -0,0 +1,26 @@
+package com.example.s3transfer.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "S3 object listing entry")
+public class S3ObjectSummary {
+    @Schema(description = "Object key", example = "documents/report.pdf")
+    private String key;
+
+    @Schema(description = "Object size in bytes", example = "52431")
+    private long size;
+
+    @Schema(description = "Object ETag", example = "\"9b2cf535f27731c974343645a3985328\"")
+    private String etag;
+
+    @Schema(description = "Last modification time")
+    private Instant lastModified;
+}
@@ -0,0 +1,46 @@
+package com.example.s3transfer.dto;
+
+import lombok.Data;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Schema(description = "Byte progress of a single file transfer")
+public class TransferProgress {
+    private UUID id;
+    private String status;
+
+    @Schema(description = "Object size, null until the copy has started")
+    private Long bytesTotal;
+    private long bytesTransferred;
+
+    @Schema(description = "Smoothed copy rate over the last few seconds")
+    private double bytesPerSecond;
+
+    @Schema(description = "Estimated seconds remaining, null while the rate is unknown")
+    private Long etaSeconds;
+
+    @Schema(description = "Compression the copy is stored with (gzip, zstd), null for none")
+    private String compression;
+
+    @Schema(description = "Compressed size of the stored copy, once known")
+    private Long bytesStored;
+
+    @Schema(description = "Object size over stored size, once known")
+    private Double compressionRatio;
+
+    @Schema(description = "CPU time spent compressing, once known")
+    private Long compressionCpuMillis;
+
+    @Schema(description = "Checksum the copy is verified with (CRC32C, SHA256), null for none")
+    private String checksumAlgorithm;
+
+    @Schema(description = "The copy's stored checksum, Base64, once verified")
+    private String checksum;
+
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+}
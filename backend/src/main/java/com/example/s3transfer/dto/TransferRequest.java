@@ -3,6 +3,8 @@ package com.example.s3transfer.dto;
 import lombok.Data;
 import io.swagger.v3.oas.annotations.media.Schema;
 
+import java.util.UUID;
+
 @Data
 @Schema(description = "File Transfer Request")
 public class TransferRequest {
@@ -14,4 +16,26 @@ public class TransferRequest {
     
     @Schema(description = "File key/path in S3", example = "documents/report.pdf", required = true)
     private String fileKey;
+
+    @Schema(description = "Stored AWS credential to read the source with; the default credential if omitted",
+            example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+    private UUID sourceCredentialId;
+
+    @Schema(description = "Stored AWS credential to write the destination with; the default credential if omitted",
+            example = "3fa85f64-5717-4562-b3fc-2c963f66afa6")
+    private UUID destinationCredentialId;
+
+    @Schema(description = "Store the copy with envelope encryption (app.payload-encryption.*); the copy is relayed "
+            + "through this service instead of copied server-side. Sources that are already encrypted are copied as they are",
+            example = "false")
+    private boolean encrypt;
+
+    @Schema(description = "Compress the copy as it streams (gzip or zstd); the copy is relayed through this service "
+            + "instead of copied server-side. Sources that are already compressed or encrypted are copied as they are",
+            example = "gzip")
+    private String compress;
+
+    @Schema(description = "Checksum the copy is stored and verified with: CRC32C, SHA256 or NONE; "
+            + "app.checksum.algorithm if omitted. A mismatch fails the transfer", example = "CRC32C")
+    private String checksum;
 }
\ No newline at end of file
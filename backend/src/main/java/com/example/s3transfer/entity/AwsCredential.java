@@ -10,10 +10,11 @@ import org.hibernate.annotations.GenericGenerator;
 @Table(name = "aws_credentials")
 @Data
 public class AwsCredential {
+    /** Declared as {@code uuid} so lookups by id work on H2, as for {@code TransferJob}. */
     @Id
     @GeneratedValue(generator = "UUID")
     @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
-    @Column(name = "id", updatable = false, nullable = false)
+    @Column(name = "id", updatable = false, nullable = false, columnDefinition = "uuid")
     private UUID id;
 
     @Column(nullable = false)
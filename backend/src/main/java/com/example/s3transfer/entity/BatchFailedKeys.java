@@ -0,0 +1,23 @@
+package com.example.s3transfer.entity;
+
+import javax.persistence.*;
+import lombok.Data;
+import java.util.UUID;
+
+/**
+ * Keys that failed in a batch, stored as one gzip-compressed newline-separated
+ * blob so a retry can replay them without a row per object.
+ */
+@Entity
+@Table(name = "batch_failed_keys")
+@Data
+public class BatchFailedKeys {
+    @Id
+    private UUID batchId;
+
+    private long keyCount;
+
+    // bytea rather than @Lob, which PostgreSQL would store as a large-object oid
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] keysGzip;
+}
@@ -0,0 +1,23 @@
+package com.example.s3transfer.entity;
+
+import javax.persistence.*;
+import lombok.Data;
+import java.util.UUID;
+
+/**
+ * The copies and deletes a sync batch planned, one tab-separated
+ * {@code change, size, key} line each, stored gzip-compressed like
+ * {@link BatchFailedKeys}.
+ */
+@Entity
+@Table(name = "batch_sync_plans")
+@Data
+public class BatchSyncPlan {
+    @Id
+    private UUID batchId;
+
+    private long entryCount;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] planGzip;
+}
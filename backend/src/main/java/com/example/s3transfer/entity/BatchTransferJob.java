@@ -0,0 +1,77 @@
+package com.example.s3transfer.entity;
+
+import javax.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Parent row for a bulk transfer. Individual objects are not stored; only
+ * aggregate counters, so polling stays cheap however many objects move.
+ */
+@Entity
+@Table(name = "batch_transfer_jobs")
+@Data
+public class BatchTransferJob {
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(nullable = false)
+    private String sourceBucket;
+
+    @Column(nullable = false)
+    private String destinationBucket;
+
+    /** PREFIX, MANIFEST or SYNC */
+    @Column(nullable = false)
+    private String sourceType;
+
+    private String sourcePrefix;
+
+    /** SYNC: only list the plan, copy and delete nothing */
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean dryRun;
+
+    /** SYNC: delete destination objects the source doesn't have */
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean deleteExtra;
+
+    /** SYNC: the dry run whose plan this batch carries out */
+    @Column(columnDefinition = "uuid")
+    private UUID planId;
+
+    @Column(nullable = false)
+    private String status;
+
+    private int workers;
+
+    private long objectsDiscovered;
+    private long objectsDone;
+    private long objectsFailed;
+    private long bytesDone;
+    private long bytesFailed;
+    private boolean enumerationComplete;
+
+    // SYNC diff counts; objectsDiscovered is the copies and deletes planned
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long objectsNew;
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long objectsChanged;
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long objectsUnchanged;
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long objectsExtra;
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long bytesPlanned;
+
+    @Column(length = 1000)
+    private String errorMessage;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime completedAt;
+}
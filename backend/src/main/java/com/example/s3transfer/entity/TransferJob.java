@@ -8,11 +8,16 @@ import java.util.UUID;
 import org.hibernate.annotations.GenericGenerator;
 
 @Entity
-@Table(name = "transfer_jobs")
+@Table(name = "transfer_jobs", indexes = @Index(name = "idx_transfer_jobs_queue", columnList = "status, nextAttemptAt"))
 @Data
 public class TransferJob {
+    /**
+     * Assigned by {@code TransferJobStore} so the row can be written later. Declared
+     * as {@code uuid} so H2 doesn't get a padded {@code binary(255)} column that ids
+     * never compare equal to.
+     */
     @Id
-    @GeneratedValue
+    @Column(columnDefinition = "uuid")
     private UUID id;
 
     @Column(nullable = false)
@@ -23,6 +28,34 @@ public class TransferJob {
     
     @Column(nullable = false)
     private String fileKey;
+
+    /** Credentials for each side; null means the default credential. */
+    @Column(columnDefinition = "uuid")
+    private UUID sourceCredentialId;
+
+    @Column(columnDefinition = "uuid")
+    private UUID destinationCredentialId;
+
+    /** Seal the copy with a new data key; see {@code PayloadEncryptionService}. */
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean encrypt;
+
+    /** Content coding the copy is stored with (gzip, zstd); null copies the bytes as they are. */
+    @Column(length = 16)
+    private String compression;
+
+    /** Compressed size of the stored copy. */
+    private Long bytesStored;
+
+    private Long compressionCpuMs;
+
+    /** Checksum the copy is stored and verified with (CRC32C, SHA256); null for none. */
+    @Column(length = 16)
+    private String checksumAlgorithm;
+
+    /** The copy's stored checksum once verified; composite ones end in {@code -<part count>}. */
+    @Column(length = 80)
+    private String checksum;
     
     @Column(nullable = false)
     private String status;
@@ -34,4 +67,27 @@ public class TransferJob {
     private LocalDateTime createdAt;
     
     private LocalDateTime completedAt;
+
+    private Long bytesTotal;
+
+    private Long bytesTransferred;
+
+    /** Node currently running (or about to run) the job; null while it waits in the queue. */
+    private String leaseOwner;
+
+    /** The owner must renew before this or the job is handed to another node. */
+    private LocalDateTime leaseExpiresAt;
+
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private int attempts;
+
+    /** Earliest time a queued job may be claimed, pushed out by retry backoff. */
+    private LocalDateTime nextAttemptAt;
+
+    /** Multipart upload a retry continues; its parts are in {@code transfer_part_checkpoints}. */
+    @Column(length = 1024)
+    private String uploadId;
+
+    /** ETag of the source when the upload started; a changed source restarts the copy. */
+    private String sourceEtag;
 }
\ No newline at end of file
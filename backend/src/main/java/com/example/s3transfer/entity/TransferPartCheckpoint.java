@@ -0,0 +1,38 @@
+package com.example.s3transfer.entity;
+
+import javax.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One multipart part a transfer has finished copying, so a retry can continue
+ * the upload instead of copying it again. A part copied twice has two rows;
+ * the newer one wins.
+ */
+@Entity
+@Table(name = "transfer_part_checkpoints", indexes = @Index(name = "idx_transfer_part_job", columnList = "jobId"))
+@Data
+public class TransferPartCheckpoint {
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(nullable = false, columnDefinition = "uuid")
+    private UUID jobId;
+
+    @Column(nullable = false, length = 1024)
+    private String uploadId;
+
+    private int partNumber;
+
+    @Column(nullable = false)
+    private String etag;
+
+    private long firstByte;
+
+    private long lastByte;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
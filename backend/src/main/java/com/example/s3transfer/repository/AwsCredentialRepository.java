@@ -4,7 +4,12 @@ import com.example.s3transfer.entity.AwsCredential;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+import java.util.UUID;
+
 @Repository
-public interface AwsCredentialRepository extends JpaRepository<AwsCredential, Long> {
+public interface AwsCredentialRepository extends JpaRepository<AwsCredential, UUID> {
+
+    Optional<AwsCredential> findFirstByAccountName(String accountName);
 }
 
@@ -0,0 +1,11 @@
+package com.example.s3transfer.repository;
+
+import com.example.s3transfer.entity.BatchSyncPlan;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface BatchSyncPlanRepository extends JpaRepository<BatchSyncPlan, UUID> {
+}
@@ -0,0 +1,37 @@
+package com.example.s3transfer.repository;
+
+import com.example.s3transfer.entity.BatchTransferJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface BatchTransferJobRepository extends JpaRepository<BatchTransferJob, UUID> {
+
+    @Modifying
+    @Transactional
+    @Query("update BatchTransferJob j set j.objectsDiscovered = :discovered, j.objectsDone = :done, " +
+            "j.objectsFailed = :failed, j.bytesDone = :bytesDone, j.bytesFailed = :bytesFailed, " +
+            "j.enumerationComplete = :enumerationComplete, j.objectsNew = :objectsNew, " +
+            "j.objectsChanged = :objectsChanged, j.objectsUnchanged = :objectsUnchanged, " +
+            "j.objectsExtra = :objectsExtra, j.bytesPlanned = :bytesPlanned, j.updatedAt = :updatedAt where j.id = :id")
+    int updateProgress(@Param("id") UUID id,
+                       @Param("discovered") long discovered,
+                       @Param("done") long done,
+                       @Param("failed") long failed,
+                       @Param("bytesDone") long bytesDone,
+                       @Param("bytesFailed") long bytesFailed,
+                       @Param("enumerationComplete") boolean enumerationComplete,
+                       @Param("objectsNew") long objectsNew,
+                       @Param("objectsChanged") long objectsChanged,
+                       @Param("objectsUnchanged") long objectsUnchanged,
+                       @Param("objectsExtra") long objectsExtra,
+                       @Param("bytesPlanned") long bytesPlanned,
+                       @Param("updatedAt") LocalDateTime updatedAt);
+}
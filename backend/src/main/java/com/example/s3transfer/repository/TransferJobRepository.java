@@ -1,11 +1,94 @@
 package com.example.s3transfer.repository;
 
 import com.example.s3transfer.entity.TransferJob;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface TransferJobRepository extends JpaRepository<TransferJob, UUID> {
-}
\ No newline at end of file
+
+    /**
+     * Jobs any node may take: queued and due, or whose owner stopped renewing its
+     * lease. Rows locked by another claimer are skipped (lock timeout -2 renders as
+     * {@code FOR UPDATE SKIP LOCKED} on PostgreSQL; H2 falls back to plain
+     * {@code FOR UPDATE}). Must run inside the claiming transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select j from TransferJob j where j.attempts < :maxAttempts and (" +
+            "(j.leaseOwner is null and j.status = 'QUEUED' and (j.nextAttemptAt is null or j.nextAttemptAt <= :now)) " +
+            "or (j.leaseOwner is not null and j.status in ('QUEUED', 'IN_PROGRESS') " +
+            "and (j.leaseExpiresAt is null or j.leaseExpiresAt < :now))) " +
+            "order by j.createdAt")
+    List<TransferJob> findClaimable(@Param("now") LocalDateTime now,
+                                    @Param("maxAttempts") int maxAttempts,
+                                    Pageable page);
+
+    /**
+     * Takes the lease on the given jobs if they are still claimable. The condition
+     * is repeated so two claimers can never both win a row, even where the select
+     * above could not skip locked rows.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update TransferJob j set j.leaseOwner = :owner, j.leaseExpiresAt = :expires, " +
+            "j.attempts = j.attempts + 1, j.status = 'QUEUED' " +
+            "where j.id in :ids and j.attempts < :maxAttempts and (" +
+            "(j.leaseOwner is null and j.status = 'QUEUED' and (j.nextAttemptAt is null or j.nextAttemptAt <= :now)) " +
+            "or (j.leaseOwner is not null and j.status in ('QUEUED', 'IN_PROGRESS') " +
+            "and (j.leaseExpiresAt is null or j.leaseExpiresAt < :now)))")
+    int claim(@Param("ids") Collection<UUID> ids,
+              @Param("owner") String owner,
+              @Param("expires") LocalDateTime expires,
+              @Param("now") LocalDateTime now,
+              @Param("maxAttempts") int maxAttempts);
+
+    @Query("select j from TransferJob j where j.id in :ids and j.leaseOwner = :owner and j.leaseExpiresAt = :expires")
+    List<TransferJob> findClaimed(@Param("ids") Collection<UUID> ids,
+                                  @Param("owner") String owner,
+                                  @Param("expires") LocalDateTime expires);
+
+    /**
+     * Fails jobs whose lease ran out after their last allowed attempt.
+     */
+    @Modifying
+    @Transactional
+    @Query("update TransferJob j set j.status = 'FAILED', j.leaseOwner = null, j.leaseExpiresAt = null, " +
+            "j.completedAt = :now, j.errorMessage = 'Worker stopped responding on the final attempt' " +
+            "where j.attempts >= :maxAttempts and j.leaseOwner is not null and j.status in ('QUEUED', 'IN_PROGRESS') " +
+            "and (j.leaseExpiresAt is null or j.leaseExpiresAt < :now)")
+    int failAbandoned(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts);
+
+    @Query("select count(j) from TransferJob j where j.status = 'QUEUED' and j.leaseOwner is null")
+    long countWaiting();
+
+    @Query("select distinct j.destinationBucket from TransferJob j")
+    List<String> findDestinationBuckets();
+
+    /**
+     * Uploads that queued or running jobs will continue.
+     */
+    @Query("select j.uploadId from TransferJob j where j.uploadId is not null and j.status in ('QUEUED', 'IN_PROGRESS')")
+    List<String> findActiveUploadIds();
+
+    /**
+     * Forgets an aborted upload on failed jobs, so resuming them starts over.
+     */
+    @Modifying
+    @Transactional
+    @Query("update TransferJob j set j.uploadId = null, j.sourceEtag = null where j.uploadId = :uploadId and j.status = 'FAILED'")
+    int clearUpload(@Param("uploadId") String uploadId);
+}
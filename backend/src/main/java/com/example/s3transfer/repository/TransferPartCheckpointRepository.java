@@ -0,0 +1,28 @@
+package com.example.s3transfer.repository;
+
+import com.example.s3transfer.entity.TransferPartCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TransferPartCheckpointRepository extends JpaRepository<TransferPartCheckpoint, UUID> {
+
+    List<TransferPartCheckpoint> findByJobIdAndUploadIdOrderByCreatedAt(UUID jobId, String uploadId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from TransferPartCheckpoint c where c.jobId = :jobId")
+    int deleteByJob(@Param("jobId") UUID jobId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from TransferPartCheckpoint c where c.uploadId = :uploadId")
+    int deleteByUpload(@Param("uploadId") String uploadId);
+}
@@ -0,0 +1,84 @@
+package com.example.s3transfer.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limit that adapts to the server's capacity (AIMD): each success
+ * while the limit is in use adds {@code 1/limit}, so the limit grows by about
+ * one per round of requests; a throttled response multiplies it by
+ * {@code decreaseRatio}, at most once per cooldown so one burst of rejections
+ * counts once.
+ */
+public class AdaptiveLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double decreaseRatio;
+    private final long cooldownNanos;
+
+    private double limit;
+    private int inFlight;
+    private long lastDecrease;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, double decreaseRatio, long cooldownMs) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.decreaseRatio = decreaseRatio;
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMs);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.lastDecrease = System.nanoTime() - cooldownNanos;
+    }
+
+    /**
+     * Waits for a free slot.
+     *
+     * @return false if none freed up within the timeout
+     */
+    public synchronized boolean acquire(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (inFlight >= (int) limit) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        // only probe upwards while the current limit is actually being used
+        if (inFlight >= limit / 2) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        release();
+    }
+
+    public synchronized void onThrottled() {
+        long now = System.nanoTime();
+        if (now - lastDecrease >= cooldownNanos) {
+            limit = Math.max(minLimit, limit * decreaseRatio);
+            lastDecrease = now;
+        }
+        release();
+    }
+
+    /** Releases a slot without saying anything about capacity. */
+    public synchronized void onIgnored() {
+        release();
+    }
+
+    private void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
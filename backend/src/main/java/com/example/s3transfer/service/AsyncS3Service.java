@@ -0,0 +1,339 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.ObjectListing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * {@link IAsyncS3Service} on {@link S3AsyncClient}s with a Netty NIO HTTP
+ * client, so a request waiting on S3 holds a connection but no thread. Runs
+ * next to the blocking {@link S3Service}, which still serves every other call;
+ * enable it with the {@code async} profile.
+ *
+ * <p>{@link S3Throttle} blocks while it waits for a permit or a backoff, so it
+ * isn't applied here: the SDK retries throttled async requests itself, and
+ * {@code app.s3.async.max-concurrency} caps the requests each client has open.
+ */
+@Service
+@Slf4j
+@Profile("async & !mock")
+public class AsyncS3Service implements IAsyncS3Service {
+
+    private final S3ClientRegistry clientRegistry;
+    private final MultipartSettings multipartSettings;
+    /** Credential every call is signed with; null for the default one. */
+    private final UUID credentialId;
+
+    @Autowired
+    public AsyncS3Service(S3ClientRegistry clientRegistry, MultipartSettings multipartSettings) {
+        this(clientRegistry, multipartSettings, null);
+    }
+
+    private AsyncS3Service(S3ClientRegistry clientRegistry, MultipartSettings multipartSettings, UUID credentialId) {
+        this.clientRegistry = clientRegistry;
+        this.multipartSettings = multipartSettings;
+        this.credentialId = credentialId;
+    }
+
+    private S3AsyncClient s3() {
+        return credentialId == null ? clientRegistry.defaultAsyncClient() : clientRegistry.asyncClient(credentialId);
+    }
+
+    public IAsyncS3Service forCredential(UUID credentialId) {
+        if (credentialId == null || credentialId.equals(this.credentialId)) {
+            return this;
+        }
+        // resolve now so an unknown credential fails here rather than on first use
+        clientRegistry.asyncClient(credentialId);
+        return new AsyncS3Service(clientRegistry, multipartSettings, credentialId);
+    }
+
+    public CompletableFuture<Boolean> bucketExists(String bucket) {
+        return call(() -> s3().headBucket(b -> b.bucket(bucket)))
+                .handle((response, failure) -> {
+                    if (failure == null) {
+                        return true;
+                    }
+                    Throwable e = IAsyncS3Service.unwrap(failure);
+                    if (e instanceof S3Exception && ((S3Exception) e).statusCode() == 404) {
+                        return false;
+                    }
+                    throw new RuntimeException("Failed to check bucket: " + e.getMessage());
+                });
+    }
+
+    public CompletableFuture<ObjectListing> listObjects(String bucket, String prefix, String delimiter,
+                                                        String continuationToken, int maxKeys) {
+        return call(() -> s3().listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(bucket)
+                .prefix(prefix)
+                .delimiter(delimiter)
+                .continuationToken(continuationToken)
+                .maxKeys(maxKeys)
+                .build()))
+                .thenApply(S3Service::toListing)
+                .exceptionally(e -> {
+                    log.error("Failed to list objects in bucket: {}", bucket, IAsyncS3Service.unwrap(e));
+                    throw new RuntimeException("Failed to list objects: " + IAsyncS3Service.unwrap(e).getMessage());
+                });
+    }
+
+    public CompletableFuture<HeadObjectResponse> headObject(String bucket, String key) {
+        return call(() -> s3().headObject(b -> b.bucket(bucket).key(key).checksumMode(ChecksumMode.ENABLED)));
+    }
+
+    public CompletableFuture<ResponsePublisher<GetObjectResponse>> downloadFile(String bucket, String key, String range,
+                                                                               String ifNoneMatch,
+                                                                               Instant ifModifiedSince) {
+        return call(() -> s3().getObject(GetObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .range(range)
+                        .ifNoneMatch(ifNoneMatch)
+                        .ifModifiedSince(ifModifiedSince)
+                        .build(),
+                AsyncResponseTransformer.<GetObjectResponse>toPublisher()))
+                .exceptionally(failure -> {
+                    Throwable e = IAsyncS3Service.unwrap(failure);
+                    if (e instanceof S3Exception && ((S3Exception) e).statusCode() == 304) {
+                        throw new ObjectNotModifiedException("Not modified: " + bucket + "/" + key);
+                    }
+                    if (e instanceof S3Exception && ((S3Exception) e).statusCode() == 416) {
+                        throw new InvalidRangeException("Range not satisfiable: " + range);
+                    }
+                    log.error("Failed to download file: {}/{}", bucket, key, e);
+                    throw new RuntimeException("Failed to download file: " + e.getMessage());
+                });
+    }
+
+    public CompletableFuture<Long> copyFile(String sourceBucket, String destinationBucket, String key,
+                                            TransferProgressListener progress, ChecksumAlgorithm checksumAlgorithm) {
+        return headObject(sourceBucket, key)
+                .thenCompose(source -> {
+                    progress.started(source.contentLength());
+                    CompletableFuture<Void> copied = source.contentLength() > multipartSettings.getCopyThreshold().toBytes()
+                            ? copyMultipart(sourceBucket, destinationBucket, key, source, progress, checksumAlgorithm)
+                            : copySingle(sourceBucket, destinationBucket, key, source, progress, checksumAlgorithm);
+                    return copied.thenApply(v -> source.contentLength());
+                })
+                .whenComplete((size, failure) -> {
+                    if (failure == null) {
+                        log.info("File copied successfully: {}/{} -> {}/{}", sourceBucket, key, destinationBucket, key);
+                    }
+                })
+                .exceptionally(failure -> {
+                    Throwable e = IAsyncS3Service.unwrap(failure);
+                    if (ServerSideCopyDeniedException.isDenial(e)) {
+                        throw new ServerSideCopyDeniedException("Server-side copy " + sourceBucket + " -> "
+                                + destinationBucket + " refused: " + e.getMessage());
+                    }
+                    if (e instanceof ChecksumMismatchException) {
+                        log.error("Copy failed verification: {}/{} -> {}/{}: {}", sourceBucket, key,
+                                destinationBucket, key, e.getMessage());
+                        throw (ChecksumMismatchException) e;
+                    }
+                    log.error("Failed to copy file: {}/{} -> {}/{}", sourceBucket, key, destinationBucket, key, e);
+                    throw new RuntimeException("Failed to copy file: " + e.getMessage());
+                });
+    }
+
+    private CompletableFuture<Void> copySingle(String sourceBucket, String destinationBucket, String key,
+                                               HeadObjectResponse source, TransferProgressListener progress,
+                                               ChecksumAlgorithm checksumAlgorithm) {
+        return s3().copyObject(CopyObjectRequest.builder()
+                        .sourceBucket(sourceBucket)
+                        .sourceKey(key)
+                        .destinationBucket(destinationBucket)
+                        .destinationKey(key)
+                        .checksumAlgorithm(checksumAlgorithm)
+                        .build())
+                .thenAccept(response -> {
+                    progress.transferred(source.contentLength());
+                    if (checksumAlgorithm != null) {
+                        // S3 checksums the copy itself; a composite source checksum isn't comparable
+                        CopyObjectResult copied = response.copyObjectResult();
+                        String expected = Checksums.of(source, checksumAlgorithm);
+                        String stored = Checksums.pick(checksumAlgorithm, copied.checksumCRC32C(),
+                                copied.checksumSHA256());
+                        Checksums.check(destinationBucket, key, checksumAlgorithm,
+                                Checksums.isComposite(expected) ? null : expected, stored);
+                        progress.verified(checksumAlgorithm, stored);
+                    }
+                });
+    }
+
+    /**
+     * Copies the parts through a window of {@code app.s3.multipart.concurrency}
+     * requests: each finished part starts the next, so no thread waits on any.
+     */
+    private CompletableFuture<Void> copyMultipart(String sourceBucket, String destinationBucket, String key,
+                                                  HeadObjectResponse source, TransferProgressListener progress,
+                                                  ChecksumAlgorithm checksumAlgorithm) {
+        long size = source.contentLength();
+        long partSize = multipartSettings.partSizeFor(size);
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        return s3().createMultipartUpload(CreateMultipartUploadRequest.builder()
+                        .bucket(destinationBucket)
+                        .key(key)
+                        .contentType(source.contentType())
+                        .contentEncoding(source.contentEncoding())
+                        .metadata(source.metadata())
+                        .checksumAlgorithm(checksumAlgorithm)
+                        .build())
+                .thenCompose(created -> {
+                    String uploadId = created.uploadId();
+                    log.info("Multipart copy started: {}/{} -> {}/{} ({} bytes, part size {}, upload {})",
+                            sourceBucket, key, destinationBucket, key, size, partSize, uploadId);
+                    PartWindow window = new PartWindow(sourceBucket, destinationBucket, key, uploadId, size,
+                            partSize, new CompletedPart[partCount], progress);
+                    for (int i = 0; i < Math.min(Math.max(1, multipartSettings.getConcurrency()), partCount); i++) {
+                        window.next();
+                    }
+                    return window.done
+                            .thenCompose(parts -> s3().completeMultipartUpload(b -> b
+                                    .bucket(destinationBucket)
+                                    .key(key)
+                                    .uploadId(uploadId)
+                                    .multipartUpload(m -> m.parts(parts))))
+                            .thenCompose(completed -> {
+                                log.info("Multipart copy completed: {}/{} ({} parts)", destinationBucket, key,
+                                        partCount);
+                                return checksumAlgorithm == null ? CompletableFuture.<Void>completedFuture(null)
+                                        : verify(destinationBucket, key, checksumAlgorithm, window.parts, progress);
+                            })
+                            .whenComplete((v, failure) -> {
+                                if (failure != null) {
+                                    window.done.cancel(false);
+                                    abortQuietly(destinationBucket, key, uploadId);
+                                }
+                            });
+                });
+    }
+
+    /**
+     * Checks the completed object's checksum against the composite of its parts'.
+     */
+    private CompletableFuture<Void> verify(String bucket, String key, ChecksumAlgorithm algorithm,
+                                           CompletedPart[] parts, TransferProgressListener progress) {
+        String[] checksums = new String[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            checksums[i] = Checksums.of(parts[i], algorithm);
+            if (checksums[i] == null) {
+                return CompletableFuture.failedFuture(new ChecksumMismatchException("Part " + parts[i].partNumber()
+                        + " of " + bucket + "/" + key + " has no " + algorithm + " checksum"));
+            }
+        }
+        String expected = Checksums.composite(algorithm, Arrays.asList(checksums));
+        return headObject(bucket, key).thenAccept(head -> {
+            String stored = Checksums.of(head, algorithm);
+            Checksums.check(bucket, key, algorithm, expected, stored);
+            log.info("Multipart copy verified: {}/{} ({} {})", bucket, key, algorithm, stored);
+            progress.verified(algorithm, stored);
+        });
+    }
+
+    private void abortQuietly(String bucket, String key, String uploadId) {
+        s3().abortMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId))
+                .whenComplete((response, e) -> {
+                    if (e == null) {
+                        log.info("Multipart upload aborted: {}/{} ({})", bucket, key, uploadId);
+                    } else {
+                        log.warn("Failed to abort multipart upload {}/{} ({})", bucket, key, uploadId, e);
+                    }
+                });
+    }
+
+    /**
+     * Starts the SDK call, turning a failure to start it (e.g. no credentials)
+     * into a failed future like any other.
+     */
+    private static <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> request) {
+        try {
+            return request.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Parts of one multipart copy still to start, and those done so far. */
+    private class PartWindow {
+        final String sourceBucket;
+        final String destinationBucket;
+        final String key;
+        final String uploadId;
+        final long size;
+        final long partSize;
+        final CompletedPart[] parts;
+        final TransferProgressListener progress;
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger remaining;
+        final CompletableFuture<List<CompletedPart>> done = new CompletableFuture<>();
+
+        PartWindow(String sourceBucket, String destinationBucket, String key, String uploadId, long size,
+                   long partSize, CompletedPart[] parts, TransferProgressListener progress) {
+            this.sourceBucket = sourceBucket;
+            this.destinationBucket = destinationBucket;
+            this.key = key;
+            this.uploadId = uploadId;
+            this.size = size;
+            this.partSize = partSize;
+            this.parts = parts;
+            this.progress = progress;
+            this.remaining = new AtomicInteger(parts.length);
+        }
+
+        void next() {
+            int index = started.getAndIncrement();
+            if (index >= parts.length || done.isDone()) {
+                return;
+            }
+            long firstByte = index * partSize;
+            long lastByte = Math.min(firstByte + partSize, size) - 1;
+            int partNumber = index + 1;
+            call(() -> s3().uploadPartCopy(UploadPartCopyRequest.builder()
+                    .sourceBucket(sourceBucket)
+                    .sourceKey(key)
+                    .destinationBucket(destinationBucket)
+                    .destinationKey(key)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .copySourceRange("bytes=" + firstByte + "-" + lastByte)
+                    .build()))
+                    .whenComplete((response, e) -> {
+                        if (e != null) {
+                            log.error("Failed to copy part {} of {}/{}", partNumber, destinationBucket, key,
+                                    IAsyncS3Service.unwrap(e));
+                            done.completeExceptionally(IAsyncS3Service.unwrap(e));
+                            return;
+                        }
+                        CopyPartResult result = response.copyPartResult();
+                        parts[index] = CompletedPart.builder()
+                                .partNumber(partNumber)
+                                .eTag(result.eTag())
+                                .checksumCRC32C(result.checksumCRC32C())
+                                .checksumSHA256(result.checksumSHA256())
+                                .build();
+                        progress.transferred(lastByte - firstByte + 1);
+                        if (remaining.decrementAndGet() == 0) {
+                            done.complete(Arrays.asList(parts));
+                        } else {
+                            next();
+                        }
+                    });
+        }
+    }
+}
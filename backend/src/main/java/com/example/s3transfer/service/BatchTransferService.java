@@ -0,0 +1,671 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.BatchSyncRequest;
+import com.example.s3transfer.dto.BatchTransferRequest;
+import com.example.s3transfer.dto.BatchTransferStatus;
+import com.example.s3transfer.dto.S3ObjectSummary;
+import com.example.s3transfer.entity.BatchFailedKeys;
+import com.example.s3transfer.entity.BatchSyncPlan;
+import com.example.s3transfer.entity.BatchTransferJob;
+import com.example.s3transfer.repository.BatchFailedKeysRepository;
+import com.example.s3transfer.repository.BatchSyncPlanRepository;
+import com.example.s3transfer.repository.BatchTransferJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copies every object under a prefix, or every key in a manifest, with a
+ * bounded number of parallel workers per batch. Keys are enumerated lazily
+ * and only aggregate counters are kept, in memory while running and flushed
+ * to the parent row on an interval. Copies are verified with the default
+ * checksum; a key whose copy doesn't match counts as failed.
+ *
+ * <p>A sync batch walks the source and destination listings side by side
+ * ({@link ObjectDiff}) and copies only the objects that are new or changed,
+ * optionally deleting the destination's extras. Every copy and delete it plans
+ * is recorded; a dry run stops there, so the plan can be reviewed and then
+ * carried out as it stands with {@link #executePlan}.
+ */
+@Service
+@Slf4j
+public class BatchTransferService {
+
+    private final BatchTransferJobRepository repo;
+    private final BatchFailedKeysRepository failedKeysRepo;
+    private final BatchSyncPlanRepository syncPlanRepo;
+    private final IS3Service s3Service;
+    private final ExecutorService coordinatorExecutor;
+    private final ExecutorService workerExecutor;
+    private final ChecksumSettings checksumSettings;
+
+    @Value("${app.transfer.batch.workers:16}")
+    private int defaultWorkers;
+
+    @Value("${app.transfer.batch.max-workers:64}")
+    private int maxWorkers;
+
+    @Value("${app.transfer.batch.progress-flush-interval-ms:2000}")
+    private long flushIntervalMs;
+
+    @Value("${app.transfer.executor.retry-after-seconds:5}")
+    private long retryAfterSeconds;
+
+    private final ConcurrentHashMap<UUID, BatchRun> running = new ConcurrentHashMap<>();
+
+    public BatchTransferService(BatchTransferJobRepository repo,
+                                BatchFailedKeysRepository failedKeysRepo,
+                                BatchSyncPlanRepository syncPlanRepo,
+                                IS3Service s3Service,
+                                @Qualifier("batchCoordinatorExecutor") ExecutorService coordinatorExecutor,
+                                @Qualifier("batchWorkerExecutor") ExecutorService workerExecutor,
+                                ChecksumSettings checksumSettings) {
+        this.repo = repo;
+        this.failedKeysRepo = failedKeysRepo;
+        this.syncPlanRepo = syncPlanRepo;
+        this.s3Service = s3Service;
+        this.coordinatorExecutor = coordinatorExecutor;
+        this.workerExecutor = workerExecutor;
+        this.checksumSettings = checksumSettings;
+    }
+
+    public UUID startPrefixBatch(BatchTransferRequest req) {
+        if (req.getSourceBucket() == null || req.getDestinationBucket() == null) {
+            throw new IllegalArgumentException("Source bucket and destination bucket are required");
+        }
+        String prefix = req.getSourcePrefix() == null || req.getSourcePrefix().isEmpty() ? null : req.getSourcePrefix();
+        BatchTransferJob job = newJob(req.getSourceBucket(), req.getDestinationBucket(), "PREFIX", req.getWorkers());
+        job.setSourcePrefix(prefix);
+        return start(job, () -> s3Service.iterateObjects(req.getSourceBucket(), prefix), this::copyTask);
+    }
+
+    /**
+     * Starts a batch over a newline-separated list of keys. The manifest is
+     * spooled to a temp file and read back one line at a time.
+     */
+    public UUID startManifestBatch(String sourceBucket, String destinationBucket, InputStream manifest, Integer workers) {
+        if (sourceBucket == null || destinationBucket == null) {
+            throw new IllegalArgumentException("Source bucket and destination bucket are required");
+        }
+        Path file = null;
+        try {
+            file = Files.createTempFile("batch-manifest-", ".txt");
+            Files.copy(manifest, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new RuntimeException("Failed to read manifest: " + e.getMessage(), e);
+        }
+        Path spooled = file;
+        try {
+            BatchTransferJob job = newJob(sourceBucket, destinationBucket, "MANIFEST", workers);
+            return start(job, () -> {
+                try {
+                    return new LineIterator<>(Files.newInputStream(spooled), spooled,
+                            BatchTransferService::manifestEntry);
+                } catch (IOException e) {
+                    deleteQuietly(spooled);
+                    throw new UncheckedIOException(e);
+                }
+            }, this::copyTask);
+        } catch (RuntimeException e) {
+            // Never handed to a coordinator (e.g. the pool is full), so nothing else will delete it
+            deleteQuietly(spooled);
+            throw e;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete manifest spool file {}", file, e);
+        }
+    }
+
+    /**
+     * Starts a sync of every key under the request's prefix.
+     */
+    public UUID startSync(BatchSyncRequest req) {
+        if (req.getSourceBucket() == null || req.getDestinationBucket() == null) {
+            throw new IllegalArgumentException("Source bucket and destination bucket are required");
+        }
+        if (req.getSourceBucket().equals(req.getDestinationBucket())) {
+            throw new IllegalArgumentException("Source and destination bucket must differ");
+        }
+        BatchTransferJob job = newJob(req.getSourceBucket(), req.getDestinationBucket(), "SYNC", req.getWorkers());
+        job.setSourcePrefix(req.getPrefix() == null || req.getPrefix().isEmpty() ? null : req.getPrefix());
+        job.setDeleteExtra(req.isDeleteExtra());
+        job.setDryRun(req.isDryRun());
+        return startSync(job);
+    }
+
+    /**
+     * Starts a sync that carries out a finished dry run's plan as recorded,
+     * without diffing again. Objects that changed since the dry run are copied
+     * as they are now; anything new since needs another sync.
+     */
+    public UUID executePlan(UUID batchId) {
+        BatchTransferJob dryRun = repo.findById(batchId)
+                .orElseThrow(() -> new RuntimeException("Batch transfer job not found: " + batchId));
+        if (!"SYNC".equals(dryRun.getSourceType()) || !dryRun.isDryRun()) {
+            throw new IllegalStateException("Only a dry-run sync has a plan to execute: " + batchId);
+        }
+        if (!"PLANNED".equals(dryRun.getStatus())) {
+            throw new IllegalStateException("Dry run has not finished planning, it is " + dryRun.getStatus());
+        }
+        BatchSyncPlan plan = syncPlanRepo.findById(batchId)
+                .orElseThrow(() -> new IllegalStateException("Dry run has no plan: " + batchId));
+        BatchTransferJob job = newJob(dryRun.getSourceBucket(), dryRun.getDestinationBucket(), "SYNC",
+                dryRun.getWorkers());
+        job.setSourcePrefix(dryRun.getSourcePrefix());
+        job.setDeleteExtra(dryRun.isDeleteExtra());
+        job.setPlanId(batchId);
+        return start(job, () -> {
+            try {
+                return new LineIterator<>(new GZIPInputStream(new ByteArrayInputStream(plan.getPlanGzip())), null,
+                        BatchTransferService::planEntry);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, this::syncTask);
+    }
+
+    private UUID startSync(BatchTransferJob job) {
+        String prefix = job.getSourcePrefix();
+        return start(job, () -> new ObjectDiff(s3Service.iterateObjects(job.getSourceBucket(), prefix),
+                s3Service.iterateObjects(job.getDestinationBucket(), prefix)), this::syncTask);
+    }
+
+    /**
+     * Starts a new batch over the keys that failed in {@code batchId}.
+     */
+    public UUID retryFailed(UUID batchId) {
+        BatchTransferJob previous = repo.findById(batchId)
+                .orElseThrow(() -> new RuntimeException("Batch transfer job not found: " + batchId));
+        if (running.containsKey(batchId)) {
+            throw new IllegalStateException("Batch transfer is still running: " + batchId);
+        }
+        BatchFailedKeys failed = failedKeysRepo.findById(batchId)
+                .orElseThrow(() -> new IllegalStateException("Batch transfer has no failed keys: " + batchId));
+        if ("SYNC".equals(previous.getSourceType())) {
+            // failed deletes can't be replayed as copies; a fresh diff finds whatever is still out of date
+            BatchTransferJob job = newJob(previous.getSourceBucket(), previous.getDestinationBucket(), "SYNC",
+                    previous.getWorkers());
+            job.setSourcePrefix(previous.getSourcePrefix());
+            job.setDeleteExtra(previous.isDeleteExtra());
+            return startSync(job);
+        }
+        BatchTransferJob job = newJob(previous.getSourceBucket(), previous.getDestinationBucket(), "MANIFEST",
+                previous.getWorkers());
+        return start(job, () -> {
+            try {
+                return new LineIterator<>(new GZIPInputStream(new ByteArrayInputStream(failed.getKeysGzip())), null,
+                        BatchTransferService::manifestEntry);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, this::copyTask);
+    }
+
+    public BatchTransferStatus getStatus(UUID batchId) {
+        BatchRun run = running.get(batchId);
+        if (run != null) {
+            return run.snapshot();
+        }
+        BatchTransferJob job = repo.findById(batchId)
+                .orElseThrow(() -> new RuntimeException("Batch transfer job not found: " + batchId));
+        return toStatus(job);
+    }
+
+    /**
+     * Writes the failed keys of a finished batch, one per line.
+     */
+    public void writeFailedKeys(UUID batchId, OutputStream out) throws IOException {
+        BatchFailedKeys failed = failedKeysRepo.findById(batchId).orElse(null);
+        if (failed == null) {
+            return;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(failed.getKeysGzip()))) {
+            in.transferTo(out);
+        }
+    }
+
+    /**
+     * Writes the copies and deletes a sync planned, one tab-separated
+     * {@code change, size, key} line each.
+     */
+    public void writePlan(UUID batchId, OutputStream out) throws IOException {
+        BatchSyncPlan plan = syncPlanRepo.findById(batchId).orElse(null);
+        if (plan == null) {
+            return;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(plan.getPlanGzip()))) {
+            in.transferTo(out);
+        }
+    }
+
+    private BatchTransferJob newJob(String sourceBucket, String destinationBucket, String sourceType, Integer workers) {
+        BatchTransferJob job = new BatchTransferJob();
+        job.setSourceBucket(sourceBucket);
+        job.setDestinationBucket(destinationBucket);
+        job.setSourceType(sourceType);
+        job.setWorkers(Math.max(1, Math.min(workers != null && workers > 0 ? workers : defaultWorkers, maxWorkers)));
+        job.setStatus("QUEUED");
+        job.setCreatedAt(LocalDateTime.now());
+        return job;
+    }
+
+    /**
+     * @param task the work for one item, or null if it needs none
+     */
+    private <T> UUID start(BatchTransferJob job, Supplier<Iterator<T>> items,
+                           BiFunction<BatchRun, T, Runnable> task) {
+        BatchTransferJob saved = repo.save(job);
+        BatchRun run = new BatchRun(saved);
+        running.put(saved.getId(), run);
+        try {
+            coordinatorExecutor.execute(() -> execute(run, items, task));
+        } catch (RejectedExecutionException e) {
+            running.remove(saved.getId());
+            repo.delete(saved);
+            throw new TransferRejectedException("Too many batch transfers queued, retry later", retryAfterSeconds);
+        }
+        return saved.getId();
+    }
+
+    private <T> void execute(BatchRun run, Supplier<Iterator<T>> itemSource, BiFunction<BatchRun, T, Runnable> task) {
+        BatchTransferJob job = run.job;
+        int workers = job.getWorkers();
+        Semaphore permits = new Semaphore(workers);
+        Iterator<T> items = null;
+        log.info("Batch transfer started: {} ({} -> {}, {} workers)", job.getId(),
+                job.getSourceBucket(), job.getDestinationBucket(), workers);
+        job.setStatus("IN_PROGRESS");
+        repo.save(job);
+        try {
+            items = itemSource.get();
+            while (items.hasNext()) {
+                Runnable work = task.apply(run, items.next());
+                if (work == null) {
+                    run.flushIfDue();
+                    continue;
+                }
+                run.discovered.incrementAndGet();
+                while (!permits.tryAcquire(flushIntervalMs, TimeUnit.MILLISECONDS)) {
+                    run.flushIfDue();
+                }
+                workerExecutor.execute(() -> {
+                    try {
+                        work.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+                run.flushIfDue();
+            }
+            run.enumerationComplete = true;
+        } catch (Exception e) {
+            log.error("Batch transfer enumeration failed: {}", job.getId(), e);
+            job.setErrorMessage("Enumeration failed: " + e.getMessage());
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            if (items instanceof Closeable) {
+                try {
+                    ((Closeable) items).close();
+                } catch (IOException e) {
+                    log.warn("Failed to close key source for batch {}", job.getId(), e);
+                }
+            }
+        }
+
+        try {
+            while (!permits.tryAcquire(workers, flushIntervalMs, TimeUnit.MILLISECONDS)) {
+                run.flushIfDue();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finish(run);
+    }
+
+    private Runnable copyTask(BatchRun run, S3ObjectSummary object) {
+        return () -> copy(run, object);
+    }
+
+    /**
+     * Counts and records one diff entry, and returns its copy or delete; a dry
+     * run counts it as discovered and leaves it undone.
+     */
+    private Runnable syncTask(BatchRun run, ObjectDiff.Entry entry) {
+        S3ObjectSummary object = entry.getObject();
+        switch (entry.getChange()) {
+            case UNCHANGED:
+                run.unchanged.incrementAndGet();
+                return null;
+            case EXTRA:
+                run.extra.incrementAndGet();
+                if (!run.job.isDeleteExtra()) {
+                    return null;
+                }
+                break;
+            case NEW:
+                run.newObjects.incrementAndGet();
+                run.bytesPlanned.addAndGet(Math.max(0, object.getSize()));
+                break;
+            case CHANGED:
+                run.changed.incrementAndGet();
+                run.bytesPlanned.addAndGet(Math.max(0, object.getSize()));
+                break;
+        }
+        run.recordPlanned(entry);
+        if (run.job.isDryRun()) {
+            run.discovered.incrementAndGet();
+            return null;
+        }
+        return entry.getChange() == ObjectDiff.Change.EXTRA ? () -> delete(run, object) : () -> copy(run, object);
+    }
+
+    private void delete(BatchRun run, S3ObjectSummary object) {
+        try {
+            s3Service.deleteObject(run.job.getDestinationBucket(), object.getKey());
+            run.done.incrementAndGet();
+        } catch (Exception e) {
+            log.warn("Batch {}: failed to delete {}: {}", run.job.getId(), object.getKey(), e.getMessage());
+            run.recordFailure(object.getKey());
+        }
+    }
+
+    private void copy(BatchRun run, S3ObjectSummary object) {
+        try {
+            long bytes = s3Service.copyFile(run.job.getSourceBucket(), run.job.getDestinationBucket(), object.getKey(),
+                    TransferProgressListener.NONE, TransferCheckpoint.NONE, checksumSettings.resolve(null));
+            run.bytesDone.addAndGet(bytes);
+            run.done.incrementAndGet();
+        } catch (Exception e) {
+            log.warn("Batch {}: failed to copy {}: {}", run.job.getId(), object.getKey(), e.getMessage());
+            run.bytesFailed.addAndGet(Math.max(0, object.getSize()));
+            run.recordFailure(object.getKey());
+        }
+    }
+
+    private void finish(BatchRun run) {
+        BatchTransferJob job = run.job;
+        try {
+            if (run.failed.get() > 0) {
+                BatchFailedKeys failed = new BatchFailedKeys();
+                failed.setBatchId(job.getId());
+                failed.setKeyCount(run.failed.get());
+                failed.setKeysGzip(run.failedKeysGzip());
+                failedKeysRepo.save(failed);
+            }
+            if (run.plan != null) {
+                BatchSyncPlan plan = new BatchSyncPlan();
+                plan.setBatchId(job.getId());
+                plan.setEntryCount(run.planned.get());
+                plan.setPlanGzip(run.planGzip());
+                syncPlanRepo.save(plan);
+            }
+            run.copyCountersTo(job);
+            if (!run.enumerationComplete) {
+                job.setStatus("FAILED");
+            } else if (job.isDryRun()) {
+                job.setStatus("PLANNED");
+            } else {
+                job.setStatus(run.failed.get() > 0 ? "COMPLETED_WITH_ERRORS" : "COMPLETED");
+            }
+            job.setCompletedAt(LocalDateTime.now());
+            repo.save(job);
+            log.info("Batch transfer finished: {} {} ({} done, {} failed, {} bytes)", job.getId(), job.getStatus(),
+                    job.getObjectsDone(), job.getObjectsFailed(), job.getBytesDone());
+        } catch (Exception e) {
+            log.error("Failed to record batch transfer result: {}", job.getId(), e);
+        } finally {
+            running.remove(job.getId());
+        }
+    }
+
+    private static BatchTransferStatus toStatus(BatchTransferJob job) {
+        BatchTransferStatus status = new BatchTransferStatus();
+        status.setId(job.getId());
+        status.setStatus(job.getStatus());
+        status.setSourceBucket(job.getSourceBucket());
+        status.setDestinationBucket(job.getDestinationBucket());
+        status.setSourceType(job.getSourceType());
+        status.setSourcePrefix(job.getSourcePrefix());
+        status.setWorkers(job.getWorkers());
+        status.setDryRun(job.isDryRun());
+        status.setDeleteExtra(job.isDeleteExtra());
+        status.setPlanId(job.getPlanId());
+        status.setObjectsDiscovered(job.getObjectsDiscovered());
+        status.setObjectsDone(job.getObjectsDone());
+        status.setObjectsFailed(job.getObjectsFailed());
+        status.setObjectsRemaining(job.getObjectsDiscovered() - job.getObjectsDone() - job.getObjectsFailed());
+        status.setBytesDone(job.getBytesDone());
+        status.setBytesFailed(job.getBytesFailed());
+        status.setEnumerationComplete(job.isEnumerationComplete());
+        status.setObjectsNew(job.getObjectsNew());
+        status.setObjectsChanged(job.getObjectsChanged());
+        status.setObjectsUnchanged(job.getObjectsUnchanged());
+        status.setObjectsExtra(job.getObjectsExtra());
+        status.setBytesPlanned(job.getBytesPlanned());
+        status.setErrorMessage(job.getErrorMessage());
+        status.setCreatedAt(job.getCreatedAt());
+        status.setCompletedAt(job.getCompletedAt());
+        return status;
+    }
+
+    /**
+     * In-memory counters for a running batch.
+     */
+    private class BatchRun {
+        final BatchTransferJob job;
+        final AtomicLong discovered = new AtomicLong();
+        final AtomicLong done = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong bytesDone = new AtomicLong();
+        final AtomicLong bytesFailed = new AtomicLong();
+        final AtomicLong newObjects = new AtomicLong();
+        final AtomicLong changed = new AtomicLong();
+        final AtomicLong unchanged = new AtomicLong();
+        final AtomicLong extra = new AtomicLong();
+        final AtomicLong bytesPlanned = new AtomicLong();
+        final AtomicLong planned = new AtomicLong();
+        volatile boolean enumerationComplete;
+        private final ByteArrayOutputStream failedKeysBuffer = new ByteArrayOutputStream();
+        private final GZIPOutputStream failedKeys;
+        private final ByteArrayOutputStream planBuffer;
+        /** Only for syncs. Written by the coordinator alone. */
+        final GZIPOutputStream plan;
+        private long lastFlush = System.currentTimeMillis();
+
+        BatchRun(BatchTransferJob job) {
+            this.job = job;
+            boolean sync = "SYNC".equals(job.getSourceType());
+            this.planBuffer = sync ? new ByteArrayOutputStream() : null;
+            try {
+                this.failedKeys = new GZIPOutputStream(failedKeysBuffer);
+                this.plan = sync ? new GZIPOutputStream(planBuffer) : null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void recordPlanned(ObjectDiff.Entry entry) {
+            planned.incrementAndGet();
+            S3ObjectSummary object = entry.getObject();
+            String line = entry.getChange() + "\t" + object.getSize() + "\t" + object.getKey() + "\n";
+            try {
+                plan.write(line.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        byte[] planGzip() throws IOException {
+            plan.finish();
+            return planBuffer.toByteArray();
+        }
+
+        synchronized void recordFailure(String key) {
+            failed.incrementAndGet();
+            try {
+                failedKeys.write(key.getBytes(StandardCharsets.UTF_8));
+                failedKeys.write('\n');
+            } catch (IOException e) {
+                log.warn("Batch {}: could not record failed key {}", job.getId(), key, e);
+            }
+        }
+
+        synchronized byte[] failedKeysGzip() throws IOException {
+            failedKeys.finish();
+            return failedKeysBuffer.toByteArray();
+        }
+
+        void flushIfDue() {
+            long now = System.currentTimeMillis();
+            if (now - lastFlush < flushIntervalMs) {
+                return;
+            }
+            lastFlush = now;
+            try {
+                repo.updateProgress(job.getId(), discovered.get(), done.get(), failed.get(),
+                        bytesDone.get(), bytesFailed.get(), enumerationComplete, newObjects.get(), changed.get(),
+                        unchanged.get(), extra.get(), bytesPlanned.get(), LocalDateTime.now());
+            } catch (Exception e) {
+                log.warn("Batch {}: failed to persist progress", job.getId(), e);
+            }
+        }
+
+        void copyCountersTo(BatchTransferJob target) {
+            target.setObjectsDiscovered(discovered.get());
+            target.setObjectsDone(done.get());
+            target.setObjectsFailed(failed.get());
+            target.setBytesDone(bytesDone.get());
+            target.setBytesFailed(bytesFailed.get());
+            target.setEnumerationComplete(enumerationComplete);
+            target.setObjectsNew(newObjects.get());
+            target.setObjectsChanged(changed.get());
+            target.setObjectsUnchanged(unchanged.get());
+            target.setObjectsExtra(extra.get());
+            target.setBytesPlanned(bytesPlanned.get());
+            target.setUpdatedAt(LocalDateTime.now());
+        }
+
+        BatchTransferStatus snapshot() {
+            BatchTransferStatus status = toStatus(job);
+            status.setObjectsDiscovered(discovered.get());
+            status.setObjectsDone(done.get());
+            status.setObjectsFailed(failed.get());
+            status.setObjectsRemaining(discovered.get() - done.get() - failed.get());
+            status.setBytesDone(bytesDone.get());
+            status.setBytesFailed(bytesFailed.get());
+            status.setEnumerationComplete(enumerationComplete);
+            status.setObjectsNew(newObjects.get());
+            status.setObjectsChanged(changed.get());
+            status.setObjectsUnchanged(unchanged.get());
+            status.setObjectsExtra(extra.get());
+            status.setBytesPlanned(bytesPlanned.get());
+            return status;
+        }
+    }
+
+    private static S3ObjectSummary manifestEntry(String line) {
+        return new S3ObjectSummary(line.trim(), -1, null, null);
+    }
+
+    private static ObjectDiff.Entry planEntry(String line) {
+        String[] fields = line.split("\t", 3);
+        if (fields.length < 3) {
+            throw new IllegalStateException("Malformed sync plan line: " + line);
+        }
+        return new ObjectDiff.Entry(ObjectDiff.Change.valueOf(fields[0]),
+                new S3ObjectSummary(fields[2], Long.parseLong(fields[1]), null, null));
+    }
+
+    /**
+     * Reads one item per non-blank line, deleting the backing temp file (if any) on close.
+     */
+    private static class LineIterator<T> implements Iterator<T>, Closeable {
+        private final BufferedReader reader;
+        private final Path file;
+        private final Function<String, T> parser;
+        private String next;
+
+        LineIterator(InputStream in, Path file, Function<String, T> parser) {
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            this.file = file;
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    if (!line.isBlank()) {
+                        next = line;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T item = parser.apply(next);
+            next = null;
+            return item;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.s3transfer.service;
+
+/**
+ * Thrown when a transfer can't start because one of its buckets already runs
+ * as many transfers as {@code app.transfer.executor.per-bucket-limit} allows.
+ */
+public class BucketBusyException extends TransferRejectedException {
+
+    public BucketBusyException(String message, long retryAfterSeconds) {
+        super(message, retryAfterSeconds);
+    }
+}
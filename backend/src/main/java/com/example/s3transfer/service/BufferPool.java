@@ -0,0 +1,50 @@
+package com.example.s3transfer.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fixed number of equally sized byte buffers, allocated lazily and recycled.
+ * {@link #acquire()} blocks when every buffer is in use, which is what gives
+ * the streaming paths their backpressure and flat memory profile.
+ */
+public class BufferPool {
+
+    private final int bufferSize;
+    private final int maxBuffers;
+    private final BlockingQueue<byte[]> free;
+    private final Semaphore available;
+
+    public BufferPool(int bufferSize, int maxBuffers) {
+        this.bufferSize = bufferSize;
+        this.maxBuffers = maxBuffers;
+        this.free = new ArrayBlockingQueue<>(maxBuffers);
+        this.available = new Semaphore(maxBuffers, true);
+    }
+
+    public byte[] acquire() throws InterruptedException {
+        available.acquire();
+        byte[] buffer = free.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    public void release(byte[] buffer) {
+        if (buffer.length == bufferSize) {
+            free.offer(buffer);
+        }
+        available.release();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getMaxBuffers() {
+        return maxBuffers;
+    }
+
+    public int getInUse() {
+        return maxBuffers - available.availablePermits();
+    }
+}
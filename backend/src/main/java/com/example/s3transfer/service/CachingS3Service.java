@@ -0,0 +1,279 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.MultipartUploadSummary;
+import com.example.s3transfer.dto.ObjectAttributes;
+import com.example.s3transfer.dto.ObjectListing;
+import com.example.s3transfer.dto.PresignedUrl;
+import com.example.s3transfer.dto.S3ObjectSummary;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps any {@link IS3Service} with bounded caches of bucket existence and
+ * listing pages, so the dashboard's repeated {@code HeadBucket}s and listings
+ * are served from memory.
+ *
+ * <p>Concurrent misses for the same entry share a single S3 call. Writes made
+ * through this service ({@code uploadFile}, {@code copyFile},
+ * {@code completeMultipartUpload}, {@code deleteObject}, {@code createBucket}),
+ * and direct uploads reported through {@code objectChanged}, move their bucket
+ * to a new generation once they finish; entries are keyed by
+ * generation, so a listing loaded before or during the write, even one still in
+ * flight, is never served after it. Changes made by other nodes or clients show
+ * up once the TTLs expire.
+ *
+ * <p>Entries are keyed by credential too, since credentials may see different
+ * buckets. Full-bucket walks ({@link #iterateObjects}) bypass the cache, so
+ * batches and syncs always list live and don't evict the dashboard's pages.
+ * Cached listings are shared: callers must not modify them.
+ *
+ * <p>Each cache reports Micrometer's {@code cache.*} meters and a
+ * {@code cache.hit.ratio} gauge, tagged {@code cache=s3.buckets},
+ * {@code s3.listings} or {@code s3.files}.
+ */
+public class CachingS3Service implements IS3Service {
+
+    private final IS3Service delegate;
+    private final UUID credentialId;
+    private final Cache<BucketKey, Boolean> buckets;
+    private final Cache<ListingKey, ObjectListing> listings;
+    private final Cache<BucketKey, List<String>> files;
+    /** By bucket name; only buckets written through this service have an entry. */
+    private final ConcurrentHashMap<String, AtomicLong> bucketGenerations;
+    private final ConcurrentHashMap<String, AtomicLong> listingGenerations;
+
+    public CachingS3Service(IS3Service delegate, S3CacheSettings settings, MeterRegistry registry) {
+        this(delegate, null,
+                Caffeine.newBuilder()
+                        .maximumSize(settings.getMaxBuckets())
+                        .expireAfterWrite(Duration.ofMillis(settings.getBucketTtlMs()))
+                        .recordStats()
+                        .build(),
+                Caffeine.newBuilder()
+                        .maximumWeight(settings.getMaxListedKeys())
+                        .weigher((ListingKey k, ObjectListing v) -> 1 + v.getObjects().size() + v.getCommonPrefixes().size())
+                        .expireAfterWrite(Duration.ofMillis(settings.getListingTtlMs()))
+                        .recordStats()
+                        .build(),
+                Caffeine.newBuilder()
+                        .maximumWeight(settings.getMaxListedKeys())
+                        .weigher((BucketKey k, List<String> v) -> 1 + v.size())
+                        .expireAfterWrite(Duration.ofMillis(settings.getListingTtlMs()))
+                        .recordStats()
+                        .build(),
+                new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        monitor(registry, buckets, "s3.buckets");
+        monitor(registry, listings, "s3.listings");
+        monitor(registry, files, "s3.files");
+    }
+
+    private CachingS3Service(IS3Service delegate, UUID credentialId, Cache<BucketKey, Boolean> buckets,
+                             Cache<ListingKey, ObjectListing> listings, Cache<BucketKey, List<String>> files,
+                             ConcurrentHashMap<String, AtomicLong> bucketGenerations,
+                             ConcurrentHashMap<String, AtomicLong> listingGenerations) {
+        this.delegate = delegate;
+        this.credentialId = credentialId;
+        this.buckets = buckets;
+        this.listings = listings;
+        this.files = files;
+        this.bucketGenerations = bucketGenerations;
+        this.listingGenerations = listingGenerations;
+    }
+
+    static void monitor(MeterRegistry registry, Cache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", name)
+                .description("Share of lookups served from the cache since startup")
+                .register(registry);
+    }
+
+    /**
+     * Shares this service's caches and generations, so writes through any
+     * credential invalidate every credential's entries for the bucket.
+     */
+    public IS3Service forCredential(UUID credentialId) {
+        IS3Service scoped = delegate.forCredential(credentialId);
+        return scoped == delegate ? this : new CachingS3Service(scoped, credentialId, buckets, listings, files,
+                bucketGenerations, listingGenerations);
+    }
+
+    public List<String> listFiles(String bucket) {
+        BucketKey key = new BucketKey(credentialId, bucket, generation(listingGenerations, bucket));
+        return files.get(key, k -> Collections.unmodifiableList(delegate.listFiles(bucket)));
+    }
+
+    public ObjectListing listObjects(String bucket, String prefix, String delimiter, String continuationToken, int maxKeys) {
+        ListingKey key = new ListingKey(credentialId, bucket, generation(listingGenerations, bucket),
+                prefix, delimiter, continuationToken, maxKeys);
+        return listings.get(key, k -> delegate.listObjects(bucket, prefix, delimiter, continuationToken, maxKeys));
+    }
+
+    @Override
+    public Iterator<S3ObjectSummary> iterateObjects(String bucket, String prefix) {
+        return delegate.iterateObjects(bucket, prefix);
+    }
+
+    /** A check that fails throws through and caches nothing. */
+    public boolean bucketExists(String bucket) {
+        BucketKey key = new BucketKey(credentialId, bucket, generation(bucketGenerations, bucket));
+        return buckets.get(key, k -> delegate.bucketExists(bucket));
+    }
+
+    public void createBucket(String bucket) {
+        try {
+            delegate.createBucket(bucket);
+        } finally {
+            changed(bucketGenerations, bucket);
+            listingsChanged(bucket);
+        }
+    }
+
+    public void uploadFile(String bucket, String key, InputStream inputStream, long contentLength,
+                           ObjectAttributes attributes) {
+        try {
+            delegate.uploadFile(bucket, key, inputStream, contentLength, attributes);
+        } finally {
+            listingsChanged(bucket);
+        }
+    }
+
+    public long copyFile(String sourceBucket, String destinationBucket, String key, TransferProgressListener progress,
+                         TransferCheckpoint checkpoint, ChecksumAlgorithm checksumAlgorithm) {
+        try {
+            return delegate.copyFile(sourceBucket, destinationBucket, key, progress, checkpoint, checksumAlgorithm);
+        } finally {
+            listingsChanged(destinationBucket);
+        }
+    }
+
+    public void deleteObject(String bucket, String key) {
+        try {
+            delegate.deleteObject(bucket, key);
+        } finally {
+            listingsChanged(bucket);
+        }
+    }
+
+    public void completeMultipartUpload(String bucket, String key, String uploadId, List<CompletedPart> parts) {
+        try {
+            delegate.completeMultipartUpload(bucket, key, uploadId, parts);
+        } finally {
+            listingsChanged(bucket);
+        }
+    }
+
+    public ResponseInputStream<GetObjectResponse> downloadFile(String bucket, String key, String range,
+                                                               String ifNoneMatch, Instant ifModifiedSince) {
+        return delegate.downloadFile(bucket, key, range, ifNoneMatch, ifModifiedSince);
+    }
+
+    public HeadObjectResponse headObject(String bucket, String key) {
+        return delegate.headObject(bucket, key);
+    }
+
+    public String createMultipartUpload(String bucket, String key, ObjectAttributes attributes) {
+        return delegate.createMultipartUpload(bucket, key, attributes);
+    }
+
+    public CompletedPart uploadPart(String bucket, String key, String uploadId, int partNumber,
+                                    InputStream inputStream, long contentLength, ChecksumAlgorithm checksumAlgorithm,
+                                    String checksum) {
+        return delegate.uploadPart(bucket, key, uploadId, partNumber, inputStream, contentLength,
+                checksumAlgorithm, checksum);
+    }
+
+    public CompletedPart uploadPartCopy(String sourceBucket, String sourceKey, String bucket, String key,
+                                        String uploadId, int partNumber, long firstByte, long lastByte) {
+        return delegate.uploadPartCopy(sourceBucket, sourceKey, bucket, key, uploadId, partNumber, firstByte, lastByte);
+    }
+
+    public void abortMultipartUpload(String bucket, String key, String uploadId) {
+        delegate.abortMultipartUpload(bucket, key, uploadId);
+    }
+
+    public List<CompletedPart> listParts(String bucket, String key, String uploadId) {
+        return delegate.listParts(bucket, key, uploadId);
+    }
+
+    public List<MultipartUploadSummary> listMultipartUploads(String bucket) {
+        return delegate.listMultipartUploads(bucket);
+    }
+
+    public PresignedUrl presignDownload(String bucket, String key, Duration expiresIn) {
+        return delegate.presignDownload(bucket, key, expiresIn);
+    }
+
+    public PresignedUrl presignUpload(String bucket, String key, String contentType, Duration expiresIn) {
+        return delegate.presignUpload(bucket, key, contentType, expiresIn);
+    }
+
+    public PresignedUrl presignUploadPart(String bucket, String key, String uploadId, int partNumber,
+                                          Duration expiresIn) {
+        return delegate.presignUploadPart(bucket, key, uploadId, partNumber, expiresIn);
+    }
+
+    @Override
+    public void objectChanged(String bucket, String key) {
+        try {
+            delegate.objectChanged(bucket, key);
+        } finally {
+            listingsChanged(bucket);
+        }
+    }
+
+    private static long generation(ConcurrentHashMap<String, AtomicLong> generations, String bucket) {
+        AtomicLong generation = generations.get(bucket);
+        return generation != null ? generation.get() : 0;
+    }
+
+    private static void changed(ConcurrentHashMap<String, AtomicLong> generations, String bucket) {
+        generations.computeIfAbsent(bucket, b -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Moves the bucket's listings to a new generation, then drops the old
+     * generation's entries to free their room; any still loading expire unread.
+     */
+    private void listingsChanged(String bucket) {
+        changed(listingGenerations, bucket);
+        listings.asMap().keySet().removeIf(k -> k.bucket.equals(bucket));
+        files.asMap().keySet().removeIf(k -> k.bucket.equals(bucket));
+    }
+
+    @lombok.Value
+    private static class BucketKey {
+        UUID credentialId;
+        String bucket;
+        long generation;
+    }
+
+    @lombok.Value
+    private static class ListingKey {
+        UUID credentialId;
+        String bucket;
+        long generation;
+        String prefix;
+        String delimiter;
+        String continuationToken;
+        int maxKeys;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.s3transfer.service;
+
+/**
+ * A stored object's checksum doesn't match the bytes that were sent, or it has none to check.
+ */
+public class ChecksumMismatchException extends RuntimeException {
+
+    public ChecksumMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.s3transfer.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+
+/**
+ * Checksum that uploads and copies are stored and verified with unless the
+ * request picks another.
+ */
+@Component
+public class ChecksumSettings {
+
+    /** CRC32C, SHA256 or NONE. */
+    private final String algorithm;
+
+    public ChecksumSettings(@Value("${app.checksum.algorithm:CRC32C}") String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * @param requested the request's choice; null for the default
+     * @return null for none
+     * @throws IllegalArgumentException for an algorithm that isn't supported
+     */
+    public ChecksumAlgorithm resolve(String requested) {
+        return Checksums.parse(requested != null ? requested : algorithm);
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.s3transfer.service;
+
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * S3 object checksums: CRC32C or SHA-256, Base64-encoded as S3 reports them.
+ * An object uploaded in one request has a checksum of its whole body; a
+ * multipart upload has a composite one, the checksum of its parts' checksums
+ * followed by {@code -<part count>}, so it depends on where the parts were cut.
+ */
+public final class Checksums {
+
+    private Checksums() {
+    }
+
+    /**
+     * @return null for a null, empty or {@code none} name
+     * @throws IllegalArgumentException for an algorithm that isn't supported
+     */
+    public static ChecksumAlgorithm parse(String name) {
+        if (name == null || name.isBlank() || name.equalsIgnoreCase("none")) {
+            return null;
+        }
+        String normalized = name.trim().toUpperCase(Locale.ROOT).replace("-", "");
+        if (normalized.equals("CRC32C")) {
+            return ChecksumAlgorithm.CRC32_C;
+        }
+        if (normalized.equals("SHA256")) {
+            return ChecksumAlgorithm.SHA256;
+        }
+        throw new IllegalArgumentException("Unsupported checksum: " + name + " (CRC32C, SHA256 or NONE)");
+    }
+
+    /** Name of the header S3 sends and takes the checksum in, e.g. {@code x-amz-checksum-crc32c}. */
+    public static String header(ChecksumAlgorithm algorithm) {
+        return "x-amz-checksum-" + algorithm.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Accumulates one checksum; not thread-safe.
+     */
+    public interface Digest {
+
+        void update(byte[] bytes, int offset, int length);
+
+        void update(ByteBuffer bytes);
+
+        /** The checksum of everything so far, Base64-encoded. */
+        String finish();
+    }
+
+    public static Digest digest(ChecksumAlgorithm algorithm) {
+        if (algorithm == ChecksumAlgorithm.CRC32_C) {
+            CRC32C crc = new CRC32C();
+            return new Digest() {
+                @Override
+                public void update(byte[] bytes, int offset, int length) {
+                    crc.update(bytes, offset, length);
+                }
+
+                @Override
+                public void update(ByteBuffer bytes) {
+                    crc.update(bytes);
+                }
+
+                @Override
+                public String finish() {
+                    return Base64.getEncoder().encodeToString(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+                }
+            };
+        }
+        MessageDigest sha = sha256(algorithm);
+        return new Digest() {
+            @Override
+            public void update(byte[] bytes, int offset, int length) {
+                sha.update(bytes, offset, length);
+            }
+
+            @Override
+            public void update(ByteBuffer bytes) {
+                sha.update(bytes);
+            }
+
+            @Override
+            public String finish() {
+                return Base64.getEncoder().encodeToString(sha.digest());
+            }
+        };
+    }
+
+    public static String of(ChecksumAlgorithm algorithm, byte[] bytes, int offset, int length) {
+        Digest digest = digest(algorithm);
+        digest.update(bytes, offset, length);
+        return digest.finish();
+    }
+
+    /**
+     * The composite checksum S3 gives a multipart upload of parts with these
+     * checksums, in part order.
+     */
+    public static String composite(ChecksumAlgorithm algorithm, List<String> partChecksums) {
+        Digest digest = digest(algorithm);
+        for (String part : partChecksums) {
+            byte[] raw = Base64.getDecoder().decode(part);
+            digest.update(raw, 0, raw.length);
+        }
+        return digest.finish() + "-" + partChecksums.size();
+    }
+
+    public static boolean isComposite(String checksum) {
+        return checksum != null && checksum.indexOf('-') > 0;
+    }
+
+    /** The object's checksum in {@code algorithm}; null if it has none. */
+    public static String of(HeadObjectResponse head, ChecksumAlgorithm algorithm) {
+        return pick(algorithm, head.checksumCRC32C(), head.checksumSHA256());
+    }
+
+    /** The part's checksum in {@code algorithm}; null if it has none. */
+    public static String of(CompletedPart part, ChecksumAlgorithm algorithm) {
+        return pick(algorithm, part.checksumCRC32C(), part.checksumSHA256());
+    }
+
+    /** Picks the one of an SDK response's checksum fields that {@code algorithm} names. */
+    public static String pick(ChecksumAlgorithm algorithm, String crc32c, String sha256) {
+        return algorithm == ChecksumAlgorithm.CRC32_C ? crc32c : algorithm == ChecksumAlgorithm.SHA256 ? sha256 : null;
+    }
+
+    public static CompletedPart.Builder withChecksum(CompletedPart.Builder part, ChecksumAlgorithm algorithm,
+                                                     String checksum) {
+        if (algorithm == ChecksumAlgorithm.CRC32_C) {
+            part.checksumCRC32C(checksum);
+        } else if (algorithm == ChecksumAlgorithm.SHA256) {
+            part.checksumSHA256(checksum);
+        }
+        return part;
+    }
+
+    /**
+     * Checks the checksum {@code bucket/key} is stored with against the one
+     * expected from the bytes that were sent.
+     *
+     * @param expected null to only read back the stored checksum
+     * @return the stored checksum
+     * @throws ChecksumMismatchException if the object has no checksum in {@code algorithm} or a different one
+     */
+    public static String verify(IS3Service s3, String bucket, String key, ChecksumAlgorithm algorithm,
+                                String expected) {
+        String stored = of(s3.headObject(bucket, key), algorithm);
+        check(bucket, key, algorithm, expected, stored);
+        return stored;
+    }
+
+    /**
+     * @throws ChecksumMismatchException if {@code stored} is missing or differs from {@code expected}
+     */
+    public static void check(String bucket, String key, ChecksumAlgorithm algorithm, String expected, String stored) {
+        if (stored == null) {
+            throw new ChecksumMismatchException(bucket + "/" + key + " was stored without a " + algorithm
+                    + " checksum");
+        }
+        if (expected != null && !Objects.equals(expected, stored)) {
+            throw new ChecksumMismatchException(algorithm + " mismatch for " + bucket + "/" + key + ": expected "
+                    + expected + ", stored " + stored);
+        }
+    }
+
+    private static MessageDigest sha256(ChecksumAlgorithm algorithm) {
+        if (algorithm != ChecksumAlgorithm.SHA256) {
+            throw new IllegalArgumentException("Unsupported checksum: " + algorithm);
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
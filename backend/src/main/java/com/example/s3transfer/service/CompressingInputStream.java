@@ -0,0 +1,122 @@
+package com.example.s3transfer.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Compresses a stream as it is read, a block of input at a time, so memory
+ * stays at about one block however large the stream. Counts bytes in and out
+ * and the CPU time the reading thread spends compressing.
+ */
+public class CompressingInputStream extends InputStream {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+    private final InputStream source;
+    private final Output output = new Output();
+    private final OutputStream encoder;
+    private final ContentCoding coding;
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private int position;
+    private boolean finished;
+    private long bytesIn;
+    private long bytesOut;
+    private long cpuNanos;
+
+    public CompressingInputStream(InputStream source, ContentCoding coding, int level) throws IOException {
+        this.source = source;
+        this.coding = coding;
+        this.encoder = coding.encoder(output, level);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == output.size()) {
+            if (finished) {
+                return -1;
+            }
+            fill();
+        }
+        int n = Math.min(len, output.size() - position);
+        System.arraycopy(output.buffer(), position, b, off, n);
+        position += n;
+        bytesOut += n;
+        return n;
+    }
+
+    /** Feeds the encoder one block; it may hold the output back until later blocks or the end. */
+    private void fill() throws IOException {
+        output.reset();
+        position = 0;
+        int n = source.read(block);
+        long start = cpuTime();
+        if (n < 0) {
+            encoder.close();
+            finished = true;
+        } else {
+            encoder.write(block, 0, n);
+            bytesIn += n;
+        }
+        cpuNanos += cpuTime() - start;
+    }
+
+    private static long cpuTime() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    public ContentCoding getCoding() {
+        return coding;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /** CPU time spent in the encoder (wall time where the JVM can't measure thread CPU time). */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!finished) {
+                // frees zstd's native context
+                encoder.close();
+                finished = true;
+            }
+        } finally {
+            source.close();
+        }
+    }
+
+    /** Exposes its array so blocks are served without a copy. */
+    private static class Output extends ByteArrayOutputStream {
+        Output() {
+            super(BLOCK_SIZE);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.ObjectAttributes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in compression of stored objects. The coding is recorded in the object's
+ * user metadata (and, unless the object is also encrypted, as its
+ * {@code Content-Encoding}), so downloads can hand the stored bytes to clients
+ * that accept the coding and decode them for those that don't. Compression
+ * runs before encryption; compressing ciphertext gains nothing.
+ */
+@Service
+@Slf4j
+public class CompressionService {
+
+    static final String CODING_KEY = "payload-compression";
+    static final String LENGTH_KEY = "payload-uncompressed-length";
+
+    static final String RATIO_SUMMARY = "s3.compression.ratio";
+    static final String BYTES_COUNTER = "s3.compression.bytes";
+    static final String CPU_TIMER = "s3.compression.cpu";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final int gzipLevel;
+    private final int zstdLevel;
+
+    public CompressionService(ObjectProvider<MeterRegistry> meterRegistry,
+                              @Value("${app.compression.gzip-level:6}") int gzipLevel,
+                              @Value("${app.compression.zstd-level:3}") int zstdLevel) {
+        this.meterRegistry = meterRegistry;
+        this.gzipLevel = gzipLevel;
+        this.zstdLevel = zstdLevel;
+    }
+
+    /**
+     * @return null if the object isn't compressed
+     */
+    public ContentCoding codingOf(Map<String, String> metadata) {
+        if (metadata == null) {
+            return null;
+        }
+        try {
+            return ContentCoding.of(metadata.get(CODING_KEY));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Object is stored with " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compresses {@code plain} as it is read.
+     */
+    public CompressingInputStream compress(InputStream plain, ContentCoding coding) {
+        try {
+            return new CompressingInputStream(plain, coding, coding == ContentCoding.GZIP ? gzipLevel : zstdLevel);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start " + coding.getToken() + " compression", e);
+        }
+    }
+
+    /**
+     * {@code attributes} plus the metadata that marks the object as compressed.
+     *
+     * @param uncompressedLength null if not known up front
+     * @param contentEncoding    also set {@code Content-Encoding}; false when the stored bytes are encrypted
+     */
+    public ObjectAttributes mark(ObjectAttributes attributes, ContentCoding coding, Long uncompressedLength,
+                                 boolean contentEncoding) {
+        Map<String, String> metadata = new HashMap<>(attributes.getMetadata());
+        metadata.put(CODING_KEY, coding.getToken());
+        if (uncompressedLength != null) {
+            metadata.put(LENGTH_KEY, String.valueOf(uncompressedLength));
+        }
+        ObjectAttributes marked = new ObjectAttributes(attributes.getContentType(), metadata);
+        if (contentEncoding) {
+            marked.setContentEncoding(coding.getToken());
+        }
+        return marked;
+    }
+
+    /**
+     * Decompressed size recorded with the object, if it was known when it was stored.
+     */
+    public Long uncompressedLength(Map<String, String> metadata) {
+        String length = metadata != null ? metadata.get(LENGTH_KEY) : null;
+        return length != null ? Long.valueOf(length) : null;
+    }
+
+    /**
+     * Decompresses a download as it streams; the response loses its
+     * {@code Content-Encoding} and carries the decompressed length if known.
+     */
+    public ResponseInputStream<GetObjectResponse> decode(ResponseInputStream<GetObjectResponse> in,
+                                                         ContentCoding coding) {
+        GetObjectResponse response = in.response();
+        InputStream decoded;
+        try {
+            decoded = coding.decoder(in);
+        } catch (IOException e) {
+            in.abort();
+            throw new UncheckedIOException("Failed to read " + coding.getToken() + " stream", e);
+        }
+        return new ResponseInputStream<>(response.toBuilder()
+                .contentLength(uncompressedLength(response.metadata()))
+                .contentEncoding(null)
+                .build(), AbortableInputStream.create(decoded, in::abort));
+    }
+
+    /**
+     * Records a finished compression in the metrics and returns a one-line summary.
+     */
+    public String record(CompressingInputStream stream) {
+        String coding = stream.getCoding().getToken();
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Counter.builder(BYTES_COUNTER).tag("coding", coding).tag("side", "in")
+                    .description("Bytes fed to and produced by object compression")
+                    .register(registry).increment(stream.getBytesIn());
+            Counter.builder(BYTES_COUNTER).tag("coding", coding).tag("side", "out")
+                    .description("Bytes fed to and produced by object compression")
+                    .register(registry).increment(stream.getBytesOut());
+            Timer.builder(CPU_TIMER).tag("coding", coding)
+                    .description("CPU time spent compressing each object")
+                    .register(registry).record(stream.getCpuNanos(), TimeUnit.NANOSECONDS);
+            if (stream.getBytesOut() > 0) {
+                DistributionSummary.builder(RATIO_SUMMARY).tag("coding", coding)
+                        .description("Uncompressed over compressed size of each compressed object")
+                        .register(registry).record(ratio(stream.getBytesIn(), stream.getBytesOut()));
+            }
+        }
+        return String.format("%s %d -> %d bytes, ratio %.2f, %d ms CPU", coding, stream.getBytesIn(),
+                stream.getBytesOut(), ratio(stream.getBytesIn(), stream.getBytesOut()),
+                TimeUnit.NANOSECONDS.toMillis(stream.getCpuNanos()));
+    }
+
+    public static double ratio(long uncompressed, long compressed) {
+        return compressed > 0 ? (double) uncompressed / compressed : 0;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.s3transfer.service;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP content codings objects can be stored in.
+ */
+public enum ContentCoding {
+    GZIP("gzip") {
+        @Override
+        OutputStream encoder(OutputStream out, int level) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+
+        @Override
+        InputStream decoder(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+    },
+    ZSTD("zstd") {
+        @Override
+        OutputStream encoder(OutputStream out, int level) throws IOException {
+            return new ZstdOutputStream(out).setLevel(level);
+        }
+
+        @Override
+        InputStream decoder(InputStream in) throws IOException {
+            return new ZstdInputStream(in);
+        }
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    abstract OutputStream encoder(OutputStream out, int level) throws IOException;
+
+    abstract InputStream decoder(InputStream in) throws IOException;
+
+    /** The {@code Content-Encoding} token. */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @return null for a null, empty or {@code none} name
+     * @throws IllegalArgumentException for a coding that isn't supported
+     */
+    public static ContentCoding of(String name) {
+        if (name == null || name.isBlank() || name.equalsIgnoreCase("none") || name.equalsIgnoreCase("identity")) {
+            return null;
+        }
+        for (ContentCoding coding : values()) {
+            if (coding.token.equals(name.trim().toLowerCase(Locale.ROOT))) {
+                return coding;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported compression: " + name + " (gzip or zstd)");
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header lets this coding through;
+     * {@code q=0} excludes it.
+     */
+    public boolean acceptedBy(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.trim().split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean excluded = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        excluded = Double.parseDouble(param.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        excluded = true;
+                    }
+                }
+            }
+            if (name.equals(token)) {
+                return !excluded;
+            }
+            if (name.equals("*")) {
+                wildcard = !excluded;
+            }
+        }
+        return wildcard;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.s3transfer.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Opens a sealed payload, or a run of its chunks for a range, as it is read,
+ * holding one chunk in memory. Chunks that fail to authenticate end the
+ * stream with an {@link IOException} before any of their bytes are returned.
+ */
+public class DecryptingInputStream extends InputStream {
+
+    private final InputStream sealed;
+    private final PayloadEnvelope envelope;
+    private final long plaintextLength;
+    private final long lastChunk;
+    private final byte[] chunk;
+    private final byte[] plain;
+    private long index;
+    private long skip;
+    private long remaining;
+    private int position;
+    private int limit;
+
+    /** Opens a whole payload of {@code plaintextLength} bytes. */
+    public DecryptingInputStream(InputStream sealed, PayloadEnvelope envelope, long plaintextLength) {
+        this(sealed, envelope, plaintextLength, 0, plaintextLength);
+    }
+
+    /**
+     * Returns {@code length} plaintext bytes starting at {@code first}; {@code sealed}
+     * must start at the chunk holding {@code first}.
+     */
+    public DecryptingInputStream(InputStream sealed, PayloadEnvelope envelope, long plaintextLength,
+                                 long first, long length) {
+        this.sealed = sealed;
+        this.envelope = envelope;
+        this.plaintextLength = plaintextLength;
+        this.lastChunk = plaintextLength / envelope.getChunkSize();
+        this.chunk = new byte[envelope.getChunkSize() + PayloadEnvelope.TAG_LENGTH];
+        this.plain = new byte[envelope.getChunkSize()];
+        this.index = first / envelope.getChunkSize();
+        this.skip = first % envelope.getChunkSize();
+        this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(plain, position, b, off, n);
+        position += n;
+        remaining -= n;
+        return n;
+    }
+
+    private boolean fill() throws IOException {
+        if (remaining <= 0) {
+            return false;
+        }
+        boolean last = index == lastChunk;
+        int size = last ? (int) (plaintextLength % envelope.getChunkSize()) : envelope.getChunkSize();
+        int sealedSize = size + PayloadEnvelope.TAG_LENGTH;
+        int read = 0;
+        while (read < sealedSize) {
+            int n = sealed.read(chunk, read, sealedSize - read);
+            if (n < 0) {
+                throw new IOException("Encrypted payload ended inside chunk " + index);
+            }
+            read += n;
+        }
+        try {
+            envelope.open(index++, last, chunk, 0, sealedSize, plain, 0);
+        } catch (IllegalStateException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        position = (int) skip;
+        skip = 0;
+        limit = (int) Math.min(size, position + remaining);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sealed.close();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.DirectUploadCompletion;
+import com.example.s3transfer.dto.ObjectAttributes;
+import com.example.s3transfer.dto.PresignedMultipartUpload;
+import com.example.s3transfer.dto.PresignedUrl;
+import com.example.s3transfer.dto.S3ObjectSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Hands out presigned requests so clients move object bytes straight to and
+ * from S3, leaving this server only the control calls: starting and completing
+ * uploads and recording what was written.
+ *
+ * <p>Bytes that never pass through here can't be encrypted, compressed or
+ * checksummed on the way, so direct uploads are stored as sent, and objects
+ * that were stored encrypted or compressed are only served through the proxied
+ * download, which decodes them.
+ */
+@Service
+@Slf4j
+public class DirectTransferService {
+
+    private final IS3Service s3Service;
+    private final MultipartSettings multipartSettings;
+    private final PayloadEncryptionService payloadEncryption;
+    private final CompressionService compression;
+    private final Duration defaultExpiry;
+    private final Duration maxExpiry;
+
+    public DirectTransferService(IS3Service s3Service,
+                                 MultipartSettings multipartSettings,
+                                 PayloadEncryptionService payloadEncryption,
+                                 CompressionService compression,
+                                 @Value("${app.s3.presign.default-expiry:15m}") Duration defaultExpiry,
+                                 @Value("${app.s3.presign.max-expiry:7d}") Duration maxExpiry) {
+        this.s3Service = s3Service;
+        this.multipartSettings = multipartSettings;
+        this.payloadEncryption = payloadEncryption;
+        this.compression = compression;
+        this.defaultExpiry = defaultExpiry;
+        this.maxExpiry = maxExpiry;
+    }
+
+    /**
+     * How long a URL asked to last {@code seconds} stays valid: the default if
+     * null, at most {@code app.s3.presign.max-expiry}. SigV4 signatures can't
+     * outlive seven days whatever this is set to.
+     *
+     * @throws IllegalArgumentException if {@code seconds} isn't positive
+     */
+    public Duration expiry(Long seconds) {
+        if (seconds == null) {
+            return defaultExpiry;
+        }
+        if (seconds <= 0) {
+            throw new IllegalArgumentException("expiresInSeconds must be positive");
+        }
+        Duration requested = Duration.ofSeconds(seconds);
+        return requested.compareTo(maxExpiry) > 0 ? maxExpiry : requested;
+    }
+
+    /**
+     * @throws IllegalStateException if the object is stored encrypted or
+     *                               compressed, so the client couldn't read it as sent
+     */
+    public PresignedUrl presignDownload(String bucket, String key, Duration expiresIn) {
+        HeadObjectResponse head = s3Service.headObject(bucket, key);
+        if (payloadEncryption.isEncrypted(head.metadata()) || compression.codingOf(head.metadata()) != null) {
+            throw new IllegalStateException("Object is stored encrypted or compressed; download it through "
+                    + "/api/s3/" + bucket + "/download instead");
+        }
+        return s3Service.presignDownload(bucket, key, expiresIn);
+    }
+
+    public PresignedUrl presignUpload(String bucket, String key, String contentType, Duration expiresIn) {
+        ensureBucket(bucket);
+        return s3Service.presignUpload(bucket, key, contentType, expiresIn);
+    }
+
+    /**
+     * Starts a multipart upload of {@code size} bytes and signs a PUT for every
+     * part, sized as the server's own multipart uploads are.
+     */
+    public PresignedMultipartUpload startMultipartUpload(String bucket, String key, long size, String contentType,
+                                                         Duration expiresIn) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        ensureBucket(bucket);
+        long partSize = multipartSettings.partSizeFor(size);
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        ObjectAttributes attributes = ObjectAttributes.empty();
+        attributes.setContentType(contentType);
+        String uploadId = s3Service.createMultipartUpload(bucket, key, attributes);
+        List<PresignedUrl> parts = new ArrayList<>(partCount);
+        try {
+            for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+                parts.add(s3Service.presignUploadPart(bucket, key, uploadId, partNumber, expiresIn));
+            }
+        } catch (RuntimeException e) {
+            s3Service.abortMultipartUpload(bucket, key, uploadId);
+            throw e;
+        }
+        log.info("Direct multipart upload started: {}/{} ({}, {} parts of {} bytes)", bucket, key, uploadId,
+                partCount, partSize);
+        return new PresignedMultipartUpload(key, uploadId, partSize, parts);
+    }
+
+    /**
+     * A fresh URL for one part, for a client whose URL expired before it got to the part.
+     */
+    public PresignedUrl presignUploadPart(String bucket, String key, String uploadId, int partNumber,
+                                          Duration expiresIn) {
+        if (partNumber < 1 || partNumber > MultipartSettings.MAX_PARTS) {
+            throw new IllegalArgumentException("partNumber must be between 1 and " + MultipartSettings.MAX_PARTS);
+        }
+        return s3Service.presignUploadPart(bucket, key, uploadId, partNumber, expiresIn);
+    }
+
+    /**
+     * Completes the multipart upload, if there is one, and records the stored
+     * object: caches of the bucket are dropped and its metadata is returned.
+     */
+    public S3ObjectSummary complete(String bucket, DirectUploadCompletion completion) {
+        String key = completion.getKey();
+        if (completion.getUploadId() != null) {
+            if (completion.getParts().isEmpty()) {
+                throw new IllegalArgumentException("parts are required to complete a multipart upload");
+            }
+            List<CompletedPart> parts = completion.getParts().stream()
+                    .sorted(Comparator.comparingInt(DirectUploadCompletion.Part::getPartNumber))
+                    .map(p -> CompletedPart.builder().partNumber(p.getPartNumber()).eTag(p.getEtag()).build())
+                    .collect(Collectors.toList());
+            s3Service.completeMultipartUpload(bucket, key, completion.getUploadId(), parts);
+        }
+        s3Service.objectChanged(bucket, key);
+        HeadObjectResponse head;
+        try {
+            head = s3Service.headObject(bucket, key);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Object " + bucket + "/" + key + " was not uploaded: " + e.getMessage());
+        }
+        log.info("Direct upload recorded: {}/{} ({} bytes)", bucket, key, head.contentLength());
+        return new S3ObjectSummary(key, head.contentLength(), head.eTag(), head.lastModified());
+    }
+
+    public void abortMultipartUpload(String bucket, String key, String uploadId) {
+        s3Service.abortMultipartUpload(bucket, key, uploadId);
+    }
+
+    private void ensureBucket(String bucket) {
+        if (!s3Service.bucketExists(bucket)) {
+            s3Service.createBucket(bucket);
+        }
+    }
+}
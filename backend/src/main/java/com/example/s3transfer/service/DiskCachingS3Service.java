@@ -0,0 +1,163 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.MultipartUploadSummary;
+import com.example.s3transfer.dto.ObjectAttributes;
+import com.example.s3transfer.dto.ObjectListing;
+import com.example.s3transfer.dto.PresignedUrl;
+import com.example.s3transfer.dto.S3ObjectSummary;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Wraps any {@link IS3Service} so downloads go through the
+ * {@link ObjectDiskCache}. Writes made through this service
+ * ({@code uploadFile}, {@code copyFile}, {@code completeMultipartUpload},
+ * {@code deleteObject}), and direct uploads reported through
+ * {@code objectChanged}, drop the key once they finish; changes made elsewhere
+ * are caught by the cache's ETag revalidation.
+ */
+public class DiskCachingS3Service implements IS3Service {
+
+    private final IS3Service delegate;
+    private final UUID credentialId;
+    private final ObjectDiskCache cache;
+
+    public DiskCachingS3Service(IS3Service delegate, ObjectDiskCache cache) {
+        this(delegate, null, cache);
+    }
+
+    private DiskCachingS3Service(IS3Service delegate, UUID credentialId, ObjectDiskCache cache) {
+        this.delegate = delegate;
+        this.credentialId = credentialId;
+        this.cache = cache;
+    }
+
+    public IS3Service forCredential(UUID credentialId) {
+        IS3Service scoped = delegate.forCredential(credentialId);
+        return scoped == delegate ? this : new DiskCachingS3Service(scoped, credentialId, cache);
+    }
+
+    public ResponseInputStream<GetObjectResponse> downloadFile(String bucket, String key, String range,
+                                                               String ifNoneMatch, Instant ifModifiedSince) {
+        return cache.download(delegate, credentialId, bucket, key, range, ifNoneMatch, ifModifiedSince);
+    }
+
+    public void uploadFile(String bucket, String key, InputStream inputStream, long contentLength,
+                           ObjectAttributes attributes) {
+        try {
+            delegate.uploadFile(bucket, key, inputStream, contentLength, attributes);
+        } finally {
+            cache.invalidate(bucket, key);
+        }
+    }
+
+    public long copyFile(String sourceBucket, String destinationBucket, String key, TransferProgressListener progress,
+                         TransferCheckpoint checkpoint, ChecksumAlgorithm checksumAlgorithm) {
+        try {
+            return delegate.copyFile(sourceBucket, destinationBucket, key, progress, checkpoint, checksumAlgorithm);
+        } finally {
+            cache.invalidate(destinationBucket, key);
+        }
+    }
+
+    public void deleteObject(String bucket, String key) {
+        try {
+            delegate.deleteObject(bucket, key);
+        } finally {
+            cache.invalidate(bucket, key);
+        }
+    }
+
+    public void completeMultipartUpload(String bucket, String key, String uploadId, List<CompletedPart> parts) {
+        try {
+            delegate.completeMultipartUpload(bucket, key, uploadId, parts);
+        } finally {
+            cache.invalidate(bucket, key);
+        }
+    }
+
+    @Override
+    public void objectChanged(String bucket, String key) {
+        try {
+            delegate.objectChanged(bucket, key);
+        } finally {
+            cache.invalidate(bucket, key);
+        }
+    }
+
+    public List<String> listFiles(String bucket) {
+        return delegate.listFiles(bucket);
+    }
+
+    public ObjectListing listObjects(String bucket, String prefix, String delimiter, String continuationToken, int maxKeys) {
+        return delegate.listObjects(bucket, prefix, delimiter, continuationToken, maxKeys);
+    }
+
+    @Override
+    public Iterator<S3ObjectSummary> iterateObjects(String bucket, String prefix) {
+        return delegate.iterateObjects(bucket, prefix);
+    }
+
+    public boolean bucketExists(String bucket) {
+        return delegate.bucketExists(bucket);
+    }
+
+    public void createBucket(String bucket) {
+        delegate.createBucket(bucket);
+    }
+
+    public HeadObjectResponse headObject(String bucket, String key) {
+        return delegate.headObject(bucket, key);
+    }
+
+    public String createMultipartUpload(String bucket, String key, ObjectAttributes attributes) {
+        return delegate.createMultipartUpload(bucket, key, attributes);
+    }
+
+    public CompletedPart uploadPart(String bucket, String key, String uploadId, int partNumber,
+                                    InputStream inputStream, long contentLength, ChecksumAlgorithm checksumAlgorithm,
+                                    String checksum) {
+        return delegate.uploadPart(bucket, key, uploadId, partNumber, inputStream, contentLength,
+                checksumAlgorithm, checksum);
+    }
+
+    public CompletedPart uploadPartCopy(String sourceBucket, String sourceKey, String bucket, String key,
+                                        String uploadId, int partNumber, long firstByte, long lastByte) {
+        return delegate.uploadPartCopy(sourceBucket, sourceKey, bucket, key, uploadId, partNumber, firstByte, lastByte);
+    }
+
+    public void abortMultipartUpload(String bucket, String key, String uploadId) {
+        delegate.abortMultipartUpload(bucket, key, uploadId);
+    }
+
+    public List<CompletedPart> listParts(String bucket, String key, String uploadId) {
+        return delegate.listParts(bucket, key, uploadId);
+    }
+
+    public List<MultipartUploadSummary> listMultipartUploads(String bucket) {
+        return delegate.listMultipartUploads(bucket);
+    }
+
+    public PresignedUrl presignDownload(String bucket, String key, Duration expiresIn) {
+        return delegate.presignDownload(bucket, key, expiresIn);
+    }
+
+    public PresignedUrl presignUpload(String bucket, String key, String contentType, Duration expiresIn) {
+        return delegate.presignUpload(bucket, key, contentType, expiresIn);
+    }
+
+    public PresignedUrl presignUploadPart(String bucket, String key, String uploadId, int partNumber,
+                                          Duration expiresIn) {
+        return delegate.presignUploadPart(bucket, key, uploadId, partNumber, expiresIn);
+    }
+}
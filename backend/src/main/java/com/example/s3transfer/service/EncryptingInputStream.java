@@ -0,0 +1,101 @@
+package com.example.s3transfer.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Seals a plaintext stream chunk by chunk as it is read, holding one chunk in
+ * memory. Can seal a whole payload or a chunk-aligned segment of one, so the
+ * parts of a multipart upload can be sealed in parallel.
+ */
+public class EncryptingInputStream extends InputStream {
+
+    private final InputStream plain;
+    private final PayloadEnvelope envelope;
+    private final boolean lastSegment;
+    private final byte[] chunk;
+    private final byte[] sealed;
+    private long index;
+    private int position;
+    private int limit;
+    private boolean done;
+
+    /** Seals a whole payload. */
+    public EncryptingInputStream(InputStream plain, PayloadEnvelope envelope) {
+        this(plain, envelope, 0, true);
+    }
+
+    /**
+     * Seals the segment of a payload that starts at chunk {@code firstChunk}.
+     * Only the segment that ends the payload gets the final chunk; any other must
+     * be a whole number of chunks long.
+     */
+    public EncryptingInputStream(InputStream plain, PayloadEnvelope envelope, long firstChunk, boolean lastSegment) {
+        this.plain = plain;
+        this.envelope = envelope;
+        this.lastSegment = lastSegment;
+        this.chunk = new byte[envelope.getChunkSize()];
+        this.sealed = new byte[envelope.getChunkSize() + PayloadEnvelope.TAG_LENGTH];
+        this.index = firstChunk;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(sealed, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    private boolean fill() throws IOException {
+        if (done) {
+            return false;
+        }
+        int n = readFully(plain, chunk);
+        boolean last = n < chunk.length;
+        if (last && !lastSegment) {
+            if (n > 0) {
+                throw new IOException("Segment ending at chunk " + index + " is not chunk-aligned");
+            }
+            done = true;
+            return false;
+        }
+        try {
+            limit = envelope.seal(index++, last, chunk, 0, n, sealed, 0);
+        } catch (IllegalStateException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        position = 0;
+        done = last;
+        return true;
+    }
+
+    static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int n = in.read(buffer, total, buffer.length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        plain.close();
+    }
+}
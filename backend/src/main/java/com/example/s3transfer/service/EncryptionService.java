@@ -12,11 +12,14 @@ import java.util.Base64;
 @Service
 public class EncryptionService {
 
-    @Value("${app.encryption.key:mySecretKey123456}")
-    private String secretKey;
+    private final String secretKey;
 
     private static final String ALGORITHM = "AES";
 
+    public EncryptionService(@Value("${app.encryption.key:mySecretKey123456}") String secretKey) {
+        this.secretKey = secretKey;
+    }
+
     public String encrypt(String data) {
         try {
             SecretKeySpec keySpec = new SecretKeySpec(secretKey.getBytes(), ALGORITHM);
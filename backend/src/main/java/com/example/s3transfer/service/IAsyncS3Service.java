@@ -0,0 +1,79 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.ObjectListing;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Non-blocking counterpart of {@link IS3Service} for the calls that hold a
+ * thread the longest: reads and server-side copies. Every method returns as
+ * soon as the request is sent; failures complete the future exceptionally
+ * with the same exceptions the blocking service throws.
+ *
+ * <p>Futures complete on the SDK's completion threads, never on the network
+ * event loop, so callbacks may do short blocking work such as writing a job.
+ */
+public interface IAsyncS3Service {
+
+    /**
+     * The same operations signed with a stored credential instead of the
+     * default one; {@code null} means the default.
+     *
+     * @throws RuntimeException if no such credential is stored
+     */
+    IAsyncS3Service forCredential(UUID credentialId);
+
+    CompletableFuture<Boolean> bucketExists(String bucket);
+
+    CompletableFuture<ObjectListing> listObjects(String bucket, String prefix, String delimiter,
+                                                 String continuationToken, int maxKeys);
+
+    /**
+     * Object metadata, including its checksum if it was stored with one.
+     */
+    CompletableFuture<HeadObjectResponse> headObject(String bucket, String key);
+
+    /**
+     * Ranged and/or conditional GET, completing once the response headers are in.
+     * The body is then streamed as it arrives to whoever subscribes to the
+     * publisher, at the pace they request it; a caller that doesn't want the
+     * body must still subscribe and cancel, or the connection is held until it
+     * times out.
+     *
+     * @see IS3Service#downloadFile(String, String, String, String, Instant)
+     */
+    CompletableFuture<ResponsePublisher<GetObjectResponse>> downloadFile(String bucket, String key, String range,
+                                                                        String ifNoneMatch, Instant ifModifiedSince);
+
+    /**
+     * Server-side copy of {@code key} between buckets, as a multipart upload of
+     * parallel part copies above the copy threshold. Progress and checksums are
+     * reported as for {@link IS3Service#copyFile}. Parts aren't checkpointed: a
+     * failed multipart copy is aborted, and a retry starts over.
+     *
+     * @param checksumAlgorithm null for no checksum
+     * @return a future of the number of bytes copied
+     */
+    CompletableFuture<Long> copyFile(String sourceBucket, String destinationBucket, String key,
+                                     TransferProgressListener progress, ChecksumAlgorithm checksumAlgorithm);
+
+    /**
+     * What a future failed with, without the {@link CompletionException} that
+     * dependent stages wrap it in.
+     */
+    static Throwable unwrap(Throwable failure) {
+        while ((failure instanceof CompletionException || failure instanceof ExecutionException)
+                && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+}
@@ -1,16 +1,189 @@
 package com.example.s3transfer.service;
 
+import com.example.s3transfer.dto.ObjectAttributes;
+import com.example.s3transfer.dto.MultipartUploadSummary;
+import com.example.s3transfer.dto.ObjectListing;
+import com.example.s3transfer.dto.PresignedUrl;
+import com.example.s3transfer.dto.S3ObjectSummary;
 import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
 
 public interface IS3Service {
+
+    /**
+     * The same operations signed with a stored credential instead of the
+     * default one; {@code null} means the default.
+     *
+     * @throws RuntimeException if no such credential is stored
+     */
+    IS3Service forCredential(UUID credentialId);
+
     List<String> listFiles(String bucket);
-    void uploadFile(String bucket, String key, InputStream inputStream, long contentLength);
-    ResponseInputStream<GetObjectResponse> downloadFile(String bucket, String key);
-    void copyFile(String sourceBucket, String destinationBucket, String key);
+    ObjectListing listObjects(String bucket, String prefix, String delimiter, String continuationToken, int maxKeys);
+    default void uploadFile(String bucket, String key, InputStream inputStream, long contentLength) {
+        uploadFile(bucket, key, inputStream, contentLength, ObjectAttributes.empty());
+    }
+
+    /**
+     * Single PUT carrying the content type, user metadata and checksum in {@code attributes}.
+     *
+     * @throws ChecksumMismatchException if the body doesn't match {@code attributes.getChecksum()}
+     */
+    void uploadFile(String bucket, String key, InputStream inputStream, long contentLength, ObjectAttributes attributes);
+    default ResponseInputStream<GetObjectResponse> downloadFile(String bucket, String key) {
+        return downloadFile(bucket, key, null, null, null);
+    }
+
+    /**
+     * Ranged and/or conditional GET. {@code range} is an HTTP {@code Range} value
+     * for a single range (e.g. {@code bytes=0-1023}); any argument may be null.
+     *
+     * @throws ObjectNotModifiedException if the preconditions say the caller's copy is current
+     * @throws InvalidRangeException      if the range cannot be satisfied
+     */
+    ResponseInputStream<GetObjectResponse> downloadFile(String bucket, String key, String range,
+                                                        String ifNoneMatch, Instant ifModifiedSince);
+    /**
+     * Server-side copy of {@code key} between buckets.
+     *
+     * @return the number of bytes copied
+     */
+    default long copyFile(String sourceBucket, String destinationBucket, String key) {
+        return copyFile(sourceBucket, destinationBucket, key, TransferProgressListener.NONE);
+    }
+
+    /**
+     * Server-side copy reporting progress as it goes. Multipart copies report
+     * each part as it completes; single-request copies report once at the end.
+     *
+     * @return the number of bytes copied
+     */
+    default long copyFile(String sourceBucket, String destinationBucket, String key, TransferProgressListener progress) {
+        return copyFile(sourceBucket, destinationBucket, key, progress, TransferCheckpoint.NONE);
+    }
+
+    /**
+     * Server-side copy that records each multipart part in {@code checkpoint} and
+     * continues the checkpoint's upload, if it is still there, instead of starting
+     * over. Single-request copies have nothing to checkpoint.
+     *
+     * @return the number of bytes copied
+     * @throws ServerSideCopyDeniedException if S3 won't copy between these buckets
+     *                                       with this service's credentials
+     */
+    default long copyFile(String sourceBucket, String destinationBucket, String key, TransferProgressListener progress,
+                          TransferCheckpoint checkpoint) {
+        return copyFile(sourceBucket, destinationBucket, key, progress, checkpoint, null);
+    }
+
+    /**
+     * Same, with S3 computing the copy's checksum in {@code checksumAlgorithm} as
+     * it copies. The stored checksum is checked against the source's where the
+     * two are comparable, or against the parts' for a multipart copy, and
+     * reported to {@code progress}.
+     *
+     * @param checksumAlgorithm null for no checksum
+     * @throws ChecksumMismatchException if the copy's checksum doesn't match
+     */
+    long copyFile(String sourceBucket, String destinationBucket, String key, TransferProgressListener progress,
+                  TransferCheckpoint checkpoint, ChecksumAlgorithm checksumAlgorithm);
+    /**
+     * @return false only if S3 says the bucket doesn't exist
+     * @throws RuntimeException if it couldn't be checked (throttled, timed out, denied, ...)
+     */
     boolean bucketExists(String bucket);
     void createBucket(String bucket);
-}
\ No newline at end of file
+
+    /**
+     * Deletes an object; deleting a key that doesn't exist is not an error.
+     */
+    void deleteObject(String bucket, String key);
+
+    /**
+     * Lazily walks every object under {@code prefix}, one page at a time.
+     */
+    default Iterator<S3ObjectSummary> iterateObjects(String bucket, String prefix) {
+        return new ObjectListingIterator(this, bucket, prefix, 1000);
+    }
+
+    /**
+     * Object metadata, including its checksum if it was stored with one.
+     */
+    HeadObjectResponse headObject(String bucket, String key);
+
+    // Multipart upload primitives
+    String createMultipartUpload(String bucket, String key, ObjectAttributes attributes);
+    default CompletedPart uploadPart(String bucket, String key, String uploadId, int partNumber,
+                                     InputStream inputStream, long contentLength) {
+        return uploadPart(bucket, key, uploadId, partNumber, inputStream, contentLength, null, null);
+    }
+
+    /**
+     * Uploads a part with its checksum, which the store verifies; the returned
+     * part carries it for {@link #completeMultipartUpload}.
+     *
+     * @param checksumAlgorithm the upload's checksum, or null if it has none
+     * @throws ChecksumMismatchException if the body doesn't match {@code checksum}
+     */
+    CompletedPart uploadPart(String bucket, String key, String uploadId, int partNumber,
+                             InputStream inputStream, long contentLength, ChecksumAlgorithm checksumAlgorithm,
+                             String checksum);
+    /**
+     * Server-side copy of a byte range into a part; the returned part carries the
+     * checksum S3 computed for it if the upload has a checksum algorithm.
+     */
+    CompletedPart uploadPartCopy(String sourceBucket, String sourceKey, String bucket, String key,
+                                 String uploadId, int partNumber, long firstByte, long lastByte);
+    void completeMultipartUpload(String bucket, String key, String uploadId, List<CompletedPart> parts);
+    void abortMultipartUpload(String bucket, String key, String uploadId);
+
+    /**
+     * Parts uploaded so far, in part number order.
+     *
+     * @throws UploadNotFoundException if the upload was completed, aborted or expired
+     */
+    List<CompletedPart> listParts(String bucket, String key, String uploadId);
+
+    /**
+     * Multipart uploads in the bucket that were neither completed nor aborted.
+     */
+    List<MultipartUploadSummary> listMultipartUploads(String bucket);
+
+    // Direct transfers: the client sends the signed request itself, bypassing this server
+
+    /**
+     * Signed GET of the object, accepted until {@code expiresIn} has passed.
+     */
+    PresignedUrl presignDownload(String bucket, String key, Duration expiresIn);
+
+    /**
+     * Signed single PUT of the object; the client must send the returned
+     * headers, including {@code Content-Type} if one is given.
+     *
+     * @param contentType null to leave it to the client
+     */
+    PresignedUrl presignUpload(String bucket, String key, String contentType, Duration expiresIn);
+
+    /**
+     * Signed PUT of one part of a multipart upload; its response's ETag is
+     * what {@link #completeMultipartUpload} needs for the part.
+     */
+    PresignedUrl presignUploadPart(String bucket, String key, String uploadId, int partNumber, Duration expiresIn);
+
+    /**
+     * Tells the service that {@code key} was written without going through it,
+     * such as by a presigned PUT, so anything it remembers about the bucket is stale.
+     */
+    default void objectChanged(String bucket, String key) {
+    }
+}
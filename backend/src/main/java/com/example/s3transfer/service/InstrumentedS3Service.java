@@ -0,0 +1,244 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.MultipartUploadSummary;
+import com.example.s3transfer.dto.ObjectAttributes;
+import com.example.s3transfer.dto.ObjectListing;
+import com.example.s3transfer.dto.PresignedUrl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Wraps any {@link IS3Service} with Micrometer timers and byte counters so the
+ * mock and the real backend report identically.
+ *
+ * <p>{@code s3.operation} times each call, tagged by {@code operation},
+ * {@code bucket} (the destination bucket for copies) and {@code outcome}.
+ * {@code s3.bytes} counts payload bytes by {@code direction}
+ * (uploaded, downloaded, copied) and {@code bucket}. Download bytes are counted
+ * as the caller reads the stream, so they include partial reads.
+ */
+public class InstrumentedS3Service implements IS3Service {
+
+    static final String OPERATION_TIMER = "s3.operation";
+    static final String BYTES_COUNTER = "s3.bytes";
+
+    private final IS3Service delegate;
+    private final MeterRegistry registry;
+
+    public InstrumentedS3Service(IS3Service delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    public IS3Service forCredential(UUID credentialId) {
+        IS3Service scoped = delegate.forCredential(credentialId);
+        return scoped == delegate ? this : new InstrumentedS3Service(scoped, registry);
+    }
+
+    public List<String> listFiles(String bucket) {
+        return timed("listFiles", bucket, () -> delegate.listFiles(bucket));
+    }
+
+    public ObjectListing listObjects(String bucket, String prefix, String delimiter, String continuationToken, int maxKeys) {
+        return timed("listObjects", bucket, () -> delegate.listObjects(bucket, prefix, delimiter, continuationToken, maxKeys));
+    }
+
+    public void uploadFile(String bucket, String key, InputStream inputStream, long contentLength,
+                           ObjectAttributes attributes) {
+        timed("uploadFile", bucket, () -> {
+            delegate.uploadFile(bucket, key, inputStream, contentLength, attributes);
+            return null;
+        });
+        countBytes("uploaded", bucket, contentLength);
+    }
+
+    public ResponseInputStream<GetObjectResponse> downloadFile(String bucket, String key, String range,
+                                                               String ifNoneMatch, Instant ifModifiedSince) {
+        ResponseInputStream<GetObjectResponse> in = timed("downloadFile", bucket,
+                () -> delegate.downloadFile(bucket, key, range, ifNoneMatch, ifModifiedSince));
+        Counter downloaded = bytesCounter("downloaded", bucket);
+        return new ResponseInputStream<>(in.response(),
+                AbortableInputStream.create(new CountingInputStream(in, downloaded), in::abort));
+    }
+
+    public long copyFile(String sourceBucket, String destinationBucket, String key, TransferProgressListener progress,
+                         TransferCheckpoint checkpoint, ChecksumAlgorithm checksumAlgorithm) {
+        long copied = timed("copyFile", destinationBucket,
+                () -> delegate.copyFile(sourceBucket, destinationBucket, key, progress, checkpoint, checksumAlgorithm));
+        countBytes("copied", destinationBucket, copied);
+        return copied;
+    }
+
+    public boolean bucketExists(String bucket) {
+        return timed("bucketExists", bucket, () -> delegate.bucketExists(bucket));
+    }
+
+    public void createBucket(String bucket) {
+        timed("createBucket", bucket, () -> {
+            delegate.createBucket(bucket);
+            return null;
+        });
+    }
+
+    public void deleteObject(String bucket, String key) {
+        timed("deleteObject", bucket, () -> {
+            delegate.deleteObject(bucket, key);
+            return null;
+        });
+    }
+
+    public HeadObjectResponse headObject(String bucket, String key) {
+        return timed("headObject", bucket, () -> delegate.headObject(bucket, key));
+    }
+
+    public String createMultipartUpload(String bucket, String key, ObjectAttributes attributes) {
+        return timed("createMultipartUpload", bucket, () -> delegate.createMultipartUpload(bucket, key, attributes));
+    }
+
+    public CompletedPart uploadPart(String bucket, String key, String uploadId, int partNumber,
+                                    InputStream inputStream, long contentLength, ChecksumAlgorithm checksumAlgorithm,
+                                    String checksum) {
+        CompletedPart part = timed("uploadPart", bucket, () -> delegate.uploadPart(bucket, key, uploadId, partNumber,
+                inputStream, contentLength, checksumAlgorithm, checksum));
+        countBytes("uploaded", bucket, contentLength);
+        return part;
+    }
+
+    public CompletedPart uploadPartCopy(String sourceBucket, String sourceKey, String bucket, String key,
+                                        String uploadId, int partNumber, long firstByte, long lastByte) {
+        CompletedPart part = timed("uploadPartCopy", bucket,
+                () -> delegate.uploadPartCopy(sourceBucket, sourceKey, bucket, key, uploadId, partNumber, firstByte, lastByte));
+        countBytes("copied", bucket, lastByte - firstByte + 1);
+        return part;
+    }
+
+    public void completeMultipartUpload(String bucket, String key, String uploadId, List<CompletedPart> parts) {
+        timed("completeMultipartUpload", bucket, () -> {
+            delegate.completeMultipartUpload(bucket, key, uploadId, parts);
+            return null;
+        });
+    }
+
+    public void abortMultipartUpload(String bucket, String key, String uploadId) {
+        timed("abortMultipartUpload", bucket, () -> {
+            delegate.abortMultipartUpload(bucket, key, uploadId);
+            return null;
+        });
+    }
+
+    public List<CompletedPart> listParts(String bucket, String key, String uploadId) {
+        return timed("listParts", bucket, () -> delegate.listParts(bucket, key, uploadId));
+    }
+
+    public List<MultipartUploadSummary> listMultipartUploads(String bucket) {
+        return timed("listMultipartUploads", bucket, () -> delegate.listMultipartUploads(bucket));
+    }
+
+    public PresignedUrl presignDownload(String bucket, String key, Duration expiresIn) {
+        return timed("presignDownload", bucket, () -> delegate.presignDownload(bucket, key, expiresIn));
+    }
+
+    public PresignedUrl presignUpload(String bucket, String key, String contentType, Duration expiresIn) {
+        return timed("presignUpload", bucket, () -> delegate.presignUpload(bucket, key, contentType, expiresIn));
+    }
+
+    public PresignedUrl presignUploadPart(String bucket, String key, String uploadId, int partNumber,
+                                          Duration expiresIn) {
+        return timed("presignUploadPart", bucket,
+                () -> delegate.presignUploadPart(bucket, key, uploadId, partNumber, expiresIn));
+    }
+
+    @Override
+    public void objectChanged(String bucket, String key) {
+        delegate.objectChanged(bucket, key);
+    }
+
+    private <T> T timed(String operation, String bucket, Supplier<T> call) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } catch (ObjectNotModifiedException e) {
+            outcome = "not_modified";
+            throw e;
+        } catch (InvalidRangeException e) {
+            outcome = "invalid_range";
+            throw e;
+        } catch (UploadNotFoundException e) {
+            outcome = "no_such_upload";
+            throw e;
+        } catch (ServerSideCopyDeniedException e) {
+            outcome = "copy_denied";
+            throw e;
+        } finally {
+            Timer.builder(OPERATION_TIMER)
+                    .description("Latency of IS3Service calls")
+                    .tag("operation", operation)
+                    .tag("bucket", String.valueOf(bucket))
+                    .tag("outcome", outcome)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void countBytes(String direction, String bucket, long bytes) {
+        if (bytes > 0) {
+            bytesCounter(direction, bucket).increment(bytes);
+        }
+    }
+
+    private Counter bytesCounter(String direction, String bucket) {
+        return Counter.builder(BYTES_COUNTER)
+                .description("Object bytes moved through IS3Service")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .tag("bucket", String.valueOf(bucket))
+                .register(registry);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final Counter counter;
+
+        CountingInputStream(InputStream in, Counter counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                counter.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                counter.increment(n);
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.s3transfer.service;
+
+/**
+ * The requested byte range lies outside the object.
+ */
+public class InvalidRangeException extends RuntimeException {
+
+    public InvalidRangeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.s3transfer.service;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fault and performance knobs for {@link LocalS3Server}. Values can be changed
+ * while the server is running; each request reads them once when it starts.
+ */
+@Getter
+@Setter
+public class LocalS3Faults {
+
+    /** Fixed delay added before every request is handled. */
+    private volatile long latencyMs;
+    /** Extra random delay in {@code [0, latencyJitterMs)}. */
+    private volatile long latencyJitterMs;
+    /** Per-request body throughput cap in bytes per second, 0 for unlimited. */
+    private volatile long bandwidthBytesPerSecond;
+    /** Fraction of requests answered with 503 SlowDown. */
+    private volatile double slowDownRate;
+    /** Fraction of requests answered with 500 InternalError. */
+    private volatile double errorRate;
+    /**
+     * Requests the server handles at once before answering 503 SlowDown, like a
+     * partition at capacity; 0 for unlimited.
+     */
+    private volatile int maxConcurrentRequests;
+
+    private final AtomicInteger inProgress = new AtomicInteger();
+
+    public void delay() throws InterruptedException {
+        long delay = latencyMs + (latencyJitterMs > 0 ? ThreadLocalRandom.current().nextLong(latencyJitterMs) : 0);
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+    }
+
+    public boolean rollSlowDown() {
+        return slowDownRate > 0 && ThreadLocalRandom.current().nextDouble() < slowDownRate;
+    }
+
+    /**
+     * Admits a request, or returns false if the server is at capacity. Every
+     * admitted request must be followed by {@link #exit()}.
+     */
+    public boolean enter() {
+        int running = inProgress.incrementAndGet();
+        int max = maxConcurrentRequests;
+        if (max > 0 && running > max) {
+            inProgress.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void exit() {
+        inProgress.decrementAndGet();
+    }
+
+    public boolean rollError() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    public InputStream throttle(InputStream in) {
+        long rate = bandwidthBytesPerSecond;
+        return rate > 0 ? new ThrottledInputStream(in, new Pacer(rate)) : in;
+    }
+
+    public OutputStream throttle(OutputStream out) {
+        long rate = bandwidthBytesPerSecond;
+        return rate > 0 ? new ThrottledOutputStream(out, new Pacer(rate)) : out;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("latencyMs", latencyMs);
+        values.put("latencyJitterMs", latencyJitterMs);
+        values.put("bandwidthBytesPerSecond", bandwidthBytesPerSecond);
+        values.put("slowDownRate", slowDownRate);
+        values.put("errorRate", errorRate);
+        values.put("maxConcurrentRequests", maxConcurrentRequests);
+        return values;
+    }
+
+    /**
+     * Sleeps just enough to keep the running byte count at or under the rate.
+     */
+    private static class Pacer {
+        private final long bytesPerSecond;
+        private final long started = System.nanoTime();
+        private long bytes;
+
+        Pacer(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        void account(int n) throws IOException {
+            bytes += n;
+            long dueNanos = bytes * 1_000_000_000L / bytesPerSecond;
+            long aheadNanos = dueNanos - (System.nanoTime() - started);
+            if (aheadNanos > 1_000_000) {
+                try {
+                    Thread.sleep(aheadNanos / 1_000_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while throttling");
+                }
+            }
+        }
+
+        int chunk() {
+            // roughly 20 slices per second keeps the pacing smooth without tiny writes
+            return (int) Math.max(1024, Math.min(64 * 1024, bytesPerSecond / 20));
+        }
+    }
+
+    private static class ThrottledInputStream extends FilterInputStream {
+        private final Pacer pacer;
+
+        ThrottledInputStream(InputStream in, Pacer pacer) {
+            super(in);
+            this.pacer = pacer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                pacer.account(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, Math.min(len, pacer.chunk()));
+            if (n > 0) {
+                pacer.account(n);
+            }
+            return n;
+        }
+    }
+
+    private static class ThrottledOutputStream extends FilterOutputStream {
+        private final Pacer pacer;
+
+        ThrottledOutputStream(OutputStream out, Pacer pacer) {
+            super(out);
+            this.pacer = pacer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            pacer.account(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int chunk = pacer.chunk();
+            for (int done = 0; done < len; ) {
+                int n = Math.min(chunk, len - done);
+                out.write(b, off + done, n);
+                pacer.account(n);
+                done += n;
+            }
+        }
+    }
+}
@@ -0,0 +1,883 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.MultipartUploadSummary;
+import com.example.s3transfer.dto.ObjectAttributes;
+import com.example.s3transfer.dto.ObjectListing;
+import com.example.s3transfer.dto.S3ObjectSummary;
+import com.example.s3transfer.service.MockObjectStore.OpenObject;
+import com.example.s3transfer.service.MockObjectStore.StoredObject;
+import com.example.s3transfer.service.MockObjectStore.StoredPart;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal S3-compatible HTTP server on top of {@link MockObjectStore}, so the
+ * real {@link S3Service} and SDK client can run without AWS by pointing
+ * {@code app.s3.endpoint} at it (path-style).
+ *
+ * <p>Covers what {@link IS3Service} uses: bucket head/create, ListObjectsV2,
+ * Put/Get/Head/Copy/Delete object (with Range and conditional GET) and
+ * multipart upload including UploadPartCopy. Request signatures are not
+ * checked. Latency, bandwidth, throttling and error injection are controlled
+ * through {@link LocalS3Faults}, adjustable at runtime via
+ * {@code GET/PUT /_local/faults}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.local-s3.enabled", havingValue = "true")
+@Slf4j
+public class LocalS3Server {
+
+    private static final String S3_NS = "http://s3.amazonaws.com/doc/2006-03-01/";
+    private static final DateTimeFormatter ISO_MILLIS =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+    private static final String FAULTS_PATH = "/_local/faults";
+    private static final String META_PREFIX = "x-amz-meta-";
+
+    @Value("${app.local-s3.port:9090}")
+    private int port;
+
+    @Value("${app.local-s3.root:local-s3-storage}")
+    private String storageRoot;
+
+    @Value("${app.local-s3.dedup:true}")
+    private boolean dedup;
+
+    @Value("${app.local-s3.threads:32}")
+    private int threads;
+
+    @Value("${app.local-s3.faults.latency-ms:0}")
+    private long latencyMs;
+
+    @Value("${app.local-s3.faults.latency-jitter-ms:0}")
+    private long latencyJitterMs;
+
+    @Value("${app.local-s3.faults.bandwidth:0B}")
+    private DataSize bandwidthPerSecond;
+
+    @Value("${app.local-s3.faults.slow-down-rate:0}")
+    private double slowDownRate;
+
+    @Value("${app.local-s3.faults.error-rate:0}")
+    private double errorRate;
+
+    @Value("${app.local-s3.faults.max-concurrent-requests:0}")
+    private int maxConcurrentRequests;
+
+    private final LocalS3Faults faults = new LocalS3Faults();
+    private MockObjectStore store;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() throws IOException {
+        faults.setLatencyMs(latencyMs);
+        faults.setLatencyJitterMs(latencyJitterMs);
+        faults.setBandwidthBytesPerSecond(bandwidthPerSecond.toBytes());
+        faults.setSlowDownRate(slowDownRate);
+        faults.setErrorRate(errorRate);
+        faults.setMaxConcurrentRequests(maxConcurrentRequests);
+
+        store = new MockObjectStore(Paths.get(storageRoot), dedup);
+        executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("local-s3-"));
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        log.info("Local S3 server listening on port {} (storage {}, faults {})",
+                server.getAddress().getPort(), storageRoot, faults.snapshot());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        server.stop(0);
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public LocalS3Faults getFaults() {
+        return faults;
+    }
+
+    private void handle(HttpExchange ex) {
+        String requestId = UUID.randomUUID().toString();
+        ex.getResponseHeaders().set("x-amz-request-id", requestId);
+        try {
+            String path = ex.getRequestURI().getRawPath();
+            Map<String, String> query = parseQuery(ex.getRequestURI().getRawQuery());
+            if (path.equals(FAULTS_PATH)) {
+                handleFaults(ex, query);
+                return;
+            }
+
+            if (!faults.enter()) {
+                throw new S3Error(503, "SlowDown", "Please reduce your request rate.");
+            }
+            try {
+                faults.delay();
+                if (faults.rollSlowDown()) {
+                    throw new S3Error(503, "SlowDown", "Please reduce your request rate.");
+                }
+                if (faults.rollError()) {
+                    throw new S3Error(500, "InternalError", "Injected failure.");
+                }
+
+                String trimmed = path.startsWith("/") ? path.substring(1) : path;
+                int slash = trimmed.indexOf('/');
+                String bucket = decode(slash < 0 ? trimmed : trimmed.substring(0, slash));
+                String key = slash < 0 ? "" : decode(trimmed.substring(slash + 1));
+                if (bucket.isEmpty()) {
+                    throw new S3Error(501, "NotImplemented", "ListBuckets is not supported");
+                }
+                if (key.isEmpty()) {
+                    handleBucket(ex, bucket, query);
+                } else {
+                    if (!store.bucketExists(bucket)) {
+                        throw new S3Error(404, "NoSuchBucket", "The specified bucket does not exist");
+                    }
+                    handleObject(ex, bucket, key, query);
+                }
+            } finally {
+                faults.exit();
+            }
+        } catch (S3Error e) {
+            sendError(ex, e, requestId);
+        } catch (ChecksumMismatchException e) {
+            sendError(ex, new S3Error(400, "BadDigest", e.getMessage()), requestId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(ex, new S3Error(500, "InternalError", "Interrupted"), requestId);
+        } catch (Exception e) {
+            log.warn("Local S3: {} {} failed", ex.getRequestMethod(), ex.getRequestURI(), e);
+            sendError(ex, new S3Error(500, "InternalError", String.valueOf(e.getMessage())), requestId);
+        } finally {
+            ex.close();
+        }
+    }
+
+    // ---- buckets ------------------------------------------------------------
+
+    private void handleBucket(HttpExchange ex, String bucket, Map<String, String> query) throws IOException {
+        switch (ex.getRequestMethod()) {
+            case "HEAD":
+                if (!store.bucketExists(bucket)) {
+                    throw new S3Error(404, "NoSuchBucket", "The specified bucket does not exist");
+                }
+                send(ex, 200, null);
+                return;
+            case "PUT":
+                store.createBucket(bucket);
+                ex.getResponseHeaders().set("Location", "/" + bucket);
+                send(ex, 200, null);
+                return;
+            case "GET":
+                if (!store.bucketExists(bucket)) {
+                    throw new S3Error(404, "NoSuchBucket", "The specified bucket does not exist");
+                }
+                if (query.containsKey("uploads")) {
+                    listUploads(ex, bucket);
+                } else {
+                    listObjects(ex, bucket, query);
+                }
+                return;
+            default:
+                throw new S3Error(501, "NotImplemented", ex.getRequestMethod() + " on a bucket is not supported");
+        }
+    }
+
+    private void listObjects(HttpExchange ex, String bucket, Map<String, String> query) throws IOException {
+        String prefix = emptyToNull(query.get("prefix"));
+        String delimiter = emptyToNull(query.get("delimiter"));
+        String token = emptyToNull(query.get("continuation-token"));
+        String startAfter = emptyToNull(query.get("start-after"));
+        int maxKeys;
+        try {
+            maxKeys = Math.max(0, Math.min(1000, Integer.parseInt(query.getOrDefault("max-keys", "1000"))));
+        } catch (NumberFormatException e) {
+            throw new S3Error(400, "InvalidArgument", "Provided max-keys not an integer or within integer range");
+        }
+        boolean urlEncode = "url".equals(query.get("encoding-type"));
+
+        ObjectListing listing;
+        try {
+            listing = store.list(bucket, prefix, delimiter, token, startAfter, maxKeys);
+        } catch (IllegalArgumentException e) {
+            throw new S3Error(400, "InvalidArgument", "The continuation token provided is incorrect");
+        }
+
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"" + S3_NS + "\">");
+        tag(xml, "Name", bucket);
+        tag(xml, "Prefix", encodeKey(prefix != null ? prefix : "", urlEncode));
+        if (delimiter != null) {
+            tag(xml, "Delimiter", encodeKey(delimiter, urlEncode));
+        }
+        if (startAfter != null) {
+            tag(xml, "StartAfter", encodeKey(startAfter, urlEncode));
+        }
+        if (token != null) {
+            tag(xml, "ContinuationToken", token);
+        }
+        if (urlEncode) {
+            tag(xml, "EncodingType", "url");
+        }
+        tag(xml, "MaxKeys", Integer.toString(maxKeys));
+        tag(xml, "KeyCount", Integer.toString(listing.getObjects().size() + listing.getCommonPrefixes().size()));
+        tag(xml, "IsTruncated", Boolean.toString(listing.isTruncated()));
+        if (listing.getNextContinuationToken() != null) {
+            tag(xml, "NextContinuationToken", listing.getNextContinuationToken());
+        }
+        for (S3ObjectSummary o : listing.getObjects()) {
+            xml.append("<Contents>");
+            tag(xml, "Key", encodeKey(o.getKey(), urlEncode));
+            tag(xml, "LastModified", ISO_MILLIS.format(o.getLastModified()));
+            tag(xml, "ETag", o.getEtag());
+            tag(xml, "Size", Long.toString(o.getSize()));
+            tag(xml, "StorageClass", "STANDARD");
+            xml.append("</Contents>");
+        }
+        for (String commonPrefix : listing.getCommonPrefixes()) {
+            xml.append("<CommonPrefixes>");
+            tag(xml, "Prefix", encodeKey(commonPrefix, urlEncode));
+            xml.append("</CommonPrefixes>");
+        }
+        xml.append("</ListBucketResult>");
+        sendXml(ex, 200, xml);
+    }
+
+    /**
+     * Every pending upload in one page; the store never holds enough to paginate.
+     */
+    private void listUploads(HttpExchange ex, String bucket) throws IOException {
+        StringBuilder xml = new StringBuilder("<ListMultipartUploadsResult xmlns=\"" + S3_NS + "\">");
+        tag(xml, "Bucket", bucket);
+        tag(xml, "KeyMarker", "");
+        tag(xml, "UploadIdMarker", "");
+        tag(xml, "MaxUploads", "1000");
+        tag(xml, "IsTruncated", "false");
+        for (MultipartUploadSummary upload : store.listUploads(bucket)) {
+            xml.append("<Upload>");
+            tag(xml, "Key", upload.getKey());
+            tag(xml, "UploadId", upload.getUploadId());
+            tag(xml, "StorageClass", "STANDARD");
+            tag(xml, "Initiated", ISO_MILLIS.format(upload.getInitiated()));
+            xml.append("</Upload>");
+        }
+        xml.append("</ListMultipartUploadsResult>");
+        sendXml(ex, 200, xml);
+    }
+
+    // ---- objects ------------------------------------------------------------
+
+    private void handleObject(HttpExchange ex, String bucket, String key, Map<String, String> query)
+            throws IOException {
+        Headers headers = ex.getRequestHeaders();
+        String copySource = headers.getFirst("x-amz-copy-source");
+        switch (ex.getRequestMethod()) {
+            case "GET":
+                if (query.containsKey("uploadId")) {
+                    listParts(ex, bucket, key, query.get("uploadId"));
+                    return;
+                }
+                getObject(ex, bucket, key);
+                return;
+            case "HEAD":
+                getObject(ex, bucket, key);
+                return;
+            case "PUT":
+                if (query.containsKey("uploadId")) {
+                    uploadPart(ex, query.get("uploadId"), parsePartNumber(query.get("partNumber")), copySource);
+                } else if (copySource != null) {
+                    copyObject(ex, bucket, key, copySource);
+                } else {
+                    StoredObject stored = store.put(bucket, key, requestBody(ex), attributes(headers));
+                    ex.getResponseHeaders().set("ETag", stored.getETag());
+                    checksumHeader(ex.getResponseHeaders(), stored.getChecksumAlgorithm(), stored.getChecksum());
+                    send(ex, 200, null);
+                }
+                return;
+            case "POST":
+                if (query.containsKey("uploads")) {
+                    String uploadId = store.createUpload(bucket, key, attributes(headers));
+                    StringBuilder xml = new StringBuilder("<InitiateMultipartUploadResult xmlns=\"" + S3_NS + "\">");
+                    tag(xml, "Bucket", bucket);
+                    tag(xml, "Key", key);
+                    tag(xml, "UploadId", uploadId);
+                    xml.append("</InitiateMultipartUploadResult>");
+                    sendXml(ex, 200, xml);
+                } else if (query.containsKey("uploadId")) {
+                    completeUpload(ex, bucket, key, query.get("uploadId"));
+                } else {
+                    throw new S3Error(501, "NotImplemented", "Unsupported POST on an object");
+                }
+                return;
+            case "DELETE":
+                if (query.containsKey("uploadId")) {
+                    store.abortUpload(query.get("uploadId"));
+                } else {
+                    store.delete(bucket, key);
+                }
+                send(ex, 204, null);
+                return;
+            default:
+                throw new S3Error(405, "MethodNotAllowed", ex.getRequestMethod() + " is not allowed");
+        }
+    }
+
+    private void getObject(HttpExchange ex, String bucket, String key) throws IOException {
+        Headers headers = ex.getRequestHeaders();
+        boolean head = "HEAD".equals(ex.getRequestMethod());
+        try (OpenObject opened = store.open(bucket, key)) {
+            if (opened == null) {
+                throw new S3Error(404, "NoSuchKey", "The specified key does not exist.");
+            }
+            StoredObject object = opened.getObject();
+            Headers out = ex.getResponseHeaders();
+            out.set("ETag", object.getETag());
+            out.set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                    object.getLastModified().atZone(ZoneOffset.UTC)));
+            out.set("Accept-Ranges", "bytes");
+            out.set("Content-Type", object.getContentType() != null ? object.getContentType() : "binary/octet-stream");
+            if (object.getContentEncoding() != null) {
+                out.set("Content-Encoding", object.getContentEncoding());
+            }
+            object.getMetadata().forEach((name, value) -> out.set(META_PREFIX + name, value));
+            if ("ENABLED".equalsIgnoreCase(headers.getFirst("x-amz-checksum-mode"))) {
+                checksumHeader(out, object.getChecksumAlgorithm(), object.getChecksum());
+            }
+
+            if (MockObjectStore.notModified(object, headers.getFirst("If-None-Match"),
+                    parseHttpDate(headers.getFirst("If-Modified-Since")))) {
+                ex.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            long size = object.getSize();
+            long start = 0;
+            long end = size - 1;
+            int status = 200;
+            String range = headers.getFirst("Range");
+            long[] bounds = null;
+            if (range != null && !head) {
+                try {
+                    bounds = MockObjectStore.resolveRange(range, size);
+                } catch (InvalidRangeException e) {
+                    out.set("Content-Range", "bytes */" + size);
+                    throw new S3Error(416, "InvalidRange", "The requested range is not satisfiable");
+                }
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                out.set("Content-Range", "bytes " + start + "-" + end + "/" + size);
+                status = 206;
+            }
+            long length = end - start + 1;
+            out.set("Content-Length", Long.toString(length));
+            if (head) {
+                ex.sendResponseHeaders(status, -1);
+                return;
+            }
+            ex.sendResponseHeaders(status, length == 0 ? -1 : length);
+            if (length > 0) {
+                try (InputStream in = opened.stream(start, length);
+                     OutputStream body = faults.throttle(ex.getResponseBody())) {
+                    in.transferTo(body);
+                }
+            }
+        }
+    }
+
+    private void copyObject(HttpExchange ex, String bucket, String key, String copySource) throws IOException {
+        String[] source = parseCopySource(copySource);
+        StoredObject copied;
+        try {
+            copied = store.copy(source[0], source[1], bucket, key,
+                    Checksums.parse(ex.getRequestHeaders().getFirst("x-amz-checksum-algorithm")));
+        } catch (NoSuchFileException e) {
+            throw new S3Error(404, "NoSuchKey", "The specified key does not exist.");
+        }
+        StringBuilder xml = new StringBuilder("<CopyObjectResult xmlns=\"" + S3_NS + "\">");
+        tag(xml, "LastModified", ISO_MILLIS.format(copied.getLastModified()));
+        tag(xml, "ETag", copied.getETag());
+        checksumTag(xml, copied.getChecksumAlgorithm(), copied.getChecksum());
+        xml.append("</CopyObjectResult>");
+        sendXml(ex, 200, xml);
+    }
+
+    private void uploadPart(HttpExchange ex, String uploadId, int partNumber, String copySource) throws IOException {
+        try {
+            if (copySource == null) {
+                Headers headers = ex.getRequestHeaders();
+                String decoded = headers.getFirst("x-amz-decoded-content-length");
+                long length = Long.parseLong(decoded != null ? decoded : headers.getFirst("Content-Length"));
+                StoredPart part = store.writePart(uploadId, partNumber, requestBody(ex), length,
+                        sentChecksum(headers));
+                ex.getResponseHeaders().set("ETag", part.getETag());
+                checksumHeader(ex.getResponseHeaders(), part.getChecksumAlgorithm(), part.getChecksum());
+                send(ex, 200, null);
+                return;
+            }
+
+            String[] source = parseCopySource(copySource);
+            String range = ex.getRequestHeaders().getFirst("x-amz-copy-source-range");
+            StoredObject sourceObject = store.get(source[0], source[1]);
+            if (sourceObject == null) {
+                throw new S3Error(404, "NoSuchKey", "The specified key does not exist.");
+            }
+            long first = 0;
+            long last = sourceObject.getSize() - 1;
+            if (range != null) {
+                long[] bounds = parseCopyRange(range);
+                first = bounds[0];
+                last = bounds[1];
+            }
+            StoredPart part = store.copyPart(uploadId, partNumber, source[0], source[1], first, last);
+            StringBuilder xml = new StringBuilder("<CopyPartResult xmlns=\"" + S3_NS + "\">");
+            tag(xml, "LastModified", ISO_MILLIS.format(Instant.now()));
+            tag(xml, "ETag", part.getETag());
+            checksumTag(xml, part.getChecksumAlgorithm(), part.getChecksum());
+            xml.append("</CopyPartResult>");
+            sendXml(ex, 200, xml);
+        } catch (IllegalStateException e) {
+            throw new S3Error(404, "NoSuchUpload", "The specified upload does not exist.");
+        }
+    }
+
+    private void listParts(HttpExchange ex, String bucket, String key, String uploadId) throws IOException {
+        NavigableMap<Integer, StoredPart> parts;
+        try {
+            parts = store.listParts(uploadId);
+        } catch (IllegalStateException e) {
+            throw new S3Error(404, "NoSuchUpload", "The specified upload does not exist.");
+        }
+        StringBuilder xml = new StringBuilder("<ListPartsResult xmlns=\"" + S3_NS + "\">");
+        tag(xml, "Bucket", bucket);
+        tag(xml, "Key", key);
+        tag(xml, "UploadId", uploadId);
+        tag(xml, "PartNumberMarker", "0");
+        tag(xml, "MaxParts", Integer.toString(MultipartSettings.MAX_PARTS));
+        tag(xml, "IsTruncated", "false");
+        parts.forEach((number, part) -> {
+            xml.append("<Part>");
+            tag(xml, "PartNumber", Integer.toString(number));
+            tag(xml, "ETag", part.getETag());
+            checksumTag(xml, part.getChecksumAlgorithm(), part.getChecksum());
+            xml.append("</Part>");
+        });
+        xml.append("</ListPartsResult>");
+        sendXml(ex, 200, xml);
+    }
+
+    private void completeUpload(HttpExchange ex, String bucket, String key, String uploadId) throws IOException {
+        List<Integer> partNumbers = new ArrayList<>();
+        try (InputStream in = ex.getRequestBody()) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            NodeList parts = factory.newDocumentBuilder().parse(in).getElementsByTagNameNS("*", "PartNumber");
+            for (int i = 0; i < parts.getLength(); i++) {
+                partNumbers.add(Integer.parseInt(((Element) parts.item(i)).getTextContent().trim()));
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new S3Error(400, "MalformedXML", "The XML you provided was not well-formed");
+        }
+        if (partNumbers.isEmpty()) {
+            throw new S3Error(400, "MalformedXML", "At least one part must be specified");
+        }
+
+        StoredObject completed;
+        try {
+            completed = store.completeUpload(uploadId, partNumbers);
+        } catch (IllegalStateException e) {
+            throw new S3Error(404, "NoSuchUpload", "The specified upload does not exist.");
+        } catch (IOException e) {
+            throw new S3Error(400, "InvalidPart", e.getMessage());
+        }
+        StringBuilder xml = new StringBuilder("<CompleteMultipartUploadResult xmlns=\"" + S3_NS + "\">");
+        tag(xml, "Location", "/" + bucket + "/" + key);
+        tag(xml, "Bucket", bucket);
+        tag(xml, "Key", key);
+        tag(xml, "ETag", completed.getETag());
+        checksumTag(xml, completed.getChecksumAlgorithm(), completed.getChecksum());
+        xml.append("</CompleteMultipartUploadResult>");
+        sendXml(ex, 200, xml);
+    }
+
+    // ---- fault control ------------------------------------------------------
+
+    private void handleFaults(HttpExchange ex, Map<String, String> query) throws IOException {
+        if (!"GET".equals(ex.getRequestMethod())) {
+            try {
+                if (query.containsKey("latencyMs")) {
+                    faults.setLatencyMs(Long.parseLong(query.get("latencyMs")));
+                }
+                if (query.containsKey("latencyJitterMs")) {
+                    faults.setLatencyJitterMs(Long.parseLong(query.get("latencyJitterMs")));
+                }
+                if (query.containsKey("bandwidth")) {
+                    faults.setBandwidthBytesPerSecond(DataSize.parse(query.get("bandwidth")).toBytes());
+                }
+                if (query.containsKey("slowDownRate")) {
+                    faults.setSlowDownRate(Double.parseDouble(query.get("slowDownRate")));
+                }
+                if (query.containsKey("errorRate")) {
+                    faults.setErrorRate(Double.parseDouble(query.get("errorRate")));
+                }
+                if (query.containsKey("maxConcurrentRequests")) {
+                    faults.setMaxConcurrentRequests(Integer.parseInt(query.get("maxConcurrentRequests")));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new S3Error(400, "InvalidArgument", e.getMessage());
+            }
+            log.info("Local S3 faults updated: {}", faults.snapshot());
+        }
+        StringBuilder json = new StringBuilder("{");
+        faults.snapshot().forEach((name, value) ->
+                json.append(json.length() > 1 ? "," : "").append('"').append(name).append("\":").append(value));
+        json.append('}');
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(200, body.length);
+        ex.getResponseBody().write(body);
+    }
+
+    // ---- helpers ------------------------------------------------------------
+
+    /**
+     * Request body with SigV4 streaming ({@code aws-chunked}) framing removed
+     * and the bandwidth cap applied.
+     */
+    private InputStream requestBody(HttpExchange ex) {
+        Headers headers = ex.getRequestHeaders();
+        String sha = headers.getFirst("x-amz-content-sha256");
+        String encoding = headers.getFirst("Content-Encoding");
+        InputStream body = ex.getRequestBody();
+        if ((sha != null && sha.startsWith("STREAMING-")) || (encoding != null && encoding.contains("aws-chunked"))) {
+            body = new AwsChunkedInputStream(body);
+        }
+        return faults.throttle(body);
+    }
+
+    private static ObjectAttributes attributes(Headers headers) {
+        ObjectAttributes attributes = new ObjectAttributes();
+        attributes.setContentType(headers.getFirst("Content-Type"));
+        attributes.setContentEncoding(storedEncoding(headers.getFirst("Content-Encoding")));
+        Map<String, String> metadata = new HashMap<>();
+        headers.forEach((name, values) -> {
+            if (name.toLowerCase().startsWith(META_PREFIX) && !values.isEmpty()) {
+                metadata.put(name.substring(META_PREFIX.length()).toLowerCase(), values.get(0));
+            }
+        });
+        attributes.setMetadata(metadata);
+        attributes.setChecksum(sentChecksum(headers));
+        String algorithm = headers.getFirst("x-amz-checksum-algorithm");
+        if (algorithm == null) {
+            algorithm = headers.getFirst("x-amz-sdk-checksum-algorithm");
+        }
+        if (algorithm == null && attributes.getChecksum() != null) {
+            algorithm = headers.containsKey(Checksums.header(ChecksumAlgorithm.SHA256)) ? "SHA256" : "CRC32C";
+        }
+        try {
+            attributes.setChecksumAlgorithm(Checksums.parse(algorithm));
+        } catch (IllegalArgumentException e) {
+            throw new S3Error(400, "InvalidRequest", e.getMessage());
+        }
+        return attributes;
+    }
+
+    /**
+     * The checksum sent in a header with the body; null if there is none, or it
+     * comes in an aws-chunked trailer, which isn't checked.
+     */
+    private static String sentChecksum(Headers headers) {
+        String crc32c = headers.getFirst(Checksums.header(ChecksumAlgorithm.CRC32_C));
+        return crc32c != null ? crc32c : headers.getFirst(Checksums.header(ChecksumAlgorithm.SHA256));
+    }
+
+    private static void checksumHeader(Headers headers, ChecksumAlgorithm algorithm, String checksum) {
+        if (checksum != null) {
+            headers.set(Checksums.header(algorithm), checksum);
+        }
+    }
+
+    private static void checksumTag(StringBuilder xml, ChecksumAlgorithm algorithm, String checksum) {
+        if (checksum != null) {
+            tag(xml, "Checksum" + algorithm, checksum);
+        }
+    }
+
+    /** The request's {@code Content-Encoding} without {@code aws-chunked}, which only frames the upload. */
+    private static String storedEncoding(String encoding) {
+        if (encoding == null) {
+            return null;
+        }
+        StringJoiner stored = new StringJoiner(",");
+        for (String coding : encoding.split(",")) {
+            if (!coding.isBlank() && !coding.trim().equalsIgnoreCase("aws-chunked")) {
+                stored.add(coding.trim());
+            }
+        }
+        return stored.length() > 0 ? stored.toString() : null;
+    }
+
+    private static String[] parseCopySource(String copySource) {
+        String source = decode(copySource);
+        int version = source.indexOf("?versionId=");
+        if (version >= 0) {
+            source = source.substring(0, version);
+        }
+        if (source.startsWith("/")) {
+            source = source.substring(1);
+        }
+        int slash = source.indexOf('/');
+        if (slash <= 0 || slash == source.length() - 1) {
+            throw new S3Error(400, "InvalidArgument", "Invalid copy source: " + copySource);
+        }
+        return new String[]{source.substring(0, slash), source.substring(slash + 1)};
+    }
+
+    private static long[] parseCopyRange(String range) {
+        try {
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            return new long[]{Long.parseLong(bounds[0]), Long.parseLong(bounds[1])};
+        } catch (RuntimeException e) {
+            throw new S3Error(400, "InvalidArgument", "Invalid copy source range: " + range);
+        }
+    }
+
+    private static int parsePartNumber(String value) {
+        try {
+            int partNumber = Integer.parseInt(value);
+            if (partNumber < 1 || partNumber > MultipartSettings.MAX_PARTS) {
+                throw new NumberFormatException();
+            }
+            return partNumber;
+        } catch (NumberFormatException e) {
+            throw new S3Error(400, "InvalidArgument", "Part number must be between 1 and " + MultipartSettings.MAX_PARTS);
+        }
+    }
+
+    private static Instant parseHttpDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = decode(eq < 0 ? pair : pair.substring(0, eq));
+            query.put(name, eq < 0 ? "" : decode(pair.substring(eq + 1)));
+        }
+        return query;
+    }
+
+    /**
+     * Percent-decoding that leaves a literal '+' alone, as S3 does for paths.
+     */
+    private static String decode(String value) {
+        return URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    private static String encodeKey(String value, boolean urlEncode) {
+        return urlEncode ? URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20") : value;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static void tag(StringBuilder xml, String name, String value) {
+        xml.append('<').append(name).append('>');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<': xml.append("&lt;"); break;
+                case '>': xml.append("&gt;"); break;
+                case '&': xml.append("&amp;"); break;
+                case '"': xml.append("&quot;"); break;
+                case '\'': xml.append("&apos;"); break;
+                default: xml.append(c);
+            }
+        }
+        xml.append("</").append(name).append('>');
+    }
+
+    private static void sendXml(HttpExchange ex, int status, StringBuilder xml) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/xml");
+        send(ex, status, ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange ex, int status, byte[] body) throws IOException {
+        // closing drains any unread remainder (e.g. the final aws-chunked frame),
+        // otherwise the JDK server drops the connection instead of reusing it
+        ex.getRequestBody().close();
+        if (body == null || body.length == 0 || "HEAD".equals(ex.getRequestMethod())) {
+            ex.sendResponseHeaders(status, -1);
+            return;
+        }
+        ex.sendResponseHeaders(status, body.length);
+        ex.getResponseBody().write(body);
+    }
+
+    private static void sendError(HttpExchange ex, S3Error error, String requestId) {
+        try {
+            StringBuilder xml = new StringBuilder("<Error>");
+            tag(xml, "Code", error.code);
+            tag(xml, "Message", error.getMessage());
+            tag(xml, "Resource", ex.getRequestURI().getPath());
+            tag(xml, "RequestId", requestId);
+            xml.append("</Error>");
+            sendXml(ex, error.status, xml);
+        } catch (IOException e) {
+            // headers already sent or client gone; nothing more to report
+            log.debug("Local S3: could not send {} for {}", error.code, ex.getRequestURI(), e);
+        }
+    }
+
+    private static class S3Error extends RuntimeException {
+        final int status;
+        final String code;
+
+        S3Error(int status, String code, String message) {
+            super(message);
+            this.status = status;
+            this.code = code;
+        }
+    }
+
+    /**
+     * Strips {@code aws-chunked} framing: {@code <hex-size>[;chunk-signature=...]\r\n<data>\r\n},
+     * ending with a zero-size chunk and optional trailer headers. Signatures are not verified.
+     */
+    private static class AwsChunkedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+        private boolean done;
+
+        AwsChunkedInputStream(InputStream in) {
+            this.in = new BufferedInputStream(in, 64 * 1024);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (remaining == 0) {
+                nextChunk();
+                if (done) {
+                    return -1;
+                }
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n < 0) {
+                throw new EOFException("Truncated aws-chunked body");
+            }
+            remaining -= n;
+            if (remaining == 0) {
+                readLine();
+            }
+            return n;
+        }
+
+        private void nextChunk() throws IOException {
+            String header = readLine();
+            int semi = header.indexOf(';');
+            long size = Long.parseLong((semi >= 0 ? header.substring(0, semi) : header).trim(), 16);
+            if (size == 0) {
+                // trailing headers (e.g. checksums) up to the blank line
+                while (!readLine().isEmpty()) {
+                    // ignored
+                }
+                done = true;
+            }
+            remaining = size;
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0) {
+                    if (line.size() == 0) {
+                        return "";
+                    }
+                    break;
+                }
+                if (c != '\r') {
+                    line.write(c);
+                }
+            }
+            return line.toString(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
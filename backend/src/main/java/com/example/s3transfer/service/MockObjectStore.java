@@ -0,0 +1,1044 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.MultipartUploadSummary;
+import com.example.s3transfer.dto.ObjectAttributes;
+import com.example.s3transfer.dto.ObjectListing;
+import com.example.s3transfer.dto.S3ObjectSummary;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpRange;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.FileSystemUtils;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * File-backed object store behind the mock S3 service.
+ *
+ * <p>Object bodies live at {@code <root>/<bucket>/<key>} and are never held on
+ * the heap; only a small per-object record (size, ETag, attributes) is kept in
+ * memory. Records are mirrored to sidecar files under {@code .meta} and the
+ * whole tree is re-indexed on startup, so files dropped into a bucket directory
+ * by hand show up as objects too. Keys list in S3's order, by their UTF-8 bytes.
+ *
+ * <p>With dedup enabled, bodies are stored once under {@code .blobs} keyed by
+ * content hash and every object holding that content is a hard link to it, so
+ * copies cost a link instead of a byte copy. Unreferenced blobs are removed when
+ * their last object goes away.
+ *
+ * <p>Multipart uploads survive a restart: each keeps a record of its target
+ * and attributes under {@code .uploads}, and its parts are re-hashed from disk
+ * on startup. Uploads nobody finishes are left to the
+ * {@link MultipartUploadSweeper}.
+ *
+ * <p>Objects and uploads created with a checksum algorithm get S3's checksums:
+ * the whole body's for a single PUT or copy, the parts' composite for a
+ * multipart upload. A body sent with a checksum that doesn't match it is
+ * rejected with a {@link ChecksumMismatchException}.
+ */
+@Slf4j
+public class MockObjectStore {
+
+    private static final String META_DIR = ".meta";
+    private static final String BLOB_DIR = ".blobs";
+    private static final String UPLOAD_DIR = ".uploads";
+    private static final String TMP_DIR = ".tmp";
+    private static final String UPLOAD_RECORD = "upload.properties";
+    private static final int LOCK_STRIPES = 64;
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+
+    private final Path root;
+    @Getter
+    private final boolean dedup;
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final Object[] keyLocks = new Object[LOCK_STRIPES];
+    private final Object[] blobLocks = new Object[LOCK_STRIPES];
+
+    public MockObjectStore(Path root, boolean dedup) {
+        this.root = root.toAbsolutePath().normalize();
+        this.dedup = dedup && root.getFileSystem().supportedFileAttributeViews().contains("unix");
+        if (dedup && !this.dedup) {
+            log.warn("Mock store: hard links not supported on this file system, dedup disabled");
+        }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            keyLocks[i] = new Object();
+            blobLocks[i] = new Object();
+        }
+        try {
+            Files.createDirectories(this.root);
+            FileSystemUtils.deleteRecursively(this.root.resolve(TMP_DIR));
+            Files.createDirectories(this.root.resolve(TMP_DIR));
+            Files.createDirectories(this.root.resolve(UPLOAD_DIR));
+            reload();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open mock storage at " + this.root, e);
+        }
+    }
+
+    // ---- buckets and lookups ------------------------------------------------
+
+    public void createBucket(String bucket) {
+        try {
+            Files.createDirectories(bucketDir(bucket));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buckets.computeIfAbsent(bucket, b -> new ConcurrentSkipListMap<>(ObjectListingIterator.KEY_ORDER));
+    }
+
+    public boolean bucketExists(String bucket) {
+        return buckets.containsKey(bucket);
+    }
+
+    /**
+     * Read-only, key-ordered view of a bucket; empty if the bucket doesn't exist.
+     */
+    public NavigableMap<String, StoredObject> objects(String bucket) {
+        ConcurrentSkipListMap<String, StoredObject> objects = buckets.get(bucket);
+        return objects != null ? Collections.unmodifiableNavigableMap(objects) : Collections.emptyNavigableMap();
+    }
+
+    public StoredObject get(String bucket, String key) {
+        return objects(bucket).get(key);
+    }
+
+    /**
+     * Opens an object for reading. The record and the open channel are taken
+     * together, so a concurrent overwrite can't pair new bytes with old metadata.
+     *
+     * @return {@code null} if the object doesn't exist
+     */
+    public OpenObject open(String bucket, String key) throws IOException {
+        synchronized (keyLock(bucket, key)) {
+            StoredObject object = get(bucket, key);
+            if (object == null) {
+                return null;
+            }
+            if (object.isFolderMarker()) {
+                return new OpenObject(object, null);
+            }
+            return new OpenObject(object, FileChannel.open(objectPath(bucket, key), StandardOpenOption.READ));
+        }
+    }
+
+    /**
+     * One page of a bucket listing with S3 ListObjectsV2 semantics. Keys sharing
+     * a prefix up to {@code delimiter} roll up into a single common prefix; the
+     * continuation token is the last key returned, base64url-encoded. A
+     * {@code maxKeys} of zero yields an empty, untruncated page.
+     */
+    public ObjectListing list(String bucket, String prefix, String delimiter, String continuationToken,
+                              String startAfter, int maxKeys) {
+        String from = prefix != null ? prefix : "";
+        boolean inclusive = true;
+        if (continuationToken != null) {
+            from = new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8);
+            inclusive = false;
+        } else if (startAfter != null && ObjectListingIterator.KEY_ORDER.compare(startAfter, from) >= 0) {
+            from = startAfter;
+            inclusive = false;
+        }
+
+        ObjectListing listing = new ObjectListing();
+        if (maxKeys <= 0) {
+            // Nothing to return and no key to resume after, so the page is empty but complete
+            return listing;
+        }
+        String lastKey = null;
+        String lastCommonPrefix = null;
+        int count = 0;
+        for (Map.Entry<String, StoredObject> e : objects(bucket).tailMap(from, inclusive).entrySet()) {
+            String key = e.getKey();
+            if (prefix != null && !key.startsWith(prefix)) {
+                break;
+            }
+            if (lastCommonPrefix != null && key.startsWith(lastCommonPrefix)) {
+                lastKey = key;
+                continue;
+            }
+            if (count == maxKeys) {
+                listing.setTruncated(true);
+                break;
+            }
+            int start = prefix != null ? prefix.length() : 0;
+            int idx = delimiter != null && !delimiter.isEmpty() ? key.indexOf(delimiter, start) : -1;
+            if (idx >= 0) {
+                lastCommonPrefix = key.substring(0, idx + delimiter.length());
+                listing.getCommonPrefixes().add(lastCommonPrefix);
+            } else {
+                StoredObject o = e.getValue();
+                listing.getObjects().add(new S3ObjectSummary(key, o.getSize(), o.getETag(), o.getLastModified()));
+            }
+            lastKey = key;
+            count++;
+        }
+        if (listing.isTruncated()) {
+            listing.setNextContinuationToken(
+                    Base64.getUrlEncoder().encodeToString(lastKey.getBytes(StandardCharsets.UTF_8)));
+        }
+        return listing;
+    }
+
+    /**
+     * Evaluates If-None-Match (preferred) or If-Modified-Since against an object.
+     */
+    public static boolean notModified(StoredObject object, String ifNoneMatch, Instant ifModifiedSince) {
+        return notModified(object.getETag(), object.getLastModified(), ifNoneMatch, ifModifiedSince);
+    }
+
+    /**
+     * The same for any object with this ETag and last-modified time.
+     */
+    public static boolean notModified(String eTag, Instant lastModified, String ifNoneMatch, Instant ifModifiedSince) {
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String c = candidate.trim();
+                if (c.startsWith("W/")) {
+                    c = c.substring(2);
+                }
+                if (c.equals("*") || c.equals(eTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return ifModifiedSince != null && lastModified != null
+                && !lastModified.isAfter(ifModifiedSince.plusSeconds(1).minusNanos(1));
+    }
+
+    /**
+     * Resolves a single-range {@code Range} header to inclusive {@code [first, last]} offsets.
+     *
+     * @return null if the header doesn't parse; like S3 (and RFC 7233), the whole object is sent then
+     * @throws InvalidRangeException if the header has several ranges or none inside the object
+     */
+    public static long[] resolveRange(String range, long length) {
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (ranges.size() != 1 || length == 0) {
+            throw new InvalidRangeException("Range not satisfiable: " + range);
+        }
+        long start = ranges.get(0).getRangeStart(length);
+        long end = ranges.get(0).getRangeEnd(length);
+        if (start >= length) {
+            throw new InvalidRangeException("Range not satisfiable: " + range);
+        }
+        return new long[]{start, end};
+    }
+
+    // ---- writes -------------------------------------------------------------
+
+    public StoredObject put(String bucket, String key, InputStream in, ObjectAttributes attributes) throws IOException {
+        if (key.endsWith("/")) {
+            if (in.read() >= 0) {
+                throw new IOException("Keys ending in '/' can only hold empty folder markers: " + key);
+            }
+            return putFolderMarker(bucket, key, attributes);
+        }
+        Path tmp = tmpFile();
+        MessageDigest md5 = md5();
+        ChecksumAlgorithm algorithm = attributes != null ? attributes.getChecksumAlgorithm() : null;
+        Checksums.Digest checksum = algorithm != null ? Checksums.digest(algorithm) : null;
+        try (InputStream digesting = new DigestInputStream(new ChecksumInputStream(in, checksum), md5)) {
+            Files.copy(digesting, tmp, StandardCopyOption.REPLACE_EXISTING);
+            String actual = checksum != null ? checksum.finish() : null;
+            checkBody(bucket + "/" + key, algorithm, attributes != null ? attributes.getChecksum() : null, actual);
+            String hex = hex(md5.digest());
+            return publish(bucket, key, tmp, Files.size(tmp), "\"" + hex + "\"", hex, attributes, actual);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public StoredObject copy(String sourceBucket, String sourceKey, String bucket, String key) throws IOException {
+        return copy(sourceBucket, sourceKey, bucket, key, null);
+    }
+
+    /**
+     * Copies an object. With dedup this is a hard link plus a metadata record,
+     * regardless of size. The copy keeps the source's checksum algorithm unless
+     * {@code checksumAlgorithm} names another; its checksum is the source's if
+     * that is a whole-body one in the same algorithm, and is computed otherwise.
+     */
+    public StoredObject copy(String sourceBucket, String sourceKey, String bucket, String key,
+                             ChecksumAlgorithm checksumAlgorithm) throws IOException {
+        Path tmp = tmpFile();
+        try {
+            StoredObject source;
+            synchronized (keyLock(sourceBucket, sourceKey)) {
+                source = get(sourceBucket, sourceKey);
+                if (source == null) {
+                    throw new NoSuchFileException(sourceBucket + "/" + sourceKey);
+                }
+                if (source.isFolderMarker()) {
+                    tmp = null;
+                } else if (dedup) {
+                    Files.createLink(tmp, objectPath(sourceBucket, sourceKey));
+                } else {
+                    Files.copy(objectPath(sourceBucket, sourceKey), tmp);
+                }
+            }
+            if (tmp == null) {
+                return putFolderMarker(bucket, key, source.attributes());
+            }
+            Files.createDirectories(objectPath(bucket, key).getParent());
+            ChecksumAlgorithm algorithm = checksumAlgorithm != null ? checksumAlgorithm : source.getChecksumAlgorithm();
+            String checksum = null;
+            if (algorithm == source.getChecksumAlgorithm() && !Checksums.isComposite(source.getChecksum())) {
+                checksum = source.getChecksum();
+            } else if (algorithm != null) {
+                try (FileChannel in = FileChannel.open(tmp, StandardOpenOption.READ)) {
+                    checksum = checksum(algorithm, in, 0, source.getSize());
+                }
+            }
+            // a hard-linked copy shares its source's inode, so it also shares the source blob
+            StoredObject copy = new StoredObject(key, source.getSize(), source.getETag(), now(),
+                    dedup ? source.getBlobId() : null, source.getContentType(), source.getMetadata(),
+                    source.getContentEncoding(), algorithm, checksum);
+            return commit(bucket, copy, tmp);
+        } finally {
+            if (tmp != null) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    public boolean delete(String bucket, String key) throws IOException {
+        StoredObject removed;
+        synchronized (keyLock(bucket, key)) {
+            ConcurrentSkipListMap<String, StoredObject> objects = buckets.get(bucket);
+            removed = objects != null ? objects.remove(key) : null;
+            if (removed == null) {
+                return false;
+            }
+            if (!removed.isFolderMarker()) {
+                Files.deleteIfExists(objectPath(bucket, key));
+            }
+            Files.deleteIfExists(metaPath(bucket, key));
+        }
+        releaseBlob(removed.getBlobId());
+        return true;
+    }
+
+    // ---- multipart ----------------------------------------------------------
+
+    public String createUpload(String bucket, String key, ObjectAttributes attributes) throws IOException {
+        String uploadId = UUID.randomUUID().toString();
+        Upload upload = new Upload(bucket, key, attributes != null ? attributes : ObjectAttributes.empty(), now());
+        Files.createDirectories(root.resolve(UPLOAD_DIR).resolve(uploadId));
+        writeUploadRecord(uploadId, upload);
+        uploads.put(uploadId, upload);
+        return uploadId;
+    }
+
+    /**
+     * Streams one part to disk and returns its quoted MD5 ETag, and its checksum
+     * if the upload has a checksum algorithm.
+     *
+     * @param expectedChecksum checksum sent with the part; null if none was
+     * @throws ChecksumMismatchException if the part doesn't match {@code expectedChecksum}
+     */
+    public StoredPart writePart(String uploadId, int partNumber, InputStream in, long length,
+                                String expectedChecksum) throws IOException {
+        Upload upload = upload(uploadId);
+        MessageDigest md5 = md5();
+        ChecksumAlgorithm algorithm = upload.attributes.getChecksumAlgorithm();
+        Checksums.Digest checksum = algorithm != null ? Checksums.digest(algorithm) : null;
+        Path part = partPath(uploadId, partNumber);
+        try (InputStream digesting = new DigestInputStream(
+                new ChecksumInputStream(new BoundedInputStream(in, length), checksum), md5)) {
+            Files.copy(digesting, part, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (Files.size(part) != length) {
+            throw new IOException("Part " + partNumber + " is " + Files.size(part) + " bytes, expected " + length);
+        }
+        String actual = checksum != null ? checksum.finish() : null;
+        checkBody(upload.bucket + "/" + upload.key + " part " + partNumber, algorithm, expectedChecksum, actual);
+        return upload.put(partNumber, md5.digest(), actual);
+    }
+
+    /**
+     * Copies a byte range of an existing object into a part with
+     * {@link FileChannel#transferTo}, hashing the source through a memory map.
+     */
+    public StoredPart copyPart(String uploadId, int partNumber, String sourceBucket, String sourceKey,
+                           long firstByte, long lastByte) throws IOException {
+        Upload upload = upload(uploadId);
+        try (OpenObject source = open(sourceBucket, sourceKey)) {
+            if (source == null) {
+                throw new NoSuchFileException(sourceBucket + "/" + sourceKey);
+            }
+            long size = source.getObject().getSize();
+            if (firstByte < 0 || lastByte >= size || firstByte > lastByte) {
+                throw new IOException("Invalid copy range bytes=" + firstByte + "-" + lastByte);
+            }
+            long length = lastByte - firstByte + 1;
+            FileChannel in = source.channel;
+            try (FileChannel out = FileChannel.open(partPath(uploadId, partNumber), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                transfer(in, firstByte, length, out);
+            }
+            ChecksumAlgorithm algorithm = upload.attributes.getChecksumAlgorithm();
+            return upload.put(partNumber, md5(in, firstByte, length),
+                    algorithm != null ? checksum(algorithm, in, firstByte, length) : null);
+        }
+    }
+
+    /**
+     * Concatenates the listed parts into the final object. The ETag follows
+     * the S3 multipart convention: MD5 of the part digests plus a part count,
+     * and so does the checksum.
+     */
+    public StoredObject completeUpload(String uploadId, List<Integer> partNumbers) throws IOException {
+        Upload upload = upload(uploadId);
+        MessageDigest md5 = md5();
+        ChecksumAlgorithm algorithm = upload.attributes.getChecksumAlgorithm();
+        List<String> checksums = new ArrayList<>(partNumbers.size());
+        Path tmp = tmpFile();
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                for (int partNumber : partNumbers) {
+                    UploadedPart part = upload.parts.get(partNumber);
+                    if (part == null) {
+                        throw new IOException("Part not uploaded: " + partNumber);
+                    }
+                    md5.update(part.digest);
+                    checksums.add(part.checksum);
+                    try (FileChannel in = FileChannel.open(partPath(uploadId, partNumber), StandardOpenOption.READ)) {
+                        transfer(in, 0, in.size(), out);
+                    }
+                }
+            }
+            String hex = hex(md5.digest()) + "-" + partNumbers.size();
+            StoredObject object = publish(upload.bucket, upload.key, tmp, Files.size(tmp), "\"" + hex + "\"", hex,
+                    upload.attributes, algorithm != null ? Checksums.composite(algorithm, checksums) : null);
+            abortUpload(uploadId);
+            return object;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Parts uploaded so far by part number.
+     *
+     * @throws IllegalStateException if there is no such upload
+     */
+    public NavigableMap<Integer, StoredPart> listParts(String uploadId) {
+        NavigableMap<Integer, StoredPart> parts = new TreeMap<>();
+        upload(uploadId).parts.forEach((number, part) -> parts.put(number, part.stored()));
+        return parts;
+    }
+
+    public List<MultipartUploadSummary> listUploads(String bucket) {
+        List<MultipartUploadSummary> result = new ArrayList<>();
+        uploads.forEach((uploadId, upload) -> {
+            if (upload.bucket.equals(bucket)) {
+                result.add(new MultipartUploadSummary(upload.key, uploadId, upload.initiated));
+            }
+        });
+        result.sort(Comparator.comparing(MultipartUploadSummary::getKey).thenComparing(MultipartUploadSummary::getUploadId));
+        return result;
+    }
+
+    public void abortUpload(String uploadId) throws IOException {
+        uploads.remove(uploadId);
+        FileSystemUtils.deleteRecursively(root.resolve(UPLOAD_DIR).resolve(uploadId));
+    }
+
+    // ---- internals ----------------------------------------------------------
+
+    /**
+     * Moves a fully written temp file into place as {@code bucket/key} and
+     * records it. With dedup the content goes to {@code .blobs/<blobId>} first
+     * (unless already there) and the object path becomes a link to it.
+     */
+    private StoredObject publish(String bucket, String key, Path tmp, long size, String eTag, String blobId,
+                                 ObjectAttributes attributes, String checksum) throws IOException {
+        Path target = objectPath(bucket, key);
+        Files.createDirectories(target.getParent());
+        if (dedup && blobId != null) {
+            Path link = tmpFile();
+            synchronized (blobLock(blobId)) {
+                Path blob = blobPath(blobId);
+                if (Files.exists(blob)) {
+                    Files.delete(tmp);
+                } else {
+                    Files.createDirectories(blob.getParent());
+                    Files.move(tmp, blob, StandardCopyOption.ATOMIC_MOVE);
+                }
+                Files.createLink(link, blob);
+            }
+            tmp = link;
+        }
+
+        StoredObject object = new StoredObject(key, size, eTag, now(), dedup ? blobId : null,
+                attributes != null ? attributes.getContentType() : null,
+                attributes != null && attributes.getMetadata() != null
+                        ? Map.copyOf(attributes.getMetadata()) : Map.of(),
+                attributes != null ? attributes.getContentEncoding() : null,
+                checksum != null ? attributes.getChecksumAlgorithm() : null, checksum);
+        try {
+            return commit(bucket, object, tmp);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private StoredObject commit(String bucket, StoredObject object, Path content) throws IOException {
+        StoredObject previous = record(bucket, object, content);
+        if (previous != null && !previous.getBlobId().equals(object.getBlobId())) {
+            releaseBlob(previous.getBlobId());
+        }
+        return object;
+    }
+
+    private StoredObject putFolderMarker(String bucket, String key, ObjectAttributes attributes) throws IOException {
+        Files.createDirectories(objectPath(bucket, key));
+        StoredObject marker = new StoredObject(key, 0, "\"" + DigestUtils.md5DigestAsHex(new byte[0]) + "\"", now(),
+                null, attributes != null ? attributes.getContentType() : null, Map.of(), null, null, null);
+        record(bucket, marker, null);
+        return marker;
+    }
+
+    private StoredObject record(String bucket, StoredObject object, Path content) throws IOException {
+        synchronized (keyLock(bucket, object.getKey())) {
+            if (content != null) {
+                Files.move(content, objectPath(bucket, object.getKey()),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            writeMeta(bucket, object);
+            StoredObject previous = buckets
+                    .computeIfAbsent(bucket, b -> new ConcurrentSkipListMap<>(ObjectListingIterator.KEY_ORDER))
+                    .put(object.getKey(), object);
+            return previous != null && previous.getBlobId() != null ? previous : null;
+        }
+    }
+
+    private void releaseBlob(String blobId) throws IOException {
+        if (blobId == null) {
+            return;
+        }
+        synchronized (blobLock(blobId)) {
+            Path blob = blobPath(blobId);
+            if (Files.exists(blob) && linkCount(blob) <= 1) {
+                Files.delete(blob);
+            }
+        }
+    }
+
+    private void reload() throws IOException {
+        long started = System.currentTimeMillis();
+        int loaded = 0;
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                String bucket = dir.getFileName().toString();
+                if (bucket.startsWith(".") || !Files.isDirectory(dir)) {
+                    continue;
+                }
+                ConcurrentSkipListMap<String, StoredObject> objects =
+                        new ConcurrentSkipListMap<>(ObjectListingIterator.KEY_ORDER);
+                buckets.put(bucket, objects);
+                try (Stream<Path> files = Files.walk(dir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        String key = dir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                        if (Files.isRegularFile(file)) {
+                            objects.put(key, loadObject(bucket, key, file));
+                            loaded++;
+                        } else if (!key.isEmpty() && Files.exists(metaPath(bucket, key + "/"))) {
+                            objects.put(key + "/", readMeta(metaPath(bucket, key + "/")));
+                            loaded++;
+                        }
+                    }
+                }
+            }
+        }
+        int orphans = dedup ? sweepBlobs() : 0;
+        int pending = reloadUploads();
+        log.info("Mock store: loaded {} objects in {} buckets and {} multipart uploads from {} in {} ms"
+                        + " ({} orphaned blobs removed)",
+                loaded, buckets.size(), pending, root, System.currentTimeMillis() - started, orphans);
+    }
+
+    /**
+     * Picks up the multipart uploads left by the previous run, re-hashing their
+     * parts. A directory without a record, from an upload cut short while it was
+     * created, is removed.
+     */
+    private int reloadUploads() throws IOException {
+        int loaded = 0;
+        try (Stream<Path> dirs = Files.list(root.resolve(UPLOAD_DIR))) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                Path record = dir.resolve(UPLOAD_RECORD);
+                if (!Files.isRegularFile(record)) {
+                    FileSystemUtils.deleteRecursively(dir);
+                    continue;
+                }
+                Upload upload = readUploadRecord(record);
+                ChecksumAlgorithm algorithm = upload.attributes.getChecksumAlgorithm();
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        String name = file.getFileName().toString();
+                        if (!name.chars().allMatch(Character::isDigit)) {
+                            continue;
+                        }
+                        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                            long size = in.size();
+                            upload.put(Integer.parseInt(name), md5(in, 0, size),
+                                    algorithm != null ? checksum(algorithm, in, 0, size) : null);
+                        }
+                    }
+                }
+                uploads.put(dir.getFileName().toString(), upload);
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Reads the sidecar record for a file, rebuilding it when the file was
+     * added or changed behind the store's back.
+     */
+    private StoredObject loadObject(String bucket, String key, Path file) throws IOException {
+        Path meta = metaPath(bucket, key);
+        long size = Files.size(file);
+        if (Files.exists(meta)) {
+            StoredObject object = readMeta(meta);
+            if (object.getKey().equals(key) && object.getSize() == size) {
+                return object;
+            }
+        }
+        StoredObject object;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            String hex = hex(md5(in, 0, size));
+            object = new StoredObject(key, size, "\"" + hex + "\"",
+                    Files.getLastModifiedTime(file).toInstant(), null, null, Map.of(), null, null, null);
+        }
+        writeMeta(bucket, object);
+        return object;
+    }
+
+    private int sweepBlobs() throws IOException {
+        Path blobs = root.resolve(BLOB_DIR);
+        if (!Files.isDirectory(blobs)) {
+            return 0;
+        }
+        int removed = 0;
+        try (Stream<Path> files = Files.walk(blobs)) {
+            for (Path blob : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(blob) && linkCount(blob) <= 1) {
+                    Files.delete(blob);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    private void writeMeta(String bucket, StoredObject object) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("key", object.getKey());
+        props.setProperty("size", Long.toString(object.getSize()));
+        props.setProperty("etag", object.getETag());
+        props.setProperty("lastModified", Long.toString(object.getLastModified().toEpochMilli()));
+        if (object.getBlobId() != null) {
+            props.setProperty("blob", object.getBlobId());
+        }
+        if (object.getContentType() != null) {
+            props.setProperty("contentType", object.getContentType());
+        }
+        if (object.getContentEncoding() != null) {
+            props.setProperty("contentEncoding", object.getContentEncoding());
+        }
+        if (object.getChecksum() != null) {
+            props.setProperty("checksumAlgorithm", object.getChecksumAlgorithm().toString());
+            props.setProperty("checksum", object.getChecksum());
+        }
+        object.getMetadata().forEach((k, v) -> props.setProperty("meta." + k, v));
+
+        Path meta = metaPath(bucket, object.getKey());
+        Files.createDirectories(meta.getParent());
+        Path tmp = tmpFile();
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            props.store(out, null);
+        }
+        Files.move(tmp, meta, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private StoredObject readMeta(Path meta) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(meta)) {
+            props.load(in);
+        }
+        Map<String, String> metadata = new HashMap<>();
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith("meta.")) {
+                metadata.put(name.substring(5), props.getProperty(name));
+            }
+        }
+        return new StoredObject(props.getProperty("key"), Long.parseLong(props.getProperty("size")),
+                props.getProperty("etag"), Instant.ofEpochMilli(Long.parseLong(props.getProperty("lastModified"))),
+                props.getProperty("blob"), props.getProperty("contentType"), Map.copyOf(metadata),
+                props.getProperty("contentEncoding"),
+                props.getProperty("checksum") != null
+                        ? ChecksumAlgorithm.fromValue(props.getProperty("checksumAlgorithm")) : null,
+                props.getProperty("checksum"));
+    }
+
+    private void writeUploadRecord(String uploadId, Upload upload) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("bucket", upload.bucket);
+        props.setProperty("key", upload.key);
+        props.setProperty("initiated", Long.toString(upload.initiated.toEpochMilli()));
+        ObjectAttributes attributes = upload.attributes;
+        if (attributes.getContentType() != null) {
+            props.setProperty("contentType", attributes.getContentType());
+        }
+        if (attributes.getContentEncoding() != null) {
+            props.setProperty("contentEncoding", attributes.getContentEncoding());
+        }
+        if (attributes.getChecksumAlgorithm() != null) {
+            props.setProperty("checksumAlgorithm", attributes.getChecksumAlgorithm().toString());
+        }
+        if (attributes.getMetadata() != null) {
+            attributes.getMetadata().forEach((k, v) -> props.setProperty("meta." + k, v));
+        }
+
+        Path tmp = tmpFile();
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            props.store(out, null);
+        }
+        Files.move(tmp, root.resolve(UPLOAD_DIR).resolve(uploadId).resolve(UPLOAD_RECORD),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Upload readUploadRecord(Path record) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(record)) {
+            props.load(in);
+        }
+        Map<String, String> metadata = new HashMap<>();
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith("meta.")) {
+                metadata.put(name.substring(5), props.getProperty(name));
+            }
+        }
+        ObjectAttributes attributes = new ObjectAttributes(props.getProperty("contentType"), metadata,
+                props.getProperty("contentEncoding"));
+        if (props.getProperty("checksumAlgorithm") != null) {
+            attributes.setChecksumAlgorithm(ChecksumAlgorithm.fromValue(props.getProperty("checksumAlgorithm")));
+        }
+        return new Upload(props.getProperty("bucket"), props.getProperty("key"), attributes,
+                Instant.ofEpochMilli(Long.parseLong(props.getProperty("initiated"))));
+    }
+
+    private Path bucketDir(String bucket) {
+        if (bucket.isEmpty() || bucket.startsWith(".") || bucket.contains("/") || bucket.contains("\\")) {
+            throw new IllegalArgumentException("Invalid bucket name: " + bucket);
+        }
+        return root.resolve(bucket);
+    }
+
+    private Path objectPath(String bucket, String key) {
+        Path dir = bucketDir(bucket);
+        Path path = dir.resolve(key).normalize();
+        if (!path.startsWith(dir) || path.equals(dir)) {
+            throw new IllegalArgumentException("Invalid key: " + key);
+        }
+        return path;
+    }
+
+    private Path metaPath(String bucket, String key) {
+        return root.resolve(META_DIR).resolve(bucket).resolve(DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)) + ".properties");
+    }
+
+    private Path blobPath(String blobId) {
+        return root.resolve(BLOB_DIR).resolve(blobId.substring(0, 2)).resolve(blobId);
+    }
+
+    private Path partPath(String uploadId, int partNumber) {
+        return root.resolve(UPLOAD_DIR).resolve(uploadId).resolve(Integer.toString(partNumber));
+    }
+
+    private Path tmpFile() {
+        return root.resolve(TMP_DIR).resolve(UUID.randomUUID().toString());
+    }
+
+    private Upload upload(String uploadId) {
+        Upload upload = uploads.get(uploadId);
+        if (upload == null) {
+            throw new IllegalStateException("No such upload: " + uploadId);
+        }
+        return upload;
+    }
+
+    private Object keyLock(String bucket, String key) {
+        return keyLocks[Math.floorMod((bucket + "/" + key).hashCode(), LOCK_STRIPES)];
+    }
+
+    private Object blobLock(String blobId) {
+        return blobLocks[Math.floorMod(blobId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static int linkCount(Path file) throws IOException {
+        return (Integer) Files.getAttribute(file, "unix:nlink");
+    }
+
+    private static void transfer(FileChannel in, long position, long length, FileChannel out) throws IOException {
+        long done = 0;
+        while (done < length) {
+            long n = in.transferTo(position + done, length - done, out);
+            if (n <= 0) {
+                throw new IOException("Unexpected end of file after " + done + " of " + length + " bytes");
+            }
+            done += n;
+        }
+    }
+
+    private static byte[] md5(FileChannel in, long position, long length) throws IOException {
+        MessageDigest md5 = md5();
+        for (long done = 0; done < length; ) {
+            long window = Math.min(MAP_WINDOW, length - done);
+            md5.update(in.map(FileChannel.MapMode.READ_ONLY, position + done, window));
+            done += window;
+        }
+        return md5.digest();
+    }
+
+    private static String checksum(ChecksumAlgorithm algorithm, FileChannel in, long position, long length)
+            throws IOException {
+        Checksums.Digest digest = Checksums.digest(algorithm);
+        for (long done = 0; done < length; ) {
+            long window = Math.min(MAP_WINDOW, length - done);
+            digest.update(in.map(FileChannel.MapMode.READ_ONLY, position + done, window));
+            done += window;
+        }
+        return digest.finish();
+    }
+
+    private static void checkBody(String what, ChecksumAlgorithm algorithm, String expected, String actual) {
+        if (expected != null && !expected.equals(actual)) {
+            throw new ChecksumMismatchException("The " + algorithm + " checksum of " + what + " is " + actual
+                    + ", not " + expected + " as sent");
+        }
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private static Instant now() {
+        return Instant.ofEpochMilli(System.currentTimeMillis());
+    }
+
+    /**
+     * In-memory record of a stored object; the body stays on disk.
+     */
+    @lombok.Value
+    public static class StoredObject {
+        String key;
+        long size;
+        String eTag;
+        Instant lastModified;
+        String blobId;
+        String contentType;
+        Map<String, String> metadata;
+        String contentEncoding;
+        /** Null if the object has no checksum. */
+        ChecksumAlgorithm checksumAlgorithm;
+        String checksum;
+
+        public boolean isFolderMarker() {
+            return key.endsWith("/");
+        }
+
+        public ObjectAttributes attributes() {
+            return new ObjectAttributes(contentType, new HashMap<>(metadata), contentEncoding);
+        }
+    }
+
+    /**
+     * An uploaded part's quoted ETag and its checksum.
+     */
+    @lombok.Value
+    public static class StoredPart {
+        String eTag;
+        /** Null if the part's upload has no checksum. */
+        ChecksumAlgorithm checksumAlgorithm;
+        String checksum;
+    }
+
+    /**
+     * An object record paired with an open read channel on its body.
+     */
+    public static class OpenObject implements Closeable {
+        @Getter
+        private final StoredObject object;
+        private final FileChannel channel;
+
+        OpenObject(StoredObject object, FileChannel channel) {
+            this.object = object;
+            this.channel = channel;
+        }
+
+        /**
+         * Stream over {@code [start, start + length)} using positional channel
+         * reads; closing the stream closes the channel.
+         */
+        public InputStream stream(long start, long length) {
+            return new ChannelRangeInputStream(channel, start, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    private static class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+    }
+
+    /** Feeds every byte read through a checksum on its way to the reader; null passes them through. */
+    private static class ChecksumInputStream extends FilterInputStream {
+        private final Checksums.Digest checksum;
+
+        ChecksumInputStream(InputStream in, Checksums.Digest checksum) {
+            super(in);
+            this.checksum = checksum;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0 && checksum != null) {
+                checksum.update(b, off, n);
+            }
+            return n;
+        }
+    }
+
+    private static class Upload {
+        final String bucket;
+        final String key;
+        final ObjectAttributes attributes;
+        final Instant initiated;
+        final ConcurrentSkipListMap<Integer, UploadedPart> parts = new ConcurrentSkipListMap<>();
+
+        Upload(String bucket, String key, ObjectAttributes attributes, Instant initiated) {
+            this.bucket = bucket;
+            this.key = key;
+            this.attributes = attributes;
+            this.initiated = initiated;
+        }
+
+        StoredPart put(int partNumber, byte[] digest, String checksum) {
+            UploadedPart part = new UploadedPart(digest, attributes.getChecksumAlgorithm(), checksum);
+            parts.put(partNumber, part);
+            return part.stored();
+        }
+    }
+
+    private static class UploadedPart {
+        final byte[] digest;
+        final ChecksumAlgorithm checksumAlgorithm;
+        final String checksum;
+
+        UploadedPart(byte[] digest, ChecksumAlgorithm checksumAlgorithm, String checksum) {
+            this.digest = digest;
+            this.checksumAlgorithm = checksumAlgorithm;
+            this.checksum = checksum;
+        }
+
+        StoredPart stored() {
+            return new StoredPart("\"" + hex(digest) + "\"", checksumAlgorithm, checksum);
+        }
+    }
+}
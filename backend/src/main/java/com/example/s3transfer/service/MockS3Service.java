@@ -1,18 +1,33 @@
 package com.example.s3transfer.service;
 
+import com.example.s3transfer.dto.MultipartUploadSummary;
+import com.example.s3transfer.dto.ObjectAttributes;
+import com.example.s3transfer.dto.ObjectListing;
+import com.example.s3transfer.dto.PresignedUrl;
+import com.example.s3transfer.service.MockObjectStore.StoredObject;
+import com.example.s3transfer.service.MockObjectStore.StoredPart;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 
-import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,66 +35,127 @@ import java.util.stream.Collectors;
 @Slf4j
 public class MockS3Service implements IS3Service {
 
-    private final ConcurrentHashMap<String, ConcurrentHashMap<String, byte[]>> mockStorage = new ConcurrentHashMap<>();
-    private final Path mockStoragePath = Paths.get("mock-s3-storage");
+    private final MockObjectStore store;
+    private final MultipartSettings multipartSettings;
+    private final MultipartCopier multipartCopier;
+    private final MockUrlSigner urlSigner;
 
-    public MockS3Service() {
-        try {
-            Files.createDirectories(mockStoragePath);
-        } catch (IOException e) {
-            log.error("Failed to create mock storage directory", e);
-        }
+    public MockS3Service(MultipartSettings multipartSettings,
+                         @Qualifier("s3PartExecutor") ExecutorService partExecutor,
+                         MockUrlSigner urlSigner,
+                         @Value("${app.mock.s3.root:mock-s3-storage}") String storageRoot,
+                         @Value("${app.mock.s3.dedup:true}") boolean dedup) {
+        this.multipartSettings = multipartSettings;
+        this.urlSigner = urlSigner;
+        this.multipartCopier = new MultipartCopier(this, partExecutor, multipartSettings);
+        this.store = new MockObjectStore(Paths.get(storageRoot), dedup);
+    }
+
+    /**
+     * The mock has a single namespace, so every credential sees the same buckets.
+     */
+    public IS3Service forCredential(UUID credentialId) {
+        return this;
     }
 
     public List<String> listFiles(String bucket) {
-        return mockStorage.getOrDefault(bucket, new ConcurrentHashMap<>())
-                .keySet().stream().collect(Collectors.toList());
+        return new ArrayList<>(store.objects(bucket).keySet());
     }
 
-    public void uploadFile(String bucket, String key, InputStream inputStream, long contentLength) {
+    public ObjectListing listObjects(String bucket, String prefix, String delimiter, String continuationToken, int maxKeys) {
+        return store.list(bucket, prefix, delimiter, continuationToken, null, maxKeys);
+    }
+
+    public void uploadFile(String bucket, String key, InputStream inputStream, long contentLength,
+                           ObjectAttributes attributes) {
         try {
-            byte[] data = inputStream.readAllBytes();
-            mockStorage.computeIfAbsent(bucket, k -> new ConcurrentHashMap<>()).put(key, data);
-            
-            Path bucketPath = mockStoragePath.resolve(bucket);
-            Files.createDirectories(bucketPath);
-            Files.write(bucketPath.resolve(key), data);
-            
+            store.put(bucket, key, inputStream, attributes);
             log.info("Mock: File uploaded successfully: {}/{}", bucket, key);
+        } catch (ChecksumMismatchException e) {
+            log.error("Mock: Upload rejected: {}/{}: {}", bucket, key, e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Mock: Failed to upload file: {}/{}", bucket, key, e);
             throw new RuntimeException("Failed to upload file: " + e.getMessage());
         }
     }
 
-    public ResponseInputStream<GetObjectResponse> downloadFile(String bucket, String key) {
+    public ResponseInputStream<GetObjectResponse> downloadFile(String bucket, String key, String range,
+                                                               String ifNoneMatch, Instant ifModifiedSince) {
+        MockObjectStore.OpenObject opened = null;
         try {
-            byte[] data = mockStorage.getOrDefault(bucket, new ConcurrentHashMap<>()).get(key);
-            if (data == null) {
+            opened = store.open(bucket, key);
+            if (opened == null) {
                 throw new RuntimeException("File not found: " + key);
             }
-            
+            StoredObject object = opened.getObject();
+            if (MockObjectStore.notModified(object, ifNoneMatch, ifModifiedSince)) {
+                throw new ObjectNotModifiedException("Not modified: " + bucket + "/" + key);
+            }
+
+            long length = object.getSize();
+            long start = 0;
+            long end = length - 1;
+            String contentRange = null;
+            long[] bounds = range != null ? MockObjectStore.resolveRange(range, length) : null;
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                contentRange = "bytes " + start + "-" + end + "/" + length;
+            }
+
             GetObjectResponse response = GetObjectResponse.builder()
-                    .contentLength((long) data.length)
+                    .contentLength(end - start + 1)
+                    .contentRange(contentRange)
+                    .eTag(object.getETag())
+                    .lastModified(object.getLastModified())
+                    .contentType(object.getContentType())
+                    .contentEncoding(object.getContentEncoding())
+                    .metadata(object.getMetadata())
+                    .acceptRanges("bytes")
                     .build();
-            
-            AbortableInputStream abortableStream = AbortableInputStream.create(new ByteArrayInputStream(data));
+
+            AbortableInputStream abortableStream = AbortableInputStream.create(opened.stream(start, end - start + 1));
             return new ResponseInputStream<>(response, abortableStream);
+        } catch (ObjectNotModifiedException | InvalidRangeException e) {
+            closeQuietly(opened);
+            throw e;
         } catch (Exception e) {
+            closeQuietly(opened);
             log.error("Mock: Failed to download file: {}/{}", bucket, key, e);
             throw new RuntimeException("Failed to download file: " + e.getMessage());
         }
     }
 
-    public void copyFile(String sourceBucket, String destinationBucket, String key) {
+    public long copyFile(String sourceBucket, String destinationBucket, String key, TransferProgressListener progress,
+                         TransferCheckpoint checkpoint, ChecksumAlgorithm checksumAlgorithm) {
         try {
-            byte[] data = mockStorage.getOrDefault(sourceBucket, new ConcurrentHashMap<>()).get(key);
-            if (data == null) {
+            StoredObject source = store.get(sourceBucket, key);
+            if (source == null) {
                 throw new RuntimeException("Source file not found: " + key);
             }
-            
-            mockStorage.computeIfAbsent(destinationBucket, k -> new ConcurrentHashMap<>()).put(key, data);
+            progress.started(source.getSize());
+
+            // with dedup a copy is just a link, so there's nothing to gain from multipart
+            if (!store.isDedup() && source.getSize() > multipartSettings.getCopyThreshold().toBytes()) {
+                multipartCopier.copy(sourceBucket, destinationBucket, key, headObject(sourceBucket, key), progress,
+                        checkpoint, checksumAlgorithm);
+            } else {
+                StoredObject copied = store.copy(sourceBucket, key, destinationBucket, key, checksumAlgorithm);
+                progress.transferred(source.getSize());
+                if (checksumAlgorithm != null) {
+                    String expected = checksumAlgorithm == source.getChecksumAlgorithm() ? source.getChecksum() : null;
+                    Checksums.check(destinationBucket, key, checksumAlgorithm,
+                            Checksums.isComposite(expected) ? null : expected, copied.getChecksum());
+                    progress.verified(checksumAlgorithm, copied.getChecksum());
+                }
+            }
             log.info("Mock: File copied successfully: {}/{} -> {}/{}", sourceBucket, key, destinationBucket, key);
+            return source.getSize();
+        } catch (ChecksumMismatchException e) {
+            log.error("Mock: Copy failed verification: {}/{} -> {}/{}: {}", sourceBucket, key, destinationBucket, key,
+                    e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Mock: Failed to copy file: {}/{} -> {}/{}", sourceBucket, key, destinationBucket, key, e);
             throw new RuntimeException("Failed to copy file: " + e.getMessage());
@@ -91,7 +167,134 @@ public class MockS3Service implements IS3Service {
     }
 
     public void createBucket(String bucket) {
-        mockStorage.computeIfAbsent(bucket, k -> new ConcurrentHashMap<>());
+        store.createBucket(bucket);
         log.info("Mock: Bucket created successfully: {}", bucket);
     }
-}
\ No newline at end of file
+
+    public void deleteObject(String bucket, String key) {
+        try {
+            store.delete(bucket, key);
+            log.info("Mock: Object deleted: {}/{}", bucket, key);
+        } catch (IOException e) {
+            log.error("Mock: Failed to delete object: {}/{}", bucket, key, e);
+            throw new RuntimeException("Failed to delete object: " + e.getMessage());
+        }
+    }
+
+    public HeadObjectResponse headObject(String bucket, String key) {
+        StoredObject object = store.get(bucket, key);
+        if (object == null) {
+            throw new RuntimeException("File not found: " + key);
+        }
+        HeadObjectResponse.Builder head = HeadObjectResponse.builder()
+                .contentLength(object.getSize())
+                .eTag(object.getETag())
+                .lastModified(object.getLastModified())
+                .contentType(object.getContentType())
+                .contentEncoding(object.getContentEncoding())
+                .metadata(object.getMetadata());
+        if (object.getChecksumAlgorithm() == ChecksumAlgorithm.CRC32_C) {
+            head.checksumCRC32C(object.getChecksum());
+        } else if (object.getChecksumAlgorithm() == ChecksumAlgorithm.SHA256) {
+            head.checksumSHA256(object.getChecksum());
+        }
+        return head.build();
+    }
+
+    public String createMultipartUpload(String bucket, String key, ObjectAttributes attributes) {
+        try {
+            String uploadId = store.createUpload(bucket, key, attributes);
+            log.info("Mock: Multipart upload created: {}/{} ({})", bucket, key, uploadId);
+            return uploadId;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create multipart upload: " + e.getMessage());
+        }
+    }
+
+    public CompletedPart uploadPart(String bucket, String key, String uploadId, int partNumber,
+                                    InputStream inputStream, long contentLength, ChecksumAlgorithm checksumAlgorithm,
+                                    String checksum) {
+        try {
+            StoredPart part = store.writePart(uploadId, partNumber, inputStream, contentLength, checksum);
+            return completed(partNumber, part);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to upload part " + partNumber + ": " + e.getMessage());
+        }
+    }
+
+    public CompletedPart uploadPartCopy(String sourceBucket, String sourceKey, String bucket, String key,
+                                        String uploadId, int partNumber, long firstByte, long lastByte) {
+        try {
+            StoredPart part = store.copyPart(uploadId, partNumber, sourceBucket, sourceKey, firstByte, lastByte);
+            return completed(partNumber, part);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to copy part " + partNumber + ": " + e.getMessage());
+        }
+    }
+
+    public void completeMultipartUpload(String bucket, String key, String uploadId, List<CompletedPart> parts) {
+        try {
+            store.completeUpload(uploadId, parts.stream().map(CompletedPart::partNumber).collect(Collectors.toList()));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to complete multipart upload: " + e.getMessage());
+        }
+        log.info("Mock: Multipart upload completed: {}/{} ({} parts)", bucket, key, parts.size());
+    }
+
+    public void abortMultipartUpload(String bucket, String key, String uploadId) {
+        try {
+            store.abortUpload(uploadId);
+        } catch (IOException e) {
+            log.warn("Mock: Failed to clean up aborted upload {}", uploadId, e);
+        }
+        log.info("Mock: Multipart upload aborted: {}/{} ({})", bucket, key, uploadId);
+    }
+
+    public List<CompletedPart> listParts(String bucket, String key, String uploadId) {
+        try {
+            return store.listParts(uploadId).entrySet().stream()
+                    .map(e -> completed(e.getKey(), e.getValue()))
+                    .collect(Collectors.toList());
+        } catch (IllegalStateException e) {
+            throw new UploadNotFoundException("Multipart upload not found: " + uploadId);
+        }
+    }
+
+    public List<MultipartUploadSummary> listMultipartUploads(String bucket) {
+        return store.listUploads(bucket);
+    }
+
+    /**
+     * Presigned requests are served by this server's {@value MockUrlSigner#PATH}
+     * endpoint, which checks the signature and then calls this service.
+     */
+    public PresignedUrl presignDownload(String bucket, String key, Duration expiresIn) {
+        return urlSigner.sign("GET", bucket, key, null, null, null, expiresIn);
+    }
+
+    public PresignedUrl presignUpload(String bucket, String key, String contentType, Duration expiresIn) {
+        return urlSigner.sign("PUT", bucket, key, null, null, contentType, expiresIn);
+    }
+
+    public PresignedUrl presignUploadPart(String bucket, String key, String uploadId, int partNumber,
+                                          Duration expiresIn) {
+        return urlSigner.sign("PUT", bucket, key, uploadId, partNumber, null, expiresIn);
+    }
+
+    private static CompletedPart completed(int partNumber, StoredPart part) {
+        return Checksums.withChecksum(CompletedPart.builder(), part.getChecksumAlgorithm(), part.getChecksum())
+                .partNumber(partNumber)
+                .eTag(part.getETag())
+                .build();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // nothing useful to do
+            }
+        }
+    }
+}
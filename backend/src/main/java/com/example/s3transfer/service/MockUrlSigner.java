@@ -0,0 +1,119 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.PresignedUrl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * The mock's stand-in for S3 presigning: URLs to this server's own
+ * {@value #PATH} endpoint, carrying an expiry and an HMAC-SHA256 of everything
+ * the request may do, so they can be handed out, tampered with and expired just
+ * like real ones while working offline.
+ */
+@Component
+@Profile("mock")
+public class MockUrlSigner {
+
+    public static final String PATH = "/api/mock-s3/presigned";
+
+    private final byte[] secret;
+    private final String baseUrl;
+
+    /**
+     * @param secret  signing key; a random one per start if empty, which
+     *                invalidates outstanding URLs on restart
+     * @param baseUrl where clients reach this server
+     */
+    public MockUrlSigner(@Value("${app.mock.s3.presign.secret:}") String secret,
+                         @Value("${app.mock.s3.presign.base-url:http://localhost:${server.port:8080}}") String baseUrl) {
+        if (secret.isEmpty()) {
+            this.secret = new byte[32];
+            new SecureRandom().nextBytes(this.secret);
+        } else {
+            this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    /**
+     * @param uploadId    null unless signing a part
+     * @param partNumber  null unless signing a part
+     * @param contentType null if the request may carry any
+     */
+    public PresignedUrl sign(String method, String bucket, String key, String uploadId, Integer partNumber,
+                             String contentType, Duration expiresIn) {
+        Instant expiresAt = Instant.now().plus(expiresIn);
+        long expires = expiresAt.getEpochSecond();
+        StringBuilder url = new StringBuilder(baseUrl).append(PATH)
+                .append("?bucket=").append(encode(bucket))
+                .append("&key=").append(encode(key));
+        if (uploadId != null) {
+            url.append("&uploadId=").append(encode(uploadId))
+                    .append("&partNumber=").append(partNumber);
+        }
+        if (contentType != null) {
+            url.append("&contentType=").append(encode(contentType));
+        }
+        url.append("&expires=").append(expires)
+                .append("&signature=").append(signature(method, bucket, key, uploadId, partNumber, contentType, expires));
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+        return new PresignedUrl(method, url.toString(), headers, Instant.ofEpochSecond(expires), partNumber);
+    }
+
+    /**
+     * Whether {@code signature} was issued by {@link #sign} for exactly these
+     * parameters; expiry, and that the request's {@code Content-Type} is the
+     * signed one, are checked separately.
+     */
+    public boolean verify(String method, String bucket, String key, String uploadId, Integer partNumber,
+                          String contentType, long expires, String signature) {
+        if (signature == null) {
+            return false;
+        }
+        byte[] expected = signature(method, bucket, key, uploadId, partNumber, contentType, expires)
+                .getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String signature(String method, String bucket, String key, String uploadId, Integer partNumber,
+                             String contentType, long expires) {
+        StringJoiner signed = new StringJoiner("\n")
+                .add(method)
+                .add(bucket)
+                .add(key)
+                .add(uploadId != null ? uploadId : "")
+                .add(partNumber != null ? partNumber.toString() : "")
+                .add(contentType != null ? contentType : "")
+                .add(Long.toString(expires));
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            byte[] digest = mac.doFinal(signed.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.ObjectAttributes;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-side copy of a large object as a multipart upload whose parts are
+ * copied in parallel with {@code UploadPartCopy}. Works against any
+ * {@link IS3Service} so the mock exercises the same code path.
+ *
+ * <p>With a durable {@link TransferCheckpoint} every finished part is recorded,
+ * a failed upload is left in place, and the next attempt continues it: parts
+ * the checkpoint and the upload's own part list agree on are not copied again.
+ *
+ * <p>With a checksum algorithm every part is stored with its checksum, and the
+ * completed object's composite checksum is checked against the parts'.
+ */
+@Slf4j
+public class MultipartCopier {
+
+    /** Where the upload is created, and for server-side copies also who reads the source. */
+    protected final IS3Service s3;
+    protected final ExecutorService partExecutor;
+    private final MultipartSettings settings;
+
+    public MultipartCopier(IS3Service s3, ExecutorService partExecutor, MultipartSettings settings) {
+        this.s3 = s3;
+        this.partExecutor = partExecutor;
+        this.settings = settings;
+    }
+
+    public void copy(String sourceBucket, String destinationBucket, String key, HeadObjectResponse source,
+                     TransferProgressListener progress) {
+        copy(sourceBucket, destinationBucket, key, source, progress, TransferCheckpoint.NONE);
+    }
+
+    public void copy(String sourceBucket, String destinationBucket, String key, HeadObjectResponse source,
+                     TransferProgressListener progress, TransferCheckpoint checkpoint) {
+        copy(sourceBucket, destinationBucket, key, source, progress, checkpoint, null);
+    }
+
+    /**
+     * @param checksumAlgorithm null for no checksum
+     * @throws ChecksumMismatchException if the stored object's checksum doesn't match its parts'
+     */
+    public void copy(String sourceBucket, String destinationBucket, String key, HeadObjectResponse source,
+                     TransferProgressListener progress, TransferCheckpoint checkpoint,
+                     ChecksumAlgorithm checksumAlgorithm) {
+        long size = source.contentLength();
+        long partSize = partSizeFor(size);
+        ObjectAttributes attributes = attributesFor(source);
+        attributes.setChecksumAlgorithm(checksumAlgorithm);
+
+        Map<Integer, TransferCheckpoint.Part> done = new HashMap<>();
+        Map<Integer, CompletedPart> uploaded = new HashMap<>();
+        String uploadId = resume(destinationBucket, key, source.eTag(), checkpoint, done, uploaded);
+        if (uploadId == null) {
+            uploadId = s3.createMultipartUpload(destinationBucket, key, attributes);
+            checkpoint.started(uploadId, source.eTag());
+            log.info("Multipart copy started: {}/{} -> {}/{} ({} bytes, part size {}, upload {})",
+                    sourceBucket, key, destinationBucket, key, size, partSize, uploadId);
+        } else {
+            log.info("Multipart copy resumed: {}/{} -> {}/{} ({} bytes, {} parts already copied, upload {})",
+                    sourceBucket, key, destinationBucket, key, size, done.size(), uploadId);
+        }
+        String upload = uploadId;
+
+        Semaphore inFlight = new Semaphore(Math.max(1, concurrency()));
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<CompletedPart>> futures = new ArrayList<>();
+        List<CompletedPart> parts = new ArrayList<>();
+        try {
+            int partNumber = 1;
+            for (long first = 0; first < size; first += partSize, partNumber++) {
+                long last = Math.min(first + partSize, size) - 1;
+                int number = partNumber;
+                long firstByte = first;
+                TransferCheckpoint.Part copied = done.get(number);
+                if (copied != null && copied.getFirstByte() == firstByte && copied.getLastByte() == last) {
+                    progress.transferred(last - firstByte + 1);
+                    // as listed by the upload, so it carries the part's checksum
+                    futures.add(CompletableFuture.completedFuture(uploaded.get(number)));
+                    continue;
+                }
+                inFlight.acquire();
+                CompletableFuture<CompletedPart> part;
+                try {
+                    part = copyPart(sourceBucket, destinationBucket, key, source, upload, number, firstByte, last,
+                            checksumAlgorithm).thenApply(result -> {
+                                checkpoint.partCompleted(upload, result, firstByte, last);
+                                return result;
+                            });
+                } catch (InterruptedException | RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                part.whenComplete((r, e) -> {
+                    inFlight.release();
+                    if (e != null) {
+                        failed.set(true);
+                    } else {
+                        progress.transferred(last - firstByte + 1);
+                    }
+                });
+                futures.add(part);
+                if (failed.get()) {
+                    break;
+                }
+            }
+
+            for (Future<CompletedPart> f : futures) {
+                parts.add(f.get());
+            }
+            parts.sort(Comparator.comparing(CompletedPart::partNumber));
+            s3.completeMultipartUpload(destinationBucket, key, upload, parts);
+            checkpoint.finished();
+            log.info("Multipart copy completed: {}/{} ({} parts)", destinationBucket, key, parts.size());
+        } catch (Exception e) {
+            futures.forEach(f -> f.cancel(true));
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            boolean denied = cause instanceof ServerSideCopyDeniedException
+                    || isServerSide() && ServerSideCopyDeniedException.isDenial(cause);
+            if (checkpoint.isDurable() && !denied) {
+                log.info("Multipart upload kept for resume: {}/{} ({})", destinationBucket, key, upload);
+            } else {
+                // a denied copy won't succeed on retry either; the caller relays the object instead
+                abortQuietly(destinationBucket, key, upload);
+                checkpoint.finished();
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (cause instanceof ServerSideCopyDeniedException) {
+                throw (ServerSideCopyDeniedException) cause;
+            }
+            if (denied) {
+                throw new ServerSideCopyDeniedException("Multipart copy " + sourceBucket + " -> " + destinationBucket
+                        + " refused: " + cause.getMessage());
+            }
+            throw new RuntimeException("Multipart copy failed: " + cause.getMessage(), cause);
+        }
+        if (checksumAlgorithm != null) {
+            progress.verified(checksumAlgorithm, verify(destinationBucket, key, checksumAlgorithm, parts));
+        }
+    }
+
+    /**
+     * Checks the completed object's checksum against the composite of its parts'.
+     *
+     * @return the stored checksum
+     */
+    private String verify(String bucket, String key, ChecksumAlgorithm algorithm, List<CompletedPart> parts) {
+        List<String> checksums = new ArrayList<>(parts.size());
+        for (CompletedPart part : parts) {
+            String checksum = Checksums.of(part, algorithm);
+            if (checksum == null) {
+                throw new ChecksumMismatchException("Part " + part.partNumber() + " of " + bucket + "/" + key
+                        + " has no " + algorithm + " checksum");
+            }
+            checksums.add(checksum);
+        }
+        String stored = Checksums.verify(s3, bucket, key, algorithm, Checksums.composite(algorithm, checksums));
+        log.info("Multipart copy verified: {}/{} ({} {})", bucket, key, algorithm, stored);
+        return stored;
+    }
+
+    /**
+     * Starts copying one byte range of the source into a part of the upload.
+     * May block the calling loop to hold back further parts.
+     *
+     * @param checksumAlgorithm the upload's checksum; the returned part must carry it
+     */
+    protected CompletableFuture<CompletedPart> copyPart(String sourceBucket, String destinationBucket, String key,
+                                                        HeadObjectResponse source, String uploadId, int partNumber,
+                                                        long firstByte, long lastByte,
+                                                        ChecksumAlgorithm checksumAlgorithm)
+            throws InterruptedException {
+        return CompletableFuture.supplyAsync(() -> s3.uploadPartCopy(sourceBucket, key, destinationBucket, key,
+                uploadId, partNumber, firstByte, lastByte), partExecutor);
+    }
+
+    /** Whether S3 copies the parts itself, so a 403 or 301 means it can't and a relay could. */
+    protected boolean isServerSide() {
+        return true;
+    }
+
+    /** Content type and metadata the copy is created with. */
+    protected ObjectAttributes attributesFor(HeadObjectResponse source) {
+        return new ObjectAttributes(source.contentType(), source.metadata(), source.contentEncoding());
+    }
+
+    protected long partSizeFor(long objectSize) {
+        return settings.partSizeFor(objectSize);
+    }
+
+    /** Parts copied at the same time for one object. */
+    protected int concurrency() {
+        return settings.getConcurrency();
+    }
+
+    /**
+     * Looks up the checkpointed upload and fills {@code done} with the parts both
+     * the checkpoint and the upload itself have, matched by ETag, and
+     * {@code uploaded} with the same parts as the upload lists them.
+     *
+     * @return the upload to continue, or null to start over
+     */
+    private String resume(String bucket, String key, String sourceEtag, TransferCheckpoint checkpoint,
+                          Map<Integer, TransferCheckpoint.Part> done, Map<Integer, CompletedPart> uploaded) {
+        TransferCheckpoint.Resume resume = checkpoint.resume();
+        if (resume == null) {
+            return null;
+        }
+        if (!Objects.equals(sourceEtag, resume.getSourceEtag())) {
+            log.info("Source {} changed since upload {} started, starting over", key, resume.getUploadId());
+            abortQuietly(bucket, key, resume.getUploadId());
+            checkpoint.finished();
+            return null;
+        }
+        List<CompletedPart> listed;
+        try {
+            listed = s3.listParts(bucket, key, resume.getUploadId());
+        } catch (UploadNotFoundException e) {
+            log.info("Checkpointed upload {} for {}/{} is gone, starting over", resume.getUploadId(), bucket, key);
+            checkpoint.finished();
+            return null;
+        }
+        for (CompletedPart part : listed) {
+            TransferCheckpoint.Part saved = resume.getParts().get(part.partNumber());
+            if (saved != null && saved.getETag().equals(part.eTag())) {
+                done.put(part.partNumber(), saved);
+                uploaded.put(part.partNumber(), part);
+            }
+        }
+        return resume.getUploadId();
+    }
+
+    private void abortQuietly(String bucket, String key, String uploadId) {
+        try {
+            s3.abortMultipartUpload(bucket, key, uploadId);
+            log.info("Multipart upload aborted: {}/{} ({})", bucket, key, uploadId);
+        } catch (Exception e) {
+            log.warn("Failed to abort multipart upload {}/{} ({})", bucket, key, uploadId, e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.s3transfer.service;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Shared multipart tuning used by the copy and upload paths.
+ */
+@Component
+@Getter
+public class MultipartSettings {
+
+    /** S3 rejects multipart uploads with more parts than this. */
+    public static final int MAX_PARTS = 10_000;
+
+    /** Smallest part S3 accepts, except for the last one. */
+    public static final long MIN_PART_SIZE = DataSize.ofMegabytes(5).toBytes();
+
+    private final DataSize copyThreshold;
+    private final DataSize partSize;
+    private final int concurrency;
+
+    public MultipartSettings(@Value("${app.s3.multipart.copy-threshold:128MB}") DataSize copyThreshold,
+                             @Value("${app.s3.multipart.part-size:64MB}") DataSize partSize,
+                             @Value("${app.s3.multipart.concurrency:8}") int concurrency) {
+        this.copyThreshold = copyThreshold;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Part size for an object of the given length, grown if needed so the
+     * upload stays within {@link #MAX_PARTS}.
+     */
+    public long partSizeFor(long objectSize) {
+        long size = Math.max(partSize.toBytes(), MIN_PART_SIZE);
+        long minForLimit = (objectSize + MAX_PARTS - 1) / MAX_PARTS;
+        return Math.max(size, minForLimit);
+    }
+}
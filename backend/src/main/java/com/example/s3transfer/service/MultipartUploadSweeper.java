@@ -0,0 +1,118 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.MultipartUploadSummary;
+import com.example.s3transfer.repository.TransferJobRepository;
+import com.example.s3transfer.repository.TransferPartCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aborts multipart uploads nobody is going to finish: older than the TTL and
+ * not held by a queued or running transfer. Failed transfers keep their upload
+ * for a resume until then; uploads left by crashed streaming uploads are only
+ * ever cleaned up here.
+ */
+@Component
+@Slf4j
+public class MultipartUploadSweeper {
+
+    private final IS3Service s3Service;
+    private final TransferJobRepository jobRepo;
+    private final TransferPartCheckpointRepository checkpointRepo;
+
+    @Value("${app.transfer.resume.upload-ttl-ms:86400000}")
+    private long uploadTtlMs;
+
+    @Value("${app.transfer.resume.sweep-interval-ms:3600000}")
+    private long sweepIntervalMs;
+
+    /** Buckets swept besides transfer destinations, e.g. streaming upload targets. */
+    @Value("${app.transfer.resume.sweep-buckets:}")
+    private List<String> extraBuckets;
+
+    private ScheduledExecutorService scheduler;
+
+    public MultipartUploadSweeper(IS3Service s3Service, TransferJobRepository jobRepo,
+                                  TransferPartCheckpointRepository checkpointRepo) {
+        this.s3Service = s3Service;
+        this.jobRepo = jobRepo;
+        this.checkpointRepo = checkpointRepo;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (sweepIntervalMs <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("upload-sweeper-"));
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (Exception e) {
+            log.warn("Multipart upload sweep failed", e);
+        }
+    }
+
+    /**
+     * @return the number of uploads aborted
+     */
+    public int sweep() {
+        Instant cutoff = Instant.now().minusMillis(uploadTtlMs);
+        Set<String> active = new HashSet<>(jobRepo.findActiveUploadIds());
+        Set<String> buckets = new LinkedHashSet<>(jobRepo.findDestinationBuckets());
+        extraBuckets.stream().filter(b -> !b.isBlank()).forEach(buckets::add);
+
+        int aborted = 0;
+        for (String bucket : buckets) {
+            List<MultipartUploadSummary> uploads;
+            try {
+                uploads = s3Service.listMultipartUploads(bucket);
+            } catch (Exception e) {
+                log.warn("Could not list multipart uploads in {}: {}", bucket, e.getMessage());
+                continue;
+            }
+            for (MultipartUploadSummary upload : uploads) {
+                if (active.contains(upload.getUploadId())
+                        || upload.getInitiated() == null || !upload.getInitiated().isBefore(cutoff)) {
+                    continue;
+                }
+                try {
+                    s3Service.abortMultipartUpload(bucket, upload.getKey(), upload.getUploadId());
+                } catch (Exception e) {
+                    log.warn("Could not abort multipart upload {}/{} ({}): {}", bucket, upload.getKey(),
+                            upload.getUploadId(), e.getMessage());
+                    continue;
+                }
+                checkpointRepo.deleteByUpload(upload.getUploadId());
+                jobRepo.clearUpload(upload.getUploadId());
+                aborted++;
+                log.info("Aborted orphaned multipart upload {}/{} ({}, initiated {})", bucket, upload.getKey(),
+                        upload.getUploadId(), upload.getInitiated());
+            }
+        }
+        return aborted;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.S3ObjectSummary;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming merge of a source and a destination listing, both in
+ * {@link ObjectListingIterator#KEY_ORDER}, into one entry per key. Only the
+ * next object of each side is held, so buckets of any size diff in constant
+ * memory, a page of each listing at a time.
+ *
+ * <p>A destination object is current if its size matches and either its ETag
+ * does or it was written after the source was last modified; a multipart copy,
+ * whose ETag never matches the source's, is still current.
+ */
+public class ObjectDiff implements Iterator<ObjectDiff.Entry> {
+
+    public enum Change {
+        /** Only in the source. */
+        NEW,
+        /** In both, destination out of date. */
+        CHANGED,
+        /** In both, destination current. */
+        UNCHANGED,
+        /** Only in the destination. */
+        EXTRA
+    }
+
+    @lombok.Value
+    public static class Entry {
+        Change change;
+        /** The source object, or the destination's for {@link Change#EXTRA}. */
+        S3ObjectSummary object;
+    }
+
+    private final Iterator<S3ObjectSummary> source;
+    private final Iterator<S3ObjectSummary> destination;
+    private S3ObjectSummary nextSource;
+    private S3ObjectSummary nextDestination;
+    private String lastSourceKey;
+    private String lastDestinationKey;
+
+    public ObjectDiff(Iterator<S3ObjectSummary> source, Iterator<S3ObjectSummary> destination) {
+        this.source = source;
+        this.destination = destination;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextSource == null && source.hasNext()) {
+            nextSource = source.next();
+            lastSourceKey = checkOrder("Source", lastSourceKey, nextSource.getKey());
+        }
+        if (nextDestination == null && destination.hasNext()) {
+            nextDestination = destination.next();
+            lastDestinationKey = checkOrder("Destination", lastDestinationKey, nextDestination.getKey());
+        }
+        return nextSource != null || nextDestination != null;
+    }
+
+    @Override
+    public Entry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int order = nextSource == null ? 1
+                : nextDestination == null ? -1
+                : ObjectListingIterator.KEY_ORDER.compare(nextSource.getKey(), nextDestination.getKey());
+        Entry entry;
+        if (order < 0) {
+            entry = new Entry(Change.NEW, nextSource);
+            nextSource = null;
+        } else if (order > 0) {
+            entry = new Entry(Change.EXTRA, nextDestination);
+            nextDestination = null;
+        } else {
+            entry = new Entry(current(nextSource, nextDestination) ? Change.UNCHANGED : Change.CHANGED, nextSource);
+            nextSource = null;
+            nextDestination = null;
+        }
+        return entry;
+    }
+
+    static boolean current(S3ObjectSummary source, S3ObjectSummary destination) {
+        if (source.getSize() != destination.getSize()) {
+            return false;
+        }
+        if (source.getEtag() != null && source.getEtag().equals(destination.getEtag())) {
+            return true;
+        }
+        return source.getLastModified() != null && destination.getLastModified() != null
+                && !destination.getLastModified().isBefore(source.getLastModified());
+    }
+
+    /**
+     * A listing out of order would pair the wrong keys, and a sync could
+     * delete objects the source still has, so it stops the diff instead.
+     */
+    private static String checkOrder(String side, String previous, String key) {
+        if (previous != null && ObjectListingIterator.KEY_ORDER.compare(previous, key) >= 0) {
+            throw new IllegalStateException(side + " listing is not in key order at " + key);
+        }
+        return key;
+    }
+}
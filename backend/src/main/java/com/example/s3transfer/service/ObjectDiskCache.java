@@ -0,0 +1,393 @@
+package com.example.s3transfer.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of small objects' bytes on local disk, so objects that
+ * are downloaded over and over are fetched from S3 once and then read from a
+ * file. Used by {@link DiskCachingS3Service}, which also drops an entry as soon
+ * as the object is written through it.
+ *
+ * <p>Only whole, unconditional GETs of objects up to
+ * {@code app.s3.disk-cache.max-object-size} fill the cache; a hit then serves
+ * any single range and evaluates the client's conditions itself. Once an entry
+ * is {@code app.s3.disk-cache.revalidate-after-ms} old, the next hit asks S3
+ * with {@code If-None-Match} whether it is still current, which costs a request
+ * but no body; a changed object is cached again from that response.
+ *
+ * <p>Entries are bounded by total bytes and evicted by Caffeine's W-TinyLFU,
+ * which weighs recency against frequency, so a burst of one-off downloads
+ * doesn't push out the hot set. The index lives in memory: the directory is
+ * emptied on start. Evicted files are deleted a minute later, so a read that
+ * already has the path still finds it; the directory can exceed the budget by
+ * what was evicted in that minute.
+ *
+ * <p>Reports Micrometer's {@code cache.*} meters, {@code cache.hit.ratio} and
+ * {@code cache.bytes.saved} tagged {@code cache=s3.objects}.
+ */
+@Component
+@Slf4j
+public class ObjectDiskCache {
+
+    static final String CACHE_NAME = "s3.objects";
+    static final String BYTES_SAVED_COUNTER = "cache.bytes.saved";
+
+    private static final String SUFFIX = ".obj";
+    private static final long DELETE_DELAY_MS = 60_000;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${app.s3.disk-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.s3.disk-cache.dir:${java.io.tmpdir}/s3-transfer-object-cache}")
+    private String dir;
+
+    @Value("${app.s3.disk-cache.max-bytes:1GB}")
+    private DataSize maxBytes;
+
+    @Value("${app.s3.disk-cache.max-object-size:8MB}")
+    private DataSize maxObjectSize;
+
+    @Value("${app.s3.disk-cache.revalidate-after-ms:5000}")
+    private long revalidateAfterMs;
+
+    private final ConcurrentStatsCounter stats = new ConcurrentStatsCounter();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+    /** Moves on every invalidation, so a fill that overlapped one knows its bytes may be stale. */
+    private final AtomicLong generation = new AtomicLong();
+    private Path root;
+    private Cache<ObjectKey, CachedObject> cache;
+    private ScheduledExecutorService deleter;
+
+    public ObjectDiskCache(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        root = Paths.get(dir).toAbsolutePath();
+        Files.createDirectories(root);
+        deleteFiles();
+        deleter = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("object-cache-cleaner-"));
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes.toBytes())
+                .weigher((ObjectKey k, CachedObject v) -> (int) Math.min(Integer.MAX_VALUE, v.size))
+                .removalListener((ObjectKey k, CachedObject v, RemovalCause cause) -> {
+                    if (v != null) {
+                        deleteLater(v.path);
+                    }
+                })
+                .recordStats(() -> stats)
+                .build();
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            CachingS3Service.monitor(registry, cache, CACHE_NAME);
+            FunctionCounter.builder(BYTES_SAVED_COUNTER, bytesSaved, AtomicLong::get)
+                    .tag("cache", CACHE_NAME)
+                    .description("Object bytes served from the cache instead of fetched from S3")
+                    .register(registry);
+            Gauge.builder("cache.disk.used", this, c -> c.usedBytes())
+                    .tag("cache", CACHE_NAME)
+                    .baseUnit("bytes")
+                    .description("Bytes of cached objects on disk")
+                    .register(registry);
+        }
+        log.info("Object disk cache at {}: {} total, objects up to {}", root, maxBytes, maxObjectSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (deleter != null) {
+            deleter.shutdownNow();
+            deleteFiles();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * {@link IS3Service#downloadFile} through the cache, fetching with
+     * {@code s3} on a miss; same arguments and exceptions.
+     *
+     * @param credentialId the credential {@code s3} signs with; entries are only
+     *                     served to the credential that filled them
+     */
+    public ResponseInputStream<GetObjectResponse> download(IS3Service s3, UUID credentialId, String bucket,
+                                                           String key, String range, String ifNoneMatch,
+                                                           Instant ifModifiedSince) {
+        ObjectKey k = new ObjectKey(bucket, key);
+        CachedObject cached = cache.asMap().get(k);
+        if (cached != null && Objects.equals(cached.credentialId, credentialId)) {
+            if (System.currentTimeMillis() - cached.validatedAt >= revalidateAfterMs) {
+                cached = revalidate(s3, k, cached);
+            }
+            if (cached != null) {
+                ResponseInputStream<GetObjectResponse> hit;
+                try {
+                    hit = open(k, cached, range, ifNoneMatch, ifModifiedSince);
+                } catch (ObjectNotModifiedException | InvalidRangeException e) {
+                    stats.recordHits(1);
+                    throw e;
+                }
+                if (hit != null) {
+                    stats.recordHits(1);
+                    bytesSaved.addAndGet(hit.response().contentLength());
+                    return hit;
+                }
+            }
+        }
+        stats.recordMisses(1);
+        if (range != null || ifNoneMatch != null || ifModifiedSince != null) {
+            return s3.downloadFile(bucket, key, range, ifNoneMatch, ifModifiedSince);
+        }
+        long fillGeneration = generation.get();
+        ResponseInputStream<GetObjectResponse> in = s3.downloadFile(bucket, key, null, null, null);
+        if (!fits(in.response())) {
+            return in;
+        }
+        ResponseInputStream<GetObjectResponse> filled = open(k, fill(k, credentialId, in, fillGeneration), null, null, null);
+        return filled != null ? filled : s3.downloadFile(bucket, key, null, null, null);
+    }
+
+    /**
+     * The file holding exactly this version of the object, for sending it
+     * without reading it into memory; null if it isn't cached.
+     */
+    public Path file(UUID credentialId, String bucket, String key, String eTag) {
+        if (cache == null) {
+            return null;
+        }
+        CachedObject cached = cache.asMap().get(new ObjectKey(bucket, key));
+        return cached != null && Objects.equals(cached.credentialId, credentialId) && eTag != null
+                && eTag.equals(cached.eTag) ? cached.path : null;
+    }
+
+    /**
+     * Drops the object, whichever credential cached it.
+     */
+    public void invalidate(String bucket, String key) {
+        if (cache != null) {
+            generation.incrementAndGet();
+            cache.invalidate(new ObjectKey(bucket, key));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (cache == null) {
+            return stats;
+        }
+        CacheStats snapshot = this.stats.snapshot();
+        stats.put("entries", cache.estimatedSize());
+        stats.put("usedBytes", usedBytes());
+        stats.put("maxBytes", maxBytes.toBytes());
+        stats.put("maxObjectBytes", maxObjectSize.toBytes());
+        stats.put("hits", snapshot.hitCount());
+        stats.put("misses", snapshot.missCount());
+        stats.put("hitRate", snapshot.hitRate());
+        stats.put("revalidated", revalidated.get());
+        stats.put("evictions", snapshot.evictionCount());
+        stats.put("bytesSaved", bytesSaved.get());
+        return stats;
+    }
+
+    private long usedBytes() {
+        return cache.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    /**
+     * Conditional GET against the cached ETag: the entry if S3 says it is
+     * current, its replacement if the object changed, or null if it couldn't be
+     * kept (gone, grown past the size limit, or the check failed).
+     */
+    private CachedObject revalidate(IS3Service s3, ObjectKey k, CachedObject cached) {
+        long fillGeneration = generation.get();
+        ResponseInputStream<GetObjectResponse> in;
+        try {
+            in = s3.downloadFile(k.bucket, k.key, null, cached.eTag, null);
+        } catch (ObjectNotModifiedException e) {
+            cached.validatedAt = System.currentTimeMillis();
+            revalidated.incrementAndGet();
+            return cached;
+        } catch (RuntimeException e) {
+            cache.asMap().remove(k, cached);
+            return null;
+        }
+        if (!fits(in.response())) {
+            in.abort();
+            cache.asMap().remove(k, cached);
+            return null;
+        }
+        return fill(k, cached.credentialId, in, fillGeneration);
+    }
+
+    private boolean fits(GetObjectResponse response) {
+        return response.contentLength() != null && response.contentLength() <= maxObjectSize.toBytes();
+    }
+
+    /**
+     * Reads the whole body into a new file and caches it. If an invalidation
+     * happened since {@code fillGeneration}, the body may predate the write
+     * that caused it, so the entry is revalidated on its first hit.
+     */
+    private CachedObject fill(ObjectKey k, UUID credentialId, ResponseInputStream<GetObjectResponse> in,
+                              long fillGeneration) {
+        GetObjectResponse response = in.response();
+        Path path = root.resolve(UUID.randomUUID() + SUFFIX);
+        try (in) {
+            long written = Files.copy(in, path);
+            if (written != response.contentLength()) {
+                throw new IOException("read " + written + " of " + response.contentLength() + " bytes");
+            }
+        } catch (IOException e) {
+            delete(path);
+            log.error("Failed to cache {}/{}", k.bucket, k.key, e);
+            throw new RuntimeException("Failed to download file: " + e.getMessage());
+        }
+        CachedObject cached = new CachedObject(credentialId, path, response.contentLength(), response.eTag(),
+                response.lastModified(), response.contentType(), response.contentEncoding(), response.metadata());
+        cached.validatedAt = generation.get() == fillGeneration ? System.currentTimeMillis() : 0;
+        cache.put(k, cached);
+        return cached;
+    }
+
+    /**
+     * The cached bytes as a GET response would carry them.
+     *
+     * @return null if the file is already gone
+     */
+    private ResponseInputStream<GetObjectResponse> open(ObjectKey k, CachedObject cached, String range,
+                                                        String ifNoneMatch, Instant ifModifiedSince) {
+        if (MockObjectStore.notModified(cached.eTag, cached.lastModified, ifNoneMatch, ifModifiedSince)) {
+            throw new ObjectNotModifiedException("Not modified: " + k.bucket + "/" + k.key);
+        }
+        long start = 0;
+        long end = cached.size - 1;
+        String contentRange = null;
+        long[] bounds = range != null ? MockObjectStore.resolveRange(range, cached.size) : null;
+        if (bounds != null) {
+            start = bounds[0];
+            end = bounds[1];
+            contentRange = "bytes " + start + "-" + end + "/" + cached.size;
+        }
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(cached.path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            cache.asMap().remove(k, cached);
+            return null;
+        }
+        GetObjectResponse response = GetObjectResponse.builder()
+                .contentLength(end - start + 1)
+                .contentRange(contentRange)
+                .eTag(cached.eTag)
+                .lastModified(cached.lastModified)
+                .contentType(cached.contentType)
+                .contentEncoding(cached.contentEncoding)
+                .metadata(cached.metadata)
+                .acceptRanges("bytes")
+                .build();
+        return new ResponseInputStream<>(response,
+                AbortableInputStream.create(new ChannelRangeInputStream(channel, start, end - start + 1)));
+    }
+
+    private void deleteLater(Path path) {
+        try {
+            deleter.schedule(() -> delete(path), DELETE_DELAY_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            delete(path);
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete cached object {}: {}", path, e.getMessage());
+        }
+    }
+
+    /** Only files this cache names, in case the directory is shared. */
+    private void deleteFiles() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, "*" + SUFFIX)) {
+            files.forEach(ObjectDiskCache::delete);
+        } catch (IOException e) {
+            log.warn("Failed to clear object cache directory {}: {}", root, e.getMessage());
+        }
+    }
+
+    @lombok.Value
+    private static class ObjectKey {
+        String bucket;
+        String key;
+    }
+
+    private static class CachedObject {
+        final UUID credentialId;
+        final Path path;
+        final long size;
+        final String eTag;
+        final Instant lastModified;
+        final String contentType;
+        final String contentEncoding;
+        final Map<String, String> metadata;
+        /** When S3 last confirmed the bytes are current; 0 forces a check. */
+        volatile long validatedAt;
+
+        CachedObject(UUID credentialId, Path path, long size, String eTag, Instant lastModified,
+                     String contentType, String contentEncoding, Map<String, String> metadata) {
+            this.credentialId = credentialId;
+            this.path = path;
+            this.size = size;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+            this.metadata = metadata;
+        }
+    }
+}
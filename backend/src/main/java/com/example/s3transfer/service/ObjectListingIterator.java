@@ -0,0 +1,71 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.ObjectListing;
+import com.example.s3transfer.dto.S3ObjectSummary;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks every object under a prefix, fetching the next page only when the
+ * current one has been consumed.
+ */
+public class ObjectListingIterator implements Iterator<S3ObjectSummary> {
+
+    /**
+     * The order S3 lists keys in: by their UTF-8 bytes, which is code point
+     * order. {@link String#compareTo} differs for keys with characters outside
+     * the BMP.
+     */
+    public static final Comparator<String> KEY_ORDER = (a, b) -> {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    };
+
+    private final IS3Service s3;
+    private final String bucket;
+    private final String prefix;
+    private final int pageSize;
+
+    private Iterator<S3ObjectSummary> page = Collections.emptyIterator();
+    private String continuationToken;
+    private boolean lastPage;
+
+    public ObjectListingIterator(IS3Service s3, String bucket, String prefix, int pageSize) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.prefix = prefix;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext() && !lastPage) {
+            ObjectListing listing = s3.listObjects(bucket, prefix, null, continuationToken, pageSize);
+            page = listing.getObjects().iterator();
+            continuationToken = listing.getNextContinuationToken();
+            lastPage = !listing.isTruncated() || continuationToken == null;
+        }
+        return page.hasNext();
+    }
+
+    @Override
+    public S3ObjectSummary next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+}
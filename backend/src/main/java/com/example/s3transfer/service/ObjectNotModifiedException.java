@@ -0,0 +1,12 @@
+package com.example.s3transfer.service;
+
+/**
+ * The object matches the caller's {@code If-None-Match}/{@code If-Modified-Since}
+ * preconditions, so no body was fetched.
+ */
+public class ObjectNotModifiedException extends RuntimeException {
+
+    public ObjectNotModifiedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.ObjectAttributes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Envelope encryption of object payloads. Each object gets a fresh AES-256
+ * data key that seals its payload in chunks (see {@link PayloadEnvelope}); the
+ * data key is wrapped with the master key and stored in the object's user
+ * metadata, so an encrypted object stays readable wherever it is copied as
+ * long as this node has the master key. Objects without that metadata are
+ * passed through untouched.
+ */
+@Service
+@Slf4j
+public class PayloadEncryptionService {
+
+    static final String ALGORITHM_KEY = "payload-encryption";
+    static final String ALGORITHM = "aes-256-gcm-chunked";
+    static final String WRAPPED_KEY_KEY = "payload-key";
+    static final String CHUNK_SIZE_KEY = "payload-chunk-size";
+
+    private static final int WRAP_NONCE_LENGTH = 12;
+
+    /** Base64 AES-256 key that wraps every data key; derived from {@code app.encryption.key} when blank. */
+    private final String masterKeyValue;
+    private final String credentialKey;
+    private final DataSize chunkSize;
+
+    private final SecureRandom random = new SecureRandom();
+    private SecretKey masterKey;
+    private KeyGenerator dataKeys;
+
+    public PayloadEncryptionService(@Value("${app.payload-encryption.master-key:}") String masterKeyValue,
+                                    @Value("${app.encryption.key:mySecretKey123456}") String credentialKey,
+                                    @Value("${app.payload-encryption.chunk-size:64KB}") DataSize chunkSize) {
+        this.masterKeyValue = masterKeyValue;
+        this.credentialKey = credentialKey;
+        this.chunkSize = chunkSize;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            byte[] key;
+            if (masterKeyValue == null || masterKeyValue.isBlank()) {
+                log.warn("app.payload-encryption.master-key not set; deriving the payload master key from app.encryption.key");
+                key = MessageDigest.getInstance("SHA-256").digest(credentialKey.getBytes(StandardCharsets.UTF_8));
+            } else {
+                key = Base64.getDecoder().decode(masterKeyValue.trim());
+            }
+            if (key.length != 32) {
+                throw new IllegalStateException("app.payload-encryption.master-key must be 32 bytes, got " + key.length);
+            }
+            masterKey = new SecretKeySpec(key, "AES");
+            dataKeys = KeyGenerator.getInstance("AES");
+            dataKeys.init(256, random);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Payload encryption unavailable", e);
+        }
+        if (chunkSize.toBytes() < 1024 || chunkSize.toBytes() > 16 * 1024 * 1024) {
+            throw new IllegalStateException("app.payload-encryption.chunk-size must be between 1KB and 16MB");
+        }
+    }
+
+    /**
+     * A fresh data key for one new object.
+     */
+    public PayloadEnvelope newEnvelope() {
+        SecretKey dataKey;
+        synchronized (dataKeys) {
+            dataKey = dataKeys.generateKey();
+        }
+        byte[] nonce = new byte[WRAP_NONCE_LENGTH];
+        random.nextBytes(nonce);
+        return new PayloadEnvelope(dataKey, (int) chunkSize.toBytes(),
+                Base64.getEncoder().encodeToString(wrap(dataKey, nonce)));
+    }
+
+    /**
+     * The envelope an object was sealed with.
+     *
+     * @return null if the object isn't encrypted
+     * @throws IllegalStateException if its data key can't be unwrapped, e.g. it was sealed under another master key
+     */
+    public PayloadEnvelope envelopeOf(Map<String, String> metadata) {
+        if (metadata == null || !ALGORITHM.equals(metadata.get(ALGORITHM_KEY))) {
+            return null;
+        }
+        String wrapped = metadata.get(WRAPPED_KEY_KEY);
+        String chunk = metadata.get(CHUNK_SIZE_KEY);
+        if (wrapped == null || chunk == null) {
+            throw new IllegalStateException("Encrypted object is missing its " + WRAPPED_KEY_KEY + " or "
+                    + CHUNK_SIZE_KEY + " metadata");
+        }
+        return new PayloadEnvelope(unwrap(Base64.getDecoder().decode(wrapped)), Integer.parseInt(chunk), wrapped);
+    }
+
+    public boolean isEncrypted(Map<String, String> metadata) {
+        return metadata != null && ALGORITHM.equals(metadata.get(ALGORITHM_KEY));
+    }
+
+    /**
+     * {@code attributes} plus the metadata that lets the object be opened again.
+     */
+    public ObjectAttributes seal(ObjectAttributes attributes, PayloadEnvelope envelope) {
+        Map<String, String> metadata = new HashMap<>(attributes.getMetadata());
+        metadata.put(ALGORITHM_KEY, ALGORITHM);
+        metadata.put(WRAPPED_KEY_KEY, envelope.getWrappedKey());
+        metadata.put(CHUNK_SIZE_KEY, String.valueOf(envelope.getChunkSize()));
+        return new ObjectAttributes(attributes.getContentType(), metadata);
+    }
+
+    /**
+     * Size of the object as its reader sees it: the plaintext size if it is encrypted.
+     */
+    public long contentLength(HeadObjectResponse head) {
+        PayloadEnvelope envelope = envelopeOf(head.metadata());
+        return envelope == null ? head.contentLength() : envelope.plaintextLength(head.contentLength());
+    }
+
+    /**
+     * GET that decrypts encrypted objects as they stream, with the same arguments
+     * and exceptions as {@link IS3Service#downloadFile}. Lengths and
+     * {@code Content-Range} in the response are in plaintext bytes. A range on an
+     * encrypted object costs a second GET, since the first one is what shows the
+     * object is encrypted.
+     */
+    public ResponseInputStream<GetObjectResponse> download(IS3Service s3, String bucket, String key, String range,
+                                                           String ifNoneMatch, Instant ifModifiedSince) {
+        ResponseInputStream<GetObjectResponse> in = s3.downloadFile(bucket, key, range, ifNoneMatch, ifModifiedSince);
+        GetObjectResponse response = in.response();
+        PayloadEnvelope envelope;
+        try {
+            envelope = envelopeOf(response.metadata());
+        } catch (RuntimeException e) {
+            in.abort();
+            throw e;
+        }
+        if (envelope == null) {
+            return in;
+        }
+        if (range == null) {
+            long length = envelope.plaintextLength(response.contentLength());
+            return new ResponseInputStream<>(response.toBuilder().contentLength(length).build(),
+                    AbortableInputStream.create(new DecryptingInputStream(in, envelope, length), in::abort));
+        }
+        in.abort();
+        long length = envelope.plaintextLength(sealedLength(response));
+        List<HttpRange> ranges = HttpRange.parseRanges(range);
+        long first = ranges.get(0).getRangeStart(length);
+        if (ranges.size() != 1 || first >= length) {
+            throw new InvalidRangeException("Range not satisfiable: " + range);
+        }
+        return openRange(s3, bucket, key, response.eTag(), envelope, length, first, ranges.get(0).getRangeEnd(length));
+    }
+
+    /**
+     * Ranged GET of an object already looked up with {@code head}; {@code first}
+     * and {@code last} are plaintext offsets.
+     */
+    public ResponseInputStream<GetObjectResponse> download(IS3Service s3, String bucket, String key,
+                                                           HeadObjectResponse head, long first, long last) {
+        PayloadEnvelope envelope = envelopeOf(head.metadata());
+        if (envelope == null) {
+            return s3.downloadFile(bucket, key, "bytes=" + first + "-" + last, null, null);
+        }
+        return openRange(s3, bucket, key, head.eTag(), envelope, envelope.plaintextLength(head.contentLength()),
+                first, last);
+    }
+
+    private ResponseInputStream<GetObjectResponse> openRange(IS3Service s3, String bucket, String key, String eTag,
+                                                             PayloadEnvelope envelope, long length,
+                                                             long first, long last) {
+        int chunk = envelope.getChunkSize();
+        long sealedFirst = envelope.sealedOffset(first / chunk);
+        // through the end of the last chunk, tag included; the final chunk is the object's end
+        long sealedLast = Math.min(envelope.sealedOffset(last / chunk + 1), envelope.sealedLength(length)) - 1;
+        ResponseInputStream<GetObjectResponse> in =
+                s3.downloadFile(bucket, key, "bytes=" + sealedFirst + "-" + sealedLast, null, null);
+        if (eTag != null && !Objects.equals(eTag, in.response().eTag())) {
+            in.abort();
+            throw new RuntimeException("Object " + bucket + "/" + key + " changed while it was being read");
+        }
+        GetObjectResponse response = in.response().toBuilder()
+                .contentLength(last - first + 1)
+                .contentRange("bytes " + first + "-" + last + "/" + length)
+                .build();
+        return new ResponseInputStream<>(response, AbortableInputStream.create(
+                new DecryptingInputStream(in, envelope, length, first, last - first + 1), in::abort));
+    }
+
+    /** Total object size from a ranged response's {@code Content-Range: bytes a-b/total}. */
+    private static long sealedLength(GetObjectResponse response) {
+        String contentRange = response.contentRange();
+        if (contentRange == null) {
+            return response.contentLength();
+        }
+        return Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1).trim());
+    }
+
+    /**
+     * Seals {@code plain} as it is read.
+     */
+    public InputStream encrypt(InputStream plain, PayloadEnvelope envelope) {
+        return new EncryptingInputStream(plain, envelope);
+    }
+
+    private byte[] wrap(SecretKey dataKey, byte[] nonce) {
+        try {
+            Cipher cipher = PayloadEnvelope.cipher();
+            cipher.init(Cipher.ENCRYPT_MODE, masterKey, new GCMParameterSpec(128, nonce));
+            byte[] wrapped = cipher.doFinal(dataKey.getEncoded());
+            return ByteBuffer.allocate(nonce.length + wrapped.length).put(nonce).put(wrapped).array();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to wrap data key", e);
+        }
+    }
+
+    private SecretKey unwrap(byte[] stored) {
+        try {
+            Cipher cipher = PayloadEnvelope.cipher();
+            cipher.init(Cipher.DECRYPT_MODE, masterKey, new GCMParameterSpec(128, stored, 0, WRAP_NONCE_LENGTH));
+            byte[] key = cipher.doFinal(stored, WRAP_NONCE_LENGTH, stored.length - WRAP_NONCE_LENGTH);
+            return new SecretKeySpec(key, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to unwrap data key; was the object encrypted under another master key?", e);
+        }
+    }
+}
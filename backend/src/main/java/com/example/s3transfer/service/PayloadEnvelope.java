@@ -0,0 +1,118 @@
+package com.example.s3transfer.service;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.GeneralSecurityException;
+
+/**
+ * One object's data key and the chunked AES-GCM layout its payload is sealed
+ * in. The plaintext is cut into {@code chunkSize} chunks, each sealed on its
+ * own with a 16 byte tag, so any chunk can be opened without the ones before
+ * it and a range costs at most two chunks of extra reading. The last chunk is
+ * always shorter than {@code chunkSize} (empty when the plaintext fills every
+ * chunk) and is sealed as final, so a payload cut off at a chunk boundary
+ * fails to open.
+ *
+ * <p>Nonces are the chunk index: every object has its own data key, so a
+ * (key, nonce) pair is never used twice.
+ */
+public class PayloadEnvelope {
+
+    public static final int TAG_LENGTH = 16;
+
+    private static final int NONCE_LENGTH = 12;
+    private static final byte[] NOT_FINAL = {0};
+    private static final byte[] FINAL = {1};
+
+    /** {@code Cipher.getInstance} is slow and a cipher isn't thread-safe, so each thread keeps one. */
+    private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM not available", e);
+        }
+    });
+
+    private final SecretKey dataKey;
+    private final int chunkSize;
+    private final String wrappedKey;
+
+    public PayloadEnvelope(SecretKey dataKey, int chunkSize, String wrappedKey) {
+        this.dataKey = dataKey;
+        this.chunkSize = chunkSize;
+        this.wrappedKey = wrappedKey;
+    }
+
+    /**
+     * Seals {@code length} bytes as chunk {@code index}; writes {@code length + TAG_LENGTH} bytes.
+     */
+    public int seal(long index, boolean last, byte[] in, int inOffset, int length, byte[] out, int outOffset) {
+        return apply(Cipher.ENCRYPT_MODE, index, last, in, inOffset, length, out, outOffset);
+    }
+
+    /**
+     * Opens sealed chunk {@code index} of {@code length} bytes (tag included).
+     *
+     * @throws IllegalStateException if the chunk was altered, moved or cut off
+     */
+    public int open(long index, boolean last, byte[] in, int inOffset, int length, byte[] out, int outOffset) {
+        return apply(Cipher.DECRYPT_MODE, index, last, in, inOffset, length, out, outOffset);
+    }
+
+    private int apply(int mode, long index, boolean last, byte[] in, int inOffset, int length,
+                      byte[] out, int outOffset) {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        for (int i = 0; i < 8; i++) {
+            nonce[NONCE_LENGTH - 1 - i] = (byte) (index >>> (8 * i));
+        }
+        Cipher cipher = cipher();
+        try {
+            cipher.init(mode, dataKey, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+            cipher.updateAAD(last ? FINAL : NOT_FINAL);
+            return cipher.doFinal(in, inOffset, length, out, outOffset);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Chunk " + index + " failed to "
+                    + (mode == Cipher.ENCRYPT_MODE ? "seal" : "open") + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** This thread's AES/GCM cipher; callers must {@code init} it before each use. */
+    static Cipher cipher() {
+        return CIPHERS.get();
+    }
+
+    /** Sealed size of a whole payload of {@code plaintextLength} bytes. */
+    public long sealedLength(long plaintextLength) {
+        return plaintextLength + (plaintextLength / chunkSize + 1) * TAG_LENGTH;
+    }
+
+    /**
+     * Plaintext size of a whole sealed payload.
+     *
+     * @throws IllegalStateException if no payload sealed this way has that size
+     */
+    public long plaintextLength(long sealedLength) {
+        long sealedChunk = chunkSize + TAG_LENGTH;
+        long fullChunks = sealedLength / sealedChunk;
+        long rest = sealedLength % sealedChunk;
+        if (rest < TAG_LENGTH) {
+            throw new IllegalStateException("Encrypted payload of " + sealedLength + " bytes is truncated");
+        }
+        return fullChunks * chunkSize + rest - TAG_LENGTH;
+    }
+
+    /** Offset of chunk {@code index} in the sealed payload. */
+    public long sealedOffset(long index) {
+        return index * (chunkSize + TAG_LENGTH);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /** The data key wrapped by the master key, as stored with the object. */
+    public String getWrappedKey() {
+        return wrappedKey;
+    }
+}
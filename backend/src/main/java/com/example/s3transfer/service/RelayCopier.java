@@ -0,0 +1,193 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.ObjectAttributes;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Copies an object between accounts or regions that can't do a server-side
+ * copy: ranged GETs with the source's credentials feed {@code UploadPart}s
+ * with the destination's. Parts pass through a shared {@link BufferPool};
+ * when every buffer is held by a part still waiting to be read or written,
+ * no further part starts, so reads never run ahead of writes by more than the
+ * pool and memory stays flat however big the object is.
+ *
+ * <p>With a {@link PayloadEnvelope} each part is sealed as it is read; parts
+ * are whole chunks, so they seal independently and in parallel.
+ *
+ * <p>Each part's checksum is computed over the bytes uploaded, on the part's
+ * own thread, so parts are checksummed in parallel too.
+ *
+ * <p>Checkpointing and resume work as for {@link MultipartCopier}, except for
+ * encrypting copies: a retry has a new data key and can't reuse sealed parts.
+ */
+@Slf4j
+public class RelayCopier extends MultipartCopier {
+
+    private final IS3Service source;
+    private final BufferPool buffers;
+    private final Semaphore reads;
+    private final Semaphore writes;
+    private final PayloadEnvelope envelope;
+    private final ObjectAttributes attributes;
+
+    /**
+     * @param readers ranged GETs in flight at once for this object
+     * @param writers part uploads in flight at once for this object
+     */
+    public RelayCopier(IS3Service source, IS3Service destination, ExecutorService partExecutor,
+                       MultipartSettings settings, BufferPool buffers, int readers, int writers) {
+        this(source, destination, partExecutor, settings, buffers, readers, writers, null, null);
+    }
+
+    /**
+     * Relay that seals the payload with {@code envelope} and creates the copy with
+     * {@code attributes}, which must carry the envelope's metadata.
+     */
+    public RelayCopier(IS3Service source, IS3Service destination, ExecutorService partExecutor,
+                       MultipartSettings settings, BufferPool buffers, int readers, int writers,
+                       PayloadEnvelope envelope, ObjectAttributes attributes) {
+        super(destination, partExecutor, settings);
+        this.source = source;
+        this.buffers = buffers;
+        this.reads = new Semaphore(Math.max(1, readers));
+        this.writes = new Semaphore(Math.max(1, writers));
+        this.envelope = envelope;
+        this.attributes = attributes;
+    }
+
+    @Override
+    protected boolean isServerSide() {
+        return false;
+    }
+
+    @Override
+    protected CompletableFuture<CompletedPart> copyPart(String sourceBucket, String destinationBucket, String key,
+                                                        HeadObjectResponse head, String uploadId, int partNumber,
+                                                        long firstByte, long lastByte,
+                                                        ChecksumAlgorithm checksumAlgorithm)
+            throws InterruptedException {
+        boolean lastPart = lastByte == head.contentLength() - 1;
+        int length = (int) sealedLength(firstByte, lastByte, lastPart);
+        byte[] buffer = buffers.acquire();
+        CompletableFuture<CompletedPart> part;
+        try {
+            part = CompletableFuture.supplyAsync(() -> {
+                read(sourceBucket, key, head.eTag(), firstByte, lastByte, lastPart, buffer, length);
+                String checksum = checksumAlgorithm == null ? null
+                        : Checksums.of(checksumAlgorithm, buffer, 0, length);
+                try {
+                    writes.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted before uploading part " + partNumber, e);
+                }
+                try {
+                    return s3.uploadPart(destinationBucket, key, uploadId, partNumber,
+                            new ByteArrayInputStream(buffer, 0, length), length, checksumAlgorithm, checksum);
+                } finally {
+                    writes.release();
+                }
+            }, partExecutor);
+        } catch (RuntimeException e) {
+            // e.g. RejectedExecutionException: the task never ran, so nothing else will return the buffer
+            buffers.release(buffer);
+            throw e;
+        }
+        part.whenComplete((r, e) -> buffers.release(buffer));
+        return part;
+    }
+
+    private void read(String bucket, String key, String eTag, long firstByte, long lastByte, boolean lastPart,
+                      byte[] buffer, int length) {
+        try {
+            reads.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted before reading " + bucket + "/" + key, e);
+        }
+        String range = "bytes=" + firstByte + "-" + lastByte;
+        try (ResponseInputStream<GetObjectResponse> in = source.downloadFile(bucket, key, range, null, null)) {
+            // every part must come from the object version the upload started with
+            if (eTag != null && !Objects.equals(eTag, in.response().eTag())) {
+                throw new RuntimeException("Source " + bucket + "/" + key + " changed during the copy");
+            }
+            InputStream part = envelope == null ? in
+                    : new EncryptingInputStream(in, envelope, firstByte / envelope.getChunkSize(), lastPart);
+            if (readFully(part, buffer, length) < length) {
+                throw new RuntimeException("Source " + bucket + "/" + key + " ended early in " + range);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read " + bucket + "/" + key + " " + range + ": " + e.getMessage(), e);
+        } finally {
+            reads.release();
+        }
+    }
+
+    /** Bytes the part is uploaded as. */
+    private long sealedLength(long firstByte, long lastByte, boolean lastPart) {
+        long length = lastByte - firstByte + 1;
+        if (envelope == null) {
+            return length;
+        }
+        return lastPart ? envelope.sealedLength(length)
+                : length + length / envelope.getChunkSize() * PayloadEnvelope.TAG_LENGTH;
+    }
+
+    @Override
+    protected ObjectAttributes attributesFor(HeadObjectResponse source) {
+        return attributes != null ? attributes : super.attributesFor(source);
+    }
+
+    /**
+     * Part size capped at the buffer size (sealed parts, whole chunks, must still
+     * fit); objects too big for it fail rather than overrun the pool.
+     */
+    @Override
+    protected long partSizeFor(long objectSize) {
+        long size = buffers.getBufferSize();
+        if (envelope != null) {
+            int chunk = envelope.getChunkSize();
+            size = (size - PayloadEnvelope.TAG_LENGTH) / (chunk + PayloadEnvelope.TAG_LENGTH) * chunk;
+            if (size < MultipartSettings.MIN_PART_SIZE) {
+                throw new RuntimeException("Relay buffers are too small for encrypted parts of at least "
+                        + MultipartSettings.MIN_PART_SIZE + " bytes; raise app.transfer.relay.part-size");
+            }
+        }
+        if ((objectSize + size - 1) / size > MultipartSettings.MAX_PARTS) {
+            throw new RuntimeException("Object of " + objectSize + " bytes needs more than "
+                    + MultipartSettings.MAX_PARTS + " parts of " + size + " bytes; raise app.transfer.relay.part-size");
+        }
+        return size;
+    }
+
+    /** Every part in flight holds a buffer, so the pool bounds it. */
+    @Override
+    protected int concurrency() {
+        return buffers.getMaxBuffers();
+    }
+
+    private static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int n = in.read(buffer, total, length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+}
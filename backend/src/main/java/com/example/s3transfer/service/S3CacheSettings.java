@@ -0,0 +1,33 @@
+package com.example.s3transfer.service;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounds of the {@link CachingS3Service} metadata caches.
+ */
+@Component
+@Getter
+public class S3CacheSettings {
+
+    private final boolean enabled;
+    private final long bucketTtlMs;
+    private final long listingTtlMs;
+    private final long maxBuckets;
+
+    /** Keys and common prefixes held across all cached listings, per cache. */
+    private final long maxListedKeys;
+
+    public S3CacheSettings(@Value("${app.s3.cache.enabled:true}") boolean enabled,
+                           @Value("${app.s3.cache.bucket-ttl-ms:60000}") long bucketTtlMs,
+                           @Value("${app.s3.cache.listing-ttl-ms:5000}") long listingTtlMs,
+                           @Value("${app.s3.cache.max-buckets:1000}") long maxBuckets,
+                           @Value("${app.s3.cache.max-listed-keys:100000}") long maxListedKeys) {
+        this.enabled = enabled;
+        this.bucketTtlMs = bucketTtlMs;
+        this.listingTtlMs = listingTtlMs;
+        this.maxBuckets = maxBuckets;
+        this.maxListedKeys = maxListedKeys;
+    }
+}
@@ -0,0 +1,716 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.entity.AwsCredential;
+import com.example.s3transfer.repository.AwsCredentialRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3BaseClientBuilder;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import javax.annotation.PreDestroy;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Keeps one long-lived {@link S3Client} per stored credential and region so that
+ * connection pools and TLS sessions are reused across requests. The async
+ * profile's {@link S3AsyncClient}s are kept the same way, built on demand, as
+ * are the {@link S3Presigner}s that sign direct-transfer URLs.
+ *
+ * <p>A client dropped from the cache (least recently used past
+ * {@code app.s3.client.max-clients}, or its credential changed) is retired
+ * rather than closed: calls and response bodies already running on it finish,
+ * and it is closed once the last one does. A body that is abandoned without
+ * being closed would keep it open forever, so a retired client whose bodies
+ * have not been read for {@code app.s3.client.socket-timeout-ms} is closed
+ * anyway; S3 would have given up on them by then.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class S3ClientRegistry {
+
+    private final AwsCredentialRepository repo;
+    private final EncryptionService encryptionService;
+
+    @Value("${app.s3.client.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${app.s3.client.connection-timeout-ms:2000}")
+    private long connectionTimeoutMs;
+
+    @Value("${app.s3.client.socket-timeout-ms:30000}")
+    private long socketTimeoutMs;
+
+    @Value("${app.s3.client.connection-acquisition-timeout-ms:10000}")
+    private long acquisitionTimeoutMs;
+
+    @Value("${app.s3.client.max-clients:16}")
+    private int maxClients;
+
+    @Value("${app.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${app.s3.path-style-access:false}")
+    private boolean pathStyleAccess;
+
+    /**
+     * {@link S3Throttle} does the retrying when enabled, so the SDK mustn't as well;
+     * bodies the throttle can't replay then get no retries at all.
+     */
+    @Value("${app.s3.throttle.enabled:true}")
+    private boolean throttleEnabled;
+
+    /** Requests in flight per async client; each holds a connection. */
+    @Value("${app.s3.async.max-concurrency:500}")
+    private int asyncMaxConcurrency;
+
+    /** Async requests allowed to wait for a connection before new ones fail. */
+    @Value("${app.s3.async.max-pending-acquires:10000}")
+    private int asyncMaxPendingAcquires;
+
+    private final LinkedHashMap<ClientKey, Pooled<S3Client>> clients = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<ClientKey, Pooled<S3AsyncClient>> asyncClients = new LinkedHashMap<>(16, 0.75f, true);
+    /** Usage of every client not yet closed, retired ones included. */
+    private final Set<PoolUsage> poolUsage = ConcurrentHashMap.newKeySet();
+    private final Set<Pooled<?>> retired = ConcurrentHashMap.newKeySet();
+    /** Presigners hold no connections, so they are kept until their credential changes. */
+    private final Map<UUID, S3Presigner> presigners = new ConcurrentHashMap<>();
+    /** Resolved on first use; only invalidating that very credential clears it. */
+    private final AtomicReference<UUID> defaultCredentialId = new AtomicReference<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Client for the default (first stored) credential.
+     */
+    public S3Client defaultClient() {
+        return client(defaultCredentialId());
+    }
+
+    /**
+     * The default credential's id. Racing first calls agree on whichever
+     * resolution is stored first.
+     */
+    private UUID defaultCredentialId() {
+        UUID id = defaultCredentialId.get();
+        if (id != null) {
+            return id;
+        }
+        UUID first = repo.findAll().stream()
+                .findFirst()
+                .map(AwsCredential::getId)
+                .orElseThrow(() -> new RuntimeException("No AWS credentials configured"));
+        return defaultCredentialId.updateAndGet(current -> current != null ? current : first);
+    }
+
+    public S3Client client(UUID credentialId) {
+        S3Client existing = cached(clients, credentialId);
+        if (existing != null) {
+            return existing;
+        }
+        AwsCredential c = repo.findById(credentialId)
+                .orElseThrow(() -> new RuntimeException("AWS credentials not found: " + credentialId));
+        return client(c);
+    }
+
+    private S3Client client(AwsCredential c) {
+        return cached(clients, new ClientKey(c.getId(), c.getRegion(), false), usage -> build(c, usage));
+    }
+
+    private S3Client build(AwsCredential c, PoolUsage usage) {
+        log.info("Creating S3 client for credential {} in region {}{}", c.getId(), c.getRegion(),
+                endpoint.isEmpty() ? "" : " at " + endpoint);
+        return configure(S3Client.builder(), c, usage, throttleEnabled)
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionTimeout(Duration.ofMillis(connectionTimeoutMs))
+                        .socketTimeout(Duration.ofMillis(socketTimeoutMs))
+                        .connectionAcquisitionTimeout(Duration.ofMillis(acquisitionTimeoutMs)))
+                .build();
+    }
+
+    /**
+     * Async client for the default (first stored) credential.
+     */
+    public S3AsyncClient defaultAsyncClient() {
+        return asyncClient(defaultCredentialId());
+    }
+
+    public S3AsyncClient asyncClient(UUID credentialId) {
+        S3AsyncClient existing = cached(asyncClients, credentialId);
+        if (existing != null) {
+            return existing;
+        }
+        AwsCredential c = repo.findById(credentialId)
+                .orElseThrow(() -> new RuntimeException("AWS credentials not found: " + credentialId));
+        return cached(asyncClients, new ClientKey(c.getId(), c.getRegion(), true), usage -> {
+            log.info("Creating async S3 client for credential {} in region {}{}", c.getId(), c.getRegion(),
+                    endpoint.isEmpty() ? "" : " at " + endpoint);
+            // nothing throttles async calls, so the SDK's own retries stay on
+            return configure(S3AsyncClient.builder(), c, usage, false)
+                    .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                            .maxConcurrency(asyncMaxConcurrency)
+                            .maxPendingConnectionAcquires(asyncMaxPendingAcquires)
+                            .connectionTimeout(Duration.ofMillis(connectionTimeoutMs))
+                            .readTimeout(Duration.ofMillis(socketTimeoutMs))
+                            .writeTimeout(Duration.ofMillis(socketTimeoutMs))
+                            .connectionAcquisitionTimeout(Duration.ofMillis(acquisitionTimeoutMs)))
+                    .build();
+        });
+    }
+
+    /** The cached client for the credential in whatever region it was built for, or null. */
+    private <C extends SdkAutoCloseable> C cached(LinkedHashMap<ClientKey, Pooled<C>> map, UUID credentialId) {
+        closeRetired();
+        synchronized (map) {
+            for (Map.Entry<ClientKey, Pooled<C>> e : map.entrySet()) {
+                if (e.getKey().getCredentialId().equals(credentialId)) {
+                    hits.incrementAndGet();
+                    // re-read through get() so the access order is updated
+                    return map.get(e.getKey()).client;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The cached client for {@code key}, building it if there is none. Building
+     * happens outside the lock, so a slow credential doesn't hold up calls on
+     * other clients; if two threads build the same client, the loser's is closed.
+     */
+    private <C extends SdkAutoCloseable> C cached(LinkedHashMap<ClientKey, Pooled<C>> map, ClientKey key,
+                                                  Function<PoolUsage, C> build) {
+        synchronized (map) {
+            Pooled<C> existing = map.get(key);
+            if (existing != null) {
+                hits.incrementAndGet();
+                return existing.client;
+            }
+        }
+        PoolUsage usage = new PoolUsage();
+        C created = build.apply(usage);
+        Pooled<C> winner;
+        List<Pooled<C>> evicted = new ArrayList<>();
+        synchronized (map) {
+            winner = map.get(key);
+            if (winner == null) {
+                misses.incrementAndGet();
+                winner = new Pooled<>(key, created, usage);
+                map.put(key, winner);
+                poolUsage.add(usage);
+                for (Iterator<Pooled<C>> eldest = map.values().iterator(); map.size() > maxClients; ) {
+                    evicted.add(eldest.next());
+                    eldest.remove();
+                }
+            } else {
+                hits.incrementAndGet();
+            }
+        }
+        if (winner.client != created) {
+            created.close();
+        }
+        evicted.forEach(this::retire);
+        return winner.client;
+    }
+
+    /**
+     * Presigner for the default (first stored) credential.
+     */
+    public S3Presigner defaultPresigner() {
+        return presigner(defaultCredentialId());
+    }
+
+    /**
+     * Signs URLs locally with the credential's keys; it never calls S3, so URLs
+     * for the same endpoint and addressing style as the clients come at no cost.
+     */
+    public S3Presigner presigner(UUID credentialId) {
+        S3Presigner existing = presigners.get(credentialId);
+        if (existing != null) {
+            return existing;
+        }
+        AwsCredential c = repo.findById(credentialId)
+                .orElseThrow(() -> new RuntimeException("AWS credentials not found: " + credentialId));
+        return presigners.computeIfAbsent(credentialId, id -> {
+            S3Presigner.Builder builder = S3Presigner.builder()
+                    .region(Region.of(c.getRegion()))
+                    .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyleAccess).build())
+                    .credentialsProvider(credentialsProvider(c));
+            if (!endpoint.isEmpty()) {
+                builder.endpointOverride(URI.create(endpoint));
+            }
+            return builder.build();
+        });
+    }
+
+    /** Settings both kinds of client share. */
+    private <B extends S3BaseClientBuilder<B, C>, C> B configure(B builder, AwsCredential c, PoolUsage usage,
+                                                                 boolean disableRetries) {
+        if (!endpoint.isEmpty()) {
+            // S3-compatible stores and the local stand-in server
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder
+                .region(Region.of(c.getRegion()))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyleAccess).build())
+                .overrideConfiguration(o -> {
+                    o.addMetricPublisher(usage).addExecutionInterceptor(usage);
+                    if (disableRetries) {
+                        o.retryPolicy(RetryPolicy.none());
+                    }
+                })
+                .credentialsProvider(credentialsProvider(c));
+    }
+
+    private StaticCredentialsProvider credentialsProvider(AwsCredential c) {
+        return StaticCredentialsProvider.create(
+                AwsBasicCredentials.create(
+                        encryptionService.decrypt(c.getAccessKeyEncrypted()),
+                        encryptionService.decrypt(c.getSecretKeyEncrypted())
+                )
+        );
+    }
+
+    /**
+     * Drops every client built for the given credential, so the next call builds
+     * them from its stored keys again. The default is re-resolved only if it was
+     * this credential.
+     */
+    public void invalidate(UUID credentialId) {
+        if (credentialId != null) {
+            defaultCredentialId.compareAndSet(credentialId, null);
+        }
+        List<Pooled<?>> removed = new ArrayList<>();
+        synchronized (clients) {
+            clients.values().removeIf(p -> {
+                if (credentialId != null && p.key.getCredentialId().equals(credentialId)) {
+                    removed.add(p);
+                    return true;
+                }
+                return false;
+            });
+        }
+        synchronized (asyncClients) {
+            asyncClients.values().removeIf(p -> {
+                if (credentialId != null && p.key.getCredentialId().equals(credentialId)) {
+                    removed.add(p);
+                    return true;
+                }
+                return false;
+            });
+        }
+        removed.forEach(this::retire);
+        if (credentialId != null) {
+            S3Presigner presigner = presigners.remove(credentialId);
+            if (presigner != null) {
+                presigner.close();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        defaultCredentialId.set(null);
+        List<Pooled<?>> removed;
+        synchronized (clients) {
+            removed = new ArrayList<>(clients.values());
+            clients.clear();
+        }
+        synchronized (asyncClients) {
+            removed.addAll(asyncClients.values());
+            asyncClients.clear();
+        }
+        removed.forEach(this::retire);
+        closePresigners();
+    }
+
+    private void closePresigners() {
+        presigners.keySet().forEach(id -> {
+            S3Presigner presigner = presigners.remove(id);
+            if (presigner != null) {
+                presigner.close();
+            }
+        });
+    }
+
+    /**
+     * Closes the client once nothing is running on it. The close happens off
+     * the calling thread, which may be one of the client's own I/O threads.
+     */
+    private void retire(Pooled<?> pooled) {
+        evictions.incrementAndGet();
+        retired.add(pooled);
+        pooled.usage.retire(() -> CompletableFuture.runAsync(() -> close(pooled)));
+    }
+
+    /** Closes retired clients whose remaining bodies have been idle past the socket timeout. */
+    private void closeRetired() {
+        if (retired.isEmpty()) {
+            return;
+        }
+        long idleSince = System.currentTimeMillis() - socketTimeoutMs;
+        for (Pooled<?> pooled : retired) {
+            if (pooled.usage.getInFlight() == 0 && pooled.usage.lastActivity < idleSince) {
+                log.warn("Closing retired S3 client for credential {} with {} unfinished response bodies",
+                        pooled.key.getCredentialId(), pooled.usage.openBodies.get());
+                pooled.usage.forceIdle();
+            }
+        }
+    }
+
+    private void close(Pooled<?> pooled) {
+        retired.remove(pooled);
+        poolUsage.remove(pooled.usage);
+        ClientKey key = pooled.key;
+        log.info("Closing {}S3 client for credential {} in region {}", key.isAsync() ? "async " : "",
+                key.getCredentialId(), key.getRegion());
+        try {
+            pooled.client.close();
+        } catch (Exception e) {
+            log.warn("Failed to close S3 client for credential {}", key.getCredentialId(), e);
+        }
+    }
+
+    public int size() {
+        synchronized (clients) {
+            return clients.size();
+        }
+    }
+
+    public int asyncSize() {
+        synchronized (asyncClients) {
+            return asyncClients.size();
+        }
+    }
+
+    /**
+     * SDK calls currently running across all clients. Streaming downloads stop
+     * counting once the response stream is handed back.
+     */
+    public int activeRequests() {
+        return poolUsage.stream().mapToInt(PoolUsage::getInFlight).sum();
+    }
+
+    /**
+     * Connections leased across all clients, as reported by each busy client's
+     * most recent call.
+     */
+    public int leasedConnections() {
+        return poolUsage.stream().mapToInt(PoolUsage::getLeased).sum();
+    }
+
+    /**
+     * Calls waiting for a pooled connection across all clients, as reported by
+     * each busy client's most recent call.
+     */
+    public int pendingConnectionAcquires() {
+        return poolUsage.stream().mapToInt(PoolUsage::getPending).sum();
+    }
+
+    public int maxConnectionsPerClient() {
+        return maxConnections;
+    }
+
+    public Map<String, Object> stats() {
+        closeRetired();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("clients", size());
+        stats.put("asyncClients", asyncSize());
+        stats.put("maxClients", maxClients);
+        stats.put("maxConnectionsPerClient", maxConnections);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("retiredClients", retired.size());
+        stats.put("activeRequests", activeRequests());
+        stats.put("leasedConnections", leasedConnections());
+        stats.put("pendingConnectionAcquires", pendingConnectionAcquires());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (clients) {
+            clients.values().forEach(p -> p.client.close());
+            clients.clear();
+        }
+        synchronized (asyncClients) {
+            asyncClients.values().forEach(p -> p.client.close());
+            asyncClients.clear();
+        }
+        retired.forEach(p -> p.client.close());
+        retired.clear();
+        poolUsage.clear();
+        closePresigners();
+    }
+
+    /**
+     * Tracks in-flight calls and the connection pool figures the SDK attaches to
+     * each call's metrics. Those figures are only published when a call finishes,
+     * so they are reported as zero once the client goes idle.
+     *
+     * <p>Also counts response bodies still being read, since a streamed GET
+     * finishes as a call as soon as its headers arrive, and runs the retired
+     * client's close once neither is left.
+     */
+    private static class PoolUsage implements MetricPublisher, ExecutionInterceptor {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger openBodies = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile Runnable onIdle;
+        private volatile long lastActivity = System.currentTimeMillis();
+        private volatile int leased;
+        private volatile int pending;
+
+        void retire(Runnable close) {
+            onIdle = close;
+            closeIfIdle();
+        }
+
+        void forceIdle() {
+            Runnable close = onIdle;
+            if (close != null && closed.compareAndSet(false, true)) {
+                close.run();
+            }
+        }
+
+        private void closeIfIdle() {
+            if (onIdle != null && inFlight.get() == 0 && openBodies.get() == 0) {
+                forceIdle();
+            }
+        }
+
+        private void bodyFinished() {
+            openBodies.decrementAndGet();
+            closeIfIdle();
+        }
+
+        int getInFlight() {
+            return inFlight.get();
+        }
+
+        int getLeased() {
+            return inFlight.get() > 0 ? leased : 0;
+        }
+
+        int getPending() {
+            return inFlight.get() > 0 ? pending : 0;
+        }
+
+        @Override
+        public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+            inFlight.incrementAndGet();
+        }
+
+        @Override
+        public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+            inFlight.decrementAndGet();
+            lastActivity = System.currentTimeMillis();
+            closeIfIdle();
+        }
+
+        @Override
+        public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+            inFlight.decrementAndGet();
+            lastActivity = System.currentTimeMillis();
+            closeIfIdle();
+        }
+
+        @Override
+        public Optional<InputStream> modifyHttpResponseContent(Context.ModifyHttpResponse context,
+                                                               ExecutionAttributes executionAttributes) {
+            return context.responseBody().map(body -> {
+                openBodies.incrementAndGet();
+                return new CountedInputStream(body);
+            });
+        }
+
+        @Override
+        public Optional<Publisher<ByteBuffer>> modifyAsyncHttpResponseContent(Context.ModifyHttpResponse context,
+                                                                              ExecutionAttributes executionAttributes) {
+            return context.responsePublisher().map(CountedPublisher::new);
+        }
+
+        @Override
+        public void publish(MetricCollection metrics) {
+            Integer l = latest(metrics, HttpMetric.LEASED_CONCURRENCY);
+            Integer p = latest(metrics, HttpMetric.PENDING_CONCURRENCY_ACQUIRES);
+            if (l != null) {
+                leased = l;
+            }
+            if (p != null) {
+                pending = p;
+            }
+        }
+
+        private static Integer latest(MetricCollection metrics, SdkMetric<Integer> metric) {
+            // pool figures sit on the HttpClient collection under each attempt
+            Integer value = null;
+            List<Integer> own = metrics.metricValues(metric);
+            if (!own.isEmpty()) {
+                value = own.get(own.size() - 1);
+            }
+            for (MetricCollection child : metrics.children()) {
+                Integer childValue = latest(child, metric);
+                if (childValue != null) {
+                    value = childValue;
+                }
+            }
+            return value;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        /** Counts as open until closed; abandoned ones are caught by the idle check. */
+        private class CountedInputStream extends FilterInputStream {
+            private final AtomicBoolean finished = new AtomicBoolean();
+
+            CountedInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                lastActivity = System.currentTimeMillis();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                lastActivity = System.currentTimeMillis();
+                return super.read(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (finished.compareAndSet(false, true)) {
+                        bodyFinished();
+                    }
+                }
+            }
+        }
+
+        /** Counts as open from subscription until it completes, fails or is cancelled. */
+        private class CountedPublisher implements Publisher<ByteBuffer> {
+            private final Publisher<ByteBuffer> body;
+
+            CountedPublisher(Publisher<ByteBuffer> body) {
+                this.body = body;
+            }
+
+            @Override
+            public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+                openBodies.incrementAndGet();
+                AtomicBoolean finished = new AtomicBoolean();
+                Runnable finish = () -> {
+                    if (finished.compareAndSet(false, true)) {
+                        bodyFinished();
+                    }
+                };
+                body.subscribe(new Subscriber<ByteBuffer>() {
+                    @Override
+                    public void onSubscribe(Subscription subscription) {
+                        subscriber.onSubscribe(new Subscription() {
+                            @Override
+                            public void request(long n) {
+                                subscription.request(n);
+                            }
+
+                            @Override
+                            public void cancel() {
+                                finish.run();
+                                subscription.cancel();
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onNext(ByteBuffer buffer) {
+                        lastActivity = System.currentTimeMillis();
+                        subscriber.onNext(buffer);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        finish.run();
+                        subscriber.onError(t);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        finish.run();
+                        subscriber.onComplete();
+                    }
+                });
+            }
+        }
+    }
+
+    private static class Pooled<C extends SdkAutoCloseable> {
+        final ClientKey key;
+        final C client;
+        final PoolUsage usage;
+
+        Pooled(ClientKey key, C client, PoolUsage usage) {
+            this.key = key;
+            this.client = client;
+            this.usage = usage;
+        }
+    }
+
+    @lombok.Value
+    private static class ClientKey {
+        UUID credentialId;
+        String region;
+        boolean async;
+    }
+}
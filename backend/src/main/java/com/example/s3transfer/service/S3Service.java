@@ -1,98 +1,217 @@
 package com.example.s3transfer.service;
 
-import com.example.s3transfer.entity.AwsCredential;
-import com.example.s3transfer.repository.AwsCredentialRepository;
-import lombok.RequiredArgsConstructor;
+import com.example.s3transfer.dto.MultipartUploadSummary;
+import com.example.s3transfer.dto.ObjectAttributes;
+import com.example.s3transfer.dto.ObjectListing;
+import com.example.s3transfer.dto.PresignedUrl;
+import com.example.s3transfer.dto.S3ObjectSummary;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.awscore.presigner.PresignedRequest;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 @Profile("!mock")
 public class S3Service implements IS3Service {
 
-    private final EncryptionService encryptionService;
-    private final AwsCredentialRepository repo;
+    private final S3ClientRegistry clientRegistry;
+    private final MultipartSettings multipartSettings;
+    private final ExecutorService partExecutor;
+    private final S3Throttle throttle;
+    private final MultipartCopier multipartCopier;
+    /** Credential every call is signed with; null for the default one. */
+    private final UUID credentialId;
+
+    @Autowired
+    public S3Service(S3ClientRegistry clientRegistry,
+                     MultipartSettings multipartSettings,
+                     @Qualifier("s3PartExecutor") ExecutorService partExecutor,
+                     S3Throttle throttle) {
+        this(clientRegistry, multipartSettings, partExecutor, throttle, null);
+    }
+
+    private S3Service(S3ClientRegistry clientRegistry, MultipartSettings multipartSettings,
+                      ExecutorService partExecutor, S3Throttle throttle, UUID credentialId) {
+        this.clientRegistry = clientRegistry;
+        this.multipartSettings = multipartSettings;
+        this.partExecutor = partExecutor;
+        this.throttle = throttle;
+        this.multipartCopier = new MultipartCopier(this, partExecutor, multipartSettings);
+        this.credentialId = credentialId;
+    }
 
     private S3Client s3() {
-        AwsCredential c = repo.findAll().stream()
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("No AWS credentials configured"));
-        
-        return S3Client.builder()
-                .region(Region.of(c.getRegion()))
-                .credentialsProvider(
-                        StaticCredentialsProvider.create(
-                                AwsBasicCredentials.create(
-                                        encryptionService.decrypt(c.getAccessKeyEncrypted()),
-                                        encryptionService.decrypt(c.getSecretKeyEncrypted())
-                                )
-                        )
-                ).build();
+        return credentialId == null ? clientRegistry.defaultClient() : clientRegistry.client(credentialId);
+    }
+
+    private S3Presigner presigner() {
+        return credentialId == null ? clientRegistry.defaultPresigner() : clientRegistry.presigner(credentialId);
+    }
+
+    public IS3Service forCredential(UUID credentialId) {
+        if (credentialId == null || credentialId.equals(this.credentialId)) {
+            return this;
+        }
+        // resolve now so an unknown credential fails here rather than on first use
+        clientRegistry.client(credentialId);
+        return new S3Service(clientRegistry, multipartSettings, partExecutor, throttle, credentialId);
     }
 
     public List<String> listFiles(String bucket) {
         try {
-            return s3().listObjectsV2(b -> b.bucket(bucket))
+            return throttle.call(bucket, null, true, () -> s3().listObjectsV2Paginator(b -> b.bucket(bucket))
                     .contents().stream()
                     .map(S3Object::key)
-                    .collect(java.util.stream.Collectors.toList());
+                    .collect(java.util.stream.Collectors.toList()));
         } catch (Exception e) {
             log.error("Failed to list files in bucket: {}", bucket, e);
             throw new RuntimeException("Failed to list files: " + e.getMessage());
         }
     }
 
-    public void uploadFile(String bucket, String key, InputStream inputStream, long contentLength) {
+    public ObjectListing listObjects(String bucket, String prefix, String delimiter, String continuationToken, int maxKeys) {
         try {
-            s3().putObject(
-                    PutObjectRequest.builder()
+            ListObjectsV2Response response = throttle.call(bucket, prefix, true, () -> s3().listObjectsV2(
+                    ListObjectsV2Request.builder()
                             .bucket(bucket)
-                            .key(key)
-                            .contentLength(contentLength)
-                            .build(),
-                    RequestBody.fromInputStream(inputStream, contentLength)
-            );
+                            .prefix(prefix)
+                            .delimiter(delimiter)
+                            .continuationToken(continuationToken)
+                            .maxKeys(maxKeys)
+                            .build()));
+            return toListing(response);
+        } catch (Exception e) {
+            log.error("Failed to list objects in bucket: {}", bucket, e);
+            throw new RuntimeException("Failed to list objects: " + e.getMessage());
+        }
+    }
+
+    static ObjectListing toListing(ListObjectsV2Response response) {
+        ObjectListing listing = new ObjectListing();
+        response.contents().forEach(o -> listing.getObjects().add(
+                new S3ObjectSummary(o.key(), o.size(), o.eTag(), o.lastModified())));
+        response.commonPrefixes().forEach(p -> listing.getCommonPrefixes().add(p.prefix()));
+        listing.setNextContinuationToken(response.nextContinuationToken());
+        listing.setTruncated(Boolean.TRUE.equals(response.isTruncated()));
+        return listing;
+    }
+
+    public void uploadFile(String bucket, String key, InputStream inputStream, long contentLength,
+                           ObjectAttributes attributes) {
+        try {
+            boolean replayable = markForRetry(inputStream);
+            PutObjectRequest.Builder request = PutObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .contentLength(contentLength)
+                    .contentType(attributes.getContentType())
+                    .contentEncoding(attributes.getContentEncoding())
+                    .metadata(attributes.getMetadata());
+            withChecksum(request, attributes.getChecksumAlgorithm(), attributes.getChecksum());
+            throttle.call(bucket, key, replayable, () -> s3().putObject(request.build(),
+                    RequestBody.fromInputStream(rewound(inputStream, replayable), contentLength)
+            ));
             log.info("File uploaded successfully: {}/{}", bucket, key);
         } catch (Exception e) {
             log.error("Failed to upload file: {}/{}", bucket, key, e);
+            if (isBadDigest(e)) {
+                throw new ChecksumMismatchException("Checksum of " + bucket + "/" + key + " rejected: "
+                        + e.getMessage());
+            }
             throw new RuntimeException("Failed to upload file: " + e.getMessage());
         }
     }
 
-    public ResponseInputStream<GetObjectResponse> downloadFile(String bucket, String key) {
+    public ResponseInputStream<GetObjectResponse> downloadFile(String bucket, String key, String range,
+                                                               String ifNoneMatch, Instant ifModifiedSince) {
         try {
-            return s3().getObject(GetObjectRequest.builder()
+            return throttle.call(bucket, key, true, () -> s3().getObject(GetObjectRequest.builder()
                     .bucket(bucket)
                     .key(key)
-                    .build());
+                    .range(range)
+                    .ifNoneMatch(ifNoneMatch)
+                    .ifModifiedSince(ifModifiedSince)
+                    .build()));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 304) {
+                throw new ObjectNotModifiedException("Not modified: " + bucket + "/" + key);
+            }
+            if (e.statusCode() == 416) {
+                throw new InvalidRangeException("Range not satisfiable: " + range);
+            }
+            log.error("Failed to download file: {}/{}", bucket, key, e);
+            throw new RuntimeException("Failed to download file: " + e.getMessage());
         } catch (Exception e) {
             log.error("Failed to download file: {}/{}", bucket, key, e);
             throw new RuntimeException("Failed to download file: " + e.getMessage());
         }
     }
 
-    public void copyFile(String sourceBucket, String destinationBucket, String key) {
+    public long copyFile(String sourceBucket, String destinationBucket, String key, TransferProgressListener progress,
+                         TransferCheckpoint checkpoint, ChecksumAlgorithm checksumAlgorithm) {
         try {
-            s3().copyObject(CopyObjectRequest.builder()
-                    .sourceBucket(sourceBucket)
-                    .sourceKey(key)
-                    .destinationBucket(destinationBucket)
-                    .destinationKey(key)
-                    .build());
+            HeadObjectResponse source = throttle.call(sourceBucket, key, true,
+                    () -> s3().headObject(b -> b.bucket(sourceBucket).key(key).checksumMode(ChecksumMode.ENABLED)));
+            progress.started(source.contentLength());
+            if (source.contentLength() > multipartSettings.getCopyThreshold().toBytes()) {
+                multipartCopier.copy(sourceBucket, destinationBucket, key, source, progress, checkpoint,
+                        checksumAlgorithm);
+            } else {
+                CopyObjectResult copied = throttle.call(destinationBucket, key, true,
+                        () -> s3().copyObject(CopyObjectRequest.builder()
+                                .sourceBucket(sourceBucket)
+                                .sourceKey(key)
+                                .destinationBucket(destinationBucket)
+                                .destinationKey(key)
+                                .checksumAlgorithm(checksumAlgorithm)
+                                .build())).copyObjectResult();
+                progress.transferred(source.contentLength());
+                if (checksumAlgorithm != null) {
+                    // S3 checksums the copy itself; a composite source checksum isn't comparable
+                    String expected = Checksums.of(source, checksumAlgorithm);
+                    String stored = Checksums.pick(checksumAlgorithm, copied.checksumCRC32C(), copied.checksumSHA256());
+                    Checksums.check(destinationBucket, key, checksumAlgorithm,
+                            Checksums.isComposite(expected) ? null : expected, stored);
+                    progress.verified(checksumAlgorithm, stored);
+                }
+            }
             log.info("File copied successfully: {}/{} -> {}/{}", sourceBucket, key, destinationBucket, key);
+            return source.contentLength();
+        } catch (S3Exception e) {
+            if (ServerSideCopyDeniedException.isDenial(e)) {
+                throw new ServerSideCopyDeniedException("Server-side copy " + sourceBucket + " -> " + destinationBucket
+                        + " refused: " + e.getMessage());
+            }
+            log.error("Failed to copy file: {}/{} -> {}/{}", sourceBucket, key, destinationBucket, key, e);
+            throw new RuntimeException("Failed to copy file: " + e.getMessage());
+        } catch (ServerSideCopyDeniedException e) {
+            // a part copy was refused; the multipart copier has already aborted the upload
+            throw e;
+        } catch (ChecksumMismatchException e) {
+            log.error("Copy failed verification: {}/{} -> {}/{}: {}", sourceBucket, key, destinationBucket, key,
+                    e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Failed to copy file: {}/{} -> {}/{}", sourceBucket, key, destinationBucket, key, e);
             throw new RuntimeException("Failed to copy file: " + e.getMessage());
@@ -101,20 +220,286 @@ public class S3Service implements IS3Service {
 
     public boolean bucketExists(String bucket) {
         try {
-            s3().headBucket(HeadBucketRequest.builder().bucket(bucket).build());
+            throttle.call(bucket, null, true, () -> s3().headBucket(HeadBucketRequest.builder().bucket(bucket).build()));
             return true;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            log.error("Failed to check bucket: {}", bucket, e);
+            throw new RuntimeException("Failed to check bucket: " + e.getMessage());
         } catch (Exception e) {
-            return false;
+            // e.g. throttled, timed out or no credentials: unknown, so not reported (or cached) as missing
+            log.error("Failed to check bucket: {}", bucket, e);
+            throw new RuntimeException("Failed to check bucket: " + e.getMessage());
         }
     }
 
     public void createBucket(String bucket) {
         try {
-            s3().createBucket(CreateBucketRequest.builder().bucket(bucket).build());
+            throttle.call(bucket, null, true,
+                    () -> s3().createBucket(CreateBucketRequest.builder().bucket(bucket).build()));
             log.info("Bucket created successfully: {}", bucket);
         } catch (Exception e) {
             log.error("Failed to create bucket: {}", bucket, e);
             throw new RuntimeException("Failed to create bucket: " + e.getMessage());
         }
     }
+
+    public void deleteObject(String bucket, String key) {
+        try {
+            throttle.call(bucket, key, true, () -> s3().deleteObject(b -> b.bucket(bucket).key(key)));
+            log.info("Object deleted: {}/{}", bucket, key);
+        } catch (Exception e) {
+            log.error("Failed to delete object: {}/{}", bucket, key, e);
+            throw new RuntimeException("Failed to delete object: " + e.getMessage());
+        }
+    }
+
+    public HeadObjectResponse headObject(String bucket, String key) {
+        try {
+            return throttle.call(bucket, key, true,
+                    () -> s3().headObject(b -> b.bucket(bucket).key(key).checksumMode(ChecksumMode.ENABLED)));
+        } catch (Exception e) {
+            log.error("Failed to head object: {}/{}", bucket, key, e);
+            throw new RuntimeException("Failed to head object: " + e.getMessage());
+        }
+    }
+
+    public String createMultipartUpload(String bucket, String key, ObjectAttributes attributes) {
+        try {
+            return throttle.call(bucket, key, true, () -> s3().createMultipartUpload(
+                    CreateMultipartUploadRequest.builder()
+                            .bucket(bucket)
+                            .key(key)
+                            .contentType(attributes.getContentType())
+                            .contentEncoding(attributes.getContentEncoding())
+                            .metadata(attributes.getMetadata())
+                            .checksumAlgorithm(attributes.getChecksumAlgorithm())
+                            .build()).uploadId());
+        } catch (Exception e) {
+            log.error("Failed to create multipart upload: {}/{}", bucket, key, e);
+            throw new RuntimeException("Failed to create multipart upload: " + e.getMessage());
+        }
+    }
+
+    public CompletedPart uploadPart(String bucket, String key, String uploadId, int partNumber,
+                                    InputStream inputStream, long contentLength, ChecksumAlgorithm checksumAlgorithm,
+                                    String checksum) {
+        try {
+            boolean replayable = markForRetry(inputStream);
+            UploadPartRequest.Builder request = UploadPartRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .contentLength(contentLength);
+            withChecksum(request, checksumAlgorithm, checksum);
+            UploadPartResponse response = throttle.call(bucket, key, replayable, () -> s3().uploadPart(
+                    request.build(), RequestBody.fromInputStream(rewound(inputStream, replayable), contentLength)));
+            String stored = Checksums.pick(checksumAlgorithm, response.checksumCRC32C(), response.checksumSHA256());
+            return Checksums.withChecksum(CompletedPart.builder(), checksumAlgorithm, stored != null ? stored : checksum)
+                    .partNumber(partNumber)
+                    .eTag(response.eTag())
+                    .build();
+        } catch (Exception e) {
+            log.error("Failed to upload part {} of {}/{}", partNumber, bucket, key, e);
+            if (isBadDigest(e)) {
+                throw new ChecksumMismatchException("Checksum of part " + partNumber + " of " + bucket + "/" + key
+                        + " rejected: " + e.getMessage());
+            }
+            throw new RuntimeException("Failed to upload part " + partNumber + ": " + e.getMessage());
+        }
+    }
+
+    public CompletedPart uploadPartCopy(String sourceBucket, String sourceKey, String bucket, String key,
+                                        String uploadId, int partNumber, long firstByte, long lastByte) {
+        try {
+            UploadPartCopyResponse response = throttle.call(bucket, key, true, () -> s3().uploadPartCopy(
+                    UploadPartCopyRequest.builder()
+                            .sourceBucket(sourceBucket)
+                            .sourceKey(sourceKey)
+                            .destinationBucket(bucket)
+                            .destinationKey(key)
+                            .uploadId(uploadId)
+                            .partNumber(partNumber)
+                            .copySourceRange("bytes=" + firstByte + "-" + lastByte)
+                            .build()));
+            CopyPartResult result = response.copyPartResult();
+            return CompletedPart.builder()
+                    .partNumber(partNumber)
+                    .eTag(result.eTag())
+                    .checksumCRC32C(result.checksumCRC32C())
+                    .checksumSHA256(result.checksumSHA256())
+                    .build();
+        } catch (S3Exception e) {
+            if (ServerSideCopyDeniedException.isDenial(e)) {
+                throw new ServerSideCopyDeniedException("Copy of part " + partNumber + " " + sourceBucket + " -> "
+                        + bucket + " refused: " + e.getMessage());
+            }
+            log.error("Failed to copy part {} of {}/{}", partNumber, bucket, key, e);
+            throw new RuntimeException("Failed to copy part " + partNumber + ": " + e.getMessage());
+        } catch (Exception e) {
+            log.error("Failed to copy part {} of {}/{}", partNumber, bucket, key, e);
+            throw new RuntimeException("Failed to copy part " + partNumber + ": " + e.getMessage());
+        }
+    }
+
+    public void completeMultipartUpload(String bucket, String key, String uploadId, List<CompletedPart> parts) {
+        try {
+            throttle.call(bucket, key, true, () -> s3().completeMultipartUpload(
+                    CompleteMultipartUploadRequest.builder()
+                            .bucket(bucket)
+                            .key(key)
+                            .uploadId(uploadId)
+                            .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                            .build()));
+        } catch (Exception e) {
+            log.error("Failed to complete multipart upload: {}/{}", bucket, key, e);
+            throw new RuntimeException("Failed to complete multipart upload: " + e.getMessage());
+        }
+    }
+
+    public void abortMultipartUpload(String bucket, String key, String uploadId) {
+        try {
+            throttle.call(bucket, key, true, () -> s3().abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build()));
+        } catch (Exception e) {
+            log.error("Failed to abort multipart upload: {}/{}", bucket, key, e);
+            throw new RuntimeException("Failed to abort multipart upload: " + e.getMessage());
+        }
+    }
+
+    public List<CompletedPart> listParts(String bucket, String key, String uploadId) {
+        try {
+            return throttle.call(bucket, key, true,
+                    () -> s3().listPartsPaginator(b -> b.bucket(bucket).key(key).uploadId(uploadId))
+                            .parts().stream()
+                            .map(p -> CompletedPart.builder().partNumber(p.partNumber()).eTag(p.eTag())
+                                    .checksumCRC32C(p.checksumCRC32C()).checksumSHA256(p.checksumSHA256()).build())
+                            .collect(Collectors.toList()));
+        } catch (NoSuchUploadException e) {
+            throw new UploadNotFoundException("Multipart upload not found: " + uploadId);
+        } catch (Exception e) {
+            log.error("Failed to list parts of {}/{} ({})", bucket, key, uploadId, e);
+            throw new RuntimeException("Failed to list parts: " + e.getMessage());
+        }
+    }
+
+    public List<MultipartUploadSummary> listMultipartUploads(String bucket) {
+        try {
+            return throttle.call(bucket, null, true, () -> s3().listMultipartUploadsPaginator(b -> b.bucket(bucket))
+                    .uploads().stream()
+                    .map(u -> new MultipartUploadSummary(u.key(), u.uploadId(), u.initiated()))
+                    .collect(Collectors.toList()));
+        } catch (Exception e) {
+            log.error("Failed to list multipart uploads in bucket: {}", bucket, e);
+            throw new RuntimeException("Failed to list multipart uploads: " + e.getMessage());
+        }
+    }
+
+    public PresignedUrl presignDownload(String bucket, String key, Duration expiresIn) {
+        try {
+            return presigned(presigner().presignGetObject(r -> r
+                    .signatureDuration(expiresIn)
+                    .getObjectRequest(g -> g.bucket(bucket).key(key))), null);
+        } catch (Exception e) {
+            log.error("Failed to presign download: {}/{}", bucket, key, e);
+            throw new RuntimeException("Failed to presign download: " + e.getMessage());
+        }
+    }
+
+    public PresignedUrl presignUpload(String bucket, String key, String contentType, Duration expiresIn) {
+        try {
+            return presigned(presigner().presignPutObject(r -> r
+                    .signatureDuration(expiresIn)
+                    .putObjectRequest(p -> p.bucket(bucket).key(key).contentType(contentType))), null);
+        } catch (Exception e) {
+            log.error("Failed to presign upload: {}/{}", bucket, key, e);
+            throw new RuntimeException("Failed to presign upload: " + e.getMessage());
+        }
+    }
+
+    public PresignedUrl presignUploadPart(String bucket, String key, String uploadId, int partNumber,
+                                          Duration expiresIn) {
+        try {
+            return presigned(presigner().presignUploadPart(r -> r
+                    .signatureDuration(expiresIn)
+                    .uploadPartRequest(p -> p.bucket(bucket).key(key).uploadId(uploadId).partNumber(partNumber))),
+                    partNumber);
+        } catch (Exception e) {
+            log.error("Failed to presign part {} of {}/{}", partNumber, bucket, key, e);
+            throw new RuntimeException("Failed to presign part " + partNumber + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The SDK lists {@code host} among the signed headers, but every HTTP client
+     * sends that from the URL, so only the ones the caller must add are returned.
+     */
+    private static PresignedUrl presigned(PresignedRequest request, Integer partNumber) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        request.signedHeaders().forEach((name, values) -> {
+            if (!name.equalsIgnoreCase("host")) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return new PresignedUrl(request.httpRequest().method().name(), request.url().toString(), headers,
+                request.expiration(), partNumber);
+    }
+
+    /**
+     * Marks a request body so a retry can send it again; only in-memory streams
+     * qualify. Anything else is sent once, and with the throttle on the SDK
+     * doesn't retry either, so a failure is final (see {@link S3Throttle}).
+     */
+    private static boolean markForRetry(InputStream in) {
+        if (in instanceof ByteArrayInputStream) {
+            in.mark(Integer.MAX_VALUE);
+            return true;
+        }
+        return false;
+    }
+
+    /** S3 rejected a body that doesn't match the checksum sent with it. */
+    private static boolean isBadDigest(Exception e) {
+        return e instanceof S3Exception && ((S3Exception) e).awsErrorDetails() != null
+                && "BadDigest".equals(((S3Exception) e).awsErrorDetails().errorCode());
+    }
+
+    private static void withChecksum(PutObjectRequest.Builder request, ChecksumAlgorithm algorithm, String checksum) {
+        if (checksum == null) {
+            // no precomputed value: the SDK computes it while sending the body
+            request.checksumAlgorithm(algorithm);
+        } else if (algorithm == ChecksumAlgorithm.CRC32_C) {
+            request.checksumCRC32C(checksum);
+        } else if (algorithm == ChecksumAlgorithm.SHA256) {
+            request.checksumSHA256(checksum);
+        }
+    }
+
+    private static void withChecksum(UploadPartRequest.Builder request, ChecksumAlgorithm algorithm,
+                                     String checksum) {
+        if (checksum == null) {
+            request.checksumAlgorithm(algorithm);
+        } else if (algorithm == ChecksumAlgorithm.CRC32_C) {
+            request.checksumCRC32C(checksum);
+        } else if (algorithm == ChecksumAlgorithm.SHA256) {
+            request.checksumSHA256(checksum);
+        }
+    }
+
+    private static InputStream rewound(InputStream in, boolean replayable) {
+        if (replayable) {
+            try {
+                in.reset();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return in;
+    }
 }
\ No newline at end of file
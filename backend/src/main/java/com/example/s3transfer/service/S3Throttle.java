@@ -0,0 +1,305 @@
+package com.example.s3transfer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs S3 calls under an {@link AdaptiveLimiter} per bucket and key prefix (S3
+ * scales request rates per prefix) and retries throttled and transient
+ * failures with jittered exponential backoff. Retries draw on a budget that
+ * successes refill (plus a small steady trickle), so when S3 is failing most
+ * requests the retries stop instead of multiplying the load. Replaces the SDK's own retries, which know
+ * nothing about the limiter.
+ *
+ * <p>Since the SDK no longer retries, a request whose body can't be sent twice
+ * isn't retried at all: a throttled or transient failure of an upload streamed
+ * straight from a client (a form upload or a presigned PUT) fails the upload.
+ * Bodies this service builds itself, such as relayed and streamed parts, are
+ * in memory and retried as usual.
+ */
+@Component
+@Slf4j
+public class S3Throttle {
+
+    static final String LIMIT_GAUGE = "s3.throttle.limit";
+    static final String RETRY_COUNTER = "s3.retries";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${app.s3.throttle.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.s3.throttle.initial-limit:32}")
+    private int initialLimit;
+
+    @Value("${app.s3.throttle.min-limit:1}")
+    private int minLimit;
+
+    @Value("${app.s3.throttle.max-limit:256}")
+    private int maxLimit;
+
+    @Value("${app.s3.throttle.decrease-ratio:0.7}")
+    private double decreaseRatio;
+
+    @Value("${app.s3.throttle.decrease-cooldown-ms:500}")
+    private long decreaseCooldownMs;
+
+    @Value("${app.s3.throttle.acquire-timeout-ms:60000}")
+    private long acquireTimeoutMs;
+
+    /** Key segments, split on {@code /}, that make up a partition; 0 limits whole buckets. */
+    @Value("${app.s3.throttle.prefix-depth:1}")
+    private int prefixDepth;
+
+    /** Beyond this many partitions, new prefixes share their bucket's limiter. */
+    @Value("${app.s3.throttle.max-partitions:256}")
+    private int maxPartitions;
+
+    @Value("${app.s3.retry.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${app.s3.retry.base-delay-ms:100}")
+    private long baseDelayMs;
+
+    @Value("${app.s3.retry.max-delay-ms:10000}")
+    private long maxDelayMs;
+
+    /** Retry tokens each success adds to the budget. */
+    @Value("${app.s3.retry.budget-ratio:0.2}")
+    private double budgetRatio;
+
+    @Value("${app.s3.retry.budget-max:100}")
+    private double budgetMax;
+
+    /** Retry tokens added per second regardless of successes, so a burst of failures doesn't starve retries for good. */
+    @Value("${app.s3.retry.budget-min-per-second:10}")
+    private double budgetMinPerSecond;
+
+    private final Map<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+    private final Object budgetLock = new Object();
+    private double budget;
+    private long budgetRefilledAt;
+
+    public S3Throttle(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        budget = budgetMax;
+        budgetRefilledAt = System.nanoTime();
+    }
+
+    /**
+     * Runs {@code request} under the limiter for {@code bucket}/{@code key},
+     * retrying it while it fails with a throttling or transient error.
+     *
+     * @param key       object key or prefix the request is about, null for bucket-level calls
+     * @param retryable false if the request can't be sent twice, e.g. it consumes a one-shot stream
+     */
+    public <T> T call(String bucket, String key, boolean retryable, Supplier<T> request) {
+        if (!enabled) {
+            return request.get();
+        }
+        String partition = partition(bucket, key);
+        AdaptiveLimiter limiter = limiter(partition);
+        for (int attempt = 1; ; attempt++) {
+            acquire(limiter, partition);
+            T result = null;
+            RuntimeException failure = null;
+            boolean succeeded = false;
+            try {
+                result = request.get();
+                succeeded = true;
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                // whatever the request throws, Errors included, its slot is given back
+                if (succeeded) {
+                    limiter.onSuccess();
+                } else if (failure != null && isThrottled(failure)) {
+                    limiter.onThrottled();
+                    log.debug("S3 throttled on {}, limit now {}", partition, limiter.getLimit());
+                } else {
+                    limiter.onIgnored();
+                }
+            }
+            if (failure != null) {
+                RuntimeException e = failure;
+                boolean throttled = isThrottled(e);
+                if (!throttled && !isTransient(e)) {
+                    throw e;
+                }
+                String reason = throttled ? "throttled" : "transient";
+                if (!retryable) {
+                    countRetry(reason, "not_replayable");
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    countRetry(reason, "attempts_exhausted");
+                    throw e;
+                }
+                if (!withdrawRetry()) {
+                    countRetry(reason, "budget_exhausted");
+                    throw e;
+                }
+                countRetry(reason, "retried");
+                sleep(backoff(attempt));
+                continue;
+            }
+            depositRetry();
+            return result;
+        }
+    }
+
+    private void acquire(AdaptiveLimiter limiter, String partition) {
+        try {
+            if (!limiter.acquire(acquireTimeoutMs)) {
+                throw new RuntimeException("Timed out waiting for an S3 request slot on " + partition
+                        + " (limit " + limiter.getLimit() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for an S3 request slot on " + partition, e);
+        }
+    }
+
+    private String partition(String bucket, String key) {
+        StringBuilder partition = new StringBuilder(String.valueOf(bucket)).append('/');
+        if (key != null && prefixDepth > 0) {
+            int end = -1;
+            for (int i = 0; i < prefixDepth; i++) {
+                int slash = key.indexOf('/', end + 1);
+                if (slash < 0) {
+                    break;
+                }
+                end = slash;
+            }
+            partition.append(key, 0, end + 1);
+        }
+        return partition.toString();
+    }
+
+    private AdaptiveLimiter limiter(String partition) {
+        AdaptiveLimiter limiter = limiters.get(partition);
+        if (limiter != null) {
+            return limiter;
+        }
+        if (limiters.size() >= maxPartitions) {
+            // keep memory and metric cardinality bounded; fall back to the bucket
+            partition = partition.substring(0, partition.indexOf('/') + 1);
+        }
+        return limiters.computeIfAbsent(partition, p -> {
+            AdaptiveLimiter created = new AdaptiveLimiter(initialLimit, minLimit, maxLimit, decreaseRatio,
+                    decreaseCooldownMs);
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry != null) {
+                Gauge.builder(LIMIT_GAUGE, created, AdaptiveLimiter::getLimit)
+                        .description("Current adaptive concurrency limit for S3 requests")
+                        .tag("partition", p)
+                        .register(registry);
+            }
+            return created;
+        });
+    }
+
+    private static boolean isThrottled(RuntimeException e) {
+        if (e instanceof SdkServiceException) {
+            SdkServiceException service = (SdkServiceException) e;
+            return service.isThrottlingException() || service.statusCode() == 503;
+        }
+        return false;
+    }
+
+    /** Server errors and I/O failures; anything else is the request's own fault. */
+    private static boolean isTransient(RuntimeException e) {
+        if (e instanceof SdkServiceException) {
+            return ((SdkServiceException) e).statusCode() >= 500;
+        }
+        return (e instanceof SdkClientException && e.getCause() instanceof IOException)
+                || e instanceof UncheckedIOException;
+    }
+
+    private boolean withdrawRetry() {
+        synchronized (budgetLock) {
+            long now = System.nanoTime();
+            budget = Math.min(budgetMax, budget + budgetMinPerSecond * (now - budgetRefilledAt) / 1e9);
+            budgetRefilledAt = now;
+            if (budget < 1) {
+                return false;
+            }
+            budget -= 1;
+            return true;
+        }
+    }
+
+    private void depositRetry() {
+        synchronized (budgetLock) {
+            budget = Math.min(budgetMax, budget + budgetRatio);
+        }
+    }
+
+    /** Full jitter: uniformly random up to the exponential ceiling. */
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while backing off an S3 retry", e);
+        }
+    }
+
+    private void countRetry(String reason, String result) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Counter.builder(RETRY_COUNTER)
+                    .description("S3 calls that failed with a retryable error, by what happened next")
+                    .tag("reason", reason)
+                    .tag("result", result)
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        synchronized (budgetLock) {
+            stats.put("retryBudget", budget);
+        }
+        Map<String, Object> partitions = new LinkedHashMap<>();
+        limiters.forEach((partition, limiter) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("limit", limiter.getLimit());
+            values.put("inFlight", limiter.getInFlight());
+            partitions.put(partition, values);
+        });
+        stats.put("partitions", partitions);
+        return stats;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.s3transfer.service;
+
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * S3 refused a server-side copy because the destination's credentials can't
+ * read the source (403) or the source lives in another region (301).
+ */
+public class ServerSideCopyDeniedException extends RuntimeException {
+
+    public ServerSideCopyDeniedException(String message) {
+        super(message);
+    }
+
+    /**
+     * Whether S3 answered a copy or part copy with one of the statuses above.
+     */
+    public static boolean isDenial(Throwable e) {
+        return e instanceof S3Exception
+                && (((S3Exception) e).statusCode() == 403 || ((S3Exception) e).statusCode() == 301);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.ObjectAttributes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Uploads a stream of unknown length as a multipart upload, reading one part
+ * at a time into pooled buffers and sending several parts in parallel while
+ * the next one is still being received.
+ *
+ * <p>With a checksum algorithm in the attributes each part is checksummed on
+ * its upload thread and sent with its checksum, and the stored object's
+ * checksum is read back and checked against the parts' once it completes.
+ */
+@Service
+@Slf4j
+public class StreamingUploadService {
+
+    private final IS3Service s3Service;
+    private final ExecutorService partExecutor;
+    private final BufferPool bufferPool;
+    private final int concurrency;
+
+    public StreamingUploadService(IS3Service s3Service,
+                                  @Qualifier("s3PartExecutor") ExecutorService partExecutor,
+                                  @Value("${app.s3.upload.part-size:8MB}") DataSize partSize,
+                                  @Value("${app.s3.upload.buffer-count:16}") int bufferCount,
+                                  @Value("${app.s3.upload.concurrency:4}") int concurrency) {
+        this.s3Service = s3Service;
+        this.partExecutor = partExecutor;
+        this.bufferPool = new BufferPool(
+                (int) Math.max(partSize.toBytes(), MultipartSettings.MIN_PART_SIZE), bufferCount);
+        this.concurrency = Math.max(1, Math.min(concurrency, bufferCount));
+    }
+
+    /**
+     * Streams {@code in} to {@code bucket/key} and returns the number of bytes stored.
+     * Bodies smaller than one part are sent with a single PUT.
+     */
+    public long upload(String bucket, String key, InputStream in, ObjectAttributes attributes) {
+        return upload(s3Service, bucket, key, in, attributes);
+    }
+
+    /**
+     * Same, writing with {@code s3Service}, e.g. one bound to another credential.
+     */
+    public long upload(IS3Service s3Service, String bucket, String key, InputStream in, ObjectAttributes attributes) {
+        return upload(s3Service, bucket, key, in, attributes, TransferProgressListener.NONE);
+    }
+
+    /**
+     * Same, reporting the stored checksum to {@code progress} once it is verified.
+     *
+     * @throws ChecksumMismatchException if the stored object's checksum doesn't match the bytes sent
+     */
+    public long upload(IS3Service s3Service, String bucket, String key, InputStream in, ObjectAttributes attributes,
+                       TransferProgressListener progress) {
+        ChecksumAlgorithm algorithm = attributes.getChecksumAlgorithm();
+        byte[] buffer = null;
+        int read;
+        try {
+            buffer = bufferPool.acquire();
+            read = readFully(in, buffer);
+        } catch (Exception e) {
+            if (buffer != null) {
+                bufferPool.release(buffer);
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new RuntimeException("Failed to read upload stream: " + e.getMessage(), e);
+        }
+
+        if (read < buffer.length) {
+            try {
+                if (algorithm != null) {
+                    attributes.setChecksum(Checksums.of(algorithm, buffer, 0, read));
+                }
+                s3Service.uploadFile(bucket, key, new ByteArrayInputStream(buffer, 0, read), read, attributes);
+            } finally {
+                bufferPool.release(buffer);
+            }
+            if (algorithm != null) {
+                progress.verified(algorithm, Checksums.verify(s3Service, bucket, key, algorithm,
+                        attributes.getChecksum()));
+            }
+            return read;
+        }
+
+        String uploadId = s3Service.createMultipartUpload(bucket, key, attributes);
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<CompletedPart>> futures = new ArrayList<>();
+        long total = 0;
+        byte[] pending = buffer;
+        try {
+            int partNumber = 1;
+            while (read > 0 && !failed.get()) {
+                inFlight.acquire();
+                byte[] part = pending;
+                pending = null;
+                int length = read;
+                int number = partNumber++;
+                CompletableFuture<CompletedPart> future = CompletableFuture.supplyAsync(() ->
+                        s3Service.uploadPart(bucket, key, uploadId, number,
+                                new ByteArrayInputStream(part, 0, length), length, algorithm,
+                                algorithm != null ? Checksums.of(algorithm, part, 0, length) : null), partExecutor);
+                future.whenComplete((r, e) -> {
+                    bufferPool.release(part);
+                    inFlight.release();
+                    if (e != null) {
+                        failed.set(true);
+                    }
+                });
+                futures.add(future);
+                total += length;
+
+                if (length < part.length) {
+                    break;
+                }
+                pending = bufferPool.acquire();
+                read = readFully(in, pending);
+            }
+            if (pending != null) {
+                bufferPool.release(pending);
+                pending = null;
+            }
+
+            List<CompletedPart> parts = new ArrayList<>(futures.size());
+            for (CompletableFuture<CompletedPart> f : futures) {
+                parts.add(f.get());
+            }
+            parts.sort(Comparator.comparing(CompletedPart::partNumber));
+            s3Service.completeMultipartUpload(bucket, key, uploadId, parts);
+            log.info("Streaming upload completed: {}/{} ({} bytes, {} parts)", bucket, key, total, parts.size());
+        } catch (Exception e) {
+            if (pending != null) {
+                bufferPool.release(pending);
+            }
+            futures.forEach(f -> f.cancel(true));
+            try {
+                s3Service.abortMultipartUpload(bucket, key, uploadId);
+            } catch (Exception abortError) {
+                log.warn("Failed to abort streaming upload {}/{} ({})", bucket, key, uploadId, abortError);
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Streaming upload failed: " + cause.getMessage(), cause);
+        }
+        if (algorithm != null) {
+            List<String> checksums = new ArrayList<>(futures.size());
+            for (CompletableFuture<CompletedPart> f : futures) {
+                checksums.add(Checksums.of(f.join(), algorithm));
+            }
+            progress.verified(algorithm, Checksums.verify(s3Service, bucket, key, algorithm,
+                    Checksums.composite(algorithm, checksums)));
+        }
+        return total;
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int n = in.read(buffer, total, buffer.length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.s3transfer.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.util.Map;
+
+/**
+ * Durable record of a multipart copy's progress, so a retried or restarted
+ * transfer continues the same upload and skips the parts already copied.
+ */
+public interface TransferCheckpoint {
+
+    TransferCheckpoint NONE = new TransferCheckpoint() {
+    };
+
+    /**
+     * The upload to continue, or null to start a new one.
+     */
+    default Resume resume() {
+        return null;
+    }
+
+    default void started(String uploadId, String sourceEtag) {
+    }
+
+    default void partCompleted(String uploadId, CompletedPart part, long firstByte, long lastByte) {
+    }
+
+    /**
+     * The upload was completed or aborted; nothing is left to resume.
+     */
+    default void finished() {
+    }
+
+    /**
+     * Whether a failed upload should be kept for a later attempt rather than aborted.
+     */
+    default boolean isDurable() {
+        return false;
+    }
+
+    /**
+     * A started upload, the source version it copies and its checkpointed parts
+     * by part number.
+     */
+    @Getter
+    @AllArgsConstructor
+    class Resume {
+        private final String uploadId;
+        private final String sourceEtag;
+        private final Map<Integer, Part> parts;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    class Part {
+        private final int partNumber;
+        private final String eTag;
+        private final long firstByte;
+        private final long lastByte;
+    }
+}
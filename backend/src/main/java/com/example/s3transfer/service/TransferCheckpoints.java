@@ -0,0 +1,89 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.entity.TransferJob;
+import com.example.s3transfer.entity.TransferPartCheckpoint;
+import com.example.s3transfer.repository.TransferPartCheckpointRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checkpoints multipart copies against their transfer job: the upload id and
+ * source ETag live on the job row, each finished part gets its own row.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransferCheckpoints {
+
+    private final TransferPartCheckpointRepository repo;
+    private final TransferJobStore jobStore;
+
+    public TransferCheckpoint forJob(TransferJob job) {
+        return new JobCheckpoint(job);
+    }
+
+    private class JobCheckpoint implements TransferCheckpoint {
+        private final TransferJob job;
+
+        JobCheckpoint(TransferJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public Resume resume() {
+            String uploadId = job.getUploadId();
+            if (uploadId == null) {
+                return null;
+            }
+            Map<Integer, Part> parts = new HashMap<>();
+            // oldest first, so a part copied again replaces its earlier row
+            for (TransferPartCheckpoint row : repo.findByJobIdAndUploadIdOrderByCreatedAt(job.getId(), uploadId)) {
+                parts.put(row.getPartNumber(),
+                        new Part(row.getPartNumber(), row.getEtag(), row.getFirstByte(), row.getLastByte()));
+            }
+            return new Resume(uploadId, job.getSourceEtag(), parts);
+        }
+
+        /**
+         * Writes the upload id through right away; until the job row has it the
+         * upload could only be found by the orphan sweeper.
+         */
+        @Override
+        public void started(String uploadId, String sourceEtag) {
+            job.setUploadId(uploadId);
+            job.setSourceEtag(sourceEtag);
+            jobStore.update(job);
+            jobStore.flush();
+        }
+
+        @Override
+        public void partCompleted(String uploadId, CompletedPart part, long firstByte, long lastByte) {
+            TransferPartCheckpoint row = new TransferPartCheckpoint();
+            row.setJobId(job.getId());
+            row.setUploadId(uploadId);
+            row.setPartNumber(part.partNumber());
+            row.setEtag(part.eTag());
+            row.setFirstByte(firstByte);
+            row.setLastByte(lastByte);
+            row.setCreatedAt(LocalDateTime.now());
+            repo.save(row);
+        }
+
+        @Override
+        public void finished() {
+            job.setUploadId(null);
+            job.setSourceEtag(null);
+            jobStore.update(job);
+            repo.deleteByJob(job.getId());
+        }
+
+        @Override
+        public boolean isDurable() {
+            return true;
+        }
+    }
+}
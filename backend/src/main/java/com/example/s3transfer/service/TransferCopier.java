@@ -0,0 +1,245 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.ObjectAttributes;
+import com.example.s3transfer.entity.TransferJob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Copies a transfer job's object with the job's source and destination
+ * credentials. With one credential for both sides S3 copies server-side. With
+ * two, a server-side copy signed by the destination is tried first, which works
+ * when the source bucket grants it read access; if S3 refuses, the object is
+ * relayed through this node by a {@link RelayCopier}. Jobs that encrypt their
+ * copy are always relayed, sealing each part on the way; jobs that compress it
+ * stream the object through the compressor into a new upload. Every path
+ * stores the copy with the job's checksum and checks it once stored.
+ *
+ * <p>With the async profile, plain copies under one credential can also run
+ * on the {@link IAsyncS3Service} through {@link #copyAsync}, without holding a
+ * thread while S3 copies.
+ */
+@Component
+@Slf4j
+public class TransferCopier {
+
+    private final IS3Service s3Service;
+    private final ExecutorService partExecutor;
+    private final MultipartSettings multipartSettings;
+    private final BufferPool relayBuffers;
+    private final int relayReaders;
+    private final int relayWriters;
+    private final boolean tryServerSide;
+    private final PayloadEncryptionService encryption;
+    private final CompressionService compression;
+    private final StreamingUploadService streamingUpload;
+    /** Null unless the async profile is active. */
+    private final IAsyncS3Service asyncS3Service;
+
+    public TransferCopier(IS3Service s3Service,
+                          @Qualifier("s3PartExecutor") ExecutorService partExecutor,
+                          MultipartSettings multipartSettings,
+                          @Qualifier("relayBufferPool") BufferPool relayBuffers,
+                          @Value("${app.transfer.relay.read-concurrency:4}") int readers,
+                          @Value("${app.transfer.relay.write-concurrency:4}") int writers,
+                          @Value("${app.transfer.relay.try-server-side:true}") boolean tryServerSide,
+                          PayloadEncryptionService encryption,
+                          CompressionService compression,
+                          StreamingUploadService streamingUpload,
+                          ObjectProvider<IAsyncS3Service> asyncS3Service) {
+        this.s3Service = s3Service;
+        this.partExecutor = partExecutor;
+        this.multipartSettings = multipartSettings;
+        this.relayBuffers = relayBuffers;
+        this.relayReaders = readers;
+        this.relayWriters = writers;
+        this.tryServerSide = tryServerSide;
+        this.encryption = encryption;
+        this.compression = compression;
+        this.streamingUpload = streamingUpload;
+        this.asyncS3Service = asyncS3Service.getIfAvailable();
+    }
+
+    /**
+     * @throws RuntimeException if either credential isn't stored
+     */
+    public void checkCredentials(UUID sourceCredentialId, UUID destinationCredentialId) {
+        s3Service.forCredential(sourceCredentialId);
+        s3Service.forCredential(destinationCredentialId);
+    }
+
+    /**
+     * @return the number of bytes copied
+     */
+    public long copy(TransferJob job, TransferProgressListener progress, TransferCheckpoint checkpoint) {
+        String sourceBucket = job.getSourceBucket();
+        String destinationBucket = job.getDestinationBucket();
+        String key = job.getFileKey();
+        IS3Service source = s3Service.forCredential(job.getSourceCredentialId());
+        ContentCoding coding = ContentCoding.of(job.getCompression());
+        ChecksumAlgorithm checksum = Checksums.parse(job.getChecksumAlgorithm());
+        if (job.isEncrypt() || coding != null) {
+            HeadObjectResponse head = source.headObject(sourceBucket, key);
+            boolean encrypted = encryption.isEncrypted(head.metadata());
+            PayloadEnvelope envelope = job.isEncrypt() && !encrypted ? encryption.newEnvelope() : null;
+            IS3Service destination = s3Service.forCredential(job.getDestinationCredentialId());
+            // a retry gets a new data key and a new compressed stream, so neither resumes from checkpoints
+            if (coding != null && !encrypted && compression.codingOf(head.metadata()) == null) {
+                return recode(source, destination, sourceBucket, destinationBucket, key, head, coding, envelope,
+                        checksum, progress);
+            }
+            if (envelope != null) {
+                return relay(source, destination, sourceBucket, destinationBucket, key, head, progress,
+                        TransferCheckpoint.NONE, envelope, checksum);
+            }
+            log.info("{}/{} is already {}, copying it as it is", sourceBucket, key,
+                    encrypted ? "encrypted" : "compressed");
+        }
+        if (Objects.equals(job.getSourceCredentialId(), job.getDestinationCredentialId())) {
+            return source.copyFile(sourceBucket, destinationBucket, key, progress, checkpoint, checksum);
+        }
+        IS3Service destination = s3Service.forCredential(job.getDestinationCredentialId());
+        if (tryServerSide) {
+            try {
+                return destination.copyFile(sourceBucket, destinationBucket, key, progress, checkpoint, checksum);
+            } catch (ServerSideCopyDeniedException e) {
+                log.info("Server-side copy of {}/{} not possible, relaying it: {}", sourceBucket, key, e.getMessage());
+            }
+        }
+        return relay(source, destination, sourceBucket, destinationBucket, key, source.headObject(sourceBucket, key),
+                progress, checkpoint, null, checksum);
+    }
+
+    /**
+     * Whether {@link #copyAsync} can take the job: the async service is there,
+     * and S3 can copy the object server-side as it is. Relayed, encrypted and
+     * compressed copies stream through this node and stay on {@link #copy}.
+     */
+    public boolean canCopyAsync(TransferJob job) {
+        return asyncS3Service != null && !job.isEncrypt() && ContentCoding.of(job.getCompression()) == null
+                && Objects.equals(job.getSourceCredentialId(), job.getDestinationCredentialId());
+    }
+
+    /**
+     * Non-blocking server-side copy, for jobs {@link #canCopyAsync} accepts.
+     * Multipart copies aren't checkpointed, so a retry starts over.
+     *
+     * @return a future of the number of bytes copied
+     */
+    public CompletableFuture<Long> copyAsync(TransferJob job, TransferProgressListener progress) {
+        return asyncS3Service.forCredential(job.getSourceCredentialId()).copyFile(job.getSourceBucket(),
+                job.getDestinationBucket(), job.getFileKey(), progress, Checksums.parse(job.getChecksumAlgorithm()));
+    }
+
+    /**
+     * @param envelope seals the copy; null copies the bytes as they are
+     * @param checksum null for none
+     */
+    private long relay(IS3Service source, IS3Service destination, String sourceBucket, String destinationBucket,
+                       String key, HeadObjectResponse head, TransferProgressListener progress,
+                       TransferCheckpoint checkpoint, PayloadEnvelope envelope, ChecksumAlgorithm checksum) {
+        long size = head.contentLength();
+        progress.started(size);
+        ObjectAttributes attributes = new ObjectAttributes(head.contentType(), head.metadata(), head.contentEncoding());
+        if (envelope != null) {
+            attributes = encryption.seal(attributes, envelope);
+        }
+        if (size == 0) {
+            byte[] body = new byte[envelope == null ? 0 : PayloadEnvelope.TAG_LENGTH];
+            if (envelope != null) {
+                // an empty payload is just its final chunk's tag
+                envelope.seal(0, true, body, 0, 0, body, 0);
+            }
+            if (checksum != null) {
+                attributes.setChecksumAlgorithm(checksum);
+                attributes.setChecksum(Checksums.of(checksum, body, 0, body.length));
+            }
+            destination.uploadFile(destinationBucket, key, new ByteArrayInputStream(body), body.length, attributes);
+            if (checksum != null) {
+                progress.verified(checksum, Checksums.verify(destination, destinationBucket, key, checksum,
+                        attributes.getChecksum()));
+            }
+        } else {
+            RelayCopier copier = new RelayCopier(source, destination, partExecutor, multipartSettings,
+                    relayBuffers, relayReaders, relayWriters, envelope, attributes);
+            // a single part isn't worth checkpointing
+            copier.copy(sourceBucket, destinationBucket, key, head, progress,
+                    size > relayBuffers.getBufferSize() ? checkpoint : TransferCheckpoint.NONE, checksum);
+        }
+        log.info("File relayed{}: {}/{} -> {}/{} ({} bytes)", envelope != null ? " and encrypted" : "",
+                sourceBucket, key, destinationBucket, key, size);
+        return size;
+    }
+
+    /**
+     * Streams the object through the compressor, and then {@code envelope} if
+     * given, into a new upload. Compressed part boundaries aren't known up front,
+     * so one GET feeds the upload instead of parallel ranged reads.
+     */
+    private long recode(IS3Service source, IS3Service destination, String sourceBucket, String destinationBucket,
+                        String key, HeadObjectResponse head, ContentCoding coding, PayloadEnvelope envelope,
+                        ChecksumAlgorithm checksum, TransferProgressListener progress) {
+        long size = head.contentLength();
+        progress.started(size);
+        ObjectAttributes attributes = compression.mark(new ObjectAttributes(head.contentType(), head.metadata()),
+                coding, size, envelope == null);
+        if (envelope != null) {
+            attributes = encryption.seal(attributes, envelope);
+        }
+        attributes.setChecksumAlgorithm(checksum);
+        try (CompressingInputStream compressed = compression.compress(
+                new ProgressInputStream(source.downloadFile(sourceBucket, key), progress), coding)) {
+            InputStream body = envelope != null ? encryption.encrypt(compressed, envelope) : compressed;
+            streamingUpload.upload(destination, destinationBucket, key, body, attributes, progress);
+            progress.compressed(compressed.getBytesOut(), compressed.getCpuNanos());
+            log.info("File compressed{}: {}/{} -> {}/{} ({})", envelope != null ? " and encrypted" : "",
+                    sourceBucket, key, destinationBucket, key, compression.record(compressed));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close " + sourceBucket + "/" + key, e);
+        }
+        return size;
+    }
+
+    /** Reports bytes as the copy reads them from the source. */
+    private static class ProgressInputStream extends FilterInputStream {
+        private final TransferProgressListener progress;
+
+        ProgressInputStream(InputStream in, TransferProgressListener progress) {
+            super(in);
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                progress.transferred(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                progress.transferred(n);
+            }
+            return n;
+        }
+    }
+}
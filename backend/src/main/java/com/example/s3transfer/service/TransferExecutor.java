@@ -0,0 +1,214 @@
+package com.example.s3transfer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded worker pool for transfer jobs. Jobs beyond the queue capacity are
+ * rejected instead of piling up, and each bucket is limited to a fixed number
+ * of concurrently running transfers. Bucket permits are taken when a job is
+ * submitted, never waited for on a worker, so jobs for one busy bucket can't
+ * hold up workers that jobs for other buckets could use. Non-blocking
+ * transfers only borrow a worker to start, and are limited by their own
+ * in-flight count instead.
+ */
+@Component
+// shut down before the job store so its final flush sees the last job states
+@DependsOn("transferJobStore")
+@Slf4j
+public class TransferExecutor {
+
+    private final int coreSize;
+    private final int maxSize;
+    private final int queueCapacity;
+    private final int perBucketLimit;
+    private final long retryAfterSeconds;
+    private final long shutdownTimeoutSeconds;
+    private final int asyncMaxInFlight;
+
+    private ThreadPoolExecutor pool;
+    private final ConcurrentHashMap<String, Semaphore> bucketPermits = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicInteger asyncInFlight = new AtomicInteger();
+
+    public TransferExecutor(@Value("${app.transfer.executor.core-size:4}") int coreSize,
+                            @Value("${app.transfer.executor.max-size:16}") int maxSize,
+                            @Value("${app.transfer.executor.queue-capacity:500}") int queueCapacity,
+                            @Value("${app.transfer.executor.per-bucket-limit:8}") int perBucketLimit,
+                            @Value("${app.transfer.executor.retry-after-seconds:5}") long retryAfterSeconds,
+                            @Value("${app.transfer.executor.shutdown-timeout-seconds:30}") long shutdownTimeoutSeconds,
+                            @Value("${app.transfer.executor.async-max-in-flight:1000}") int asyncMaxInFlight) {
+        this.coreSize = coreSize;
+        this.maxSize = maxSize;
+        this.queueCapacity = queueCapacity;
+        this.perBucketLimit = perBucketLimit;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        this.asyncMaxInFlight = asyncMaxInFlight;
+    }
+
+    @PostConstruct
+    public void init() {
+        pool = new ThreadPoolExecutor(coreSize, Math.max(coreSize, maxSize), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("transfer-worker-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues a transfer touching the given buckets, holding a permit on each
+     * until it finishes.
+     *
+     * @throws BucketBusyException        if either bucket is at its limit
+     * @throws TransferRejectedException if the queue is full
+     */
+    public void submit(String sourceBucket, String destinationBucket, Runnable task) {
+        List<Semaphore> held = acquireBucketPermits(sourceBucket, destinationBucket);
+        try {
+            pool.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    held.forEach(Semaphore::release);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            held.forEach(Semaphore::release);
+            rejected.incrementAndGet();
+            throw new TransferRejectedException("Transfer queue is full, retry later", retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Starts a non-blocking transfer on a worker, which is free again as soon as
+     * {@code task} returns its future. The transfer counts against
+     * {@code async-max-in-flight} rather than the bucket limits until the future
+     * completes.
+     *
+     * @throws TransferRejectedException if as many transfers are in flight or the queue is full
+     */
+    public void submitAsync(Supplier<CompletableFuture<?>> task) {
+        if (asyncInFlight.incrementAndGet() > asyncMaxInFlight) {
+            asyncInFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new TransferRejectedException("Too many transfers in flight, retry later", retryAfterSeconds);
+        }
+        try {
+            pool.execute(() -> {
+                CompletableFuture<?> running;
+                try {
+                    running = task.get();
+                } catch (RuntimeException e) {
+                    asyncInFlight.decrementAndGet();
+                    throw e;
+                }
+                running.whenComplete((result, e) -> asyncInFlight.decrementAndGet());
+            });
+        } catch (RejectedExecutionException e) {
+            asyncInFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new TransferRejectedException("Transfer queue is full, retry later", retryAfterSeconds);
+        }
+    }
+
+    /**
+     * One permit per distinct bucket, or none if any bucket is at its limit.
+     */
+    private List<Semaphore> acquireBucketPermits(String sourceBucket, String destinationBucket) {
+        List<Semaphore> held = new ArrayList<>();
+        for (String bucket : new TreeSet<>(List.of(sourceBucket, destinationBucket))) {
+            Semaphore permits = bucketPermits.computeIfAbsent(bucket, b -> new Semaphore(perBucketLimit));
+            if (!permits.tryAcquire()) {
+                held.forEach(Semaphore::release);
+                throw new BucketBusyException("Bucket " + bucket + " is running " + perBucketLimit
+                        + " transfers, retry later", retryAfterSeconds);
+            }
+            held.add(permits);
+        }
+        return held;
+    }
+
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    public int getActiveWorkers() {
+        return pool.getActiveCount();
+    }
+
+    public int getAsyncInFlight() {
+        return asyncInFlight.get();
+    }
+
+    /**
+     * Core workers neither busy nor spoken for by a queued job; how many jobs
+     * this node should claim from the shared queue. None once the node has as
+     * many non-blocking transfers in flight as it allows.
+     */
+    public int idleWorkers() {
+        if (asyncInFlight.get() >= asyncMaxInFlight) {
+            return 0;
+        }
+        return Math.max(0, coreSize - pool.getActiveCount() - pool.getQueue().size());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", getQueueDepth());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("activeWorkers", getActiveWorkers());
+        stats.put("poolSize", pool.getPoolSize());
+        stats.put("maxWorkers", pool.getMaximumPoolSize());
+        stats.put("completedJobs", pool.getCompletedTaskCount());
+        stats.put("rejectedJobs", rejected.get());
+        stats.put("asyncInFlight", asyncInFlight.get());
+        stats.put("asyncMaxInFlight", asyncMaxInFlight);
+        Map<String, Integer> busyBuckets = new LinkedHashMap<>();
+        bucketPermits.forEach((bucket, permits) -> {
+            int inUse = perBucketLimit - permits.availablePermits();
+            if (inUse > 0) {
+                busyBuckets.put(bucket, inUse);
+            }
+        });
+        stats.put("activeByBucket", busyBuckets);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(shutdownTimeoutSeconds);
+        pool.shutdown();
+        if (!pool.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+            log.warn("Transfer workers still running after {}s, interrupting", shutdownTimeoutSeconds);
+            pool.shutdownNow();
+        }
+        // non-blocking transfers hold no worker, so give them what's left of the timeout separately
+        while (asyncInFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        if (asyncInFlight.get() > 0) {
+            log.warn("{} non-blocking transfers still running after {}s", asyncInFlight.get(), shutdownTimeoutSeconds);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.entity.TransferJob;
+import com.example.s3transfer.repository.TransferJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.type.Type;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind cache for {@link TransferJob} rows. A job's row is inserted when
+ * it is created; after that its state changes are made in memory and written on
+ * an interval, so the changes between flushes collapse into a single update, and
+ * a flush goes out as one JDBC batch. Status reads for cached jobs never touch
+ * the database.
+ *
+ * <p>Finished jobs stay cached for {@code retain-finished-ms} after they are
+ * written, then reads fall back to the repository.
+ *
+ * <p>Rows are shared with other nodes through {@link TransferQueue}, so an update
+ * only lands while the row still has the lease owner this node last wrote. If
+ * another node has taken the job over, the update is dropped and the job is
+ * treated as lost here.
+ */
+@Component
+@Slf4j
+public class TransferJobStore {
+
+    private final TransferJobRepository repo;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    private final long flushIntervalMs;
+    private final long retainFinishedMs;
+
+    private final ConcurrentHashMap<UUID, Entry> cache = new ConcurrentHashMap<>();
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> lost = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService flusher;
+
+    public TransferJobStore(TransferJobRepository repo, EntityManager entityManager,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${app.transfer.store.flush-interval-ms:500}") long flushIntervalMs,
+                            @Value("${app.transfer.store.retain-finished-ms:300000}") long retainFinishedMs) {
+        this.repo = repo;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.flushIntervalMs = flushIntervalMs;
+        this.retainFinishedMs = retainFinishedMs;
+    }
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("transfer-job-flush-"));
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the timer and writes whatever is pending. Runs after the transfer
+     * executor has drained (see {@link TransferExecutor}), so final states are kept.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushIntervalMs * 4, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (!dirty.isEmpty()) {
+            log.error("{} transfer job updates could not be written on shutdown", dirty.size());
+        }
+    }
+
+    /**
+     * Assigns an id and inserts the row before returning, so a job is never
+     * handed out that a crash could lose.
+     */
+    public TransferJob create(TransferJob job) {
+        job.setId(UUID.randomUUID());
+        TransferJob snapshot = new TransferJob();
+        BeanUtils.copyProperties(job, snapshot);
+        insert(snapshot);
+        cache.put(job.getId(), new Entry(job));
+        return job;
+    }
+
+    /**
+     * Takes over a job just claimed from the database, replacing any stale copy.
+     */
+    public void adopt(TransferJob job) {
+        lost.remove(job.getId());
+        cache.put(job.getId(), new Entry(job));
+    }
+
+    /**
+     * Queues a write of the job's current state. Call after changing it. Jobs
+     * whose lease went to another node are no longer written.
+     */
+    public void update(TransferJob job) {
+        if (lost.contains(job.getId())) {
+            if (isFinal(job.getStatus()) || job.getLeaseOwner() == null) {
+                lost.remove(job.getId());
+            }
+            return;
+        }
+        Entry entry = cache.computeIfAbsent(job.getId(), id -> new Entry(job));
+        if (isFinal(job.getStatus())) {
+            entry.finishedAt = System.currentTimeMillis();
+        }
+        dirty.add(job.getId());
+    }
+
+    /**
+     * Whether a write for the job found its lease held by another node.
+     */
+    public boolean isLost(UUID id) {
+        return lost.contains(id);
+    }
+
+    public Optional<TransferJob> find(UUID id) {
+        Entry entry = cache.get(id);
+        return entry != null ? Optional.of(entry.job) : repo.findById(id);
+    }
+
+    /**
+     * Looks jobs up in the cache first and fetches the rest in one query.
+     */
+    public List<TransferJob> findAll(Collection<UUID> ids) {
+        List<TransferJob> found = new ArrayList<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : ids) {
+            Entry entry = cache.get(id);
+            if (entry != null) {
+                found.add(entry.job);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            repo.findAllById(missing).forEach(found::add);
+        }
+        return found;
+    }
+
+    public int pendingWrites() {
+        return dirty.size();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Transfer job flush failed, will retry", e);
+        }
+    }
+
+    /**
+     * Writes every job changed since the last flush in one transaction.
+     */
+    public synchronized void flush() {
+        if (!dirty.isEmpty()) {
+            List<Entry> updated = new ArrayList<>();
+            List<TransferJob> updates = new ArrayList<>();
+            List<UUID> taken = new ArrayList<>();
+            for (Iterator<UUID> it = dirty.iterator(); it.hasNext(); ) {
+                UUID id = it.next();
+                it.remove();
+                Entry entry = cache.get(id);
+                if (entry == null) {
+                    continue;
+                }
+                taken.add(id);
+                // write a copy so Hibernate never sees a job a worker is still changing
+                TransferJob snapshot = new TransferJob();
+                BeanUtils.copyProperties(entry.job, snapshot);
+                updates.add(snapshot);
+                updated.add(entry);
+            }
+            List<String> owners = new ArrayList<>();
+            updated.forEach(entry -> owners.add(entry.owner));
+            boolean[] applied;
+            try {
+                applied = write(updates, owners);
+            } catch (RuntimeException e) {
+                dirty.addAll(taken);
+                throw e;
+            }
+            for (int i = 0; i < updates.size(); i++) {
+                TransferJob snapshot = updates.get(i);
+                if (applied[i]) {
+                    updated.get(i).owner = snapshot.getLeaseOwner();
+                } else {
+                    log.warn("Transfer job {} was taken over by another node, dropping local state", snapshot.getId());
+                    lost.add(snapshot.getId());
+                    cache.remove(snapshot.getId(), updated.get(i));
+                }
+            }
+            log.debug("Flushed {} transfer job updates", updates.size());
+        }
+        evictReleased();
+        evictFinished();
+    }
+
+    /**
+     * Inserts a new job's row in its own transaction.
+     */
+    protected void insert(TransferJob job) {
+        transactionTemplate.executeWithoutResult(status -> entityManager.persist(job));
+    }
+
+    /**
+     * Writes updates as one JDBC batch in a single transaction, each guarded by
+     * the expected lease owner, so a node can't overwrite a job another node has
+     * claimed since.
+     *
+     * @param owners the lease owner each update expects to find, in order
+     * @return for each update, whether its row was written
+     */
+    protected boolean[] write(List<TransferJob> updates, List<String> owners) {
+        boolean[] applied = new boolean[updates.size()];
+        transactionTemplate.executeWithoutResult(status -> {
+            SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+            // bind ids the way Hibernate maps them for the dialect (uuid, binary, ...)
+            Type idType = session.getFactory().getMetamodel().entityPersister(TransferJob.class).getIdentifierType();
+            session.doWork(connection -> {
+                int[] counts = executeUpdates(connection, updates, owners, idType, session);
+                for (int i = 0; i < counts.length; i++) {
+                    applied[i] = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+                }
+            });
+        });
+        return applied;
+    }
+
+    private static int[] executeUpdates(Connection connection, List<TransferJob> updates, List<String> owners,
+                                        Type idType, SessionImplementor session) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "update transfer_jobs set status = ?, error_message = ?, completed_at = ?, bytes_total = ?, " +
+                        "bytes_transferred = ?, lease_owner = ?, lease_expires_at = ?, attempts = ?, " +
+                        "next_attempt_at = ?, upload_id = ?, source_etag = ?, bytes_stored = ?, compression_cpu_ms = ?, " +
+                        "checksum = ? " +
+                        "where id = ? and coalesce(lease_owner, '') = ?")) {
+            for (int i = 0; i < updates.size(); i++) {
+                TransferJob job = updates.get(i);
+                ps.setString(1, job.getStatus());
+                setNullable(ps, 2, job.getErrorMessage(), Types.VARCHAR);
+                setNullable(ps, 3, job.getCompletedAt(), Types.TIMESTAMP);
+                setNullable(ps, 4, job.getBytesTotal(), Types.BIGINT);
+                setNullable(ps, 5, job.getBytesTransferred(), Types.BIGINT);
+                setNullable(ps, 6, job.getLeaseOwner(), Types.VARCHAR);
+                setNullable(ps, 7, job.getLeaseExpiresAt(), Types.TIMESTAMP);
+                ps.setInt(8, job.getAttempts());
+                setNullable(ps, 9, job.getNextAttemptAt(), Types.TIMESTAMP);
+                setNullable(ps, 10, job.getUploadId(), Types.VARCHAR);
+                setNullable(ps, 11, job.getSourceEtag(), Types.VARCHAR);
+                setNullable(ps, 12, job.getBytesStored(), Types.BIGINT);
+                setNullable(ps, 13, job.getCompressionCpuMs(), Types.BIGINT);
+                setNullable(ps, 14, job.getChecksum(), Types.VARCHAR);
+                idType.nullSafeSet(ps, job.getId(), 15, session);
+                ps.setString(16, owners.get(i) != null ? owners.get(i) : "");
+                ps.addBatch();
+            }
+            return ps.executeBatch();
+        }
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+        if (value != null) {
+            ps.setObject(index, value);
+        } else {
+            ps.setNull(index, sqlType);
+        }
+    }
+
+    /**
+     * Drops written jobs that went back to the shared queue; any node may run them
+     * next, so their state is read from the database from now on.
+     */
+    private void evictReleased() {
+        cache.entrySet().removeIf(e -> {
+            Entry entry = e.getValue();
+            return entry.owner == null && entry.job.getLeaseOwner() == null
+                    && !isFinal(entry.job.getStatus()) && !dirty.contains(e.getKey());
+        });
+    }
+
+    private void evictFinished() {
+        long cutoff = System.currentTimeMillis() - retainFinishedMs;
+        cache.entrySet().removeIf(e -> {
+            Entry entry = e.getValue();
+            return entry.finishedAt != 0 && entry.finishedAt < cutoff && !dirty.contains(e.getKey());
+        });
+    }
+
+    private static boolean isFinal(String status) {
+        return "COMPLETED".equals(status) || "FAILED".equals(status);
+    }
+
+    private static class Entry {
+        final TransferJob job;
+        volatile long finishedAt;
+        /** Lease owner the row had when this node last wrote or claimed it. */
+        volatile String owner;
+
+        Entry(TransferJob job) {
+            this.job = job;
+            this.owner = job.getLeaseOwner();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.TransferProgress;
+import com.example.s3transfer.entity.TransferJob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory progress of queued and running transfers, pushed to SSE watchers.
+ * A single ticker samples every live job once per interval, builds one snapshot
+ * and fans it out to all of that job's watchers, so the number of watchers
+ * never affects how often progress is computed or the database is read.
+ */
+@Component
+@Slf4j
+public class TransferProgressHub {
+
+    private static final String EVENT = "progress";
+
+    /** Time constant of the throughput average; older samples fade out over a few of these. */
+    private static final double RATE_WINDOW_SECONDS = 5.0;
+
+    private final TransferJobStore jobStore;
+
+    private final long intervalMs;
+    private final long sseTimeoutMs;
+
+    private final ConcurrentHashMap<UUID, Progress> live = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Set<Watch>> watchers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService ticker;
+
+    public TransferProgressHub(TransferJobStore jobStore,
+                               @Value("${app.transfer.progress.interval-ms:1000}") long intervalMs,
+                               @Value("${app.transfer.progress.sse-timeout-ms:1800000}") long sseTimeoutMs) {
+        this.jobStore = jobStore;
+        this.intervalMs = intervalMs;
+        this.sseTimeoutMs = sseTimeoutMs;
+    }
+
+    @PostConstruct
+    public void init() {
+        ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("transfer-progress-"));
+        ticker.scheduleWithFixedDelay(this::tick, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        watchers.values().forEach(set -> set.forEach(w -> w.emitter.complete()));
+        watchers.clear();
+    }
+
+    public void queued(TransferJob job) {
+        live.put(job.getId(), new Progress(job));
+    }
+
+    /**
+     * Drops a job that never made it onto the queue.
+     */
+    public void discard(UUID jobId) {
+        live.remove(jobId);
+    }
+
+    /**
+     * Marks the job as running and returns the listener its copy should report to.
+     */
+    public Progress running(TransferJob job) {
+        Progress progress = live.computeIfAbsent(job.getId(), id -> new Progress(job));
+        progress.status = job.getStatus();
+        return progress;
+    }
+
+    /**
+     * Records the state the job left this node in; watchers get it on the next
+     * tick, after which the job is served from the database. A job put back on
+     * the queue for a retry ends its streams here too, since any node may run it.
+     */
+    public void finished(TransferJob job) {
+        Progress progress = live.get(job.getId());
+        if (progress != null) {
+            progress.errorMessage = job.getErrorMessage();
+            progress.completedAt = job.getCompletedAt();
+            progress.status = job.getStatus();
+            progress.detached = true;
+        }
+    }
+
+    public TransferProgress get(UUID jobId) {
+        Progress progress = live.get(jobId);
+        if (progress != null) {
+            return progress.snapshot();
+        }
+        TransferJob job = jobStore.find(jobId)
+                .orElseThrow(() -> new RuntimeException("Transfer job not found: " + jobId));
+        return toProgress(job);
+    }
+
+    /**
+     * Opens an SSE stream for the given jobs. Each job gets an immediate snapshot,
+     * then one event per interval while it changes. The stream completes once every
+     * job has reached a final state.
+     */
+    public SseEmitter watch(Collection<UUID> jobIds) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Set<UUID> ids = new LinkedHashSet<>(jobIds);
+        Watch watch = new Watch(emitter, ids);
+        emitter.onCompletion(() -> unwatch(watch));
+        emitter.onTimeout(() -> unwatch(watch));
+        emitter.onError(e -> unwatch(watch));
+
+        // register before looking jobs up so a job finishing in between is not missed
+        ids.forEach(id -> watchers.computeIfAbsent(id, k -> new CopyOnWriteArraySet<>()).add(watch));
+
+        List<UUID> stored = new ArrayList<>();
+        for (UUID id : ids) {
+            Progress progress = live.get(id);
+            if (progress != null) {
+                watch.send(progress.snapshot());
+            } else {
+                stored.add(id);
+            }
+        }
+        if (!stored.isEmpty()) {
+            Set<UUID> found = new LinkedHashSet<>();
+            for (TransferJob job : jobStore.findAll(stored)) {
+                found.add(job.getId());
+                // not live on this node, so no further updates will come
+                watch.send(toProgress(job));
+                watch.done(job.getId());
+            }
+            for (UUID id : stored) {
+                if (!found.contains(id)) {
+                    TransferProgress missing = new TransferProgress();
+                    missing.setId(id);
+                    missing.setStatus("NOT_FOUND");
+                    watch.send(missing);
+                    watch.done(id);
+                }
+            }
+        }
+        return emitter;
+    }
+
+    private void unwatch(Watch watch) {
+        watch.jobIds.forEach(id -> watchers.computeIfPresent(id, (k, set) -> {
+            set.remove(watch);
+            return set.isEmpty() ? null : set;
+        }));
+    }
+
+    void tick() {
+        try {
+            long now = System.nanoTime();
+            for (Map.Entry<UUID, Progress> e : live.entrySet()) {
+                Progress progress = e.getValue();
+                boolean changed = progress.sample(now);
+                boolean finished = progress.isFinished();
+                if (changed || finished) {
+                    publish(e.getKey(), progress.snapshot(), finished);
+                }
+                if (finished) {
+                    live.remove(e.getKey(), progress);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Transfer progress tick failed", e);
+        }
+    }
+
+    private void publish(UUID jobId, TransferProgress snapshot, boolean finished) {
+        Set<Watch> set = watchers.get(jobId);
+        if (set == null) {
+            return;
+        }
+        for (Watch watch : set) {
+            watch.send(snapshot);
+            if (finished) {
+                watch.done(jobId);
+            }
+        }
+    }
+
+    private static TransferProgress toProgress(TransferJob job) {
+        TransferProgress progress = new TransferProgress();
+        progress.setId(job.getId());
+        progress.setStatus(job.getStatus());
+        progress.setBytesTotal(job.getBytesTotal());
+        progress.setBytesTransferred(job.getBytesTransferred() != null ? job.getBytesTransferred() : 0);
+        setCompression(progress, job.getCompression(), job.getBytesTotal(), job.getBytesStored(),
+                job.getCompressionCpuMs());
+        progress.setChecksumAlgorithm(job.getChecksumAlgorithm());
+        progress.setChecksum(job.getChecksum());
+        progress.setErrorMessage(job.getErrorMessage());
+        progress.setCreatedAt(job.getCreatedAt());
+        progress.setCompletedAt(job.getCompletedAt());
+        return progress;
+    }
+
+    private static void setCompression(TransferProgress progress, String compression, Long total, Long stored,
+                                       Long cpuMs) {
+        progress.setCompression(compression);
+        progress.setBytesStored(stored);
+        progress.setCompressionCpuMillis(cpuMs);
+        if (total != null && stored != null && stored > 0) {
+            progress.setCompressionRatio(CompressionService.ratio(total, stored));
+        }
+    }
+
+    private static boolean isFinal(String status) {
+        return "COMPLETED".equals(status) || "FAILED".equals(status);
+    }
+
+    /**
+     * Live counters for one job. Byte callbacks come from copy threads; the rate
+     * fields are only touched by the ticker.
+     */
+    public static class Progress implements TransferProgressListener {
+        private final UUID id;
+        private final LocalDateTime createdAt;
+        private final AtomicLong transferred = new AtomicLong();
+        private final String compression;
+        private final String checksumAlgorithm;
+        private volatile Long total;
+        private volatile Long stored;
+        private volatile Long compressionCpuMs;
+        private volatile String checksum;
+        private volatile String status;
+        private volatile String errorMessage;
+        private volatile LocalDateTime completedAt;
+        private volatile boolean detached;
+
+        private long lastSampleNanos;
+        private long lastSampleBytes;
+        private String lastSampleStatus;
+        private volatile double bytesPerSecond;
+
+        Progress(TransferJob job) {
+            this.id = job.getId();
+            this.createdAt = job.getCreatedAt();
+            this.status = job.getStatus();
+            this.compression = job.getCompression();
+            this.checksumAlgorithm = job.getChecksumAlgorithm();
+        }
+
+        @Override
+        public void started(long totalBytes) {
+            total = totalBytes;
+        }
+
+        @Override
+        public void transferred(long bytes) {
+            transferred.addAndGet(bytes);
+        }
+
+        @Override
+        public void compressed(long storedBytes, long cpuNanos) {
+            stored = storedBytes;
+            compressionCpuMs = TimeUnit.NANOSECONDS.toMillis(cpuNanos);
+        }
+
+        @Override
+        public void verified(ChecksumAlgorithm algorithm, String checksum) {
+            this.checksum = checksum;
+        }
+
+        public String getChecksum() {
+            return checksum;
+        }
+
+        public Long getBytesStored() {
+            return stored;
+        }
+
+        public Long getCompressionCpuMs() {
+            return compressionCpuMs;
+        }
+
+        public Long getBytesTotal() {
+            return total;
+        }
+
+        public long getBytesTransferred() {
+            return transferred.get();
+        }
+
+        boolean isFinished() {
+            return detached || isFinal(status);
+        }
+
+        /**
+         * Folds the bytes since the last tick into the moving average.
+         *
+         * @return whether anything a watcher would see has changed
+         */
+        boolean sample(long now) {
+            long bytes = transferred.get();
+            String currentStatus = status;
+            boolean changed = bytes != lastSampleBytes || !currentStatus.equals(lastSampleStatus);
+            if (lastSampleNanos != 0 && "IN_PROGRESS".equals(currentStatus)) {
+                double seconds = (now - lastSampleNanos) / 1e9;
+                if (seconds > 0) {
+                    double rate = (bytes - lastSampleBytes) / seconds;
+                    double alpha = 1 - Math.exp(-seconds / RATE_WINDOW_SECONDS);
+                    // start from the first real sample instead of ramping up from zero
+                    bytesPerSecond = bytesPerSecond == 0 ? rate : bytesPerSecond + alpha * (rate - bytesPerSecond);
+                    changed = true;
+                }
+            }
+            lastSampleNanos = now;
+            lastSampleBytes = bytes;
+            lastSampleStatus = currentStatus;
+            return changed;
+        }
+
+        TransferProgress snapshot() {
+            TransferProgress progress = new TransferProgress();
+            progress.setId(id);
+            progress.setStatus(status);
+            progress.setBytesTotal(total);
+            long bytes = transferred.get();
+            progress.setBytesTransferred(bytes);
+            double rate = bytesPerSecond;
+            progress.setBytesPerSecond(rate);
+            if (total != null && rate > 0 && !isFinished()) {
+                progress.setEtaSeconds((long) Math.ceil(Math.max(0, total - bytes) / rate));
+            }
+            setCompression(progress, compression, total, stored, compressionCpuMs);
+            progress.setChecksumAlgorithm(checksumAlgorithm);
+            progress.setChecksum(checksum);
+            progress.setErrorMessage(errorMessage);
+            progress.setCreatedAt(createdAt);
+            progress.setCompletedAt(completedAt);
+            return progress;
+        }
+    }
+
+    /**
+     * One SSE stream and the jobs it still waits on.
+     */
+    private static class Watch {
+        final SseEmitter emitter;
+        final Set<UUID> jobIds;
+        final Set<UUID> pending;
+
+        Watch(SseEmitter emitter, Set<UUID> jobIds) {
+            this.emitter = emitter;
+            this.jobIds = jobIds;
+            this.pending = ConcurrentHashMap.newKeySet();
+            this.pending.addAll(jobIds);
+        }
+
+        void send(TransferProgress progress) {
+            try {
+                emitter.send(SseEmitter.event().name(EVENT).data(progress));
+            } catch (IOException | IllegalStateException e) {
+                // client went away; the emitter callbacks take care of unwatching
+                emitter.completeWithError(e);
+            }
+        }
+
+        void done(UUID jobId) {
+            if (pending.remove(jobId) && pending.isEmpty()) {
+                emitter.complete();
+            }
+        }
+    }
+}
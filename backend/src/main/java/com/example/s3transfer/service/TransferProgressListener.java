@@ -0,0 +1,39 @@
+package com.example.s3transfer.service;
+
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+
+/**
+ * Receives byte progress from a running copy. Callbacks may come from several
+ * part threads at once.
+ */
+public interface TransferProgressListener {
+
+    TransferProgressListener NONE = new TransferProgressListener() {
+    };
+
+    /**
+     * Called once the object size is known, before any bytes are reported.
+     */
+    default void started(long totalBytes) {
+    }
+
+    /**
+     * Called with the number of bytes just finished, not a running total.
+     */
+    default void transferred(long bytes) {
+    }
+
+    /**
+     * Called once a compressed copy is stored, with its stored size and the CPU
+     * time spent compressing it.
+     */
+    default void compressed(long storedBytes, long cpuNanos) {
+    }
+
+    /**
+     * Called once the copy's stored checksum has been checked against the bytes
+     * that were sent.
+     */
+    default void verified(ChecksumAlgorithm algorithm, String checksum) {
+    }
+}
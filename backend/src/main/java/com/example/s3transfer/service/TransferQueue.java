@@ -0,0 +1,335 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.entity.TransferJob;
+import com.example.s3transfer.repository.TransferJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Database-backed transfer queue shared by every node pointing at the same
+ * {@code transfer_jobs} table. A node runs a job only while it holds the job's
+ * lease, which it renews on a heartbeat. Jobs whose owner stops renewing are
+ * claimed by another node, failed jobs are retried with backoff, and nothing
+ * queued is lost when a node dies.
+ *
+ * <p>Jobs submitted to a node with free workers are leased to it as soon as
+ * their row is written; everything else waits in the table until some node's
+ * poll claims it.
+ */
+@Component
+@Slf4j
+public class TransferQueue {
+
+    private final TransferJobRepository repo;
+    private final TransferJobStore jobStore;
+    private final TransferExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+
+    private final String nodeId;
+    private final long leaseSeconds;
+    private final long pollIntervalMs;
+    private final int maxAttempts;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final long maxBacklog;
+    private final long retryAfterSeconds;
+
+    /** Jobs this node holds the lease on, queued locally or running. */
+    private final ConcurrentHashMap<UUID, TransferJob> held = new ConcurrentHashMap<>();
+    private volatile long backlog;
+    private volatile Predicate<TransferJob> dispatcher;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param nodeId blank for the host name plus a random suffix
+     */
+    public TransferQueue(TransferJobRepository repo, TransferJobStore jobStore, TransferExecutor executor,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${app.transfer.queue.node-id:}") String nodeId,
+                         @Value("${app.transfer.queue.lease-seconds:60}") long leaseSeconds,
+                         @Value("${app.transfer.queue.poll-interval-ms:1000}") long pollIntervalMs,
+                         @Value("${app.transfer.queue.max-attempts:5}") int maxAttempts,
+                         @Value("${app.transfer.queue.backoff-base-ms:5000}") long backoffBaseMs,
+                         @Value("${app.transfer.queue.backoff-max-ms:300000}") long backoffMaxMs,
+                         @Value("${app.transfer.queue.max-backlog:10000}") long maxBacklog,
+                         @Value("${app.transfer.queue.retry-after-seconds:5}") long retryAfterSeconds) {
+        this.repo = repo;
+        this.jobStore = jobStore;
+        this.executor = executor;
+        this.transactionTemplate = transactionTemplate;
+        this.nodeId = nodeId == null || nodeId.isBlank()
+                ? hostName() + "-" + UUID.randomUUID().toString().substring(0, 8)
+                : nodeId;
+        this.leaseSeconds = leaseSeconds;
+        this.pollIntervalMs = pollIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.maxBacklog = maxBacklog;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @PostConstruct
+    public void init() {
+        log.info("Transfer queue node id: {}", nodeId);
+    }
+
+    /**
+     * Starts polling and heartbeats. Claimed jobs are handed to the dispatcher,
+     * which returns false if it can't take the job right now.
+     */
+    public void start(Predicate<TransferJob> dispatcher) {
+        this.dispatcher = dispatcher;
+        long heartbeatMs = Math.max(1000, leaseSeconds * 1000 / 3);
+        scheduler = Executors.newScheduledThreadPool(2, new CustomizableThreadFactory("transfer-queue-"));
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Adds a new job to the queue. Its row is written before this returns, so
+     * an accepted job survives a crash. If this node has an idle worker it then
+     * tries to lease the job and start it right away; otherwise, or if another
+     * node got there first, it waits for whichever node claims it.
+     *
+     * @throws TransferRejectedException if the shared backlog is full
+     */
+    public TransferJob submit(TransferJob job) {
+        if (backlog >= maxBacklog) {
+            throw new TransferRejectedException("Transfer queue is full, retry later", retryAfterSeconds);
+        }
+        job.setNextAttemptAt(now());
+        TransferJob saved = jobStore.create(job);
+        if (executor.idleWorkers() > 0 && leaseNew(saved)) {
+            offer(saved);
+        }
+        return saved;
+    }
+
+    /**
+     * Takes the lease on a job this node just inserted, through the same guarded
+     * update a poll uses.
+     */
+    private boolean leaseNew(TransferJob job) {
+        LocalDateTime now = now();
+        LocalDateTime expires = leaseExpiry();
+        Integer claimed = transactionTemplate.execute(status ->
+                repo.claim(List.of(job.getId()), nodeId, expires, now, maxAttempts));
+        if (claimed == null || claimed == 0) {
+            return false;
+        }
+        job.setLeaseOwner(nodeId);
+        job.setLeaseExpiresAt(expires);
+        job.setAttempts(job.getAttempts() + 1);
+        jobStore.adopt(job);
+        return true;
+    }
+
+    /**
+     * Hands a leased job to the dispatcher; if it is refused the lease is given
+     * back and the job waits in the table for any node.
+     */
+    private void offer(TransferJob job) {
+        held.put(job.getId(), job);
+        if (!dispatcher.test(job)) {
+            held.remove(job.getId());
+            job.setAttempts(job.getAttempts() - 1);
+            release(job);
+            jobStore.update(job);
+        }
+    }
+
+    /**
+     * Releases a job that finished. The caller writes the job.
+     */
+    public void complete(TransferJob job) {
+        held.remove(job.getId());
+        release(job);
+    }
+
+    /**
+     * Puts a failed job back on the queue after a backoff, or fails it for good
+     * once it has used all its attempts. The caller writes the job.
+     */
+    public void fail(TransferJob job, String error) {
+        held.remove(job.getId());
+        release(job);
+        job.setErrorMessage(error);
+        if (job.getAttempts() >= maxAttempts) {
+            job.setStatus("FAILED");
+            job.setCompletedAt(LocalDateTime.now());
+            return;
+        }
+        long delayMs = backoff(job.getAttempts());
+        job.setStatus("QUEUED");
+        job.setNextAttemptAt(LocalDateTime.now().plus(delayMs, ChronoUnit.MILLIS));
+        log.info("Transfer {} failed on attempt {}/{}, retrying in {} ms", job.getId(), job.getAttempts(),
+                maxAttempts, delayMs);
+    }
+
+    /**
+     * Puts a failed job back on the queue with all its attempts. The caller
+     * writes the job.
+     */
+    public void retry(TransferJob job) {
+        release(job);
+        job.setStatus("QUEUED");
+        job.setAttempts(0);
+        job.setErrorMessage(null);
+        job.setCompletedAt(null);
+        job.setNextAttemptAt(now());
+    }
+
+    public long getPollIntervalMs() {
+        return pollIntervalMs;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getHeldLeases() {
+        return held.size();
+    }
+
+    public long getBacklog() {
+        return backlog;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("heldLeases", held.size());
+        stats.put("backlog", backlog);
+        stats.put("maxBacklog", maxBacklog);
+        return stats;
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (Exception e) {
+            log.warn("Transfer queue poll failed", e);
+        }
+    }
+
+    /**
+     * Fails abandoned jobs that are out of attempts, then claims as many waiting
+     * jobs as there are idle workers.
+     */
+    void poll() {
+        LocalDateTime now = now();
+        int abandoned = repo.failAbandoned(now, maxAttempts);
+        if (abandoned > 0) {
+            log.warn("Failed {} transfer jobs abandoned on their final attempt", abandoned);
+        }
+        backlog = repo.countWaiting();
+        int idle = executor.idleWorkers();
+        if (idle == 0) {
+            return;
+        }
+        List<TransferJob> claimed = claim(idle, now);
+        if (!claimed.isEmpty()) {
+            log.debug("Claimed {} transfer jobs", claimed.size());
+        }
+        for (TransferJob job : claimed) {
+            jobStore.adopt(job);
+            offer(job);
+        }
+    }
+
+    private List<TransferJob> claim(int limit, LocalDateTime now) {
+        LocalDateTime expires = leaseExpiry();
+        List<TransferJob> claimed = transactionTemplate.execute(status -> {
+            List<UUID> ids = repo.findClaimable(now, maxAttempts, PageRequest.of(0, limit)).stream()
+                    .map(TransferJob::getId)
+                    .collect(Collectors.toList());
+            if (ids.isEmpty() || repo.claim(ids, nodeId, expires, now, maxAttempts) == 0) {
+                return Collections.<TransferJob>emptyList();
+            }
+            return repo.findClaimed(ids, nodeId, expires);
+        });
+        return claimed != null ? claimed : Collections.emptyList();
+    }
+
+    /**
+     * Pushes out the lease on every held job; the job store writes the new
+     * expiry with its next flush. Jobs another node has taken over are dropped.
+     */
+    void heartbeat() {
+        try {
+            LocalDateTime expires = leaseExpiry();
+            for (TransferJob job : held.values()) {
+                if (jobStore.isLost(job.getId())) {
+                    held.remove(job.getId(), job);
+                    continue;
+                }
+                job.setLeaseExpiresAt(expires);
+                jobStore.update(job);
+            }
+        } catch (Exception e) {
+            log.warn("Transfer lease heartbeat failed", e);
+        }
+    }
+
+    private static void release(TransferJob job) {
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(null);
+    }
+
+    /**
+     * Exponential backoff with jitter, so jobs failing together don't retry together.
+     */
+    private long backoff(int attempt) {
+        long ceiling = backoffBaseMs << Math.min(Math.max(attempt - 1, 0), 20);
+        ceiling = Math.min(backoffMaxMs, ceiling);
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private LocalDateTime leaseExpiry() {
+        return now().plusSeconds(leaseSeconds);
+    }
+
+    /** Millisecond precision so values compare equal after a database round trip. */
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.s3transfer.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when the transfer executor has no room left to accept another job.
+ */
+@Getter
+public class TransferRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TransferRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -1,66 +1,179 @@
 package com.example.s3transfer.service;
 
+import com.example.s3transfer.dto.TransferProgress;
 import com.example.s3transfer.dto.TransferRequest;
 import com.example.s3transfer.entity.TransferJob;
-import com.example.s3transfer.repository.TransferJobRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
 
+import javax.annotation.PostConstruct;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TransferService {
 
-    private final TransferJobRepository repo;
-    private final IS3Service s3Service;
+    private final TransferJobStore jobStore;
+    private final TransferCopier copier;
+    private final TransferExecutor executor;
+    private final TransferProgressHub progressHub;
+    private final TransferQueue queue;
+    private final TransferCheckpoints checkpoints;
+    private final ChecksumSettings checksumSettings;
+
+    @PostConstruct
+    public void init() {
+        queue.start(this::dispatch);
+    }
 
     public UUID startTransfer(TransferRequest req) {
         // Validate input
         if (req.getSourceBucket() == null || req.getDestinationBucket() == null || req.getFileKey() == null) {
             throw new IllegalArgumentException("Source bucket, destination bucket, and file key are required");
         }
+        copier.checkCredentials(req.getSourceCredentialId(), req.getDestinationCredentialId());
 
         TransferJob job = new TransferJob();
         job.setSourceBucket(req.getSourceBucket());
         job.setDestinationBucket(req.getDestinationBucket());
         job.setFileKey(req.getFileKey());
-        job.setStatus("IN_PROGRESS");
+        job.setSourceCredentialId(req.getSourceCredentialId());
+        job.setDestinationCredentialId(req.getDestinationCredentialId());
+        job.setEncrypt(req.isEncrypt());
+        ContentCoding coding = ContentCoding.of(req.getCompress());
+        job.setCompression(coding != null ? coding.getToken() : null);
+        ChecksumAlgorithm checksum = checksumSettings.resolve(req.getChecksum());
+        job.setChecksumAlgorithm(checksum != null ? checksum.toString() : null);
+        job.setStatus("QUEUED");
         job.setCreatedAt(LocalDateTime.now());
-        job = repo.save(job);
+        return queue.submit(job).getId();
+    }
 
-        // Start async transfer
-        performTransferAsync(job);
-        return job.getId();
+    /**
+     * Queues a job leased to this node on the local workers. A job whose bucket
+     * is at its limit isn't claimed again for a poll interval, so jobs for other
+     * buckets behind it get their turn.
+     *
+     * @return false if the workers or its buckets are saturated
+     */
+    boolean dispatch(TransferJob job) {
+        progressHub.queued(job);
+        try {
+            if (copier.canCopyAsync(job)) {
+                executor.submitAsync(() -> performTransferAsync(job));
+            } else {
+                executor.submit(job.getSourceBucket(), job.getDestinationBucket(), () -> performTransfer(job));
+            }
+            return true;
+        } catch (BucketBusyException e) {
+            progressHub.discard(job.getId());
+            job.setNextAttemptAt(LocalDateTime.now().plus(queue.getPollIntervalMs(), ChronoUnit.MILLIS));
+            return false;
+        } catch (TransferRejectedException e) {
+            progressHub.discard(job.getId());
+            return false;
+        }
     }
 
-    @Async
-    public void performTransferAsync(TransferJob job) {
+    void performTransfer(TransferJob job) {
+        TransferProgressHub.Progress progress = started(job);
+        Throwable failure = null;
         try {
-            log.info("Starting transfer: {}/{} -> {}/{}", 
-                    job.getSourceBucket(), job.getFileKey(), 
-                    job.getDestinationBucket(), job.getFileKey());
-            
-            s3Service.copyFile(job.getSourceBucket(), job.getDestinationBucket(), job.getFileKey());
-            
+            copier.copy(job, progress, checkpoints.forJob(job));
+        } catch (Exception e) {
+            failure = e;
+        }
+        finished(job, progress, failure);
+    }
+
+    /**
+     * Same as {@link #performTransfer}, finishing the job when the copy's
+     * future completes instead of waiting for it.
+     */
+    CompletableFuture<Void> performTransferAsync(TransferJob job) {
+        TransferProgressHub.Progress progress = started(job);
+        CompletableFuture<Long> copy;
+        try {
+            copy = copier.copyAsync(job, progress);
+        } catch (Exception e) {
+            copy = CompletableFuture.failedFuture(e);
+        }
+        return copy.handle((bytes, failure) -> {
+            finished(job, progress, failure != null ? IAsyncS3Service.unwrap(failure) : null);
+            return null;
+        });
+    }
+
+    private TransferProgressHub.Progress started(TransferJob job) {
+        job.setStatus("IN_PROGRESS");
+        jobStore.update(job);
+        log.info("Starting transfer: {}/{} -> {}/{}",
+                job.getSourceBucket(), job.getFileKey(),
+                job.getDestinationBucket(), job.getFileKey());
+        return progressHub.running(job);
+    }
+
+    /**
+     * @param failure null if the copy succeeded
+     */
+    private void finished(TransferJob job, TransferProgressHub.Progress progress, Throwable failure) {
+        if (failure == null) {
             job.setStatus("COMPLETED");
             job.setCompletedAt(LocalDateTime.now());
+            job.setErrorMessage(null);
+            queue.complete(job);
             log.info("Transfer completed: {}", job.getId());
-        } catch (Exception e) {
-            log.error("Transfer failed: {}", job.getId(), e);
-            job.setStatus("FAILED");
-            job.setErrorMessage(e.getMessage());
-            job.setCompletedAt(LocalDateTime.now());
+        } else {
+            log.error("Transfer failed: {}", job.getId(), failure);
+            queue.fail(job, failure.getMessage());
+        }
+        job.setBytesTotal(progress.getBytesTotal());
+        job.setBytesTransferred(progress.getBytesTransferred());
+        job.setBytesStored(progress.getBytesStored());
+        job.setCompressionCpuMs(progress.getCompressionCpuMs());
+        job.setChecksum(progress.getChecksum());
+        jobStore.update(job);
+        progressHub.finished(job);
+    }
+
+    /**
+     * Queues a failed job again with a fresh set of attempts. A multipart copy
+     * continues from its last checkpoint if the upload is still there.
+     */
+    public String resumeTransfer(UUID jobId) {
+        TransferJob job = jobStore.find(jobId)
+                .orElseThrow(() -> new RuntimeException("Transfer job not found: " + jobId));
+        if (!"FAILED".equals(job.getStatus())) {
+            throw new IllegalStateException("Only failed transfers can be resumed, job is " + job.getStatus());
+        }
+        queue.retry(job);
+        jobStore.update(job);
+        log.info("Transfer {} requeued{}", jobId,
+                job.getUploadId() != null ? " to resume upload " + job.getUploadId() : "");
+        return job.getStatus();
+    }
+
+    public TransferProgress getTransferProgress(UUID jobId) {
+        return progressHub.get(jobId);
+    }
+
+    public SseEmitter watchTransfers(List<UUID> jobIds) {
+        if (jobIds == null || jobIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one job ID is required");
         }
-        repo.save(job);
+        return progressHub.watch(jobIds);
     }
 
     public String getTransferStatus(UUID jobId) {
-        TransferJob job = repo.findById(jobId)
+        TransferJob job = jobStore.find(jobId)
                 .orElseThrow(() -> new RuntimeException("Transfer job not found: " + jobId));
         return job.getStatus();
     }
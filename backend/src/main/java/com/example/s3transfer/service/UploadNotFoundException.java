@@ -0,0 +1,11 @@
+package com.example.s3transfer.service;
+
+/**
+ * The multipart upload was completed, aborted or expired and can't be continued.
+ */
+public class UploadNotFoundException extends RuntimeException {
+
+    public UploadNotFoundException(String message) {
+        super(message);
+    }
+}
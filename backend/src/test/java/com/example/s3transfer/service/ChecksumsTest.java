@@ -0,0 +1,139 @@
+package com.example.s3transfer.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Whole-object and composite checksums, and verifying them against what the
+ * embedded S3 server stores for a multipart upload.
+ */
+class ChecksumsTest {
+
+    private static final String BUCKET = "checksums";
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    @TempDir
+    static Path root;
+
+    private static LocalS3 s3;
+    private static IS3Service service;
+
+    @BeforeAll
+    static void start() throws Exception {
+        s3 = LocalS3.start(root);
+        s3.client.createBucket(b -> b.bucket(BUCKET));
+        service = mock(IS3Service.class);
+        when(service.headObject(anyString(), anyString())).thenAnswer(call -> s3.client.headObject(b -> b
+                .bucket(call.getArgument(0)).key(call.getArgument(1)).checksumMode(ChecksumMode.ENABLED)));
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        s3.close();
+    }
+
+    @Test
+    void crc32cMatchesTheStandardCheckValue() {
+        byte[] bytes = "123456789".getBytes(StandardCharsets.US_ASCII);
+
+        // 0xE3069283, big-endian, as S3 encodes it
+        assertThat(Checksums.of(ChecksumAlgorithm.CRC32_C, bytes, 0, bytes.length)).isEqualTo("4waSgw==");
+    }
+
+    @Test
+    void compositeIsTheChecksumOfThePartChecksums() throws Exception {
+        byte[] first = "first part".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "second part".getBytes(StandardCharsets.UTF_8);
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        byte[] firstDigest = sha256.digest(first);
+        byte[] secondDigest = sha256.digest(second);
+        sha256.update(firstDigest);
+        sha256.update(secondDigest);
+        String expected = Base64.getEncoder().encodeToString(sha256.digest()) + "-2";
+
+        String composite = Checksums.composite(ChecksumAlgorithm.SHA256, List.of(
+                Base64.getEncoder().encodeToString(firstDigest),
+                Base64.getEncoder().encodeToString(secondDigest)));
+
+        assertThat(composite).isEqualTo(expected);
+        assertThat(Checksums.isComposite(composite)).isTrue();
+        assertThat(Checksums.isComposite(Base64.getEncoder().encodeToString(firstDigest))).isFalse();
+    }
+
+    @Test
+    void verifyAcceptsTheCompositeOfAMultipartUpload() {
+        List<String> partChecksums = uploadInParts("multipart", 3);
+
+        String stored = Checksums.verify(service, BUCKET, "multipart", ChecksumAlgorithm.CRC32_C,
+                Checksums.composite(ChecksumAlgorithm.CRC32_C, partChecksums));
+
+        assertThat(stored).endsWith("-3");
+    }
+
+    @Test
+    void verifyRejectsACompositeOfOtherParts() {
+        List<String> partChecksums = uploadInParts("reordered", 2);
+        List<String> swapped = Arrays.asList(partChecksums.get(1), partChecksums.get(0));
+
+        assertThatThrownBy(() -> Checksums.verify(service, BUCKET, "reordered", ChecksumAlgorithm.CRC32_C,
+                Checksums.composite(ChecksumAlgorithm.CRC32_C, swapped)))
+                .isInstanceOf(ChecksumMismatchException.class)
+                .hasMessageContaining("mismatch");
+    }
+
+    @Test
+    void verifyRejectsAnObjectStoredWithoutAChecksum() {
+        s3.client.putObject(b -> b.bucket(BUCKET).key("plain"), RequestBody.fromString("no checksum"));
+
+        assertThatThrownBy(() -> Checksums.verify(service, BUCKET, "plain", ChecksumAlgorithm.CRC32_C, null))
+                .isInstanceOf(ChecksumMismatchException.class)
+                .hasMessageContaining("without a CRC32C checksum");
+    }
+
+    /**
+     * @return the CRC32C of each part as computed here, in part order
+     */
+    private static List<String> uploadInParts(String key, int parts) {
+        String uploadId = s3.client.createMultipartUpload(b -> b.bucket(BUCKET).key(key)
+                .checksumAlgorithm(ChecksumAlgorithm.CRC32_C)).uploadId();
+        List<String> checksums = new ArrayList<>();
+        List<CompletedPart> completed = new ArrayList<>();
+        for (int partNumber = 1; partNumber <= parts; partNumber++) {
+            byte[] bytes = new byte[partNumber < parts ? PART_SIZE : 1024];
+            Arrays.fill(bytes, (byte) partNumber);
+            String checksum = Checksums.of(ChecksumAlgorithm.CRC32_C, bytes, 0, bytes.length);
+            int number = partNumber;
+            UploadPartResponse response = s3.client.uploadPart(b -> b.bucket(BUCKET).key(key).uploadId(uploadId)
+                    .partNumber(number).checksumAlgorithm(ChecksumAlgorithm.CRC32_C).checksumCRC32C(checksum),
+                    RequestBody.fromBytes(bytes));
+            assertThat(response.checksumCRC32C()).isEqualTo(checksum);
+            checksums.add(checksum);
+            completed.add(CompletedPart.builder().partNumber(number).eTag(response.eTag())
+                    .checksumCRC32C(checksum).build());
+        }
+        s3.client.completeMultipartUpload(b -> b.bucket(BUCKET).key(key).uploadId(uploadId)
+                .multipartUpload(m -> m.parts(completed)));
+        return checksums;
+    }
+}
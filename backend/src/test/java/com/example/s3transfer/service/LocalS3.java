@@ -0,0 +1,54 @@
+package com.example.s3transfer.service;
+
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * A {@link LocalS3Server} on a free port over a temporary directory, with an
+ * SDK client pointed at it the way {@code app.s3.endpoint} would.
+ */
+final class LocalS3 implements AutoCloseable {
+
+    final LocalS3Server server = new LocalS3Server();
+    final S3Client client;
+
+    private LocalS3(Path root) throws IOException {
+        ReflectionTestUtils.setField(server, "port", 0);
+        ReflectionTestUtils.setField(server, "storageRoot", root.toString());
+        ReflectionTestUtils.setField(server, "dedup", true);
+        ReflectionTestUtils.setField(server, "threads", 4);
+        ReflectionTestUtils.setField(server, "bandwidthPerSecond", DataSize.ofBytes(0));
+        server.start();
+        client = S3Client.builder()
+                .endpointOverride(endpoint())
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                .httpClientBuilder(ApacheHttpClient.builder())
+                .build();
+    }
+
+    static LocalS3 start(Path root) throws IOException {
+        return new LocalS3(root);
+    }
+
+    URI endpoint() {
+        return URI.create("http://localhost:" + server.getPort());
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        client.close();
+        server.stop();
+    }
+}
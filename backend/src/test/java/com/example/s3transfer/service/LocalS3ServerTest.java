@@ -0,0 +1,114 @@
+package com.example.s3transfer.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ListObjectsV2 paging and Range handling on the embedded S3 server, through
+ * the SDK the app uses.
+ */
+class LocalS3ServerTest {
+
+    private static final String BUCKET = "listing";
+
+    @TempDir
+    static Path root;
+
+    private static LocalS3 s3;
+
+    @BeforeAll
+    static void start() throws Exception {
+        s3 = LocalS3.start(root);
+        s3.client.createBucket(b -> b.bucket(BUCKET));
+        for (String key : new String[]{"a", "b", "c"}) {
+            s3.client.putObject(b -> b.bucket(BUCKET).key(key), RequestBody.fromString(key));
+        }
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        s3.close();
+    }
+
+    @Test
+    void pagesFollowContinuationTokens() {
+        ListObjectsV2Response first = s3.client.listObjectsV2(b -> b.bucket(BUCKET).maxKeys(2));
+        assertThat(first.contents()).extracting(S3Object::key).containsExactly("a", "b");
+        assertThat(first.isTruncated()).isTrue();
+
+        ListObjectsV2Response second = s3.client.listObjectsV2(b -> b.bucket(BUCKET).maxKeys(2)
+                .continuationToken(first.nextContinuationToken()));
+        assertThat(second.contents()).extracting(S3Object::key).containsExactly("c");
+        assertThat(second.isTruncated()).isFalse();
+        assertThat(second.nextContinuationToken()).isNull();
+    }
+
+    @Test
+    void zeroMaxKeysIsAnEmptyCompletePage() {
+        ListObjectsV2Response page = s3.client.listObjectsV2(b -> b.bucket(BUCKET).maxKeys(0));
+
+        assertThat(page.contents()).isEmpty();
+        assertThat(page.keyCount()).isZero();
+        assertThat(page.isTruncated()).isFalse();
+        assertThat(page.nextContinuationToken()).isNull();
+    }
+
+    @Test
+    void maxKeysIsClamped() {
+        ListObjectsV2Response large = s3.client.listObjectsV2(b -> b.bucket(BUCKET).maxKeys(5000));
+        assertThat(large.maxKeys()).isEqualTo(1000);
+        assertThat(large.contents()).hasSize(3);
+
+        ListObjectsV2Response negative = s3.client.listObjectsV2(b -> b.bucket(BUCKET).maxKeys(-1));
+        assertThat(negative.maxKeys()).isZero();
+        assertThat(negative.contents()).isEmpty();
+    }
+
+    @Test
+    void nonNumericMaxKeysIsInvalidArgument() throws Exception {
+        // the SDK only sends integers, so go around it
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(s3.endpoint() + "/" + BUCKET + "?list-type=2&max-keys=ten")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(response.body()).contains("<Code>InvalidArgument</Code>");
+    }
+
+    @Test
+    void malformedRangeIsIgnored() throws Exception {
+        HttpResponse<String> response = get("a", "bytes=one-two");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Range")).isEmpty();
+        assertThat(response.body()).isEqualTo("a");
+    }
+
+    @Test
+    void rangePastTheEndIsNotSatisfiable() throws Exception {
+        HttpResponse<String> response = get("a", "bytes=5-9");
+
+        assertThat(response.statusCode()).isEqualTo(416);
+        assertThat(response.headers().firstValue("Content-Range")).contains("bytes */1");
+    }
+
+    private static HttpResponse<String> get(String key, String range) throws Exception {
+        return HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(s3.endpoint() + "/" + BUCKET + "/" + key)).header("Range", range)
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
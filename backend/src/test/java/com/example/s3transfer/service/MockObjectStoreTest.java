@@ -0,0 +1,67 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.dto.MultipartUploadSummary;
+import com.example.s3transfer.dto.ObjectAttributes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Multipart uploads outlive a restart of the mock store, so a resumed
+ * transfer finds its parts and the sweeper still sees when an upload began.
+ */
+class MockObjectStoreTest {
+
+    private static final String BUCKET = "bucket";
+
+    @TempDir
+    Path root;
+
+    @Test
+    void uploadsSurviveARestart() throws Exception {
+        MockObjectStore store = new MockObjectStore(root, false);
+        store.createBucket(BUCKET);
+        ObjectAttributes attributes = new ObjectAttributes("text/plain", Map.of("origin", "test"));
+        attributes.setChecksumAlgorithm(ChecksumAlgorithm.CRC32_C);
+        String uploadId = store.createUpload(BUCKET, "key", attributes);
+        MockObjectStore.StoredPart part = store.writePart(uploadId, 1, body("part one"), 8, null);
+        MultipartUploadSummary before = store.listUploads(BUCKET).get(0);
+        Files.writeString(root.resolve(".tmp").resolve("leftover"), "x");
+
+        MockObjectStore restarted = new MockObjectStore(root, false);
+
+        assertThat(restarted.listUploads(BUCKET)).containsExactly(before);
+        assertThat(restarted.listParts(uploadId)).containsEntry(1, part);
+        assertThat(root.resolve(".tmp")).isEmptyDirectory();
+        MockObjectStore.StoredObject object = restarted.completeUpload(uploadId, List.of(1));
+        assertThat(object.getContentType()).isEqualTo("text/plain");
+        assertThat(object.getMetadata()).containsEntry("origin", "test");
+        assertThat(object.getChecksumAlgorithm()).isEqualTo(ChecksumAlgorithm.CRC32_C);
+        assertThat(restarted.listUploads(BUCKET)).isEmpty();
+    }
+
+    @Test
+    void uploadDirectoryWithoutARecordIsRemoved() throws Exception {
+        Path stray = Files.createDirectories(root.resolve(".uploads").resolve("stray"));
+        Files.writeString(stray.resolve("1"), "part");
+
+        MockObjectStore store = new MockObjectStore(root, false);
+        store.createBucket(BUCKET);
+
+        assertThat(store.listUploads(BUCKET)).isEmpty();
+        assertThat(stray).doesNotExist();
+    }
+
+    private static ByteArrayInputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
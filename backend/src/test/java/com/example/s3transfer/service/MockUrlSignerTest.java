@@ -0,0 +1,129 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.controller.MockPresignedController;
+import com.example.s3transfer.dto.PresignedUrl;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.util.UriComponentsBuilder;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The mock's presigned URLs: a signature covers everything the request may
+ * do, and the presigned endpoint refuses tampered and expired URLs.
+ */
+class MockUrlSignerTest {
+
+    private final MockUrlSigner signer = new MockUrlSigner("test-secret", "http://localhost:8081/");
+
+    @Test
+    void signedUrlVerifies() {
+        Instant before = Instant.now();
+        PresignedUrl url = signer.sign("PUT", "bucket", "dir/a key+1", "upload-1", 3, "text/plain",
+                Duration.ofMinutes(15));
+
+        assertThat(url.getUrl()).startsWith("http://localhost:8081" + MockUrlSigner.PATH + "?");
+        assertThat(url.getHeaders()).containsEntry("Content-Type", "text/plain");
+        assertThat(url.getExpiresAt()).isBetween(before.plus(Duration.ofMinutes(15)).minusSeconds(1),
+                Instant.now().plus(Duration.ofMinutes(15)));
+        Map<String, String> query = query(url);
+        assertThat(query.get("key")).isEqualTo("dir/a key+1");
+        assertThat(signer.verify("PUT", "bucket", "dir/a key+1", "upload-1", 3, "text/plain",
+                Long.parseLong(query.get("expires")), query.get("signature"))).isTrue();
+    }
+
+    @Test
+    void signatureCoversEveryParameter() {
+        PresignedUrl url = signer.sign("PUT", "bucket", "key", "upload-1", 3, "text/plain", Duration.ofMinutes(15));
+        Map<String, String> query = query(url);
+        long expires = Long.parseLong(query.get("expires"));
+        String signature = query.get("signature");
+
+        assertThat(signer.verify("GET", "bucket", "key", "upload-1", 3, "text/plain", expires, signature)).isFalse();
+        assertThat(signer.verify("PUT", "other", "key", "upload-1", 3, "text/plain", expires, signature)).isFalse();
+        assertThat(signer.verify("PUT", "bucket", "key2", "upload-1", 3, "text/plain", expires, signature)).isFalse();
+        assertThat(signer.verify("PUT", "bucket", "key", "upload-2", 3, "text/plain", expires, signature)).isFalse();
+        assertThat(signer.verify("PUT", "bucket", "key", "upload-1", 4, "text/plain", expires, signature)).isFalse();
+        assertThat(signer.verify("PUT", "bucket", "key", "upload-1", 3, null, expires, signature)).isFalse();
+        assertThat(signer.verify("PUT", "bucket", "key", "upload-1", 3, "text/plain", expires + 3600, signature))
+                .isFalse();
+        assertThat(signer.verify("PUT", "bucket", "key", "upload-1", 3, "text/plain", expires, null)).isFalse();
+        assertThat(new MockUrlSigner("other-secret", "http://localhost:8081")
+                .verify("PUT", "bucket", "key", "upload-1", 3, "text/plain", expires, signature)).isFalse();
+    }
+
+    @Test
+    void presignedEndpointAcceptsAValidUpload() throws Exception {
+        IS3Service s3 = mock(IS3Service.class);
+        when(s3.headObject("bucket", "key")).thenReturn(HeadObjectResponse.builder().eTag("\"abc\"").build());
+        PresignedUrl url = signer.sign("PUT", "bucket", "key", null, null, "text/plain", Duration.ofMinutes(5));
+
+        mockMvc(s3).perform(put(URI.create(url.getUrl())).contentType(MediaType.TEXT_PLAIN).content("hello"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc\""));
+        verify(s3).uploadFile(eq("bucket"), eq("key"), any(InputStream.class), eq(5L), any());
+    }
+
+    @Test
+    void presignedEndpointRefusesExpiredUrls() throws Exception {
+        IS3Service s3 = mock(IS3Service.class);
+        PresignedUrl url = signer.sign("GET", "bucket", "key", null, null, null, Duration.ofSeconds(-5));
+
+        mockMvc(s3).perform(get(URI.create(url.getUrl())))
+                .andExpect(status().isForbidden())
+                .andExpect(content().string("Request has expired"));
+        verifyNoInteractions(s3);
+    }
+
+    @Test
+    void presignedEndpointRefusesTamperedUrls() throws Exception {
+        IS3Service s3 = mock(IS3Service.class);
+        PresignedUrl url = signer.sign("PUT", "bucket", "key", null, null, "text/plain", Duration.ofMinutes(5));
+        MockMvc mvc = mockMvc(s3);
+
+        mvc.perform(put(URI.create(url.getUrl().replace("key=key", "key=other"))).contentType(MediaType.TEXT_PLAIN)
+                        .content("hello"))
+                .andExpect(status().isForbidden())
+                .andExpect(content().string("Signature does not match"));
+        mvc.perform(put(URI.create(url.getUrl())).contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isForbidden())
+                .andExpect(content().string("Content-Type does not match the signed one"));
+        verify(s3, never()).uploadFile(any(), any(), any(), anyLong(), any());
+    }
+
+    private MockMvc mockMvc(IS3Service s3) {
+        return MockMvcBuilders.standaloneSetup(new MockPresignedController(s3, signer)).build();
+    }
+
+    private static Map<String, String> query(PresignedUrl url) {
+        Map<String, String> query = new HashMap<>();
+        UriComponentsBuilder.fromUriString(url.getUrl()).build().getQueryParams()
+                .forEach((name, values) -> query.put(name, URLDecoder.decode(values.get(0), StandardCharsets.UTF_8)));
+        return query;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.s3transfer.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A part copy S3 refuses surfaces as {@link ServerSideCopyDeniedException},
+ * so the transfer falls back to relaying, and leaves no upload behind even
+ * when the copy is checkpointed.
+ */
+class MultipartCopierTest {
+
+    private static final long PART = MultipartSettings.MIN_PART_SIZE;
+
+    private final ExecutorService partExecutor = Executors.newFixedThreadPool(2);
+    private final IS3Service s3 = mock(IS3Service.class);
+    private final MultipartCopier copier = new MultipartCopier(s3, partExecutor, settings());
+
+    @AfterEach
+    void stop() {
+        partExecutor.shutdownNow();
+    }
+
+    @Test
+    void deniedPartCopyAbortsTheUploadAndIsReportedAsDenied() {
+        when(s3.createMultipartUpload(eq("destination"), eq("key"), any())).thenReturn("upload-1");
+        when(s3.uploadPartCopy(anyString(), anyString(), anyString(), anyString(), anyString(), anyInt(), anyLong(),
+                anyLong())).thenThrow(denied(403));
+        RecordingCheckpoint checkpoint = new RecordingCheckpoint();
+
+        assertThatThrownBy(() -> copier.copy("source", "destination", "key", source(3 * PART),
+                TransferProgressListener.NONE, checkpoint))
+                .isInstanceOf(ServerSideCopyDeniedException.class)
+                .hasMessageContaining("refused");
+
+        verify(s3).abortMultipartUpload("destination", "key", "upload-1");
+        verify(s3, never()).completeMultipartUpload(anyString(), anyString(), anyString(), any());
+        // the relay that follows must not try to resume the aborted upload
+        assertThat(checkpoint.finished).isTrue();
+    }
+
+    @Test
+    void partCopyAlreadyReportedAsDeniedIsPassedOn() {
+        when(s3.createMultipartUpload(eq("destination"), eq("key"), any())).thenReturn("upload-1");
+        ServerSideCopyDeniedException denied = new ServerSideCopyDeniedException("Copy of part 1 refused");
+        when(s3.uploadPartCopy(anyString(), anyString(), anyString(), anyString(), anyString(), anyInt(), anyLong(),
+                anyLong())).thenThrow(denied);
+
+        assertThatThrownBy(() -> copier.copy("source", "destination", "key", source(2 * PART),
+                TransferProgressListener.NONE))
+                .isSameAs(denied);
+        verify(s3).abortMultipartUpload("destination", "key", "upload-1");
+    }
+
+    @Test
+    void otherPartFailuresKeepACheckpointedUpload() {
+        when(s3.createMultipartUpload(eq("destination"), eq("key"), any())).thenReturn("upload-1");
+        when(s3.uploadPartCopy(anyString(), anyString(), anyString(), anyString(), anyString(), anyInt(), anyLong(),
+                anyLong())).thenThrow(denied(500));
+        RecordingCheckpoint checkpoint = new RecordingCheckpoint();
+
+        assertThatThrownBy(() -> copier.copy("source", "destination", "key", source(2 * PART),
+                TransferProgressListener.NONE, checkpoint))
+                .isNotInstanceOf(ServerSideCopyDeniedException.class)
+                .hasMessageStartingWith("Multipart copy failed");
+
+        verify(s3, never()).abortMultipartUpload(anyString(), anyString(), anyString());
+        assertThat(checkpoint.finished).isFalse();
+    }
+
+    private static S3Exception denied(int status) {
+        return (S3Exception) S3Exception.builder()
+                .statusCode(status)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode(status == 403 ? "AccessDenied" : "InternalError")
+                        .errorMessage("status " + status).build())
+                .build();
+    }
+
+    private static HeadObjectResponse source(long size) {
+        return HeadObjectResponse.builder().contentLength(size).eTag("\"etag\"").metadata(Map.of()).build();
+    }
+
+    private static MultipartSettings settings() {
+        return new MultipartSettings(DataSize.ofBytes(PART), DataSize.ofBytes(PART), 2);
+    }
+
+    private static class RecordingCheckpoint implements TransferCheckpoint {
+
+        volatile boolean finished;
+
+        @Override
+        public void partCompleted(String uploadId, CompletedPart part, long firstByte, long lastByte) {
+        }
+
+        @Override
+        public void finished() {
+            finished = true;
+        }
+
+        @Override
+        public boolean isDurable() {
+            return true;
+        }
+    }
+}
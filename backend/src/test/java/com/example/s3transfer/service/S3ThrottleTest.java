@@ -0,0 +1,82 @@
+package com.example.s3transfer.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Request slots are given back however a call ends, and bodies that can't be
+ * replayed are not retried.
+ */
+class S3ThrottleTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private S3Throttle throttle;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(registry);
+        throttle = new S3Throttle(provider);
+        ReflectionTestUtils.setField(throttle, "enabled", true);
+        // a single slot, so a leaked one shows up as a timeout on the next call
+        ReflectionTestUtils.setField(throttle, "initialLimit", 1);
+        ReflectionTestUtils.setField(throttle, "minLimit", 1);
+        ReflectionTestUtils.setField(throttle, "maxLimit", 1);
+        ReflectionTestUtils.setField(throttle, "decreaseRatio", 0.7);
+        ReflectionTestUtils.setField(throttle, "decreaseCooldownMs", 0L);
+        ReflectionTestUtils.setField(throttle, "acquireTimeoutMs", 200L);
+        ReflectionTestUtils.setField(throttle, "prefixDepth", 1);
+        ReflectionTestUtils.setField(throttle, "maxPartitions", 16);
+        ReflectionTestUtils.setField(throttle, "maxAttempts", 3);
+        ReflectionTestUtils.setField(throttle, "baseDelayMs", 1L);
+        ReflectionTestUtils.setField(throttle, "maxDelayMs", 1L);
+        ReflectionTestUtils.setField(throttle, "budgetRatio", 0.2);
+        ReflectionTestUtils.setField(throttle, "budgetMax", 10.0);
+        ReflectionTestUtils.setField(throttle, "budgetMinPerSecond", 1.0);
+        throttle.init();
+    }
+
+    @Test
+    void slotIsReleasedWhenTheRequestThrowsAnError() {
+        assertThatThrownBy(() -> throttle.call("bucket", "key", true, () -> {
+            throw new AssertionError("boom");
+        })).isInstanceOf(AssertionError.class);
+
+        assertThat(throttle.call("bucket", "key", true, () -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void transientFailureIsRetriedOnlyIfTheBodyCanBeReplayed() {
+        AtomicInteger calls = new AtomicInteger();
+        assertThatThrownBy(() -> throttle.call("bucket", "key", false, () -> {
+            calls.incrementAndGet();
+            throw S3Exception.builder().statusCode(500).build();
+        })).isInstanceOf(S3Exception.class);
+        assertThat(calls).hasValue(1);
+        assertThat(registry.get(S3Throttle.RETRY_COUNTER).tag("result", "not_replayable").counter().count())
+                .isEqualTo(1);
+
+        calls.set(0);
+        String result = throttle.call("bucket", "key", true, () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw S3Exception.builder().statusCode(500).build();
+            }
+            return "ok";
+        });
+        assertThat(result).isEqualTo("ok");
+        assertThat(calls).hasValue(2);
+    }
+}
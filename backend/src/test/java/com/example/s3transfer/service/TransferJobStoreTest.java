@@ -0,0 +1,137 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.entity.TransferJob;
+import com.example.s3transfer.repository.TransferJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The write-behind job store against H2: a new job's row is inserted right
+ * away, later changes wait for a flush that writes every column they touch,
+ * and an update is dropped once another node holds the lease.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "app.transfer.store.flush-interval-ms=3600000"
+})
+@Import(TransferJobStore.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransferJobStoreTest {
+
+    @Autowired
+    private TransferJobStore store;
+
+    @Autowired
+    private TransferJobRepository repo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        store.flush();
+        repo.deleteAll();
+    }
+
+    @Test
+    void createIsWrittenRightAway() {
+        TransferJob job = store.create(newJob("node-a"));
+
+        assertThat(store.find(job.getId())).containsSame(job);
+        assertThat(store.pendingWrites()).isZero();
+        assertThat(row(job.getId())).containsEntry("status", "QUEUED").containsEntry("lease_owner", "node-a");
+    }
+
+    @Test
+    void updatesBetweenFlushesCollapseIntoOneWriteOfEveryColumn() {
+        TransferJob job = store.create(newJob("node-a"));
+
+        job.setStatus("IN_PROGRESS");
+        job.setBytesTotal(4096L);
+        job.setUploadId("upload-1");
+        job.setSourceEtag("\"etag\"");
+        store.update(job);
+        LocalDateTime completed = now();
+        job.setStatus("COMPLETED");
+        job.setBytesTransferred(4096L);
+        job.setBytesStored(1024L);
+        job.setCompressionCpuMs(7L);
+        job.setChecksum("yZRlqg==-2");
+        job.setCompletedAt(completed);
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(null);
+        store.update(job);
+
+        assertThat(store.pendingWrites()).isEqualTo(1);
+        store.flush();
+
+        Map<String, Object> row = row(job.getId());
+        assertThat(row)
+                .containsEntry("status", "COMPLETED")
+                .containsEntry("bytes_total", 4096L)
+                .containsEntry("bytes_transferred", 4096L)
+                .containsEntry("bytes_stored", 1024L)
+                .containsEntry("compression_cpu_ms", 7L)
+                .containsEntry("checksum", "yZRlqg==-2")
+                .containsEntry("upload_id", "upload-1")
+                .containsEntry("source_etag", "\"etag\"")
+                .containsEntry("lease_owner", null);
+        assertThat(repo.findById(job.getId()).orElseThrow().getCompletedAt()).isEqualTo(completed);
+    }
+
+    @Test
+    void updateIsDroppedOnceAnotherNodeHoldsTheLease() {
+        TransferJob job = store.create(newJob("node-a"));
+        jdbc.update("update transfer_jobs set lease_owner = 'node-b' where id = ?", job.getId());
+
+        job.setStatus("FAILED");
+        store.update(job);
+        store.flush();
+
+        assertThat(store.isLost(job.getId())).isTrue();
+        assertThat(row(job.getId())).containsEntry("status", "QUEUED").containsEntry("lease_owner", "node-b");
+        // reads now come from the table, and further updates are ignored
+        assertThat(store.find(job.getId()).orElseThrow().getLeaseOwner()).isEqualTo("node-b");
+        store.update(job);
+        assertThat(store.pendingWrites()).isZero();
+    }
+
+    private Map<String, Object> row(UUID id) {
+        Map<String, Object> row = jdbc.queryForMap("select * from transfer_jobs where id = ?", id);
+        // H2 reports column labels in upper case
+        Map<String, Object> lower = new HashMap<>();
+        row.forEach((column, value) -> lower.put(column.toLowerCase(), value));
+        return lower;
+    }
+
+    private static TransferJob newJob(String owner) {
+        TransferJob job = new TransferJob();
+        job.setSourceBucket("source");
+        job.setDestinationBucket("destination");
+        job.setFileKey("key");
+        job.setStatus("QUEUED");
+        job.setCreatedAt(now());
+        job.setLeaseOwner(owner);
+        job.setLeaseExpiresAt(now().plusSeconds(60));
+        job.setAttempts(1);
+        return job;
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+}
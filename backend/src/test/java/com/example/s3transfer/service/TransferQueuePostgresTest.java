@@ -0,0 +1,176 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.entity.TransferJob;
+import com.example.s3transfer.repository.TransferJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lease claims against PostgreSQL, the only database the SKIP LOCKED claim
+ * query is meant for: a claimer passes over rows another transaction has
+ * locked instead of waiting on them, so concurrent polls never block or fail.
+ * Skipped when Docker isn't available.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQL10Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.transfer.queue.node-id=node-a",
+        "app.transfer.queue.poll-interval-ms=3600000",
+        "app.transfer.store.flush-interval-ms=3600000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import({TransferQueue.class, TransferJobStore.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransferQueuePostgresTest {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private TransferJobRepository repo;
+
+    @Autowired
+    private TransferQueue queue;
+
+    @Autowired
+    private TransferJobStore jobStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockBean
+    private TransferExecutor executor;
+
+    @AfterEach
+    void cleanUp() {
+        queue.shutdown();
+        repo.deleteAll();
+    }
+
+    @Test
+    void lockedRowsAreSkippedNotWaitedOn() throws Exception {
+        List<UUID> ids = saveQueued(2);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<List<UUID>> holder = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(s -> {
+            List<UUID> first = idsOf(repo.findClaimable(now(), MAX_ATTEMPTS, PageRequest.of(0, 1)));
+            locked.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return first;
+        }));
+        try {
+            assertThat(locked.await(30, TimeUnit.SECONDS)).isTrue();
+
+            // without SKIP LOCKED this would block until the holder commits
+            List<UUID> rest = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(s ->
+                    idsOf(repo.findClaimable(now(), MAX_ATTEMPTS, PageRequest.of(0, 10)))))
+                    .get(10, TimeUnit.SECONDS);
+
+            assertThat(rest).containsExactly(ids.get(1));
+        } finally {
+            release.countDown();
+        }
+        assertThat(holder.get(30, TimeUnit.SECONDS)).containsExactly(ids.get(0));
+    }
+
+    @Test
+    void concurrentPollersLeaseEachJobOnceWithoutConflicts() throws Exception {
+        List<UUID> ids = saveQueued(20);
+        when(executor.idleWorkers()).thenReturn(3);
+        TransferQueue other = new TransferQueue(repo, jobStore, executor, transactionTemplate, "node-b", 60,
+                3600000, MAX_ATTEMPTS, 5000, 300000, 10000, 5);
+        List<TransferJob> dispatched = new CopyOnWriteArrayList<>();
+        int held = queue.getHeldLeases();
+        queue.start(dispatched::add);
+        other.start(dispatched::add);
+        try {
+            // unlike on H2, a poll never has to be retried because of the other's locks
+            CompletableFuture<?>[] pollers = Stream.of(queue, other)
+                    .map(q -> CompletableFuture.runAsync(() -> {
+                        long deadline = System.currentTimeMillis() + 30000;
+                        while (dispatched.size() < ids.size() && System.currentTimeMillis() < deadline) {
+                            q.poll();
+                        }
+                    }))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(pollers).get(60, TimeUnit.SECONDS);
+        } finally {
+            other.shutdown();
+        }
+
+        assertThat(dispatched).extracting(TransferJob::getId).containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(repo.findAllById(ids)).allSatisfy(job -> {
+            assertThat(job.getAttempts()).isEqualTo(1);
+            assertThat(job.getLeaseOwner()).isIn("node-a", "node-b");
+        });
+        assertThat(queue.getHeldLeases() - held + other.getHeldLeases()).isEqualTo(ids.size());
+    }
+
+    private List<UUID> saveQueued(int count) {
+        LocalDateTime created = now().minusMinutes(1);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TransferJob job = new TransferJob();
+            job.setId(UUID.randomUUID());
+            job.setSourceBucket("source");
+            job.setDestinationBucket("destination");
+            job.setFileKey("key-" + job.getId());
+            job.setStatus("QUEUED");
+            job.setCreatedAt(created.plusSeconds(i));
+            job.setNextAttemptAt(created.plusSeconds(i));
+            ids.add(repo.save(job).getId());
+        }
+        return ids;
+    }
+
+    private static List<UUID> idsOf(List<TransferJob> jobs) {
+        return jobs.stream().map(TransferJob::getId).collect(Collectors.toList());
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.s3transfer.service;
+
+import com.example.s3transfer.entity.TransferJob;
+import com.example.s3transfer.repository.TransferJobRepository;
+import org.hibernate.dialect.PostgreSQL10Dialect;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lease claims against H2: the claim query asks to skip rows other claimers
+ * have locked, the guarded claim update leases a job to one node only, and
+ * submitted jobs are inserted before they are leased.
+ *
+ * <p>H2 2.1 has no SKIP LOCKED and ignores the -2 lock timeout, so nothing
+ * here shows concurrent claimers passing over each other's locked rows; the
+ * pollers below only prove a job is never leased twice when they collide.
+ * {@link TransferQueuePostgresTest} covers that against PostgreSQL.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "app.transfer.queue.node-id=node-a",
+        "app.transfer.queue.poll-interval-ms=3600000",
+        "app.transfer.store.flush-interval-ms=3600000"
+})
+@Import({TransferQueue.class, TransferJobStore.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransferQueueTest {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Autowired
+    private TransferJobRepository repo;
+
+    @Autowired
+    private TransferQueue queue;
+
+    @Autowired
+    private TransferJobStore jobStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockBean
+    private TransferExecutor executor;
+
+    @AfterEach
+    void cleanUp() {
+        queue.shutdown();
+        repo.deleteAll();
+    }
+
+    @Test
+    void claimQueryAsksToSkipLockedRows() throws Exception {
+        Method findClaimable = TransferJobRepository.class.getMethod("findClaimable", LocalDateTime.class,
+                int.class, Pageable.class);
+        assertThat(findClaimable.getAnnotation(Lock.class).value()).isEqualTo(LockModeType.PESSIMISTIC_WRITE);
+        QueryHint timeout = findClaimable.getAnnotation(QueryHints.class).value()[0];
+        assertThat(timeout.name()).isEqualTo("javax.persistence.lock.timeout");
+
+        // what the hint turns into on the production dialect; H2 2.1 can't run it
+        String lock = new PostgreSQL10Dialect().getWriteLockString("j", Integer.parseInt(timeout.value()));
+        assertThat(lock).isEqualTo(" for update of j skip locked");
+    }
+
+    @Test
+    void concurrentPollersLeaseEachJobOnce() throws Exception {
+        List<UUID> ids = saveQueued(20);
+        when(executor.idleWorkers()).thenReturn(3);
+        TransferQueue other = new TransferQueue(repo, jobStore, executor, transactionTemplate, "node-b", 60,
+                3600000, MAX_ATTEMPTS, 5000, 300000, 10000, 5);
+        List<TransferJob> dispatched = new CopyOnWriteArrayList<>();
+        int held = queue.getHeldLeases();
+        queue.start(dispatched::add);
+        other.start(dispatched::add);
+        try {
+            // H2 has no SKIP LOCKED, so a poller can wait on or fail against the other's locks;
+            // like the scheduled poll, it simply tries again
+            CompletableFuture<?>[] pollers = Stream.of(queue, other)
+                    .map(q -> CompletableFuture.runAsync(() -> {
+                        long deadline = System.currentTimeMillis() + 30000;
+                        while (dispatched.size() < ids.size() && System.currentTimeMillis() < deadline) {
+                            try {
+                                q.poll();
+                            } catch (RuntimeException e) {
+                                // lock conflict; retry
+                            }
+                        }
+                    }))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(pollers).get(60, TimeUnit.SECONDS);
+        } finally {
+            other.shutdown();
+        }
+
+        assertThat(dispatched).extracting(TransferJob::getId).containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(repo.findAllById(ids)).allSatisfy(job -> {
+            assertThat(job.getAttempts()).isEqualTo(1);
+            assertThat(job.getLeaseOwner()).isIn("node-a", "node-b");
+        });
+        assertThat(queue.getHeldLeases() - held + other.getHeldLeases()).isEqualTo(ids.size());
+    }
+
+    @Test
+    void submittedJobIsInsertedBeforeItIsLeased() {
+        when(executor.idleWorkers()).thenReturn(1);
+        List<TransferJob> dispatched = new ArrayList<>();
+        queue.start(job -> {
+            // the row must already be there, leased to this node, when a worker gets the job
+            TransferJob row = repo.findById(job.getId()).orElseThrow();
+            assertThat(row.getLeaseOwner()).isEqualTo("node-a");
+            assertThat(row.getAttempts()).isEqualTo(1);
+            return dispatched.add(job);
+        });
+
+        TransferJob job = queue.submit(queued(now()));
+
+        assertThat(dispatched).containsExactly(job);
+        assertThat(job.getLeaseOwner()).isEqualTo("node-a");
+        assertThat(jobStore.pendingWrites()).isZero();
+    }
+
+    @Test
+    void submittedJobWaitsInTheTableWithoutIdleWorkers() {
+        when(executor.idleWorkers()).thenReturn(0);
+        queue.start(job -> {
+            throw new AssertionError("nothing should be dispatched");
+        });
+
+        TransferJob job = queue.submit(queued(now()));
+
+        TransferJob row = repo.findById(job.getId()).orElseThrow();
+        assertThat(row.getLeaseOwner()).isNull();
+        assertThat(row.getAttempts()).isZero();
+        assertThat(row.getStatus()).isEqualTo("QUEUED");
+    }
+
+    @Test
+    void claimedRowIsNotLeasedTwice() {
+        List<UUID> ids = saveQueued(1);
+        LocalDateTime now = now();
+        LocalDateTime expires = now.plusSeconds(60);
+
+        int won = transactionTemplate.execute(s -> repo.claim(ids, "node-a", expires, now, MAX_ATTEMPTS));
+        int lost = transactionTemplate.execute(s -> repo.claim(ids, "node-b", expires, now, MAX_ATTEMPTS));
+
+        assertThat(won).isEqualTo(1);
+        assertThat(lost).isZero();
+        TransferJob job = repo.findById(ids.get(0)).orElseThrow();
+        assertThat(job.getLeaseOwner()).isEqualTo("node-a");
+        assertThat(job.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredLeaseIsClaimedByAnotherNode() {
+        UUID id = saveQueued(1).get(0);
+        LocalDateTime now = now();
+        TransferJob job = repo.findById(id).orElseThrow();
+        job.setStatus("IN_PROGRESS");
+        job.setLeaseOwner("node-b");
+        job.setLeaseExpiresAt(now.minusSeconds(1));
+        job.setAttempts(1);
+        repo.save(job);
+
+        int won = transactionTemplate.execute(s -> repo.claim(List.of(id), "node-a", now.plusSeconds(60), now,
+                MAX_ATTEMPTS));
+
+        assertThat(won).isEqualTo(1);
+        TransferJob claimed = repo.findById(id).orElseThrow();
+        assertThat(claimed.getLeaseOwner()).isEqualTo("node-a");
+        assertThat(claimed.getStatus()).isEqualTo("QUEUED");
+        assertThat(claimed.getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void pollLeasesDueJobsUpToIdleWorkers() {
+        List<UUID> due = saveQueued(3);
+        TransferJob later = queued(now());
+        later.setNextAttemptAt(now().plusMinutes(5));
+        repo.save(later);
+        when(executor.idleWorkers()).thenReturn(2);
+        List<TransferJob> dispatched = new ArrayList<>();
+        int held = queue.getHeldLeases();
+        queue.start(job -> dispatched.add(job));
+
+        queue.poll();
+
+        assertThat(dispatched).extracting(TransferJob::getId).containsExactlyInAnyOrderElementsOf(due.subList(0, 2));
+        assertThat(dispatched).allSatisfy(job -> {
+            assertThat(job.getLeaseOwner()).isEqualTo("node-a");
+            assertThat(job.getLeaseExpiresAt()).isAfter(LocalDateTime.now());
+        });
+        assertThat(queue.getHeldLeases()).isEqualTo(held + 2);
+        Set<String> owners = repo.findAll().stream()
+                .filter(job -> job.getLeaseOwner() != null)
+                .map(job -> job.getId() + "=" + job.getLeaseOwner())
+                .collect(Collectors.toSet());
+        assertThat(owners).containsExactlyInAnyOrder(due.get(0) + "=node-a", due.get(1) + "=node-a");
+    }
+
+    private List<UUID> saveQueued(int count) {
+        LocalDateTime created = now().minusMinutes(1);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(repo.save(queued(created.plusSeconds(i))).getId());
+        }
+        return ids;
+    }
+
+    private static TransferJob queued(LocalDateTime createdAt) {
+        TransferJob job = new TransferJob();
+        job.setId(UUID.randomUUID());
+        job.setSourceBucket("source");
+        job.setDestinationBucket("destination");
+        job.setFileKey("key-" + job.getId());
+        job.setStatus("QUEUED");
+        job.setCreatedAt(createdAt);
+        job.setNextAttemptAt(createdAt);
+        return job;
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+}